@@ -39,6 +39,12 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -60,6 +66,10 @@ public class DependencyServiceImpl implements DependencyService {
     private static final int MINIMAL_GAV_PARTS = 3;
     private static final int MAXIMAL_GAV_PARTS = 5;
     private static final String GAV_SEPARATOR = "_";
+    //comma separated resources to resolve in the background when the service starts
+    public static final String PRE_RESOLVE_DEPENDENCIES = "dependency.preResolve";
+    public static final String PRE_RESOLVE_THREADS = "dependency.preResolve.threads";
+    private static final int PRE_RESOLVE_DEFAULT_THREADS = 4;
 
     private Method launcherMethod;
 
@@ -75,7 +85,14 @@ public class DependencyServiceImpl implements DependencyService {
     @Autowired
     private MavenConfig mavenConfig;
 
-    private final Lock lock = new ReentrantLock();
+    //maven runs in process and takes its arguments from the system properties, so it runs one command at a time
+    private final Lock mavenLock = new ReentrantLock();
+
+    //path file --> the lock of building it, so the threads wait only for the dependencies they need
+    private final ConcurrentMap<String, Lock> buildLocks = new ConcurrentHashMap<>();
+
+    //path file --> the classpath parsed from it
+    private final ConcurrentMap<String, ResolvedClasspath> resolvedClasspaths = new ConcurrentHashMap<>();
 
     @PostConstruct
     private void initMaven() throws ClassNotFoundException, NoSuchMethodException, MalformedURLException {
@@ -95,6 +112,62 @@ public class DependencyServiceImpl implements DependencyService {
                 initMavenLogs();
             }
         }
+        preResolveDependencies();
+    }
+
+    private void preResolveDependencies() {
+        String resources = System.getProperty(PRE_RESOLVE_DEPENDENCIES);
+        if (resources == null || resources.trim().isEmpty()) {
+            return;
+        }
+        final Set<String> resourcesToResolve = StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(resources));
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                resolveDependencies(resourcesToResolve, Integer.getInteger(PRE_RESOLVE_THREADS, PRE_RESOLVE_DEFAULT_THREADS));
+            }
+        }, "dependencies-pre-resolver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Resolves the dependencies of every resource in parallel so their classpath is ready for the executions
+     * @return the resources that failed to resolve with their errors
+     */
+    public Map<String, Exception> resolveDependencies(Collection<String> resources, int threads) {
+        final Map<String, Exception> failures = new ConcurrentHashMap<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "dependencies-resolver");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long startTime = System.currentTimeMillis();
+        for (final String resource : resources) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        getResourceDependencies(resource);
+                    } catch (Exception e) {
+                        logger.error("Failed to resolve dependencies of [" + resource + "]", e);
+                        failures.put(resource, e);
+                    }
+                }
+            });
+        }
+        executorService.shutdown();
+        try {
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Resolved dependencies of [" + (resources.size() - failures.size()) + "] out of [" + resources.size() +
+                "] resources in [" + (System.currentTimeMillis() - startTime) + "] ms");
+        return failures;
     }
 
     private void initMavenLogs() {
@@ -147,52 +220,79 @@ public class DependencyServiceImpl implements DependencyService {
     public Set<String> getDependencies(Set<String> resources) {
         Set<String> resolvedResources = new HashSet<>(resources.size());
         for (String resource : resources) {
-            String[] gav = extractGav(resource);
-            List<String> dependencyList;
-            try {
-                String dependencyFilePath = getResourceFolderPath(gav) + SEPARATOR + getPathFileName(gav);
-                File file = new File(dependencyFilePath);
-                if(!file.exists()) {
-                    lock.lock();
-                    try {
-                        //double check if file was just created
-                        if(!file.exists()) {
-                            buildDependencyFile(gav);
-                        }
-                    } finally {
-                        lock.unlock();
+            resolvedResources.addAll(getResourceDependencies(resource));
+        }
+        return resolvedResources;
+    }
+
+    private List<String> getResourceDependencies(String resource) {
+        String[] gav = extractGav(resource);
+        String dependencyFilePath = getResourceFolderPath(gav) + SEPARATOR + getPathFileName(gav);
+        File file = new File(dependencyFilePath);
+        ResolvedClasspath resolvedClasspath = resolvedClasspaths.get(dependencyFilePath);
+        if ((resolvedClasspath != null) && resolvedClasspath.isUpToDate(file)) {
+            return resolvedClasspath.paths;
+        }
+        try {
+            if(!file.exists()) {
+                Lock buildLock = getBuildLock(dependencyFilePath);
+                buildLock.lock();
+                try {
+                    //double check if file was just created
+                    if(!file.exists()) {
+                        buildDependencyFile(gav);
                     }
+                } finally {
+                    buildLock.unlock();
                 }
-                dependencyList = parse(file);
-                resolvedResources.addAll(dependencyList);
-            } catch (IOException e) {
-                throw new IllegalStateException(e);
             }
+            //taken before parsing so a change during the parsing invalidates the cached classpath
+            long lastModified = file.lastModified();
+            long length = file.length();
+            List<String> dependencyList = parse(file);
+            resolvedClasspaths.put(dependencyFilePath, new ResolvedClasspath(lastModified, length, dependencyList));
+            return dependencyList;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
         }
-        return resolvedResources;
+    }
+
+    private Lock getBuildLock(String dependencyFilePath) {
+        Lock buildLock = buildLocks.get(dependencyFilePath);
+        if (buildLock == null) {
+            Lock newBuildLock = new ReentrantLock();
+            buildLock = buildLocks.putIfAbsent(dependencyFilePath, newBuildLock);
+            if (buildLock == null) {
+                buildLock = newBuildLock;
+            }
+        }
+        return buildLock;
     }
 
     @SuppressWarnings("ConstantConditions")
     private void buildDependencyFile(String[] gav) {
         String pomFilePath = getPomFilePath(gav);
         downloadArtifacts(gav);
-        System.setProperty(MavenConfig.MAVEN_MDEP_OUTPUT_FILE_PROPEPRTY, getPathFileName(gav));
-        System.setProperty(MavenConfig.MAVEN_MDEP_PATH_SEPARATOR_PROPERTY, PATH_FILE_DELIMITER);
-        System.setProperty(MavenConfig.MAVEN_CLASSWORLDS_CONF_PROPERTY, System.getProperty(MavenConfig.MAVEN_M2_CONF_PATH));
-        String[] args = new String[]{
-                MavenConfig.MAVEN_SETTINGS_FILE_FLAG,
-                System.getProperty(MavenConfig.MAVEN_SETTINGS_PATH),
-                MavenConfig.MAVEN_POM_PATH_PROPERTY,
-                pomFilePath,
-                MavenConfig.DEPENDENCY_BUILD_CLASSPATH_COMMAND,
-                MavenConfig.LOG_FILE_FLAG,
-                constructGavLogFilePath(gav, "build")
-        };
-
+        mavenLock.lock();
         try {
+            System.setProperty(MavenConfig.MAVEN_MDEP_OUTPUT_FILE_PROPEPRTY, getPathFileName(gav));
+            System.setProperty(MavenConfig.MAVEN_MDEP_PATH_SEPARATOR_PROPERTY, PATH_FILE_DELIMITER);
+            System.setProperty(MavenConfig.MAVEN_CLASSWORLDS_CONF_PROPERTY, System.getProperty(MavenConfig.MAVEN_M2_CONF_PATH));
+            String[] args = new String[]{
+                    MavenConfig.MAVEN_SETTINGS_FILE_FLAG,
+                    System.getProperty(MavenConfig.MAVEN_SETTINGS_PATH),
+                    MavenConfig.MAVEN_POM_PATH_PROPERTY,
+                    pomFilePath,
+                    MavenConfig.DEPENDENCY_BUILD_CLASSPATH_COMMAND,
+                    MavenConfig.LOG_FILE_FLAG,
+                    constructGavLogFilePath(gav, "build")
+            };
+
             invokeMavenLauncher(args);
         } catch (Exception e) {
             throw new IllegalStateException("Failed to build classpath using Maven", e);
+        } finally {
+            mavenLock.unlock();
         }
 
         File fileToReturn = new File(getResourceFolderPath(gav) + SEPARATOR + getPathFileName(gav));
@@ -211,7 +311,8 @@ public class DependencyServiceImpl implements DependencyService {
                 what + ".log").getAbsolutePath();
     }
 
-    private void invokeMavenLauncher(String[] args) throws Exception {
+    //must be called under the maven lock
+    protected void invokeMavenLauncher(String[] args) throws Exception {
         ClassLoader origCL = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader(mavenClassLoader);
         try {
@@ -231,19 +332,22 @@ public class DependencyServiceImpl implements DependencyService {
     }
 
     private void getDependencies(String[] gav, Boolean transitive) {
-        System.setProperty(MavenConfig.MAVEN_ARTIFACT_PROPERTY, getResourceString(gav, transitive));
-        System.setProperty(MavenConfig.MAVEN_CLASSWORLDS_CONF_PROPERTY, System.getProperty(MavenConfig.MAVEN_M2_CONF_PATH));
-        System.setProperty(MavenConfig.TRANSITIVE_PROPERTY, transitive.toString());
-        String[] args = new String[]{
-                MavenConfig.MAVEN_SETTINGS_FILE_FLAG,
-                System.getProperty(MavenConfig.MAVEN_SETTINGS_PATH),
-                MavenConfig.DEPENDENCY_GET_COMMAND,
-                MavenConfig.LOG_FILE_FLAG,
-                constructGavLogFilePath(gav, "get")
-        };
-
+        mavenLock.lock();
         try {
+            System.setProperty(MavenConfig.MAVEN_ARTIFACT_PROPERTY, getResourceString(gav, transitive));
+            System.setProperty(MavenConfig.MAVEN_CLASSWORLDS_CONF_PROPERTY, System.getProperty(MavenConfig.MAVEN_M2_CONF_PATH));
+            System.setProperty(MavenConfig.TRANSITIVE_PROPERTY, transitive.toString());
+            String[] args = new String[]{
+                    MavenConfig.MAVEN_SETTINGS_FILE_FLAG,
+                    System.getProperty(MavenConfig.MAVEN_SETTINGS_PATH),
+                    MavenConfig.DEPENDENCY_GET_COMMAND,
+                    MavenConfig.LOG_FILE_FLAG,
+                    constructGavLogFilePath(gav, "get")
+            };
+
             invokeMavenLauncher(args);
+            //the pom is rewritten while maven is held, so a resolution of another artifact that depends on it
+            //does not read it in the middle of the rewrite
             if(!transitive) {
                 removeTestScopeDependencies(gav);
             }
@@ -251,8 +355,8 @@ public class DependencyServiceImpl implements DependencyService {
             throw new IllegalStateException("Failed to download resources using Maven", e);
         } finally {
             System.getProperties().remove(MavenConfig.TRANSITIVE_PROPERTY);
+            mavenLock.unlock();
         }
-
     }
 
     private void removeTestScopeDependencies(String[] gav) {
@@ -370,4 +474,21 @@ public class DependencyServiceImpl implements DependencyService {
     private String getVersion(String[] gav) {
         return gav[2];
     }
+
+    private static class ResolvedClasspath {
+        private final long lastModified;
+        private final long length;
+        private final List<String> paths;
+
+        ResolvedClasspath(long lastModified, long length, List<String> paths) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.paths = Collections.unmodifiableList(paths);
+        }
+
+        //a missing file has no modification time
+        boolean isUpToDate(File file) {
+            return (lastModified != 0) && (file.lastModified() == lastModified) && (file.length() == length);
+        }
+    }
 }
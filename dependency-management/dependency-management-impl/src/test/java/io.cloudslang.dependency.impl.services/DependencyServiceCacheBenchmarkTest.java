@@ -0,0 +1,85 @@
+package io.cloudslang.dependency.impl.services;
+
+import io.cloudslang.dependency.impl.services.DependencyServiceCacheTest.StandInDependencyService;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static io.cloudslang.dependency.impl.services.DependencyServiceCacheTest.MAVEN_COMMAND_TIME;
+import static io.cloudslang.dependency.impl.services.DependencyServiceCacheTest.createArtifacts;
+import static io.cloudslang.dependency.impl.services.DependencyServiceCacheTest.createDependencyService;
+
+/**
+ * Resolves dependencies against a local folder with the maven launcher stand-in of {@link DependencyServiceCacheTest}
+ */
+public class DependencyServiceCacheBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(DependencyServiceCacheBenchmarkTest.class);
+
+    private static final int GAVS = 20;
+    private static final int WARM_LOOKUPS = 200;
+
+    @Rule
+    public TemporaryFolder repository = new TemporaryFolder();
+
+    private List<String> gavs;
+
+    @Before
+    public void setUp() throws IOException {
+        gavs = createArtifacts(repository, GAVS);
+    }
+
+    /**
+     * Resolves the classpath of new artifacts one by one and in parallel, and looks up the resolved classpath
+     * with and without the in memory cache
+     */
+    @Test
+    public void resolutionBenchmark() throws IOException {
+        StandInDependencyService dependencyService = createDependencyService(repository.getRoot());
+        long startTime = System.currentTimeMillis();
+        for (String gav : gavs) {
+            dependencyService.getDependencies(Collections.singleton(gav));
+        }
+        long sequentialTime = System.currentTimeMillis() - startTime;
+
+        deletePathFiles();
+        dependencyService = createDependencyService(repository.getRoot());
+        startTime = System.currentTimeMillis();
+        dependencyService.resolveDependencies(gavs, 8);
+        long parallelTime = System.currentTimeMillis() - startTime;
+
+        Set<String> resources = new HashSet<>(gavs);
+        startTime = System.currentTimeMillis();
+        for (int i = 0; i < WARM_LOOKUPS; i++) {
+            createDependencyService(repository.getRoot()).getDependencies(resources);
+        }
+        long parseTime = System.currentTimeMillis() - startTime;
+
+        startTime = System.currentTimeMillis();
+        for (int i = 0; i < WARM_LOOKUPS; i++) {
+            dependencyService.getDependencies(resources);
+        }
+        long cachedTime = System.currentTimeMillis() - startTime;
+
+        logger.info(GAVS + " new artifacts resolved in " + sequentialTime + " ms one by one, in " + parallelTime +
+                " ms in parallel (maven commands take " + MAVEN_COMMAND_TIME + " ms and run one at a time)");
+        logger.info(WARM_LOOKUPS + " lookups of " + GAVS + " resolved artifacts took " + parseTime +
+                " ms reading the path files, " + cachedTime + " ms cached");
+    }
+
+    private void deletePathFiles() {
+        for (int i = 0; i < GAVS; i++) {
+            Assert.assertTrue(new File(repository.getRoot(), "group/artifact" + i + "/1.0/artifact" + i + "-1.0.path").delete());
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.cloudslang.dependency.impl.services;
+
+import io.cloudslang.dependency.api.services.MavenConfig;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves dependencies against a local folder with a stand-in for the maven launcher
+ */
+public class DependencyServiceCacheTest {
+    private static final int GAVS = 20;
+    static final long MAVEN_COMMAND_TIME = 20L;
+
+    static {
+        //the launcher stand-in does not read them but they are passed to maven
+        if (System.getProperty(MavenConfig.MAVEN_M2_CONF_PATH) == null) {
+            System.setProperty(MavenConfig.MAVEN_M2_CONF_PATH, "m2.conf");
+        }
+        if (System.getProperty(MavenConfig.MAVEN_SETTINGS_PATH) == null) {
+            System.setProperty(MavenConfig.MAVEN_SETTINGS_PATH, "settings.xml");
+        }
+    }
+
+    @Rule
+    public TemporaryFolder repository = new TemporaryFolder();
+
+    private List<String> gavs;
+
+    @Before
+    public void setUp() throws IOException {
+        gavs = createArtifacts(repository, GAVS);
+    }
+
+    @Test
+    public void testClasspathCached() throws IOException {
+        StandInDependencyService dependencyService = createDependencyService(repository.getRoot());
+        Set<String> resources = Collections.singleton(gavs.get(0));
+        Set<String> dependencies = dependencyService.getDependencies(resources);
+        Assert.assertEquals(2, dependencies.size());
+        Assert.assertEquals(dependencies, dependencyService.getDependencies(resources));
+        Assert.assertEquals(3, dependencyService.mavenCommands.get());
+
+        //the changed path file is parsed again
+        File pathFile = new File(repository.getRoot(), "group/artifact0/1.0/artifact0-1.0.path");
+        write(pathFile, "/a.jar;/b.jar;/c.jar");
+        Assert.assertTrue(pathFile.setLastModified(pathFile.lastModified() - 10000));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("/a.jar", "/b.jar", "/c.jar")), dependencyService.getDependencies(resources));
+        Assert.assertEquals(3, dependencyService.mavenCommands.get());
+    }
+
+    @Test
+    public void testResolveDependencies() {
+        StandInDependencyService dependencyService = createDependencyService(repository.getRoot());
+        List<String> resources = new ArrayList<>(gavs);
+        resources.add("group:artifact" + GAVS + ":1.0");
+
+        //the artifact that is not in the repository fails after its first maven command
+        Map<String, Exception> failures = dependencyService.resolveDependencies(resources, 4);
+        Assert.assertEquals(Collections.singleton("group:artifact" + GAVS + ":1.0"), failures.keySet());
+        Assert.assertEquals(GAVS * 3 + 1, dependencyService.mavenCommands.get());
+
+        dependencyService.getDependencies(new HashSet<>(gavs));
+        Assert.assertEquals(GAVS * 3 + 1, dependencyService.mavenCommands.get());
+    }
+
+    static List<String> createArtifacts(TemporaryFolder repository, int count) throws IOException {
+        List<String> gavs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File folder = repository.newFolder("group", "artifact" + i, "1.0");
+            write(new File(folder, "artifact" + i + "-1.0.pom"), "<project><dependencies><dependency><scope>test</scope></dependency></dependencies></project>");
+            write(new File(folder, "artifact" + i + "-1.0.jar"), "");
+            gavs.add("group:artifact" + i + ":1.0");
+        }
+        return gavs;
+    }
+
+    static StandInDependencyService createDependencyService(final File repository) {
+        StandInDependencyService dependencyService = new StandInDependencyService();
+        ReflectionTestUtils.setField(dependencyService, "mavenConfig", new MavenConfig() {
+            @Override
+            public String getLocalMavenRepoPath() {
+                return repository.getAbsolutePath();
+            }
+
+            @Override
+            public String getRemoteMavenRepoUrl() {
+                return null;
+            }
+        });
+        return dependencyService;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+    }
+
+    static class StandInDependencyService extends DependencyServiceImpl {
+        final AtomicInteger mavenCommands = new AtomicInteger();
+
+        //writes the classpath file next to the pom instead of running maven
+        @Override
+        protected void invokeMavenLauncher(String[] args) throws Exception {
+            mavenCommands.incrementAndGet();
+            Thread.sleep(MAVEN_COMMAND_TIME);
+            List<String> arguments = Arrays.asList(args);
+            if (arguments.contains(MavenConfig.DEPENDENCY_BUILD_CLASSPATH_COMMAND)) {
+                File pom = new File(arguments.get(arguments.indexOf(MavenConfig.MAVEN_POM_PATH_PROPERTY) + 1));
+                write(new File(pom.getParentFile(), System.getProperty(MavenConfig.MAVEN_MDEP_OUTPUT_FILE_PROPEPRTY)),
+                        new File(pom.getParentFile(), "dependency.jar").getAbsolutePath());
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.cache;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cache.spi.TransactionalDataRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.access.CollectionRegionAccessStrategy;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.spi.access.NaturalIdRegionAccessStrategy;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A region of the {@link ScoreRegionFactory} - a map in the least recently used order, bounded by the max entries of the region
+ * (0 for no bound), with the statistics of its use
+ */
+public class ScoreCacheRegion implements QueryResultsRegion, TimestampsRegion, TransactionalDataRegion {
+
+    private final String name;
+    private final int maxEntries;
+    private final ScoreRegionFactory regionFactory;
+    private final CacheDataDescription metadata;
+
+    private final LinkedHashMap<Object, Object> entries = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+            if (maxEntries > 0 && size() > maxEntries) {
+                evictionCount++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // guarded by the region
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long evictionCount;
+
+    ScoreCacheRegion(String name, int maxEntries, ScoreRegionFactory regionFactory, CacheDataDescription metadata) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.regionFactory = regionFactory;
+        this.metadata = metadata;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public synchronized Object get(Object key) throws CacheException {
+        Object value = entries.get(key);
+        if (value == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized void put(Object key, Object value) throws CacheException {
+        entries.put(key, value);
+        putCount++;
+    }
+
+    @Override
+    public synchronized void evict(Object key) throws CacheException {
+        entries.remove(key);
+    }
+
+    @Override
+    public synchronized void evictAll() throws CacheException {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized boolean contains(Object key) {
+        return entries.containsKey(key);
+    }
+
+    @Override
+    public void destroy() throws CacheException {
+        evictAll();
+    }
+
+    @Override
+    public long getSizeInMemory() {
+        return -1;
+    }
+
+    @Override
+    public synchronized long getElementCountInMemory() {
+        return entries.size();
+    }
+
+    @Override
+    public long getElementCountOnDisk() {
+        return 0;
+    }
+
+    @Override
+    public synchronized Map toMap() {
+        return new HashMap<>(entries);
+    }
+
+    @Override
+    public long nextTimestamp() {
+        return regionFactory.nextTimestamp();
+    }
+
+    @Override
+    public int getTimeout() {
+        return regionFactory.getTimeout();
+    }
+
+    @Override
+    public boolean isTransactionAware() {
+        return false;
+    }
+
+    @Override
+    public CacheDataDescription getCacheDataDescription() {
+        return metadata;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getPutCount() {
+        return putCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Cache region [" + name + "]: entries " + entries.size() + (maxEntries > 0 ? " of " + maxEntries : "") + ", hits " + hitCount +
+                ", misses " + missCount + ", puts " + putCount + ", evictions " + evictionCount;
+    }
+
+    static class Entity extends ScoreCacheRegion implements EntityRegion {
+
+        Entity(String name, int maxEntries, ScoreRegionFactory regionFactory, CacheDataDescription metadata) {
+            super(name, maxEntries, regionFactory, metadata);
+        }
+
+        @Override
+        public EntityRegionAccessStrategy buildAccessStrategy(AccessType accessType) throws CacheException {
+            return new ScoreRegionAccessStrategy.Entity(this, isReadOnly(accessType));
+        }
+    }
+
+    static class NaturalId extends ScoreCacheRegion implements NaturalIdRegion {
+
+        NaturalId(String name, int maxEntries, ScoreRegionFactory regionFactory, CacheDataDescription metadata) {
+            super(name, maxEntries, regionFactory, metadata);
+        }
+
+        @Override
+        public NaturalIdRegionAccessStrategy buildAccessStrategy(AccessType accessType) throws CacheException {
+            return new ScoreRegionAccessStrategy.NaturalId(this, isReadOnly(accessType));
+        }
+    }
+
+    static class Collection extends ScoreCacheRegion implements CollectionRegion {
+
+        Collection(String name, int maxEntries, ScoreRegionFactory regionFactory, CacheDataDescription metadata) {
+            super(name, maxEntries, regionFactory, metadata);
+        }
+
+        @Override
+        public CollectionRegionAccessStrategy buildAccessStrategy(AccessType accessType) throws CacheException {
+            return new ScoreRegionAccessStrategy.Collection(this, isReadOnly(accessType));
+        }
+    }
+
+    private static boolean isReadOnly(AccessType accessType) {
+        switch (accessType) {
+            case READ_ONLY:
+                return true;
+            case NONSTRICT_READ_WRITE:
+                return false;
+            default:
+                throw new CacheException("Access type [" + accessType.getExternalName() + "] is not supported, use read-only or nonstrict-read-write");
+        }
+    }
+}
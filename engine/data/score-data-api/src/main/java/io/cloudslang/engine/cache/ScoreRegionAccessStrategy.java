@@ -0,0 +1,186 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.cache;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.access.CollectionRegionAccessStrategy;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.hibernate.cache.spi.access.NaturalIdRegionAccessStrategy;
+import org.hibernate.cache.spi.access.RegionAccessStrategy;
+import org.hibernate.cache.spi.access.SoftLock;
+
+/**
+ * The read-only and nonstrict-read-write access to a {@link ScoreCacheRegion}.
+ * Read-only entries are cached after they are inserted and can not be updated, nonstrict-read-write entries are evicted
+ * when they change and cached again on the next load.
+ */
+abstract class ScoreRegionAccessStrategy implements RegionAccessStrategy {
+
+    protected final ScoreCacheRegion region;
+    protected final boolean readOnly;
+
+    ScoreRegionAccessStrategy(ScoreCacheRegion region, boolean readOnly) {
+        this.region = region;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public Object get(Object key, long txTimestamp) throws CacheException {
+        return region.get(key);
+    }
+
+    @Override
+    public boolean putFromLoad(Object key, Object value, long txTimestamp, Object version) throws CacheException {
+        return putFromLoad(key, value, txTimestamp, version, false);
+    }
+
+    @Override
+    public boolean putFromLoad(Object key, Object value, long txTimestamp, Object version, boolean minimalPutOverride) throws CacheException {
+        if (minimalPutOverride && region.contains(key)) {
+            return false;
+        }
+        region.put(key, value);
+        return true;
+    }
+
+    @Override
+    public SoftLock lockItem(Object key, Object version) throws CacheException {
+        return null;
+    }
+
+    @Override
+    public SoftLock lockRegion() throws CacheException {
+        return null;
+    }
+
+    @Override
+    public void unlockItem(Object key, SoftLock lock) throws CacheException {
+        region.evict(key);
+    }
+
+    @Override
+    public void unlockRegion(SoftLock lock) throws CacheException {
+        region.evictAll();
+    }
+
+    @Override
+    public void remove(Object key) throws CacheException {
+        region.evict(key);
+    }
+
+    @Override
+    public void removeAll() throws CacheException {
+        region.evictAll();
+    }
+
+    @Override
+    public void evict(Object key) throws CacheException {
+        region.evict(key);
+    }
+
+    @Override
+    public void evictAll() throws CacheException {
+        region.evictAll();
+    }
+
+    protected boolean afterInsert(Object key, Object value) {
+        if (!readOnly) return false;
+        region.put(key, value);
+        return true;
+    }
+
+    protected boolean update(Object key) {
+        if (readOnly) throw new UnsupportedOperationException("Can't update a read-only entry of cache region [" + region.getName() + "]");
+        region.evict(key);
+        return false;
+    }
+
+    static class Entity extends ScoreRegionAccessStrategy implements EntityRegionAccessStrategy {
+
+        Entity(ScoreCacheRegion.Entity region, boolean readOnly) {
+            super(region, readOnly);
+        }
+
+        @Override
+        public EntityRegion getRegion() {
+            return (EntityRegion) region;
+        }
+
+        @Override
+        public boolean insert(Object key, Object value, Object version) throws CacheException {
+            return false;
+        }
+
+        @Override
+        public boolean afterInsert(Object key, Object value, Object version) throws CacheException {
+            return afterInsert(key, value);
+        }
+
+        @Override
+        public boolean update(Object key, Object value, Object currentVersion, Object previousVersion) throws CacheException {
+            return update(key);
+        }
+
+        @Override
+        public boolean afterUpdate(Object key, Object value, Object currentVersion, Object previousVersion, SoftLock lock) throws CacheException {
+            region.evict(key);
+            return false;
+        }
+    }
+
+    static class NaturalId extends ScoreRegionAccessStrategy implements NaturalIdRegionAccessStrategy {
+
+        NaturalId(ScoreCacheRegion.NaturalId region, boolean readOnly) {
+            super(region, readOnly);
+        }
+
+        @Override
+        public NaturalIdRegion getRegion() {
+            return (NaturalIdRegion) region;
+        }
+
+        @Override
+        public boolean insert(Object key, Object value) throws CacheException {
+            return false;
+        }
+
+        @Override
+        public boolean afterInsert(Object key, Object value) throws CacheException {
+            return super.afterInsert(key, value);
+        }
+
+        @Override
+        public boolean update(Object key, Object value) throws CacheException {
+            return update(key);
+        }
+
+        @Override
+        public boolean afterUpdate(Object key, Object value, SoftLock lock) throws CacheException {
+            region.evict(key);
+            return false;
+        }
+    }
+
+    static class Collection extends ScoreRegionAccessStrategy implements CollectionRegionAccessStrategy {
+
+        Collection(ScoreCacheRegion.Collection region, boolean readOnly) {
+            super(region, readOnly);
+        }
+
+        @Override
+        public CollectionRegion getRegion() {
+            return (CollectionRegion) region;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.cache;
+
+import org.apache.log4j.Logger;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.CacheDataDescription;
+import org.hibernate.cache.spi.CollectionRegion;
+import org.hibernate.cache.spi.EntityRegion;
+import org.hibernate.cache.spi.NaturalIdRegion;
+import org.hibernate.cache.spi.QueryResultsRegion;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cfg.Settings;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process second level cache for hibernate, set with hibernate.cache.region.factory_class.
+ * Every region keeps up to hibernate.cache.score.max_entries entries (10000 by default) and evicts the least recently used ones,
+ * a region can be given its own size with hibernate.cache.score.max_entries.[region name].
+ * The update timestamps region is never evicted, as hibernate requires.
+ *
+ * The cache is local to the engine and its entries never expire, so it suits only entities that never change, like the running
+ * execution plans - a change made by another engine of the cluster is never seen by this cache.
+ * Only the read-only and nonstrict-read-write access types are supported.
+ * The statistics of the regions are available from {@link #getRegions()}, the region factory of a session factory is
+ * returned by SessionFactoryImplementor.getSettings().getRegionFactory(). The engine exposes them over JMX with EngineCacheMBean.
+ */
+public class ScoreRegionFactory implements RegionFactory {
+
+    public static final String MAX_ENTRIES = "hibernate.cache.score.max_entries";
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    // the timestamps of the regions have 12 bits for the updates of the same millisecond, like the timestamps of other cache providers
+    private static final int TIMESTAMP_SHIFT = 12;
+    private static final int TIMEOUT = 60000 << TIMESTAMP_SHIFT;
+
+    private final Logger logger = Logger.getLogger(getClass());
+
+    private final ConcurrentMap<String, ScoreCacheRegion> regions = new ConcurrentHashMap<>();
+    private final AtomicLong lastTimestamp = new AtomicLong();
+    private Properties properties = new Properties();
+
+    @Override
+    public void start(Settings settings, Properties properties) throws CacheException {
+        if (properties != null) this.properties = properties;
+    }
+
+    @Override
+    public void stop() {
+        for (ScoreCacheRegion region : regions.values()) {
+            region.destroy();
+        }
+        regions.clear();
+    }
+
+    @Override
+    public boolean isMinimalPutsEnabledByDefault() {
+        return false;
+    }
+
+    @Override
+    public AccessType getDefaultAccessType() {
+        return AccessType.NONSTRICT_READ_WRITE;
+    }
+
+    @Override
+    public long nextTimestamp() {
+        long now = System.currentTimeMillis() << TIMESTAMP_SHIFT;
+        while (true) {
+            long last = lastTimestamp.get();
+            long next = now > last ? now : last + 1;
+            if (lastTimestamp.compareAndSet(last, next)) return next;
+        }
+    }
+
+    @Override
+    public EntityRegion buildEntityRegion(String regionName, Properties properties, CacheDataDescription metadata) throws CacheException {
+        return register(new ScoreCacheRegion.Entity(regionName, getMaxEntries(regionName), this, metadata));
+    }
+
+    @Override
+    public NaturalIdRegion buildNaturalIdRegion(String regionName, Properties properties, CacheDataDescription metadata) throws CacheException {
+        return register(new ScoreCacheRegion.NaturalId(regionName, getMaxEntries(regionName), this, metadata));
+    }
+
+    @Override
+    public CollectionRegion buildCollectionRegion(String regionName, Properties properties, CacheDataDescription metadata) throws CacheException {
+        return register(new ScoreCacheRegion.Collection(regionName, getMaxEntries(regionName), this, metadata));
+    }
+
+    @Override
+    public QueryResultsRegion buildQueryResultsRegion(String regionName, Properties properties) throws CacheException {
+        return register(new ScoreCacheRegion(regionName, getMaxEntries(regionName), this, null));
+    }
+
+    @Override
+    public TimestampsRegion buildTimestampsRegion(String regionName, Properties properties) throws CacheException {
+        return register(new ScoreCacheRegion(regionName, 0, this, null));
+    }
+
+    public Collection<ScoreCacheRegion> getRegions() {
+        return Collections.unmodifiableCollection(regions.values());
+    }
+
+    public ScoreCacheRegion getRegion(String regionName) {
+        return regions.get(regionName);
+    }
+
+    int getTimeout() {
+        return TIMEOUT;
+    }
+
+    private <T extends ScoreCacheRegion> T register(T region) {
+        regions.put(region.getName(), region);
+        if (logger.isDebugEnabled()) logger.debug("Cache region [" + region.getName() + "] was created with max entries " + region.getMaxEntries());
+        return region;
+    }
+
+    private int getMaxEntries(String regionName) {
+        String maxEntries = properties.getProperty(MAX_ENTRIES + "." + regionName, properties.getProperty(MAX_ENTRIES));
+        return maxEntries == null ? DEFAULT_MAX_ENTRIES : Integer.parseInt(maxEntries.trim());
+    }
+}
@@ -30,6 +30,7 @@ public class DataBaseDetector {
 
 	private final static String MSSQL_PRODUCT_NAME = "Microsoft SQL Server";
 	private final static String ORACLE_PRODUCT_NAME = "Oracle";
+	private final static String POSTGRES_PRODUCT_NAME = "PostgreSQL";
 
 	@Autowired
 	private DataSource dataSource;
@@ -42,6 +43,10 @@ public class DataBaseDetector {
 		return isDataBaseMatch(ORACLE_PRODUCT_NAME);
 	}
 
+	public boolean isPostgres() {
+		return isDataBaseMatch(POSTGRES_PRODUCT_NAME);
+	}
+
 	private boolean isDataBaseMatch(String databaseName){
 		boolean match = false;
 		try (Connection conn = dataSource.getConnection()) {
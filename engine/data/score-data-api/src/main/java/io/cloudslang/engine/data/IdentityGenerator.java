@@ -37,4 +37,12 @@ public interface IdentityGenerator {
      * @return a {@link java.util.List<java.lang.Long>} of ids.
      */
     List<Long> bulk(int bulkSize);
+
+    /**
+     * reserves a range of contiguous ids
+     *
+     * @param rangeSize the amount of ids to reserve
+     * @return the first id of the range, the range ends at first id + rangeSize - 1
+     */
+    long reserve(int rangeSize);
 }
\ No newline at end of file
@@ -23,6 +23,13 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -31,6 +38,10 @@ import java.util.concurrent.locks.ReentrantLock;
  * User: froelica
  * Date: 4/25/13
  * Time: 11:03 AM
+ *
+ * Ids are reserved from the current chunk with a single CAS.
+ * When half of the chunk is used the next chunk is fetched in the background,
+ * so the callers do not wait for the OO_HILO update when the chunk is exhausted.
  */
 public class SimpleHiloIdentifierGenerator implements IdentifierGenerator, IdentityGenerator {
 
@@ -40,16 +51,28 @@ public class SimpleHiloIdentifierGenerator implements IdentifierGenerator, Ident
 	static final String SQL_SELECT = "SELECT NEXT_HI FROM " + TABLE_NAME;
 	static final String SQL_UPDATE = "UPDATE " + TABLE_NAME + " SET NEXT_HI = NEXT_HI+1";
     static final String SQL_LOCK = "UPDATE " + TABLE_NAME + " SET NEXT_HI = NEXT_HI";
-	static final long CHUNK_SIZE = 100000L;
+	//the largest range that can be reserved at once
+	public static final long CHUNK_SIZE = 100000L;
+	static final long REFILL_THRESHOLD = CHUNK_SIZE / 2;
+
+	private static final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "hilo-refill");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 
 	private static DataSource dataSource;
-    private int currentChunk;
-    private long currentId;
+    private volatile Chunk currentChunk;
+    private Future<Integer> nextChunk; //guarded by the lock
     private Lock lock = new ReentrantLock();
+    private boolean asyncRefill = !Boolean.getBoolean("hilo.sync.refill");
 
     // been initialized by Hibernate
     public SimpleHiloIdentifierGenerator() {
-        updateCurrentChunk();
+        currentChunk = new Chunk(fetchChunk());
     }
 
     public static void setDataSource(DataSource injectedDataSource) {
@@ -58,35 +81,92 @@ public class SimpleHiloIdentifierGenerator implements IdentifierGenerator, Ident
 
     @Override
     public Long next() {
-        return (Long) generate(null, null);
+        return reserve(1);
     }
 
     @Override
     public List<Long> bulk(int bulkSize) {
-        List <Long> idsList = new ArrayList<>();
-        for (int i = 0; i < bulkSize; i++) {
-            idsList.add(next());
+        List <Long> idsList = new ArrayList<>(bulkSize);
+        if (bulkSize <= CHUNK_SIZE) {
+            long firstId = reserve(bulkSize);
+            for (int i = 0; i < bulkSize; i++) {
+                idsList.add(firstId + i);
+            }
+        } else {
+            for (int i = 0; i < bulkSize; i++) {
+                idsList.add(next());
+            }
         }
         return idsList;
     }
 
+    @Override
+    public long reserve(int rangeSize) {
+        if (rangeSize < 1 || rangeSize > CHUNK_SIZE) {
+            throw new IllegalArgumentException("Range size must be between 1 and " + CHUNK_SIZE + ", got " + rangeSize);
+        }
+        while (true) {
+            Chunk chunk = currentChunk;
+            long used = chunk.used.get();
+            long newUsed = used + rangeSize;
+            if (newUsed <= CHUNK_SIZE) {
+                if (chunk.used.compareAndSet(used, newUsed)) {
+                    if (asyncRefill && newUsed >= REFILL_THRESHOLD && chunk.refillRequested.compareAndSet(false, true)) {
+                        requestNextChunk();
+                    }
+                    return chunk.hi * CHUNK_SIZE + used + 1;
+                }
+            } else {
+                //the rest of the chunk is too small for the range - it is skipped
+                if (logger.isDebugEnabled()) logger.debug("ID has reached chunk size");
+                switchChunk(chunk);
+            }
+        }
+    }
+
     @Override
     public Serializable generate(SessionImplementor session, Object object) throws HibernateException {
+        return next();
+    }
+
+    private void requestNextChunk() {
         lock.lock();
         try {
-            long id = ++currentId;
-            if (id > CHUNK_SIZE) {
-                if (logger.isDebugEnabled()) logger.debug("ID has reached chunk size");
-                updateCurrentChunk();
-                id = ++currentId;
+            if (nextChunk == null) {
+                nextChunk = refillExecutor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return fetchChunk();
+                    }
+                });
             }
-            return currentChunk * CHUNK_SIZE + id;
         } finally {
             lock.unlock();
         }
     }
 
-    private void updateCurrentChunk() {
+    private void switchChunk(Chunk exhaustedChunk) {
+        lock.lock();
+        try {
+            if (currentChunk != exhaustedChunk) {
+                return; //another thread has already switched the chunk
+            }
+            Integer hi = null;
+            if (nextChunk != null) {
+                try {
+                    hi = nextChunk.get();
+                } catch (Exception ex) {
+                    logger.warn("Failed to fetch the next chunk in the background, fetching it again", ex);
+                }
+                nextChunk = null;
+            }
+            currentChunk = new Chunk(hi != null? hi: fetchChunk());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int fetchChunk() {
         if (logger.isDebugEnabled()) {
             logger.debug("Updating HILO chunk...");
         }
@@ -97,19 +177,29 @@ public class SimpleHiloIdentifierGenerator implements IdentifierGenerator, Ident
             JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(conn, true));
 
             jdbcTemplate.update(SQL_LOCK);
-            currentChunk = jdbcTemplate.queryForObject(SQL_SELECT, Integer.class);
+            int chunk = jdbcTemplate.queryForObject(SQL_SELECT, Integer.class);
             if (logger.isDebugEnabled())
-                logger.debug("Current chunk: " + currentChunk);
+                logger.debug("Current chunk: " + chunk);
             jdbcTemplate.execute(SQL_UPDATE);
             jdbcTemplate.execute("commit");
 
             if (logger.isDebugEnabled()) {
                 logger.debug("Updating HILO chunk done in " + (System.currentTimeMillis() - t) + " ms");
             }
-            currentId = 0;
+            return chunk;
         } catch (SQLException e) {
             logger.error("Unable to update current chunk", e);
             throw new IllegalStateException("Unable to update current chunk");
         }
     }
+
+    private static class Chunk {
+        private final int hi;
+        private final AtomicLong used = new AtomicLong();
+        private final AtomicBoolean refillRequested = new AtomicBoolean();
+
+        private Chunk(int hi) {
+            this.hi = hi;
+        }
+    }
 }
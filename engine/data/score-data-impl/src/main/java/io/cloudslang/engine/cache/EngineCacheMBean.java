@@ -0,0 +1,117 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.cache;
+
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * The statistics of the second level and query caches of the engine.
+ * The counters of hibernate are kept only while its statistics are enabled - by hibernate.generate_statistics or by the
+ * StatisticsEnabled attribute, the counters of the regions of {@link ScoreRegionFactory} are always kept.
+ */
+@ManagedResource(description = "Engine Cache API")
+public class EngineCacheMBean {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactoryImplementor sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    private Statistics statistics() {
+        return sessionFactory().getStatistics();
+    }
+
+    @ManagedAttribute(description = "Whether the second level cache is enabled")
+    public boolean isSecondLevelCacheEnabled() {
+        return sessionFactory().getSettings().isSecondLevelCacheEnabled();
+    }
+
+    @ManagedAttribute(description = "Whether the query cache is enabled")
+    public boolean isQueryCacheEnabled() {
+        return sessionFactory().getSettings().isQueryCacheEnabled();
+    }
+
+    @ManagedAttribute(description = "Whether hibernate statistics are collected")
+    public boolean isStatisticsEnabled() {
+        return statistics().isStatisticsEnabled();
+    }
+
+    @ManagedAttribute(description = "Collects hibernate statistics")
+    public void setStatisticsEnabled(boolean enabled) {
+        statistics().setStatisticsEnabled(enabled);
+    }
+
+    @ManagedAttribute(description = "Number of entities and collections found in the second level cache")
+    public long getSecondLevelCacheHitCount() {
+        return statistics().getSecondLevelCacheHitCount();
+    }
+
+    @ManagedAttribute(description = "Number of entities and collections not found in the second level cache")
+    public long getSecondLevelCacheMissCount() {
+        return statistics().getSecondLevelCacheMissCount();
+    }
+
+    @ManagedAttribute(description = "Number of entities and collections put in the second level cache")
+    public long getSecondLevelCachePutCount() {
+        return statistics().getSecondLevelCachePutCount();
+    }
+
+    @ManagedAttribute(description = "Number of query results found in the query cache")
+    public long getQueryCacheHitCount() {
+        return statistics().getQueryCacheHitCount();
+    }
+
+    @ManagedAttribute(description = "Number of query results not found in the query cache")
+    public long getQueryCacheMissCount() {
+        return statistics().getQueryCacheMissCount();
+    }
+
+    @ManagedAttribute(description = "Number of query results put in the query cache")
+    public long getQueryCachePutCount() {
+        return statistics().getQueryCachePutCount();
+    }
+
+    @ManagedOperation(description = "Returns the statistics of the cache regions")
+    public String showRegions() {
+        StringBuilder regions = new StringBuilder();
+        RegionFactory regionFactory = sessionFactory().getSettings().getRegionFactory();
+        if (regionFactory instanceof ScoreRegionFactory) {
+            for (ScoreCacheRegion region : ((ScoreRegionFactory) regionFactory).getRegions()) {
+                regions.append(region).append('\n');
+            }
+        } else {
+            Statistics statistics = statistics();
+            for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+                SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(regionName);
+                regions.append("Cache region [").append(regionName).append("]: entries ").append(regionStatistics.getElementCountInMemory())
+                        .append(", hits ").append(regionStatistics.getHitCount()).append(", misses ").append(regionStatistics.getMissCount())
+                        .append(", puts ").append(regionStatistics.getPutCount()).append('\n');
+            }
+        }
+        return regions.toString();
+    }
+
+    @ManagedOperation(description = "Clears the hibernate statistics")
+    public void clearStatistics() {
+        statistics().clear();
+    }
+}
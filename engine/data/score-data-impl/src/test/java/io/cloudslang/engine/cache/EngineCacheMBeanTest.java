@@ -0,0 +1,190 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.cache;
+
+import io.cloudslang.engine.data.SimpleHiloIdentifierGenerator;
+import io.cloudslang.engine.partitions.entities.PartitionGroup;
+import io.cloudslang.engine.partitions.services.PartitionService;
+import io.cloudslang.engine.partitions.services.PartitionServiceImpl;
+import io.cloudslang.engine.partitions.services.PartitionUtils;
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.hibernate.ejb.HibernatePersistence;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+@DirtiesContext
+public class EngineCacheMBeanTest {
+
+    private static final String GROUP = "cached_group";
+    private static final int READS = 10;
+
+    @Autowired
+    private PartitionService partitionService;
+
+    @Autowired
+    private EngineCacheMBean engineCacheMBean;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @Before
+    public void init() {
+        statistics = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getStatistics();
+        if (partitionService.readPartitionGroup(GROUP) == null) {
+            partitionService.createPartitionGroup(GROUP, 4, 0, -1);
+            for (int partition = 1; partition <= 4; partition++) {
+                jdbcTemplate.execute("create table " + GROUP + "_" + partition + " (ID bigint)");
+            }
+        }
+    }
+
+    @Test
+    public void testPartitionGroupIsNotCached() {
+        partitionService.readPartitionGroup(GROUP);
+        engineCacheMBean.clearStatistics();
+
+        for (int i = 0; i < READS; i++) {
+            assertThat(partitionService.readPartitionGroup(GROUP).getName()).isEqualTo(GROUP);
+        }
+
+        // another engine of the cluster can roll the partitions, so every read goes to the database
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(READS);
+        assertThat(engineCacheMBean.getQueryCacheHitCount()).isZero();
+        assertThat(engineCacheMBean.getSecondLevelCacheHitCount()).isZero();
+        assertThat(engineCacheMBean.showRegions()).doesNotContain(PartitionGroup.class.getName());
+    }
+
+    @Test
+    public void testRolledPartitionIsNotHiddenByCache() throws InterruptedException {
+        int activePartition = partitionService.readPartitionGroup(GROUP).getActivePartition();
+        Thread.sleep(5); // the time threshold of the group is 0
+
+        assertThat(partitionService.rollPartitions(GROUP)).isTrue();
+
+        assertThat(partitionService.readPartitionGroup(GROUP).getActivePartition()).isNotEqualTo(activePartition);
+    }
+
+    @Test
+    public void testCacheSettings() {
+        assertThat(engineCacheMBean.isSecondLevelCacheEnabled()).isTrue();
+        assertThat(engineCacheMBean.isQueryCacheEnabled()).isTrue();
+        assertThat(engineCacheMBean.isStatisticsEnabled()).isTrue();
+    }
+
+    @Configuration
+    @EnableJpaRepositories("io.cloudslang.engine.partitions.repositories")
+    @EnableTransactionManagement
+    static class Configurator {
+
+        @Bean
+        DataSource dataSource() {
+            BasicDataSource ds = new BasicDataSource();
+            ds.setDriverClassName("org.h2.Driver");
+            ds.setUrl("jdbc:h2:mem:engineCache");
+            ds.setUsername("sa");
+            ds.setPassword("sa");
+            ds.setDefaultAutoCommit(false);
+            return new TransactionAwareDataSourceProxy(ds);
+        }
+
+        @Bean
+        SpringLiquibase liquibase(DataSource dataSource) {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource);
+            liquibase.setChangeLog("classpath:/META-INF/database/test.changes.xml");
+            SimpleHiloIdentifierGenerator.setDataSource(dataSource);
+            return liquibase;
+        }
+
+        @Bean
+        JpaVendorAdapter jpaVendorAdapter() {
+            HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
+            adapter.setGenerateDdl(true);
+            return adapter;
+        }
+
+        @Bean
+        @DependsOn("liquibase")
+        FactoryBean<EntityManagerFactory> entityManagerFactory(JpaVendorAdapter jpaVendorAdapter) {
+            Properties properties = new Properties();
+            properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+            properties.setProperty("hibernate.cache.use_query_cache", "true");
+            properties.setProperty("hibernate.generate_statistics", "true");
+            properties.setProperty("hibernate.cache.region.factory_class", ScoreRegionFactory.class.getName());
+            LocalContainerEntityManagerFactoryBean fb = new LocalContainerEntityManagerFactoryBean();
+            fb.setDataSource(dataSource());
+            fb.setPersistenceProviderClass(HibernatePersistence.class);
+            fb.setPackagesToScan("io.cloudslang.engine.partitions");
+            fb.setJpaVendorAdapter(jpaVendorAdapter);
+            fb.setJpaProperties(properties);
+            return fb;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
+            return new JpaTransactionManager(emf);
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        PartitionService partitionService() {
+            return new PartitionServiceImpl();
+        }
+
+        @Bean
+        PartitionUtils partitionUtils() {
+            return new PartitionUtils();
+        }
+
+        @Bean
+        EngineCacheMBean engineCacheMBean() {
+            return new EngineCacheMBean();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.cache;
+
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.spi.GeneralDataRegion;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.access.EntityRegionAccessStrategy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ScoreRegionFactoryTest {
+
+    private ScoreRegionFactory regionFactory;
+
+    @Before
+    public void init() {
+        Properties properties = new Properties();
+        properties.setProperty(ScoreRegionFactory.MAX_ENTRIES, "3");
+        properties.setProperty(ScoreRegionFactory.MAX_ENTRIES + ".big", "100");
+        regionFactory = new ScoreRegionFactory();
+        regionFactory.start(null, properties);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        GeneralDataRegion region = regionFactory.buildQueryResultsRegion("query", null);
+        region.put(1, "one");
+        region.put(2, "two");
+        region.put(3, "three");
+        assertThat(region.get(1)).isEqualTo("one");
+        region.put(4, "four");
+
+        assertThat(region.get(2)).isNull();
+        assertThat(region.get(1)).isEqualTo("one");
+        assertThat(region.get(3)).isEqualTo("three");
+        assertThat(region.get(4)).isEqualTo("four");
+        ScoreCacheRegion statistics = regionFactory.getRegion("query");
+        assertThat(statistics.getElementCountInMemory()).isEqualTo(3);
+        assertThat(statistics.getEvictionCount()).isEqualTo(1);
+        assertThat(statistics.getHitCount()).isEqualTo(4);
+        assertThat(statistics.getMissCount()).isEqualTo(1);
+        assertThat(statistics.getPutCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void testRegionSizes() {
+        assertThat(regionFactory.buildEntityRegion("big", null, null)).isInstanceOf(ScoreCacheRegion.class);
+        assertThat(regionFactory.getRegion("big").getMaxEntries()).isEqualTo(100);
+        regionFactory.buildEntityRegion("small", null, null);
+        assertThat(regionFactory.getRegion("small").getMaxEntries()).isEqualTo(3);
+        regionFactory.buildTimestampsRegion("timestamps", null);
+        assertThat(regionFactory.getRegion("timestamps").getMaxEntries()).isZero();
+        assertThat(regionFactory.getRegions()).hasSize(3);
+    }
+
+    @Test
+    public void testReadOnlyAccess() {
+        EntityRegionAccessStrategy accessStrategy = regionFactory.buildEntityRegion("entity", null, null).buildAccessStrategy(AccessType.READ_ONLY);
+        assertThat(accessStrategy.insert(1L, "one", null)).isFalse();
+        assertThat(accessStrategy.afterInsert(1L, "one", null)).isTrue();
+        assertThat(accessStrategy.get(1L, regionFactory.nextTimestamp())).isEqualTo("one");
+        try {
+            accessStrategy.update(1L, "two", null, null);
+            throw new AssertionError("A read-only entry was updated");
+        } catch (UnsupportedOperationException ex) {
+            assertThat(accessStrategy.get(1L, regionFactory.nextTimestamp())).isEqualTo("one");
+        }
+    }
+
+    @Test
+    public void testNonstrictReadWriteAccess() {
+        EntityRegionAccessStrategy accessStrategy = regionFactory.buildEntityRegion("entity", null, null).buildAccessStrategy(AccessType.NONSTRICT_READ_WRITE);
+        assertThat(accessStrategy.afterInsert(1L, "one", null)).isFalse();
+        assertThat(accessStrategy.get(1L, regionFactory.nextTimestamp())).isNull();
+        assertThat(accessStrategy.putFromLoad(1L, "one", regionFactory.nextTimestamp(), null)).isTrue();
+        assertThat(accessStrategy.putFromLoad(1L, "one", regionFactory.nextTimestamp(), null, true)).isFalse();
+        assertThat(accessStrategy.get(1L, regionFactory.nextTimestamp())).isEqualTo("one");
+
+        assertThat(accessStrategy.update(1L, "two", null, null)).isFalse();
+        assertThat(accessStrategy.get(1L, regionFactory.nextTimestamp())).isNull();
+    }
+
+    @Test(expected = CacheException.class)
+    public void testReadWriteAccessIsNotSupported() {
+        regionFactory.buildEntityRegion("entity", null, null).buildAccessStrategy(AccessType.READ_WRITE);
+    }
+
+    @Test
+    public void testTimestampsIncrease() {
+        long last = regionFactory.nextTimestamp();
+        for (int i = 0; i < 10000; i++) {
+            long next = regionFactory.nextTimestamp();
+            assertThat(next).isGreaterThan(last);
+            last = next;
+        }
+    }
+}
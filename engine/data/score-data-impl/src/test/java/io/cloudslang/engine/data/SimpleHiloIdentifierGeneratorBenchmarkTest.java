@@ -0,0 +1,77 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.data;
+
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.cloudslang.engine.data.SimpleHiloIdentifierGeneratorTest.reserveConcurrently;
+
+/**
+ * Reports the reservation latency of many threads when every chunk refill takes the time of a remote database round trip
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = SimpleHiloIdentifierGeneratorTest.Configurator.class)
+public class SimpleHiloIdentifierGeneratorBenchmarkTest {
+
+	private static final Logger logger = Logger.getLogger(SimpleHiloIdentifierGeneratorBenchmarkTest.class);
+
+	private static final int THREADS = 64;
+	private static final int RESERVATIONS_PER_THREAD = 500;
+	private static final int RANGE_SIZE = 100; //the messages of an enqueued bulk
+	private static final long WORK_BETWEEN_RESERVATIONS = 1L; //the rest of the enqueue transaction
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Before
+	public void setUp() {
+		SimpleHiloIdentifierGenerator.setDataSource(new SimpleHiloIdentifierGeneratorTest.SlowDataSource(dataSource));
+	}
+
+	@After
+	public void tearDown() {
+		SimpleHiloIdentifierGenerator.setDataSource(dataSource);
+	}
+
+	@Test
+	public void reservationLatencyBenchmark() throws InterruptedException {
+		for (boolean asyncRefill : new boolean[]{false, true}) {
+			SimpleHiloIdentifierGenerator generator = new SimpleHiloIdentifierGenerator();
+			ReflectionTestUtils.setField(generator, "asyncRefill", asyncRefill);
+
+			List<long[]> ranges = reserveConcurrently(generator, THREADS, RESERVATIONS_PER_THREAD, RANGE_SIZE, WORK_BETWEEN_RESERVATIONS);
+			long[] latencies = new long[ranges.size()];
+			for (int i = 0; i < latencies.length; i++) {
+				latencies[i] = ranges.get(i)[1];
+			}
+			Arrays.sort(latencies);
+			logger.info((asyncRefill? "Background": "Synchronous") + " refill: " + THREADS + " threads, " + latencies.length +
+					" reservations of " + RANGE_SIZE + " ids, p50 " + percentile(latencies, 0.5) + " us, p99 " + percentile(latencies, 0.99) +
+					" us, p99.9 " + percentile(latencies, 0.999) + " us, max " + latencies[latencies.length - 1] / 1000 + " us");
+		}
+	}
+
+	private long percentile(long[] sortedNanos, double percentile) {
+		return sortedNanos[(int) (sortedNanos.length * percentile)] / 1000;
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.data;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests the ids reservation of the HILO generator when every chunk refill takes the time of a remote database round trip
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class SimpleHiloIdentifierGeneratorTest {
+
+	private static final long REFILL_DELAY = 5L;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Before
+	public void setUp() {
+		SimpleHiloIdentifierGenerator.setDataSource(new SlowDataSource(dataSource));
+	}
+
+	@After
+	public void tearDown() {
+		SimpleHiloIdentifierGenerator.setDataSource(dataSource);
+	}
+
+	@Test
+	public void testReservedRangesDoNotOverlap() throws InterruptedException {
+		SimpleHiloIdentifierGenerator generator = new SimpleHiloIdentifierGenerator();
+		List<long[]> ranges = reserveConcurrently(generator, 8, 200, 997, 0);
+
+		Collections.sort(ranges, new Comparator<long[]>() {
+			@Override
+			public int compare(long[] range1, long[] range2) {
+				return Long.compare(range1[0], range2[0]);
+			}
+		});
+		for (int i = 1; i < ranges.size(); i++) {
+			Assert.assertTrue("ranges overlap", ranges.get(i)[0] >= ranges.get(i - 1)[0] + 997);
+		}
+		long first = ranges.get(0)[0];
+		Assert.assertEquals(first - 1, (first - 1) / SimpleHiloIdentifierGenerator.CHUNK_SIZE * SimpleHiloIdentifierGenerator.CHUNK_SIZE);
+	}
+
+	@Test
+	public void testSingleIdsAndBulk() {
+		SimpleHiloIdentifierGenerator generator = new SimpleHiloIdentifierGenerator();
+		Long id = generator.next();
+		Assert.assertEquals(id + 1, generator.next().longValue());
+		Assert.assertEquals(Arrays.asList(id + 2, id + 3, id + 4), generator.bulk(3));
+		Assert.assertEquals(id + 5, generator.generate(null, null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRangeBiggerThanChunk() {
+		new SimpleHiloIdentifierGenerator().reserve((int) SimpleHiloIdentifierGenerator.CHUNK_SIZE + 1);
+	}
+
+	//returns pairs of the first reserved id and the reservation time in nanos
+	static List<long[]> reserveConcurrently(final SimpleHiloIdentifierGenerator generator, int threadsCount,
+	                                        final int reservationsPerThread, final int rangeSize, final long workMillis) throws InterruptedException {
+		final List<long[]> ranges = Collections.synchronizedList(new ArrayList<long[]>());
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final CountDownLatch endLatch = new CountDownLatch(threadsCount);
+		for (int i = 0; i < threadsCount; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						startLatch.await();
+						List<long[]> threadRanges = new ArrayList<>(reservationsPerThread);
+						for (int j = 0; j < reservationsPerThread; j++) {
+							long t = System.nanoTime();
+							long firstId = generator.reserve(rangeSize);
+							threadRanges.add(new long[]{firstId, System.nanoTime() - t});
+							if (workMillis > 0) {
+								Thread.sleep(workMillis);
+							}
+						}
+						ranges.addAll(threadRanges);
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					} finally {
+						endLatch.countDown();
+					}
+				}
+			}).start();
+		}
+		startLatch.countDown();
+		endLatch.await();
+		Assert.assertEquals(threadsCount * reservationsPerThread, ranges.size());
+		return ranges;
+	}
+
+	//simulates the round trip to a remote database
+	static class SlowDataSource extends DelegatingDataSource {
+		SlowDataSource(DataSource targetDataSource) {
+			super(targetDataSource);
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			try {
+				Thread.sleep(REFILL_DELAY);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.getConnection();
+		}
+	}
+
+	@Configuration
+	static class Configurator {
+		@Bean
+		DataSource dataSource() {
+			BasicDataSource ds = new BasicDataSource();
+			ds.setDriverClassName("org.h2.Driver");
+			ds.setUrl("jdbc:h2:mem:hilo");
+			ds.setUsername("sa");
+			ds.setPassword("sa");
+			ds.setDefaultAutoCommit(false);
+			return ds;
+		}
+
+		@Bean
+		SpringLiquibase liquibase(DataSource dataSource) {
+			SpringLiquibase liquibase = new SpringLiquibase();
+			liquibase.setDataSource(dataSource);
+			liquibase.setChangeLog("classpath:/META-INF/database/test.changes.xml");
+			return liquibase;
+		}
+	}
+}
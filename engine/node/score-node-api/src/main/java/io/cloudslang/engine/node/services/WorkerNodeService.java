@@ -15,6 +15,7 @@ import io.cloudslang.score.api.nodes.WorkerStatus;
 import io.cloudslang.engine.node.entities.WorkerNode;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by IntelliJ IDEA.
@@ -185,6 +186,14 @@ public interface WorkerNodeService {
      */
     List<String> readWorkerGroups(String uuid);
 
+    /**
+     *
+     * Reads the groups of all of the workers that are not deleted in one query
+     *
+     * @return a Map of worker uuid to the List of String of its group names, workers without groups are not included
+     */
+    Map<String, List<String>> readGroupsOfWorkers();
+
     /**
      *
      * updates the groups associated with a worker
@@ -239,6 +248,18 @@ public interface WorkerNodeService {
      */
     void updateBulkNumber(String workerUuid, String bulkNumber);
 
+    /**
+     *
+     * updates the bulk number of a given worker in a single conditional update,
+     * only if the worker recovery version is the given one and the bulk number is not already the given one
+     *
+     * @param workerUuid the uuid of the worker to update
+     * @param wrv the worker recovery version the worker sent the bulk with
+     * @param bulkNumber the new recovery bulk number
+     * @return true if the bulk number was updated, false if the bulk was already inserted or the worker was recovered since
+     */
+    boolean updateBulkNumberIfNew(String workerUuid, String wrv, String bulkNumber);
+
     /**
      *
      * updates the worker recovery version of a given worker
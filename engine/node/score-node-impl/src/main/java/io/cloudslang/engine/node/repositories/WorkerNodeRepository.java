@@ -44,6 +44,9 @@ public interface WorkerNodeRepository extends JpaRepository<WorkerNode,Long> {
 	@Query("select distinct g from WorkerNode w join w.groups g where w.deleted = false")
 	List<String> findGroups();
 
+	@Query("select w.uuid, g from WorkerNode w join w.groups g where w.deleted = false order by w.uuid, g")
+	List<Object[]> findGroupsOfWorkers();
+
 	@Query(value = "update WorkerNode w set w.ackTime = current_time where w.uuid = ?1")
 	@Modifying
 	void updateAckTime(String uuid);
@@ -54,4 +57,9 @@ public interface WorkerNodeRepository extends JpaRepository<WorkerNode,Long> {
 
 	@Modifying @Query("update WorkerNode w set w.uuid = w.uuid where w.uuid = ?1")
 	void lockByUuid(String uuid);
+
+	@Modifying
+	@Query("update WorkerNode w set w.bulkNumber = ?3 where w.uuid = ?1 and w.deleted = false and w.workerRecoveryVersion = ?2 " +
+			"and (w.bulkNumber is null or w.bulkNumber <> ?3)")
+	int updateBulkNumberIfNew(String uuid, String wrv, String bulkNumber);
 }
\ No newline at end of file
@@ -24,8 +24,10 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -257,6 +259,22 @@ public class WorkerNodeServiceImpl implements WorkerNodeService {
 		return res;
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, List<String>> readGroupsOfWorkers() {
+		Map<String, List<String>> groupsOfWorkers = new HashMap<>();
+		for (Object[] workerGroup : workerNodeRepository.findGroupsOfWorkers()) {
+			String uuid = (String) workerGroup[0];
+			List<String> groups = groupsOfWorkers.get(uuid);
+			if (groups == null) {
+				groups = new ArrayList<>();
+				groupsOfWorkers.put(uuid, groups);
+			}
+			groups.add((String) workerGroup[1]);
+		}
+		return groupsOfWorkers;
+	}
+
 	@Override
 	@Transactional
 	public void updateWorkerGroups(String uuid, String... groupNames) {
@@ -324,6 +342,12 @@ public class WorkerNodeServiceImpl implements WorkerNodeService {
 		worker.setBulkNumber(bulkNumber);
 	}
 
+	@Override
+	@Transactional
+	public boolean updateBulkNumberIfNew(String workerUuid, String wrv, String bulkNumber) {
+		return workerNodeRepository.updateBulkNumberIfNew(workerUuid, wrv, bulkNumber) == 1;
+	}
+
 	@Override
 	@Transactional
 	public void updateWRV(String workerUuid, String wrv) {
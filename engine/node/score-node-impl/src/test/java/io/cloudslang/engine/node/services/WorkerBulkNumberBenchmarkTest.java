@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.engine.node.services;
+
+import io.cloudslang.engine.data.SimpleHiloIdentifierGenerator;
+import io.cloudslang.engine.versioning.services.VersionService;
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.log4j.Logger;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.ejb.HibernatePersistence;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerFactoryInfo;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reports how many bulk checks per second the orchestrator makes when many workers dispatch at once -
+ * with the worker lock, the two reads of the worker and the update of the read entity,
+ * and with the worker lock and the single conditional update
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = WorkerBulkNumberBenchmarkTest.Configurator.class)
+public class WorkerBulkNumberBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(WorkerBulkNumberBenchmarkTest.class);
+
+    private static final int WORKERS = 100;
+    private static final int BULKS = 30;
+    private static final String WRV = "wrv";
+
+    @Autowired
+    private WorkerNodeService workerNodeService;
+
+    @Autowired
+    private WorkerLockService workerLockService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void testDispatchBenchmark() throws Exception {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < WORKERS; i++) {
+            final String uuid = "worker" + i;
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    workerNodeService.create(uuid, uuid, "host", "c:/dir");
+                    workerNodeService.updateWRV(uuid, WRV);
+                }
+            });
+        }
+        Statistics statistics = ((HibernateEntityManagerFactory) ((EntityManagerFactoryInfo) entityManagerFactory).getNativeEntityManagerFactory())
+                .getSessionFactory().getStatistics();
+
+        for (int round = 0; round < 2; round++) { //the first round warms up
+            for (final boolean conditionalUpdate : new boolean[]{false, true}) {
+                final String prefix = round + "-" + conditionalUpdate + "-";
+                ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+                List<Future<Integer>> futures = new ArrayList<>();
+                statistics.clear();
+                long startTime = System.currentTimeMillis();
+                for (int i = 0; i < WORKERS; i++) {
+                    final String uuid = "worker" + i;
+                    futures.add(executor.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            int dispatched = 0;
+                            for (int bulk = 0; bulk < BULKS; bulk++) {
+                                if (dispatch(transactionTemplate, uuid, prefix + bulk, conditionalUpdate)) dispatched++;
+                                //a retry of the same bulk is discarded
+                                if (bulk % 10 == 0 && dispatch(transactionTemplate, uuid, prefix + bulk, conditionalUpdate)) dispatched++;
+                            }
+                            return dispatched;
+                        }
+                    }));
+                }
+                int dispatched = 0;
+                for (Future<Integer> future : futures) {
+                    dispatched += future.get();
+                }
+                long time = System.currentTimeMillis() - startTime;
+                executor.shutdown();
+                assertEquals(WORKERS * BULKS, dispatched);
+
+                int transactions = WORKERS * (BULKS + BULKS / 10);
+                if (round > 0) {
+                    logger.info((conditionalUpdate? "conditional update": "lock and read") + ": " + WORKERS + " workers, " +
+                            transactions * 1000L / Math.max(time, 1) + " dispatch transactions/sec, " +
+                            (float) statistics.getPrepareStatementCount() / transactions + " statements per dispatch");
+                }
+            }
+        }
+    }
+
+    private boolean dispatch(TransactionTemplate transactionTemplate, final String uuid, final String bulkNumber, final boolean conditionalUpdate) {
+        return transactionTemplate.execute(new TransactionCallback<Boolean>() {
+            @Override
+            public Boolean doInTransaction(TransactionStatus status) {
+                workerLockService.lock(uuid);
+                if (conditionalUpdate) {
+                    return workerNodeService.updateBulkNumberIfNew(uuid, WRV, bulkNumber);
+                }
+                String currentBulkNumber = workerNodeService.readByUUID(uuid).getBulkNumber();
+                String currentWRV = workerNodeService.readByUUID(uuid).getWorkerRecoveryVersion();
+                if (bulkNumber.equals(currentBulkNumber) || !currentWRV.equals(WRV)) {
+                    return false;
+                }
+                workerNodeService.updateBulkNumber(uuid, bulkNumber);
+                return true;
+            }
+        });
+    }
+
+    @Configuration
+    @EnableJpaRepositories("io.cloudslang.engine.node.repositories")
+    @EnableTransactionManagement
+    static class Configurator {
+        @Bean
+        DataSource dataSource() {
+            BasicDataSource ds = new BasicDataSource();
+            ds.setDriverClassName("org.h2.Driver");
+            ds.setUrl("jdbc:h2:mem:dispatchBenchmark");
+            ds.setUsername("sa");
+            ds.setPassword("sa");
+            ds.setDefaultAutoCommit(false);
+            ds.setMaxActive(WORKERS);
+            ds.setMaxIdle(WORKERS);
+            return new TransactionAwareDataSourceProxy(ds);
+        }
+
+        @Bean
+        SpringLiquibase liquibase(DataSource dataSource) {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource);
+            liquibase.setChangeLog("classpath:/META-INF/database/score.changes.xml");
+            SimpleHiloIdentifierGenerator.setDataSource(dataSource);
+            return liquibase;
+        }
+
+        @Bean
+        Properties hibernateProperties() {
+            return new Properties(){{
+                setProperty("hibernate.hbm2ddl.auto", "validate");
+                setProperty("hibernate.cache.use_query_cache", "false");
+                setProperty("hibernate.generate_statistics", "true");
+                setProperty("hibernate.cache.use_second_level_cache", "false");
+            }};
+        }
+
+        @Bean
+        JpaVendorAdapter jpaVendorAdapter() {
+            HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
+            adapter.setShowSql(false);
+            adapter.setGenerateDdl(true);
+            return adapter;
+        }
+
+        @Bean(name="entityManagerFactory")
+        @DependsOn("liquibase")
+        FactoryBean<EntityManagerFactory> emf(JpaVendorAdapter jpaVendorAdapter) {
+            LocalContainerEntityManagerFactoryBean fb = new LocalContainerEntityManagerFactoryBean();
+            fb.setJpaProperties(hibernateProperties());
+            fb.setDataSource(dataSource());
+            fb.setPersistenceProviderClass(HibernatePersistence.class);
+            fb.setPackagesToScan("io.cloudslang.engine.node");
+            fb.setJpaVendorAdapter(jpaVendorAdapter);
+            return fb;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
+            return new JpaTransactionManager(emf);
+        }
+
+        @Bean
+        VersionService versionService() {
+            VersionService versionService = mock(VersionService.class);
+            when(versionService.getCurrentVersion(anyString())).thenReturn(1L);
+            return versionService;
+        }
+
+        @Bean
+        WorkerNodeService workerNodeService() {
+            return new WorkerNodeServiceImpl();
+        }
+
+        @Bean
+        WorkerLockService workerLockService() {
+            return new WorkerLockServiceImpl();
+        }
+    }
+}
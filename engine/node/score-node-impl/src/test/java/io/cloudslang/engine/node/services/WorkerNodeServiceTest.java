@@ -48,6 +48,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.mockito.Matchers.anyString;
@@ -249,6 +250,19 @@ public class WorkerNodeServiceTest {
         Assert.assertEquals("123", worker.getBulkNumber());
     }
 
+    @Test
+    public void updateBulkNumberIfNew() {
+        workerNodeService.create("H3", "H3", "dima.rassin", "c:/dir");
+        workerNodeService.updateWRV("H3", "wrv1");
+        workerNodeRepository.flush();
+
+        Assert.assertTrue(workerNodeService.updateBulkNumberIfNew("H3", "wrv1", "1")); //first bulk, no bulk number yet
+        Assert.assertFalse(workerNodeService.updateBulkNumberIfNew("H3", "wrv1", "1")); //the same bulk again
+        Assert.assertFalse(workerNodeService.updateBulkNumberIfNew("H3", "wrv0", "2")); //a bulk from before the recovery
+        Assert.assertTrue(workerNodeService.updateBulkNumberIfNew("H3", "wrv1", "2"));
+        Assert.assertFalse(workerNodeService.updateBulkNumberIfNew("H4", "wrv1", "3")); //unknown worker
+    }
+
 	@Test
 	public void readAllWorkerGroups() {
 		List<String> groups = workerNodeService.readAllWorkerGroups();
@@ -317,6 +331,17 @@ public class WorkerNodeServiceTest {
 		org.junit.Assert.assertTrue("worker groups contain duplicates?", new HashSet<>(list).equals(expected));
 	}
 
+	@Test
+	public void readGroupsOfWorkers() {
+		workerNodeService.updateWorkerGroups("H2", "g2", "g1");
+		workerNodeRepository.flush();
+
+		Map<String, List<String>> groupsOfWorkers = workerNodeService.readGroupsOfWorkers();
+		Assert.assertEquals(Arrays.asList(WorkerNode.DEFAULT_WORKER_GROUPS), groupsOfWorkers.get("H1"));
+		//the groups of a worker are read in the same order every time
+		Assert.assertEquals(Arrays.asList("g1", "g2"), groupsOfWorkers.get("H2"));
+	}
+
 	@Test
 	public void updateVersionTest() {
 		workerNodeService.create("worker_1", "password", "stamHost", "c:/dir");
@@ -23,6 +23,15 @@ public class MergedConfigurationDataContainer implements Serializable{
     private volatile Set<String> pausedExecutions;
     private volatile List<String> workerGroups;
 
+    //the configuration version - set only by the delta fetch
+    private String epoch;
+    private long version;
+    //when true, the cancelled and paused executions are the ones that were added since the requested version,
+    //and the worker groups are null when they did not change
+    private boolean delta;
+    private List<Long> removedCancelledExecutions;
+    private Set<String> removedPausedExecutions;
+
     public MergedConfigurationDataContainer() {
     }
 
@@ -52,4 +61,44 @@ public class MergedConfigurationDataContainer implements Serializable{
         this.workerGroups = workerGroups;
     }
 
+    public String getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(String epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public void setDelta(boolean delta) {
+        this.delta = delta;
+    }
+
+    public List<Long> getRemovedCancelledExecutions() {
+        return removedCancelledExecutions;
+    }
+
+    public void setRemovedCancelledExecutions(List<Long> removedCancelledExecutions) {
+        this.removedCancelledExecutions = removedCancelledExecutions;
+    }
+
+    public Set<String> getRemovedPausedExecutions() {
+        return removedPausedExecutions;
+    }
+
+    public void setRemovedPausedExecutions(Set<String> removedPausedExecutions) {
+        this.removedPausedExecutions = removedPausedExecutions;
+    }
+
 }
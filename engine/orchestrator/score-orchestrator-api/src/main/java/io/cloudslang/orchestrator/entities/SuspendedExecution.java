@@ -38,6 +38,10 @@ public class SuspendedExecution extends AbstractIdentifiable {
     @Column(name= "NUMBER_OF_BRANCHES", nullable = false)
     private Integer numberOfBranches;
 
+    //incremented by the database when branches end, the split is joined when it reaches the number of branches
+    @Column(name= "FINISHED_BRANCHES_COUNT", nullable = false)
+    private Integer finishedBranchesCount = 0;
+
     @Basic(fetch = FetchType.LAZY)
     @Embedded
     private ExecutionObjEntity executionObj;
@@ -79,6 +83,14 @@ public class SuspendedExecution extends AbstractIdentifiable {
         this.numberOfBranches = numberOfBranches;
     }
 
+    public Integer getFinishedBranchesCount() {
+        return finishedBranchesCount;
+    }
+
+    public void setFinishedBranchesCount(Integer finishedBranchesCount) {
+        this.finishedBranchesCount = finishedBranchesCount;
+    }
+
     public Execution getExecutionObj() {
         if  (executionObj == null)
             return null;
@@ -17,4 +17,16 @@ import io.cloudslang.orchestrator.entities.MergedConfigurationDataContainer;
 public interface MergedConfigurationService {
     MergedConfigurationDataContainer fetchMergedConfiguration(String workerUuid);
 
+    /**
+     * Fetches the changes of the configuration since the given version. The configuration is read from the database
+     * at most once per snapshot interval and shared by all of the workers.
+     *
+     * @param workerUuid the uuid of the worker
+     * @param epoch the epoch of the last configuration the worker applied, null if it has none
+     * @param sinceVersion the version of the last configuration the worker applied
+     * @return the changes since the given version, or the whole configuration when it is not a delta -
+     * when the version is unknown or belongs to another epoch (another orchestrator, or before a restart)
+     */
+    MergedConfigurationDataContainer fetchMergedConfigurationDelta(String workerUuid, String epoch, long sinceVersion);
+
 }
@@ -31,7 +31,8 @@ public interface SplitJoinService {
     void split(List<SplitMessage> messages);
 
     /**
-     * Persists the branch that ended to the DB
+     * Persists the branch that ended to the DB,
+     * and joins the splits that all their branches ended
      *
      * @param executions finished branches
      */
@@ -11,7 +11,12 @@
 package io.cloudslang.orchestrator.repositories;
 
 import io.cloudslang.orchestrator.entities.FinishedBranch;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 /**
  * Created with IntelliJ IDEA.
@@ -20,4 +25,12 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * Time: 14:16
  */
 public interface FinishedBranchRepository extends JpaRepository<FinishedBranch, Long> {
+
+    //the id, branch contexts and branch exception of the branches of a suspended execution with an id bigger than the given one, without loading the entities
+    @Query("select fb.id, fb.branchContexts, fb.branchException from FinishedBranch fb where fb.suspendedExecution.id=?1 and fb.id>?2 order by fb.id")
+    public List<Object[]> findBranchContexts(Long suspendedExecutionId, Long afterId, Pageable pageRequest);
+
+    @Modifying
+    @Query("delete from FinishedBranch fb where fb.suspendedExecution.id in ?1")
+    public int deleteBySuspendedExecutionIds(List<Long> suspendedExecutionIds);
 }
@@ -35,6 +35,15 @@ public interface RunningExecutionPlanRepository extends JpaRepository<RunningExe
     @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value ="true") })
     public List<RunningExecutionPlan> findByUuidCached(@Param("flowUUID") String flowUUID);
 
+    @Query("select r.id from RunningExecutionPlan r where r.flowUUID = :flowUUID and r.executionPlanHash = :hash order by r.id")
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value ="true") })
+    List<Long> findIdsByUuidAndHashCached(@Param("flowUUID") String flowUUID, @Param("hash") String hash);
+
+    //the plans that were written before they had a content hash
+    @Query("from RunningExecutionPlan r where r.flowUUID = :flowUUID and r.executionPlanHash is null")
+    @QueryHints({ @QueryHint(name = "org.hibernate.cacheable", value ="true") })
+    List<RunningExecutionPlan> findWithoutHashByUuidCached(@Param("flowUUID") String flowUUID);
+
 	@Query("select distinct r from RunningExecutionPlan r where r.id = :exeId and r.flowUUID = :flowId")
 	RunningExecutionPlan getExecution(@Param("flowId") String flowId, @Param("exeId") Long exeId);
 
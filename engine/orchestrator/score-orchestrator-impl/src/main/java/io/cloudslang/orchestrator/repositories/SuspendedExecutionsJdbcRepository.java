@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.orchestrator.repositories;
+
+import io.cloudslang.orchestrator.entities.SuspendedExecution;
+
+import java.util.List;
+
+/**
+ * Writes suspended executions with JDBC batches, without keeping them in the persistence context
+ */
+public interface SuspendedExecutionsJdbcRepository {
+
+    /**
+     * Inserts new suspended executions, without their finished branches.
+     * The executions are not attached to the persistence context and their ids are not set.
+     *
+     * @param suspendedExecutions the suspended executions to insert
+     */
+    void insertSuspendedExecutions(List<SuspendedExecution> suspendedExecutions);
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.orchestrator.repositories;
+
+import io.cloudslang.engine.data.DataBaseDetector;
+import io.cloudslang.engine.data.IdentityGenerator;
+import io.cloudslang.orchestrator.entities.SuspendedExecution;
+import io.cloudslang.orchestrator.services.ExecutionSerializationUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+public class SuspendedExecutionsJdbcRepositoryImpl implements SuspendedExecutionsJdbcRepository {
+
+    private static final String INSERT_SUSPENDED_EXECUTION = "INSERT INTO OO_SUSPENDED_EXECUTIONS " +
+            "(ID, EXECUTION_ID, SPLIT_ID, NUMBER_OF_BRANCHES, FINISHED_BRANCHES_COUNT, EXECUTION_OBJECT) VALUES (?, ?, ?, ?, 0, ?)";
+
+    //the executions are serialized a batch at a time
+    private int batchSize = Integer.getInteger("splitjoin.insert.batch.size", 100);
+
+    @Autowired
+    private IdentityGenerator idGen;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DataBaseDetector dataBaseDetector;
+
+    @Autowired
+    private ExecutionSerializationUtil executionSerializationUtil;
+
+    private JdbcTemplate insertJDBCTemplate;
+
+    //the blob column of postgres is a large object, it is written with setBlob like hibernate does
+    private volatile Boolean largeObjectBlobs;
+
+    @PostConstruct
+    public void init() {
+        insertJDBCTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void insertSuspendedExecutions(List<SuspendedExecution> suspendedExecutions) {
+        if (largeObjectBlobs == null) {
+            largeObjectBlobs = dataBaseDetector.isPostgres();
+        }
+        for (int from = 0; from < suspendedExecutions.size(); from += batchSize) {
+            insertBatch(suspendedExecutions.subList(from, Math.min(from + batchSize, suspendedExecutions.size())));
+        }
+    }
+
+    private void insertBatch(final List<SuspendedExecution> suspendedExecutions) {
+        final long firstId = idGen.reserve(suspendedExecutions.size());
+        insertJDBCTemplate.batchUpdate(INSERT_SUSPENDED_EXECUTION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                SuspendedExecution suspendedExecution = suspendedExecutions.get(i);
+                byte[] executionObject = executionSerializationUtil.objToBytes(suspendedExecution.getExecutionObj());
+                ps.setLong(1, firstId + i);
+                ps.setString(2, suspendedExecution.getExecutionId());
+                ps.setString(3, suspendedExecution.getSplitId());
+                ps.setInt(4, suspendedExecution.getNumberOfBranches());
+                if (largeObjectBlobs) {
+                    ps.setBlob(5, new ByteArrayInputStream(executionObject), executionObject.length);
+                } else {
+                    ps.setBinaryStream(5, new ByteArrayInputStream(executionObject), executionObject.length);
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return suspendedExecutions.size();
+            }
+        });
+    }
+}
@@ -13,6 +13,7 @@ package io.cloudslang.orchestrator.repositories;
 import io.cloudslang.orchestrator.entities.SuspendedExecution;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
@@ -26,6 +27,17 @@ import java.util.List;
 public interface SuspendedExecutionsRepository extends JpaRepository<SuspendedExecution, Long> {
     public List<SuspendedExecution> findBySplitIdIn(List<String> splitIds);
 
-    @Query("from SuspendedExecution se where se.numberOfBranches=size(se.finishedBranches)")
+    @Query("from SuspendedExecution se where se.numberOfBranches=se.finishedBranchesCount")
     public List<SuspendedExecution> findFinishedSuspendedExecutions(Pageable pageRequest);
+
+    @Query("select se.splitId from SuspendedExecution se where se.splitId in ?1 and se.numberOfBranches=se.finishedBranchesCount")
+    public List<String> findFinishedSplitIds(List<String> splitIds);
+
+    @Modifying
+    @Query("update SuspendedExecution se set se.finishedBranchesCount=se.finishedBranchesCount+?2 where se.splitId in ?1")
+    public int incrementFinishedBranchesCount(List<String> splitIds, int finishedBranches);
+
+    @Modifying
+    @Query("delete from SuspendedExecution se where se.id in ?1")
+    public int deleteByIds(List<Long> ids);
 }
@@ -16,6 +16,19 @@ import io.cloudslang.orchestrator.entities.MergedConfigurationDataContainer;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class MergedConfigurationServiceImpl implements MergedConfigurationService {
 
@@ -28,6 +41,20 @@ public class MergedConfigurationServiceImpl implements MergedConfigurationServic
     @Autowired
     private WorkerNodeService workerNodeService;
 
+    //the configuration is read from the database at most once per interval, for all of the workers
+    private long snapshotMillis = Long.getLong("orchestrator.configuration.snapshotMillis", 500);
+
+    //the number of versions a worker can be behind and still get a delta
+    private int historySize = Integer.getInteger("orchestrator.configuration.historySize", 16);
+
+    //the versions of another orchestrator, or of this one before a restart, are not known here
+    private final String epoch = UUID.randomUUID().toString();
+
+    //guarded by this, the oldest version first
+    private final LinkedHashMap<Long, Snapshot> snapshots = new LinkedHashMap<>();
+
+    private volatile Snapshot snapshot;
+
     @Override
     public MergedConfigurationDataContainer fetchMergedConfiguration(String workerUuid) {
         MergedConfigurationDataContainer mergedConfigurationDataContainer = new MergedConfigurationDataContainer();
@@ -51,5 +78,181 @@ public class MergedConfigurationServiceImpl implements MergedConfigurationServic
 
         return mergedConfigurationDataContainer;
     }
-}
 
+    @Override
+    public MergedConfigurationDataContainer fetchMergedConfigurationDelta(String workerUuid, String epoch, long sinceVersion) {
+        Snapshot current = getSnapshot();
+        Snapshot since = null;
+        if (this.epoch.equals(epoch)) {
+            synchronized (this) {
+                since = snapshots.get(sinceVersion);
+            }
+        }
+
+        MergedConfigurationDataContainer mergedConfigurationDataContainer = new MergedConfigurationDataContainer();
+        mergedConfigurationDataContainer.setEpoch(this.epoch);
+        mergedConfigurationDataContainer.setVersion(current.version);
+        List<String> workerGroups = getWorkerGroups(current, workerUuid);
+        if (since == null) {
+            mergedConfigurationDataContainer.setCancelledExecutions(current.cancelledExecutionsList);
+            mergedConfigurationDataContainer.setPausedExecutions(current.pausedExecutions);
+            mergedConfigurationDataContainer.setWorkerGroups(workerGroups);
+        } else {
+            Delta delta = current.getDelta(since);
+            mergedConfigurationDataContainer.setDelta(true);
+            mergedConfigurationDataContainer.setCancelledExecutions(delta.addedCancelledExecutions);
+            mergedConfigurationDataContainer.setRemovedCancelledExecutions(delta.removedCancelledExecutions);
+            mergedConfigurationDataContainer.setPausedExecutions(delta.addedPausedExecutions);
+            mergedConfigurationDataContainer.setRemovedPausedExecutions(delta.removedPausedExecutions);
+            if (workerGroups != null && !sameGroups(workerGroups, getWorkerGroups(since, workerUuid))) {
+                mergedConfigurationDataContainer.setWorkerGroups(workerGroups);
+            }
+        }
+        return mergedConfigurationDataContainer;
+    }
+
+    private List<String> getWorkerGroups(Snapshot snapshot, String workerUuid) {
+        List<String> workerGroups = snapshot.groupsOfWorkers.get(workerUuid);
+        if (workerGroups == null) {
+            //a worker that registered after the snapshot was read, or has no groups
+            try {
+                workerGroups = workerNodeService.readWorkerGroups(workerUuid);
+            } catch(Exception ex) {
+                log.error("Failed to fetch worker group information: ", ex);
+            }
+        }
+        return workerGroups;
+    }
+
+    //the order of the groups of a worker does not matter
+    private static boolean sameGroups(List<String> groups, List<String> otherGroups) {
+        return otherGroups != null && new HashSet<>(groups).equals(new HashSet<>(otherGroups));
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - current.readTime < snapshotMillis) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && System.currentTimeMillis() - current.readTime < snapshotMillis) {
+                return current;
+            }
+            Snapshot next = readSnapshot(current);
+            if (current != null && next.hasSameConfiguration(current)) {
+                current.readTime = next.readTime; //nothing changed - the workers stay on the same version
+                return current;
+            }
+            snapshots.put(next.version, next);
+            Iterator<Long> versions = snapshots.keySet().iterator();
+            while (snapshots.size() > historySize && versions.hasNext()) {
+                versions.next();
+                versions.remove();
+            }
+            snapshot = next;
+            return next;
+        }
+    }
+
+    //a part that fails to be read keeps its previous value
+    private Snapshot readSnapshot(Snapshot previous) {
+        Set<Long> cancelledExecutions = previous == null? Collections.<Long>emptySet(): previous.cancelledExecutions;
+        Set<String> pausedExecutions = previous == null? Collections.<String>emptySet(): previous.pausedExecutions;
+        Map<String, List<String>> groupsOfWorkers = previous == null? Collections.<String, List<String>>emptyMap(): previous.groupsOfWorkers;
+        try {
+            cancelledExecutions = new HashSet<>(cancelExecutionService.readCanceledExecutionsIds());
+        } catch(Exception ex) {
+            log.error("Failed to fetch cancelled information: ", ex);
+        }
+
+        try {
+            Set<String> paused = pauseResumeService.readAllPausedExecutionBranchIds();
+            pausedExecutions = paused == null? Collections.<String>emptySet(): Collections.unmodifiableSet(new HashSet<>(paused));
+        } catch(Exception ex) {
+            log.error("Failed to read paused flows information: ", ex);
+        }
+
+        try {
+            groupsOfWorkers = new HashMap<>();
+            for (Map.Entry<String, List<String>> workerGroups : workerNodeService.readGroupsOfWorkers().entrySet()) {
+                groupsOfWorkers.put(workerGroups.getKey(), Collections.unmodifiableList(workerGroups.getValue()));
+            }
+        } catch(Exception ex) {
+            log.error("Failed to fetch worker group information: ", ex);
+        }
+        return new Snapshot(previous == null? 1: previous.version + 1, cancelledExecutions, pausedExecutions, groupsOfWorkers);
+    }
+
+    /**
+     * The configuration of all of the workers as it was read at some version
+     */
+    private static class Snapshot {
+        private final long version;
+        private final Set<Long> cancelledExecutions;
+        private final List<Long> cancelledExecutionsList;
+        private final Set<String> pausedExecutions;
+        private final Map<String, List<String>> groupsOfWorkers;
+        private volatile long readTime = System.currentTimeMillis();
+        //the deltas from older versions to this one, the workers of the same version share them
+        private final ConcurrentMap<Long, Delta> deltas = new ConcurrentHashMap<>();
+
+        Snapshot(long version, Set<Long> cancelledExecutions, Set<String> pausedExecutions, Map<String, List<String>> groupsOfWorkers) {
+            this.version = version;
+            this.cancelledExecutions = cancelledExecutions;
+            this.cancelledExecutionsList = Collections.unmodifiableList(new ArrayList<>(cancelledExecutions));
+            this.pausedExecutions = pausedExecutions;
+            this.groupsOfWorkers = groupsOfWorkers;
+        }
+
+        boolean hasSameConfiguration(Snapshot other) {
+            return cancelledExecutions.equals(other.cancelledExecutions) && pausedExecutions.equals(other.pausedExecutions) &&
+                    hasSameGroups(other);
+        }
+
+        private boolean hasSameGroups(Snapshot other) {
+            if (!groupsOfWorkers.keySet().equals(other.groupsOfWorkers.keySet())) {
+                return false;
+            }
+            for (Map.Entry<String, List<String>> workerGroups : groupsOfWorkers.entrySet()) {
+                if (!sameGroups(workerGroups.getValue(), other.groupsOfWorkers.get(workerGroups.getKey()))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Delta getDelta(Snapshot since) {
+            Delta delta = deltas.get(since.version);
+            if (delta == null) {
+                delta = new Delta(since, this);
+                deltas.putIfAbsent(since.version, delta);
+            }
+            return delta;
+        }
+    }
+
+    private static class Delta {
+        private final List<Long> addedCancelledExecutions;
+        private final List<Long> removedCancelledExecutions;
+        private final Set<String> addedPausedExecutions;
+        private final Set<String> removedPausedExecutions;
+
+        Delta(Snapshot since, Snapshot current) {
+            addedCancelledExecutions = Collections.unmodifiableList(new ArrayList<>(difference(current.cancelledExecutions, since.cancelledExecutions)));
+            removedCancelledExecutions = Collections.unmodifiableList(new ArrayList<>(difference(since.cancelledExecutions, current.cancelledExecutions)));
+            addedPausedExecutions = Collections.unmodifiableSet(difference(current.pausedExecutions, since.pausedExecutions));
+            removedPausedExecutions = Collections.unmodifiableSet(difference(since.pausedExecutions, current.pausedExecutions));
+        }
+
+        private static <T> Set<T> difference(Collection<T> from, Set<T> remove) {
+            Set<T> difference = new HashSet<>();
+            for (T element : from) {
+                if (!remove.contains(element)) {
+                    difference.add(element);
+                }
+            }
+            return difference;
+        }
+    }
+}
@@ -10,6 +10,7 @@
 
 package io.cloudslang.orchestrator.services;
 
+import io.cloudslang.engine.node.entities.WorkerNode;
 import io.cloudslang.engine.node.services.WorkerLockService;
 import io.cloudslang.engine.node.services.WorkerNodeService;
 import io.cloudslang.engine.queue.entities.ExecutionMessage;
@@ -54,21 +55,29 @@ public final class OrchestratorDispatcherServiceImpl implements OrchestratorDisp
         workerLockService.lock(workerUuid);
         Validate.notNull(messages, "Messages list is null");
 
-        String currentBulkNumber = workerNodeService.readByUUID(workerUuid).getBulkNumber();
+        //one conditional update instead of reading the worker - it also locks the worker row until the bulk is inserted,
+        //so a retry of the same bulk waits for this one and is discarded
+        if (workerNodeService.updateBulkNumberIfNew(workerUuid, wrv, bulkNumber)) {
+            dispatch(messages);
+            return;
+        }
+
+        //the update does not touch a deleted worker either, so it is read including the deleted ones to log the reason
+        WorkerNode worker = workerNodeService.findByUuid(workerUuid);
+        String currentBulkNumber = worker.getBulkNumber();
         //can not be null at this point
-        String currentWRV = workerNodeService.readByUUID(workerUuid).getWorkerRecoveryVersion();
+        String currentWRV = worker.getWorkerRecoveryVersion();
 
+        if(worker.isDeleted()){
+            logger.warn("Orchestrator got messages from worker: " + workerUuid + " that was deleted. Discarding...");
+        }
         //This is done in order to make sure that if we do retries in worker we won't insert same bulk twice
-        if(currentBulkNumber!=null && currentBulkNumber.equals(bulkNumber)){
+        else if(currentBulkNumber!=null && currentBulkNumber.equals(bulkNumber)){
             logger.warn("Orchestrator got messages bulk with same bulk number: " + bulkNumber + " This bulk was inserted to DB before. Discarding...");
         }
         //This is done in order to make sure that we are not getting messages from worker that was already recovered and does not know about it yet
-        else if(!currentWRV.equals(wrv)){
-            logger.warn("Orchestrator got messages from worker: " + workerUuid + " with wrong WRV:" + wrv + " Current WRV is: " + currentWRV +  ". Discarding...");
-        }
         else {
-            dispatch(messages);
-            workerNodeService.updateBulkNumber(workerUuid, bulkNumber);
+            logger.warn("Orchestrator got messages from worker: " + workerUuid + " with wrong WRV:" + wrv + " Current WRV is: " + currentWRV +  ". Discarding...");
         }
     }
 
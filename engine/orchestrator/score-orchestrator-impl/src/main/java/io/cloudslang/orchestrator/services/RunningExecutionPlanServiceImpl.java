@@ -10,6 +10,7 @@
 
 package io.cloudslang.orchestrator.services;
 
+import io.cloudslang.score.facade.entities.ExecutionPlanCompressUtil;
 import io.cloudslang.score.facade.entities.RunningExecutionPlan;
 import io.cloudslang.score.api.ExecutionPlan;
 import io.cloudslang.orchestrator.repositories.RunningExecutionPlanRepository;
@@ -55,21 +56,33 @@ public final class RunningExecutionPlanServiceImpl implements RunningExecutionPl
     @Override
     @Transactional
     public Long getOrCreateRunningExecutionPlan(ExecutionPlan executionPlan) {
-        List<RunningExecutionPlan> existingRunningPlans = readByFlowId(executionPlan.getFlowUuid());
+        String flowUuid = executionPlan.getFlowUuid();
+        if (StringUtils.isEmpty(flowUuid))
+            throw new IllegalArgumentException("Flow UUID is null or empty");
+
+        byte[] executionPlanBytes = ExecutionPlanCompressUtil.getBytesFromExecutionPlan(executionPlan);
+        String hash = ExecutionPlanCompressUtil.getExecutionPlanHash(executionPlanBytes);
 
-        //If no running execution plan existsByUuid for this UUID - create new
-        if (CollectionUtils.isEmpty(existingRunningPlans)) {
-            return createNewRunningExecutionPlan(executionPlan);
+        //A plan with the same content hash is equal to this plan
+        if (hash != null) {
+            List<Long> existingIds = runningExecutionPlanRepository.findIdsByUuidAndHashCached(flowUuid, hash);
+            if (!CollectionUtils.isEmpty(existingIds)) {
+                return existingIds.get(0);
+            }
         }
-        //If existsByUuid - check if the plans are equal
-        else {
+
+        //The plans without a hash must be compared by their content
+        List<RunningExecutionPlan> existingRunningPlans = hash != null?
+                runningExecutionPlanRepository.findWithoutHashByUuidCached(flowUuid):
+                runningExecutionPlanRepository.findByUuidCached(flowUuid);
+        if (!CollectionUtils.isEmpty(existingRunningPlans)) {
             for (RunningExecutionPlan existingRunningPlan : existingRunningPlans) {
                 if (existingRunningPlan.getExecutionPlan().equals(executionPlan)) {
                     return existingRunningPlan.getId();
                 }
             }
-            return createNewRunningExecutionPlan(executionPlan);
         }
+        return createNewRunningExecutionPlan(flowUuid, executionPlanBytes);
     }
 
     @Override
@@ -82,17 +95,11 @@ public final class RunningExecutionPlanServiceImpl implements RunningExecutionPl
         return runningExecutionPlan.getFlowUUID();
     }
 
-    private List<RunningExecutionPlan> readByFlowId(String flowUuid) {
-        if (StringUtils.isEmpty(flowUuid))
-            throw new IllegalArgumentException("Flow UUID is null or empty");
-        return runningExecutionPlanRepository.findByUuidCached(flowUuid);
-    }
-
-    private Long createNewRunningExecutionPlan(ExecutionPlan executionPlan) {
+    private Long createNewRunningExecutionPlan(String flowUuid, byte[] executionPlanBytes) {
         //Create new and save in DB
         RunningExecutionPlan runningExecutionPlan = new RunningExecutionPlan();
-        runningExecutionPlan.setFlowUUID(executionPlan.getFlowUuid());
-        runningExecutionPlan.setExecutionPlan(executionPlan);
+        runningExecutionPlan.setFlowUUID(flowUuid);
+        runningExecutionPlan.setExecutionPlanBytes(executionPlanBytes);
         runningExecutionPlan = createRunningExecutionPlan(runningExecutionPlan);
 
         return runningExecutionPlan.getId();
@@ -22,6 +22,7 @@ import io.cloudslang.orchestrator.entities.FinishedBranch;
 import io.cloudslang.orchestrator.entities.SplitMessage;
 import io.cloudslang.orchestrator.entities.SuspendedExecution;
 import io.cloudslang.orchestrator.repositories.FinishedBranchRepository;
+import io.cloudslang.orchestrator.repositories.SuspendedExecutionsJdbcRepository;
 import io.cloudslang.orchestrator.repositories.SuspendedExecutionsRepository;
 import org.apache.commons.lang.Validate;
 import org.apache.log4j.Logger;
@@ -30,6 +31,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -43,9 +45,18 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
 
     private final Integer BULK_SIZE = Integer.getInteger("splitjoin.job.bulk.size", 200);
 
+    //the branches of a split are converted and inserted to the queue in batches of this size
+    private int splitBatchSize = Integer.getInteger("splitjoin.split.batch.size", 1000);
+
+    //the finished branches of a split are read from the db in pages of this size when it is joined
+    private int joinBatchSize = Integer.getInteger("splitjoin.join.batch.size", 1000);
+
     @Autowired
     private SuspendedExecutionsRepository suspendedExecutionsRepository;
 
+    @Autowired
+    private SuspendedExecutionsJdbcRepository suspendedExecutionsJdbcRepository;
+
     @Autowired
     private FinishedBranchRepository finishedBranchRepository;
 
@@ -86,14 +97,19 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
             return;
 
         // these lists will be populated with values and inserted in bulk to the db
-        List<ExecutionMessage> stepFinishMessages = new ArrayList<>();
         List<ExecutionMessage> branchTriggerMessages = new ArrayList<>();
         List<SuspendedExecution> suspendedParents = new ArrayList<>();
 
         for (SplitMessage splitMessage : splitMessages) {
-            // 1. trigger all the child branches
-            List<ExecutionMessage> childExecutionMessages = convert(splitMessage.getChildren(), executionToStartExecutionMessage);
-            branchTriggerMessages.addAll(childExecutionMessages);
+            // 1. trigger all the child branches - a batch at a time, so the payloads of a split with
+            // thousands of branches are not all kept in memory until the end of the transaction
+            for (Execution child : splitMessage.getChildren()) {
+                branchTriggerMessages.add(executionToStartExecutionMessage.convert(child));
+                if (branchTriggerMessages.size() >= splitBatchSize) {
+                    queueDispatcherService.dispatch(branchTriggerMessages);
+                    branchTriggerMessages = new ArrayList<>();
+                }
+            }
 
             // 2. suspend the parent
             suspendedParents.add(new SuspendedExecution(splitMessage.getParent().getExecutionId().toString(),
@@ -102,15 +118,13 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
                     splitMessage.getParent()));
         }
 
-        List<ExecutionMessage> queueMessages = new ArrayList<>();
-        queueMessages.addAll(branchTriggerMessages);
-        queueMessages.addAll(stepFinishMessages);
-
-        // write new branches and end of step messages to queue
-        queueDispatcherService.dispatch(queueMessages);
+        // write the rest of the new branches to queue
+        if (!branchTriggerMessages.isEmpty()) {
+            queueDispatcherService.dispatch(branchTriggerMessages);
+        }
 
-        // save the suspended parent entities
-        suspendedExecutionsRepository.save(suspendedParents);
+        // insert the suspended parent entities, they are not needed in the persistence context
+        suspendedExecutionsJdbcRepository.insertSuspendedExecutions(suspendedParents);
     }
 
     @Override
@@ -148,25 +162,50 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
         // create a finished branch entity for each execution
         List<FinishedBranch> finishedBranches = convert(executions, executionToFinishedBranch);
 
-        List<SuspendedExecution> suspendedExecutionsWithOneBranch = new ArrayList<>();
+        List<SuspendedExecution> finishedSplits = new ArrayList<>();
+        Map<String, FinishedBranch> finishedBranchesInMemory = new HashMap<>();
+        Map<String, Integer> finishedBranchesCounts = new HashMap<>();
 
         // add each finished branch to it's parent
         for (FinishedBranch finishedBranch : finishedBranches) {
             SuspendedExecution suspendedExecution = suspendedMap.get(finishedBranch.getSplitId());
             if (suspendedExecution != null) {
-                finishedBranch.connectToSuspendedExecution(suspendedExecution);
-
                 //this is an optimization for subflow (also works for MI with one branch :) )
                 if (suspendedExecution.getNumberOfBranches() == 1) {
-                    suspendedExecutionsWithOneBranch.add(suspendedExecution);
+                    finishedSplits.add(suspendedExecution);
+                    finishedBranchesInMemory.put(suspendedExecution.getSplitId(), finishedBranch);
                 } else {
+                    finishedBranch.connectToSuspendedExecution(suspendedExecution);
                     finishedBranchRepository.save(finishedBranch);
+                    Integer count = finishedBranchesCounts.get(finishedBranch.getSplitId());
+                    finishedBranchesCounts.put(finishedBranch.getSplitId(), count == null? 1: count + 1);
+                }
+            }
+        }
+
+        // count the ended branches on the suspended rows - the row is locked until the commit,
+        // so only the transaction that ends the last branch of a split sees all of its branches ended, and joins it
+        if (!finishedBranchesCounts.isEmpty()) {
+            // one update for all the splits that ended the same amount of branches, usually one
+            Map<Integer, List<String>> splitIdsByCount = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : finishedBranchesCounts.entrySet()) {
+                List<String> splitIdsOfCount = splitIdsByCount.get(entry.getValue());
+                if (splitIdsOfCount == null) {
+                    splitIdsOfCount = new ArrayList<>();
+                    splitIdsByCount.put(entry.getValue(), splitIdsOfCount);
                 }
+                splitIdsOfCount.add(entry.getKey());
+            }
+            for (Map.Entry<Integer, List<String>> entry : splitIdsByCount.entrySet()) {
+                suspendedExecutionsRepository.incrementFinishedBranchesCount(entry.getValue(), entry.getKey());
+            }
+            for (String splitId : suspendedExecutionsRepository.findFinishedSplitIds(new ArrayList<>(finishedBranchesCounts.keySet()))) {
+                finishedSplits.add(suspendedMap.get(splitId));
             }
         }
 
-        if (!suspendedExecutionsWithOneBranch.isEmpty()) {
-            joinAndSendToQueue(suspendedExecutionsWithOneBranch);
+        if (!finishedSplits.isEmpty()) {
+            joinAndSendToQueue(finishedSplits, finishedBranchesInMemory);
         }
     }
 
@@ -183,11 +222,12 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
     @Transactional
     public int joinFinishedSplits(int bulkSize) {
 
-        // 1. Find all suspended executions that have all their branches ended
+        // 1. Find all suspended executions that have all their branches ended - endBranch joins the splits it finishes,
+        // so these are only the splits that were counted before an upgrade
         PageRequest pageRequest = new PageRequest(0, bulkSize);
         List<SuspendedExecution> suspendedExecutions = suspendedExecutionsRepository.findFinishedSuspendedExecutions(pageRequest);
 
-        return joinAndSendToQueue(suspendedExecutions);
+        return joinAndSendToQueue(suspendedExecutions, Collections.<String, FinishedBranch>emptyMap());
     }
 
     @Override
@@ -200,7 +240,7 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
         }
     }
 
-    private int joinAndSendToQueue(List<SuspendedExecution> suspendedExecutions) {
+    private int joinAndSendToQueue(List<SuspendedExecution> suspendedExecutions, Map<String, FinishedBranch> finishedBranchesInMemory) {
         List<ExecutionMessage> messages = new ArrayList<>();
 
         if (logger.isDebugEnabled())
@@ -210,40 +250,62 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
         if (suspendedExecutions.isEmpty())
             return 0;
 
+        List<Long> suspendedExecutionIds = new ArrayList<>();
+        List<Long> suspendedExecutionIdsWithStoredBranches = new ArrayList<>();
         for (SuspendedExecution se : suspendedExecutions) {
-            Execution exec = joinSplit(se);
+            FinishedBranch finishedBranch = finishedBranchesInMemory.get(se.getSplitId());
+            Execution exec = joinSplit(se, finishedBranch);
             messages.add(executionToStartExecutionMessage.convert(exec));
+
+            suspendedExecutionIds.add(se.getId());
+            if (finishedBranch == null) {
+                suspendedExecutionIdsWithStoredBranches.add(se.getId());
+            }
         }
 
         // 3. send the suspended execution back to the queue
         queueDispatcherService.dispatch(messages);
 
-        // 4. delete the suspended execution from the suspended table
-        suspendedExecutionsRepository.delete(suspendedExecutions);
+        // 4. delete the finished branches and the suspended execution from the db, without loading the branches
+        if (!suspendedExecutionIdsWithStoredBranches.isEmpty()) {
+            finishedBranchRepository.deleteBySuspendedExecutionIds(suspendedExecutionIdsWithStoredBranches);
+        }
+        suspendedExecutionsRepository.deleteByIds(suspendedExecutionIds);
 
         return suspendedExecutions.size();
     }
 
-    private Execution joinSplit(SuspendedExecution suspendedExecution) {
+    /*
+        merges the finished branches into the parent - the branch that ended in this transaction is given,
+        otherwise the branches are read from the db a page at a time
+     */
+    private Execution joinSplit(SuspendedExecution suspendedExecution, FinishedBranch finishedBranchInMemory) {
 
-        List<FinishedBranch> finishedBranches = suspendedExecution.getFinishedBranches();
         Execution exec = suspendedExecution.getExecutionObj();
 
-        Validate.isTrue(suspendedExecution.getNumberOfBranches().equals(finishedBranches.size()),
-                "Expected suspended execution " + exec.getExecutionId() + " to have " + suspendedExecution.getNumberOfBranches() + "finished branches, but found " + finishedBranches.size());
-
         if (logger.isDebugEnabled())
             logger.debug("Joining execution " + exec.getExecutionId());
 
         boolean wasExecutionCancelled = false;
-        ArrayList<EndBranchDataContainer> finishedContexts = new ArrayList<>();
-        for (FinishedBranch fb : finishedBranches) {
-                finishedContexts.add(new EndBranchDataContainer(fb.getBranchContexts().getContexts(), fb.getBranchContexts().getSystemContext(), fb.getBranchException()));
-            if (fb.getBranchContexts().isBranchCancelled()) {
-                wasExecutionCancelled = true;
-            }
+        ArrayList<EndBranchDataContainer> finishedContexts = new ArrayList<>(suspendedExecution.getNumberOfBranches());
+        if (finishedBranchInMemory != null) {
+            wasExecutionCancelled = addFinishedBranch(finishedContexts, finishedBranchInMemory.getBranchContexts(), finishedBranchInMemory.getBranchException());
+        } else {
+            // the rows are read as values, so the branches do not pile up as entities in the persistence context
+            Long lastId = Long.MIN_VALUE;
+            List<Object[]> page;
+            do {
+                page = finishedBranchRepository.findBranchContexts(suspendedExecution.getId(), lastId, new PageRequest(0, joinBatchSize));
+                for (Object[] branch : page) {
+                    lastId = (Long) branch[0];
+                    wasExecutionCancelled |= addFinishedBranch(finishedContexts, (BranchContexts) branch[1], (String) branch[2]);
+                }
+            } while (page.size() == joinBatchSize);
         }
 
+        Validate.isTrue(suspendedExecution.getNumberOfBranches().equals(finishedContexts.size()),
+                "Expected suspended execution " + exec.getExecutionId() + " to have " + suspendedExecution.getNumberOfBranches() + "finished branches, but found " + finishedContexts.size());
+
         // 2. insert all of the branches into the parent execution
         exec.getSystemContext().setFinishedChildBranchesData(finishedContexts);
 
@@ -254,4 +316,10 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
 
         return exec;
     }
+
+    //returns true if the branch was cancelled
+    private boolean addFinishedBranch(List<EndBranchDataContainer> finishedContexts, BranchContexts branchContexts, String branchException) {
+        finishedContexts.add(new EndBranchDataContainer(branchContexts.getContexts(), branchContexts.getSystemContext(), branchException));
+        return branchContexts.isBranchCancelled();
+    }
 }
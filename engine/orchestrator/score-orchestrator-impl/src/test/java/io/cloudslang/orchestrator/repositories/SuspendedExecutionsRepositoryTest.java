@@ -34,6 +34,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +57,9 @@ public class SuspendedExecutionsRepositoryTest {
     @Autowired
     FinishedBranchRepository finishedBranchRepository;
 
+    @Autowired
+    SuspendedExecutionsJdbcRepository jdbcRepository;
+
     @Autowired
     ExecutionSerializationUtil executionSerializationUtil;
 
@@ -121,6 +125,31 @@ public class SuspendedExecutionsRepositoryTest {
         Assert.assertTrue(read.get(0).getSplitId().equals("888"));
     }
 
+    @Test
+    public void insertSuspendedExecutionsTest(){
+
+        Map<String, String> contexts = new HashMap<>();
+        contexts.put("flowContext", "value");
+
+        Execution exec1 = new Execution(1L, 2L, 0L, contexts, null);
+        Execution exec2 = new Execution(3L, 2L, 0L, contexts, null);
+        jdbcRepository.insertSuspendedExecutions(Arrays.asList(
+                new SuspendedExecution("1", "888", 5, exec1),
+                new SuspendedExecution("3", "999", 2, exec2)));
+
+        List<SuspendedExecution> read = repository.findBySplitIdIn(Arrays.asList("888", "999"));
+
+        Assert.assertEquals(2, read.size());
+        for (SuspendedExecution suspendedExecution : read) {
+            boolean first = suspendedExecution.getSplitId().equals("888");
+            Execution expected = first? exec1: exec2;
+            Assert.assertEquals(expected.getExecutionId().toString(), suspendedExecution.getExecutionId());
+            Assert.assertEquals(first? 5: 2, suspendedExecution.getNumberOfBranches().intValue());
+            Assert.assertEquals(expected.getExecutionId(), suspendedExecution.getExecutionObj().getExecutionId());
+            Assert.assertEquals("value", suspendedExecution.getExecutionObj().getContexts().get("flowContext"));
+        }
+    }
+
     @Test
     public void findFinishedSuspendedExecutionsTest(){
 
@@ -137,6 +166,7 @@ public class SuspendedExecutionsRepositoryTest {
         finishedBranch.connectToSuspendedExecution(saved);
 
         finishedBranchRepository.save(finishedBranch);
+        repository.incrementFinishedBranchesCount(Arrays.asList("888"), 1);
 
         List<SuspendedExecution> read = repository.findFinishedSuspendedExecutions(new PageRequest(0, 100));
 
@@ -160,6 +190,7 @@ public class SuspendedExecutionsRepositoryTest {
         finishedBranch.connectToSuspendedExecution(saved);
 
         finishedBranchRepository.save(finishedBranch);
+        repository.incrementFinishedBranchesCount(Arrays.asList("888"), 1);
 
         List<SuspendedExecution> read = repository.findFinishedSuspendedExecutions(new PageRequest(0, 100));
 
@@ -167,6 +198,49 @@ public class SuspendedExecutionsRepositoryTest {
     }
 
 
+    @Test
+    public void incrementAndFindFinishedSplitIdsTest(){
+
+        Map<String, String> contexts = new HashMap<>();
+        Execution exec = new Execution(2L, 0L, contexts);
+        repository.save(new SuspendedExecution("111", "888", 3, exec));
+        repository.save(new SuspendedExecution("222", "999", 1, exec));
+
+        Assert.assertEquals(2, repository.incrementFinishedBranchesCount(Arrays.asList("888", "999"), 1));
+        Assert.assertEquals(Arrays.asList("999"), repository.findFinishedSplitIds(Arrays.asList("888", "999")));
+
+        Assert.assertEquals(1, repository.incrementFinishedBranchesCount(Arrays.asList("888"), 2));
+        Assert.assertEquals(2, repository.findFinishedSplitIds(Arrays.asList("888", "999")).size());
+        Assert.assertEquals(2, repository.findFinishedSuspendedExecutions(new PageRequest(0, 100)).size());
+    }
+
+    @Test
+    public void readBranchContextsAndDeleteTest(){
+
+        Map<String, String> contexts = new HashMap<>();
+        Execution exec = new Execution(2L, 0L, contexts);
+        SuspendedExecution saved = repository.save(new SuspendedExecution("111", "888", 3, exec));
+
+        for (int i = 0; i < 3; i++) {
+            Map<String, Serializable> context = new HashMap<>();
+            context.put("branch", i);
+            FinishedBranch finishedBranch = new FinishedBranch("111", "33" + i, "888", i == 2? "error": null, new BranchContexts(false, context, new HashMap<String, Serializable>()));
+            finishedBranch.connectToSuspendedExecution(saved);
+            finishedBranchRepository.save(finishedBranch);
+        }
+
+        List<Object[]> firstPage = finishedBranchRepository.findBranchContexts(saved.getId(), Long.MIN_VALUE, new PageRequest(0, 2));
+        Assert.assertEquals(2, firstPage.size());
+        List<Object[]> secondPage = finishedBranchRepository.findBranchContexts(saved.getId(), (Long) firstPage.get(1)[0], new PageRequest(0, 2));
+        Assert.assertEquals(1, secondPage.size());
+        Assert.assertEquals(2, ((BranchContexts) secondPage.get(0)[1]).getContexts().get("branch"));
+        Assert.assertEquals("error", secondPage.get(0)[2]);
+
+        Assert.assertEquals(3, finishedBranchRepository.deleteBySuspendedExecutionIds(Arrays.asList(saved.getId())));
+        Assert.assertEquals(1, repository.deleteByIds(Arrays.asList(saved.getId())));
+        Assert.assertTrue(repository.findBySplitIdIn(Arrays.asList("888")).isEmpty());
+    }
+
     @Configuration
     @EnableJpaRepositories("io.cloudslang.orchestrator")
     @EnableTransactionManagement
@@ -186,5 +260,10 @@ public class SuspendedExecutionsRepositoryTest {
 	    DataBaseDetector dataBaseDetector() {
 		    return new DataBaseDetector();
 	    }
+
+	    @Bean
+	    SuspendedExecutionsJdbcRepository suspendedExecutionsJdbcRepository() {
+		    return new SuspendedExecutionsJdbcRepositoryImpl();
+	    }
     }
 }
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+
+package io.cloudslang.orchestrator.services;
+
+import io.cloudslang.engine.node.services.WorkerNodeService;
+import io.cloudslang.orchestrator.entities.MergedConfigurationDataContainer;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.cloudslang.orchestrator.services.MergedConfigurationServiceTest.createService;
+import static io.cloudslang.orchestrator.services.MergedConfigurationServiceTest.getMock;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class MergedConfigurationServiceBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(MergedConfigurationServiceBenchmarkTest.class);
+
+    /**
+     * Polls the configuration of many workers while executions keep being cancelled, and reports the database queries
+     * and the number of cancelled ids sent to the workers with the full fetch and with the delta fetch
+     */
+    @Test
+    public void databaseLoadBenchmark() {
+        int workers = 1000;
+        int cancelled = 50000;
+        int ticks = 5;
+        int cancelledPerTick = 100;
+
+        for (boolean delta : new boolean[]{false, true}) {
+            MergedConfigurationServiceImpl service = createService(60000);
+            CancelExecutionService cancelService = getMock(service, "cancelExecutionService");
+            PauseResumeService pauseService = getMock(service, "pauseResumeService");
+            WorkerNodeService nodeService = getMock(service, "workerNodeService");
+            Map<String, List<String>> groupsOfWorkers = new HashMap<>();
+            for (int i = 0; i < workers; i++) {
+                groupsOfWorkers.put("worker" + i, Arrays.asList("group" + i % 10));
+            }
+            List<Long> cancelledExecutions = new ArrayList<>();
+            for (long i = 1; i <= cancelled; i++) {
+                cancelledExecutions.add(i);
+            }
+            AtomicInteger queries = new AtomicInteger();
+            when(cancelService.readCanceledExecutionsIds()).thenAnswer(countQuery(queries, cancelledExecutions));
+            when(pauseService.readAllPausedExecutionBranchIds()).thenAnswer(countQuery(queries, Collections.<String>emptySet()));
+            when(nodeService.readGroupsOfWorkers()).thenAnswer(countQuery(queries, groupsOfWorkers));
+            when(nodeService.readWorkerGroups(anyString())).thenAnswer(countQuery(queries, Arrays.asList("group")));
+            String[] epochs = new String[workers];
+            long[] versions = new long[workers];
+            long sentIds = 0; //after the first refresh
+            long startTime = System.currentTimeMillis();
+            for (int tick = 0; tick < ticks; tick++) {
+                for (int i = 0; i < cancelledPerTick; i++) {
+                    cancelledExecutions.add((long) cancelledExecutions.size() + 1);
+                }
+                expireSnapshot(service);
+                for (int worker = 0; worker < workers; worker++) {
+                    MergedConfigurationDataContainer container = delta?
+                            service.fetchMergedConfigurationDelta("worker" + worker, epochs[worker], versions[worker]):
+                            service.fetchMergedConfiguration("worker" + worker);
+                    epochs[worker] = container.getEpoch();
+                    versions[worker] = container.getVersion();
+                    if (tick > 0) {
+                        sentIds += container.getCancelledExecutions().size();
+                    }
+                }
+            }
+            long time = System.currentTimeMillis() - startTime;
+            logger.info((delta? "delta fetch": "full fetch") + ": " + workers + " workers, " + ticks + " refreshes, " +
+                    queries.get() + " database queries, " + sentIds + " cancelled ids sent after the first refresh, " + time + " ms");
+        }
+    }
+
+    private static Answer<Object> countQuery(final AtomicInteger queries, final Object result) {
+        return new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                queries.incrementAndGet();
+                return result;
+            }
+        };
+    }
+
+    private static void expireSnapshot(MergedConfigurationServiceImpl service) {
+        Object snapshot = ReflectionTestUtils.getField(service, "snapshot");
+        if (snapshot != null) {
+            ReflectionTestUtils.setField(snapshot, "readTime", 0L);
+        }
+    }
+}
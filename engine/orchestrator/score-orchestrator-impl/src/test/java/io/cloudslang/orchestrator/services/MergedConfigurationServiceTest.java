@@ -22,12 +22,26 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import io.cloudslang.orchestrator.entities.MergedConfigurationDataContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SuppressWarnings({"SpringContextConfigurationInspection"})
@@ -87,6 +101,128 @@ public void testCancelledFlows(){
 
 
 
+    @Test
+    public void testDeltaSinceKnownVersion() {
+        MergedConfigurationServiceImpl service = createService(0);
+        CancelExecutionService cancelService = getMock(service, "cancelExecutionService");
+        PauseResumeService pauseService = getMock(service, "pauseResumeService");
+        WorkerNodeService nodeService = getMock(service, "workerNodeService");
+        when(cancelService.readCanceledExecutionsIds()).thenReturn(Arrays.asList(1L, 2L));
+        when(pauseService.readAllPausedExecutionBranchIds()).thenReturn(new HashSet<>(Arrays.asList("3:a")));
+        when(nodeService.readGroupsOfWorkers()).thenReturn(Collections.singletonMap("worker1", Arrays.asList("group1")));
+
+        MergedConfigurationDataContainer full = service.fetchMergedConfigurationDelta("worker1", null, 0);
+        assertFalse(full.isDelta());
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), new HashSet<>(full.getCancelledExecutions()));
+        assertEquals(Collections.singleton("3:a"), full.getPausedExecutions());
+        assertEquals(Arrays.asList("group1"), full.getWorkerGroups());
+
+        when(cancelService.readCanceledExecutionsIds()).thenReturn(Arrays.asList(2L, 4L));
+        when(pauseService.readAllPausedExecutionBranchIds()).thenReturn(new HashSet<>(Arrays.asList("5:b")));
+        MergedConfigurationDataContainer delta = service.fetchMergedConfigurationDelta("worker1", full.getEpoch(), full.getVersion());
+        assertTrue(delta.isDelta());
+        assertEquals(full.getEpoch(), delta.getEpoch());
+        assertEquals(full.getVersion() + 1, delta.getVersion());
+        assertEquals(Arrays.asList(4L), delta.getCancelledExecutions());
+        assertEquals(Arrays.asList(1L), delta.getRemovedCancelledExecutions());
+        assertEquals(Collections.singleton("5:b"), delta.getPausedExecutions());
+        assertEquals(Collections.singleton("3:a"), delta.getRemovedPausedExecutions());
+        assertNull(delta.getWorkerGroups()); //the groups did not change
+
+        MergedConfigurationDataContainer noChange = service.fetchMergedConfigurationDelta("worker1", delta.getEpoch(), delta.getVersion());
+        assertTrue(noChange.isDelta());
+        assertEquals(delta.getVersion(), noChange.getVersion());
+        assertTrue(noChange.getCancelledExecutions().isEmpty());
+        assertTrue(noChange.getRemovedPausedExecutions().isEmpty());
+    }
+
+    @Test
+    public void testFullConfigurationForUnknownVersion() {
+        MergedConfigurationServiceImpl service = createService(0);
+        CancelExecutionService cancelService = getMock(service, "cancelExecutionService");
+        when(cancelService.readCanceledExecutionsIds()).thenReturn(Arrays.asList(1L));
+        MergedConfigurationDataContainer first = service.fetchMergedConfigurationDelta("worker1", null, 0);
+
+        MergedConfigurationDataContainer otherEpoch = service.fetchMergedConfigurationDelta("worker1", "another orchestrator", first.getVersion());
+        assertFalse(otherEpoch.isDelta());
+        assertEquals(Arrays.asList(1L), otherEpoch.getCancelledExecutions());
+
+        ReflectionTestUtils.setField(service, "historySize", 1);
+        when(cancelService.readCanceledExecutionsIds()).thenReturn(Arrays.asList(1L, 2L));
+        service.fetchMergedConfigurationDelta("worker1", first.getEpoch(), first.getVersion());
+        MergedConfigurationDataContainer tooOld = service.fetchMergedConfigurationDelta("worker1", first.getEpoch(), first.getVersion());
+        assertFalse(tooOld.isDelta());
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), new HashSet<>(tooOld.getCancelledExecutions()));
+    }
+
+    @Test
+    public void testWorkerGroupsDelta() {
+        MergedConfigurationServiceImpl service = createService(0);
+        WorkerNodeService nodeService = getMock(service, "workerNodeService");
+        when(nodeService.readGroupsOfWorkers()).thenReturn(Collections.singletonMap("worker1", Arrays.asList("group1")));
+        when(nodeService.readWorkerGroups("worker2")).thenReturn(Arrays.asList("group2"));
+        MergedConfigurationDataContainer first = service.fetchMergedConfigurationDelta("worker1", null, 0);
+        //a worker that is not in the snapshot reads its own groups
+        assertEquals(Arrays.asList("group2"), service.fetchMergedConfigurationDelta("worker2", null, 0).getWorkerGroups());
+
+        when(nodeService.readGroupsOfWorkers()).thenReturn(Collections.singletonMap("worker1", Arrays.asList("group1", "group3")));
+        MergedConfigurationDataContainer delta = service.fetchMergedConfigurationDelta("worker1", first.getEpoch(), first.getVersion());
+        assertTrue(delta.isDelta());
+        assertEquals(Arrays.asList("group1", "group3"), delta.getWorkerGroups());
+
+        //the same groups in another order are the same configuration
+        when(nodeService.readGroupsOfWorkers()).thenReturn(Collections.singletonMap("worker1", Arrays.asList("group3", "group1")));
+        MergedConfigurationDataContainer reordered = service.fetchMergedConfigurationDelta("worker1", delta.getEpoch(), delta.getVersion());
+        assertEquals(delta.getVersion(), reordered.getVersion());
+        assertNull(reordered.getWorkerGroups());
+    }
+
+    @Test
+    public void testFailedReadKeepsPreviousConfiguration() {
+        MergedConfigurationServiceImpl service = createService(0);
+        CancelExecutionService cancelService = getMock(service, "cancelExecutionService");
+        when(cancelService.readCanceledExecutionsIds()).thenReturn(Arrays.asList(1L));
+        MergedConfigurationDataContainer first = service.fetchMergedConfigurationDelta("worker1", null, 0);
+
+        when(cancelService.readCanceledExecutionsIds()).thenThrow(new RuntimeException("database is down"));
+        MergedConfigurationDataContainer second = service.fetchMergedConfigurationDelta("worker1", first.getEpoch(), first.getVersion());
+        assertTrue(second.isDelta());
+        assertEquals(first.getVersion(), second.getVersion());
+        assertTrue(second.getRemovedCancelledExecutions().isEmpty());
+    }
+
+    @Test
+    public void testSnapshotIsSharedByWorkers() {
+        MergedConfigurationServiceImpl service = createService(60000);
+        CancelExecutionService cancelService = getMock(service, "cancelExecutionService");
+        WorkerNodeService nodeService = getMock(service, "workerNodeService");
+        Map<String, List<String>> groupsOfWorkers = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            groupsOfWorkers.put("worker" + i, Arrays.asList("group"));
+        }
+        when(nodeService.readGroupsOfWorkers()).thenReturn(groupsOfWorkers);
+        for (int i = 0; i < 10; i++) {
+            service.fetchMergedConfigurationDelta("worker" + i, null, 0);
+        }
+        verify(cancelService, times(1)).readCanceledExecutionsIds();
+        verify(nodeService, times(1)).readGroupsOfWorkers();
+        verify(nodeService, never()).readWorkerGroups(anyString());
+    }
+
+    static MergedConfigurationServiceImpl createService(long snapshotMillis) {
+        MergedConfigurationServiceImpl service = new MergedConfigurationServiceImpl();
+        ReflectionTestUtils.setField(service, "cancelExecutionService", mock(CancelExecutionService.class));
+        ReflectionTestUtils.setField(service, "pauseResumeService", mock(PauseResumeService.class));
+        ReflectionTestUtils.setField(service, "workerNodeService", mock(WorkerNodeService.class));
+        ReflectionTestUtils.setField(service, "snapshotMillis", snapshotMillis);
+        return service;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T getMock(MergedConfigurationServiceImpl service, String name) {
+        return (T) ReflectionTestUtils.getField(service, name);
+    }
+
     @Configuration
     static class Configurator {
 
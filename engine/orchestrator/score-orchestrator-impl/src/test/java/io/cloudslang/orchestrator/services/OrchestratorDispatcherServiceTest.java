@@ -79,12 +79,14 @@ public class OrchestratorDispatcherServiceTest {
         node.setBulkNumber("1");
         node.setWorkerRecoveryVersion("1");
 
-        when(workerNodeService.readByUUID(anyString())).thenReturn(node);
+        when(workerNodeService.findByUuid(anyString())).thenReturn(node);
+        when(workerNodeService.updateBulkNumberIfNew(uuid, "1", newBulkNumber)).thenReturn(true);
 
         orchestratorDispatcherService.dispatch(messages, newBulkNumber, "1", uuid);
         Mockito.verify(workerLockService, times(1)).lock(uuid);
         Mockito.verify(queueDispatcher, times(1)).dispatch(anyList());
-        Mockito.verify(workerNodeService, times(1)).updateBulkNumber(uuid, newBulkNumber);
+        Mockito.verify(workerNodeService, times(1)).updateBulkNumberIfNew(uuid, "1", newBulkNumber);
+        Mockito.verify(workerNodeService, times(0)).findByUuid(anyString());
     }
 
     @Test
@@ -98,12 +100,14 @@ public class OrchestratorDispatcherServiceTest {
         WorkerNode node = new WorkerNode(); //node with NULL bulk number since it is first dispatch
         node.setWorkerRecoveryVersion("1");
 
-        when(workerNodeService.readByUUID(anyString())).thenReturn(node);
+        when(workerNodeService.findByUuid(anyString())).thenReturn(node);
+        when(workerNodeService.updateBulkNumberIfNew(uuid, "1", newBulkNumber)).thenReturn(true);
 
         orchestratorDispatcherService.dispatch(messages, newBulkNumber, "1", uuid);
         Mockito.verify(workerLockService, times(1)).lock(uuid);
         Mockito.verify(queueDispatcher, times(1)).dispatch(anyList());
-        Mockito.verify(workerNodeService, times(1)).updateBulkNumber(uuid, newBulkNumber);
+        Mockito.verify(workerNodeService, times(1)).updateBulkNumberIfNew(uuid, "1", newBulkNumber);
+        Mockito.verify(workerNodeService, times(0)).findByUuid(anyString());
     }
 
     @Test
@@ -118,12 +122,12 @@ public class OrchestratorDispatcherServiceTest {
         node.setBulkNumber("1");
         node.setWorkerRecoveryVersion("1");
 
-        when(workerNodeService.readByUUID(anyString())).thenReturn(node);
+        when(workerNodeService.findByUuid(anyString())).thenReturn(node);
 
         orchestratorDispatcherService.dispatch(messages, newBulkNumber, "1", uuid);
         Mockito.verify(workerLockService, times(1)).lock(uuid);
         Mockito.verify(queueDispatcher, times(0)).dispatch(anyList());
-        Mockito.verify(workerNodeService, times(0)).updateBulkNumber(uuid, newBulkNumber);
+        Mockito.verify(workerNodeService, times(1)).updateBulkNumberIfNew(uuid, "1", newBulkNumber);
     }
     
     @Test
@@ -138,15 +142,38 @@ public class OrchestratorDispatcherServiceTest {
             node.setBulkNumber("1");
             node.setWorkerRecoveryVersion("1");
     
-            when(workerNodeService.readByUUID(anyString())).thenReturn(node);
+            when(workerNodeService.findByUuid(anyString())).thenReturn(node);
     
             //worker dispatches with wrong WRV
             orchestratorDispatcherService.dispatch(messages, newBulkNumber, "0", uuid);
     
             Mockito.verify(queueDispatcher, times(0)).dispatch(anyList());
-            Mockito.verify(workerNodeService, times(0)).updateBulkNumber(uuid, newBulkNumber);
+            Mockito.verify(workerNodeService, times(1)).updateBulkNumberIfNew(uuid, "0", newBulkNumber);
         }
 
+    @Test
+    public void deletedWorkerDispatchTest(){
+        List<Message> messages = new ArrayList<>();
+        messages.add(new ExecutionMessage());
+
+        String newBulkNumber = "2";
+        String uuid = "123";
+
+        WorkerNode node = new WorkerNode();
+        node.setBulkNumber("1");
+        node.setWorkerRecoveryVersion("1");
+        node.setDeleted(true);
+
+        when(workerNodeService.findByUuid(anyString())).thenReturn(node);
+
+        //the WRV is right, the bulk is discarded since the worker was deleted
+        orchestratorDispatcherService.dispatch(messages, newBulkNumber, "1", uuid);
+
+        Mockito.verify(queueDispatcher, times(0)).dispatch(anyList());
+        Mockito.verify(workerNodeService, times(1)).updateBulkNumberIfNew(uuid, "1", newBulkNumber);
+        Mockito.verify(workerNodeService, times(1)).findByUuid(uuid);
+    }
+
     @Configuration
     static class EmptyConfig {
 
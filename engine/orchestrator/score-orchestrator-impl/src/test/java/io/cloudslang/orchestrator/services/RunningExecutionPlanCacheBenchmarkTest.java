@@ -0,0 +1,83 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.orchestrator.services;
+
+import io.cloudslang.score.api.ExecutionPlan;
+import io.cloudslang.score.facade.services.RunningExecutionPlanService;
+import org.apache.log4j.Logger;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.persistence.EntityManagerFactory;
+
+import static io.cloudslang.orchestrator.services.RunningExecutionPlanCacheTest.createFlow;
+
+/**
+ * Reports the statements that a trigger of a flow with sub flows sends to the database with and without the caches
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = RunningExecutionPlanCacheTest.RunningExecutionPlanCacheTestContext.class)
+public class RunningExecutionPlanCacheBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(RunningExecutionPlanCacheBenchmarkTest.class);
+
+    private static final int TRIGGERS = 100;
+
+    @Autowired
+    private RunningExecutionPlanService runningExecutionPlanService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactoryImplementor sessionFactory;
+
+    @Before
+    public void init() {
+        sessionFactory = (SessionFactoryImplementor) ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory();
+    }
+
+    @Test
+    public void statementsPerTrigger() {
+        ExecutionPlan[] flow = createFlow("benchmark");
+        trigger(flow);
+        Statistics statistics = sessionFactory.getStatistics();
+
+        statistics.clear();
+        for (int i = 0; i < TRIGGERS; i++) {
+            sessionFactory.getCache().evictEntityRegions();
+            sessionFactory.getCache().evictQueryRegions();
+            trigger(flow);
+        }
+        long uncachedStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        for (int i = 0; i < TRIGGERS; i++) {
+            trigger(flow);
+        }
+        long cachedStatements = statistics.getPrepareStatementCount();
+
+        logger.info("Statements per trigger of a flow with " + (flow.length - 1) + " sub flows: " + (double) uncachedStatements / TRIGGERS +
+                " without the caches, " + (double) cachedStatements / TRIGGERS + " with the caches");
+    }
+
+    private void trigger(ExecutionPlan... flow) {
+        for (ExecutionPlan executionPlan : flow) {
+            runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.orchestrator.services;
+
+import io.cloudslang.engine.cache.ScoreCacheRegion;
+import io.cloudslang.engine.cache.ScoreRegionFactory;
+import io.cloudslang.engine.data.SimpleHiloIdentifierGenerator;
+import io.cloudslang.engine.partitions.entities.PartitionGroup;
+import io.cloudslang.score.api.ExecutionPlan;
+import io.cloudslang.score.facade.entities.RunningExecutionPlan;
+import io.cloudslang.score.facade.services.RunningExecutionPlanService;
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.hibernate.ejb.HibernatePersistence;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Properties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Triggers flows with sub flows through the running execution plans service with the second level and query caches,
+ * and counts the statements that reach the database
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class RunningExecutionPlanCacheTest {
+
+    private static final int TRIGGERS = 100;
+
+    @Autowired
+    private RunningExecutionPlanService runningExecutionPlanService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactoryImplementor sessionFactory;
+
+    @Before
+    public void init() {
+        sessionFactory = (SessionFactoryImplementor) ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory();
+        sessionFactory.getCache().evictEntityRegions();
+        sessionFactory.getCache().evictQueryRegions();
+        sessionFactory.getStatistics().clear();
+    }
+
+    @Test
+    public void testTriggersAreServedFromCache() {
+        ExecutionPlan[] flow = createFlow("cached");
+        Long[] ids = trigger(flow);
+        // the plans were inserted after the queries of the first trigger were cached, so the second trigger queries again
+        assertThat(trigger(flow)).isEqualTo(ids);
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < TRIGGERS; i++) {
+            assertThat(trigger(flow)).isEqualTo(ids);
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(TRIGGERS * flow.length);
+        ScoreCacheRegion region = ((ScoreRegionFactory) sessionFactory.getSettings().getRegionFactory()).getRegion(RunningExecutionPlan.class.getName());
+        assertThat(region.getElementCountInMemory()).isEqualTo(flow.length);
+        // the plans are deduped by their hash, they are not loaded at all
+        assertThat(region.getHitCount()).isZero();
+    }
+
+    @Test
+    public void testNewPlanOfFlowIsNotHiddenByCache() {
+        ExecutionPlan executionPlan = createFlow("changed")[0];
+        Long id = runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan);
+        assertThat(runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan)).isEqualTo(id);
+
+        executionPlan.setBeginStep(2L);
+        Long newId = runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan);
+        assertThat(newId).isNotEqualTo(id);
+        assertThat(runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan)).isEqualTo(newId);
+    }
+
+    @Test
+    public void testPartitionGroupIsNotCached() {
+        ScoreRegionFactory regionFactory = (ScoreRegionFactory) sessionFactory.getSettings().getRegionFactory();
+        assertThat(regionFactory.getRegion(PartitionGroup.class.getName())).isNull();
+    }
+
+    // the same calls as ScoreTriggeringImpl.saveRunningExecutionPlans()
+    private Long[] trigger(ExecutionPlan... flow) {
+        Long[] ids = new Long[flow.length];
+        for (int i = 0; i < flow.length; i++) {
+            ids[i] = runningExecutionPlanService.getOrCreateRunningExecutionPlan(flow[i]);
+        }
+        return ids;
+    }
+
+    static ExecutionPlan[] createFlow(String name) {
+        ExecutionPlan[] flow = new ExecutionPlan[3];
+        for (int i = 0; i < flow.length; i++) {
+            flow[i] = new ExecutionPlan();
+            flow[i].setFlowUuid(name + "-" + i);
+            flow[i].setBeginStep(1L);
+        }
+        return flow;
+    }
+
+    @Configuration
+    @EnableJpaRepositories("io.cloudslang")
+    @EnableTransactionManagement
+    static class RunningExecutionPlanCacheTestContext {
+
+        @Bean
+        DataSource dataSource(){
+            BasicDataSource ds = new BasicDataSource();
+            ds.setDriverClassName("org.h2.Driver");
+            ds.setUrl("jdbc:h2:mem:cache");
+            ds.setUsername("sa");
+            ds.setPassword("sa");
+            ds.setDefaultAutoCommit(false);
+            return ds;
+        }
+
+        @Bean(name="entityManagerFactory")
+        @DependsOn({"liquibase", "dataSource"})
+        FactoryBean<EntityManagerFactory> emf(JpaVendorAdapter jpaVendorAdapter) {
+            SimpleHiloIdentifierGenerator.setDataSource(dataSource());
+            LocalContainerEntityManagerFactoryBean fb = new LocalContainerEntityManagerFactoryBean();
+            fb.setJpaProperties(hibernateProperties());
+            fb.setDataSource(dataSource());
+            fb.setPersistenceProviderClass(HibernatePersistence.class);
+            fb.setPackagesToScan("io.cloudslang");
+            fb.setJpaVendorAdapter(jpaVendorAdapter);
+            return fb;
+        }
+
+        @Bean
+        Properties hibernateProperties() {
+            return new Properties(){{
+                setProperty("hibernate.hbm2ddl.auto", "create-drop");
+                setProperty("hibernate.cache.use_query_cache", "true");
+                setProperty("hibernate.generate_statistics", "true");
+                setProperty("hibernate.cache.use_second_level_cache", "true");
+                setProperty("hibernate.cache.region.factory_class", ScoreRegionFactory.class.getName());
+                setProperty("hibernate.order_updates", "true");
+                setProperty("hibernate.order_inserts", "true");
+            }};
+        }
+
+        @Bean
+        JpaVendorAdapter jpaVendorAdapter() {
+            HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
+            adapter.setGenerateDdl(true);
+            return adapter;
+        }
+
+        @Bean
+        SpringLiquibase liquibase(){
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource());
+            liquibase.setChangeLog("classpath:/META-INF/database/test-changes.xml");
+            return liquibase;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
+            return new JpaTransactionManager(emf);
+        }
+
+        @Bean
+        RunningExecutionPlanService runningExecutionPlanService() {
+            return new RunningExecutionPlanServiceImpl();
+        }
+    }
+}
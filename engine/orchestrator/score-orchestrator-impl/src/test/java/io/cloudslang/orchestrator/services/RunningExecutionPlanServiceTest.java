@@ -10,6 +10,7 @@
 
 package io.cloudslang.orchestrator.services;
 
+import io.cloudslang.score.facade.entities.ExecutionPlanCompressUtil;
 import io.cloudslang.score.facade.entities.RunningExecutionPlan;
 import io.cloudslang.score.facade.services.RunningExecutionPlanService;
 import io.cloudslang.score.api.ExecutionPlan;
@@ -29,6 +30,9 @@ import java.util.Arrays;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -76,4 +80,31 @@ public class RunningExecutionPlanServiceTest {
         Long id = runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan);
         Assert.assertEquals((Long) 5L, id);
     }
+
+    @Test
+    public void testPlanWithSameHashIsReused() {
+        ExecutionPlan executionPlan = new ExecutionPlan();
+        executionPlan.setFlowUuid("uuid");
+        String hash = ExecutionPlanCompressUtil.getExecutionPlanHash(ExecutionPlanCompressUtil.getBytesFromExecutionPlan(executionPlan));
+
+        when(runningExecutionPlanRepository.findIdsByUuidAndHashCached("uuid", hash)).thenReturn(Arrays.asList(7L));
+
+        Assert.assertEquals((Long) 7L, runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan));
+        verify(runningExecutionPlanRepository, never()).findWithoutHashByUuidCached(anyString());
+        verify(runningExecutionPlanRepository, never()).save(any(RunningExecutionPlan.class));
+    }
+
+    @Test
+    public void testLegacyPlanIsComparedByContent() {
+        ExecutionPlan executionPlan = new ExecutionPlan();
+        executionPlan.setFlowUuid("uuid");
+        RunningExecutionPlan legacyRunningExecutionPlan = new RunningExecutionPlan();
+        legacyRunningExecutionPlan.setId(4L);
+        legacyRunningExecutionPlan.setExecutionPlanZipped(ExecutionPlanCompressUtil.getBytesFromExecutionPlan(executionPlan));
+
+        when(runningExecutionPlanRepository.findWithoutHashByUuidCached(eq("uuid"))).thenReturn(Arrays.asList(legacyRunningExecutionPlan));
+
+        Assert.assertEquals((Long) 4L, runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan));
+        verify(runningExecutionPlanRepository, never()).save(any(RunningExecutionPlan.class));
+    }
 }
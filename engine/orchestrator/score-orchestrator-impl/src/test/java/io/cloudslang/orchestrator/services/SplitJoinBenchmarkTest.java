@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.orchestrator.services;
+
+import io.cloudslang.engine.data.DataBaseDetector;
+import io.cloudslang.engine.data.HiloFactoryBean;
+import io.cloudslang.engine.data.IdentityGenerator;
+import io.cloudslang.engine.queue.entities.ExecutionMessageConverter;
+import io.cloudslang.engine.queue.services.QueueDispatcherService;
+import io.cloudslang.orchestrator.entities.SplitMessage;
+import io.cloudslang.orchestrator.repositories.SuspendedExecutionsJdbcRepository;
+import io.cloudslang.orchestrator.repositories.SuspendedExecutionsJdbcRepositoryImpl;
+import io.cloudslang.score.facade.entities.Execution;
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Reports the cost of a poll of the join job with 5,000 open splits - when it counts the finished branches of every split,
+ * with and without the index of the branches on their split, and when it compares the counter of the split row -
+ * and how long it takes to join a split once its last branch ends.
+ * The database is embedded, so its work is done by the polling thread and shows as the cpu time of the thread.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = SplitJoinBenchmarkTest.Configurator.class)
+public class SplitJoinBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(SplitJoinBenchmarkTest.class);
+
+    private static final int OPEN_SPLITS = 5000;
+    private static final int BRANCHES = 4;
+    private static final int BULK = 500;
+    private static final int POLLS = 20;
+    private static final int POLLS_WITHOUT_INDEX = 3;
+    private static final int JOINS = 100;
+    private static final long JOB_DELAY = 1000; //the fixed delay of the join job
+
+    private static final String COUNT_BRANCHES_QUERY = "from SuspendedExecution se where se.numberOfBranches=size(se.finishedBranches)";
+    private static final String COMPARE_COUNTER_QUERY = "from SuspendedExecution se where se.numberOfBranches=se.finishedBranchesCount";
+
+    @Autowired
+    private SplitJoinService splitJoinService;
+
+    @Autowired
+    private QueueDispatcherService queueDispatcherService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void testJoinBenchmark() {
+        List<SplitMessage> splitMessages = new ArrayList<>();
+        for (int i = 0; i < OPEN_SPLITS; i++) {
+            List<Execution> children = new ArrayList<>();
+            for (int branch = 0; branch < BRANCHES; branch++) {
+                children.add(createExecution(i));
+            }
+            splitMessages.add(new SplitMessage("split" + i, createExecution(i), children));
+        }
+        for (int from = 0; from < OPEN_SPLITS; from += BULK) {
+            splitJoinService.split(splitMessages.subList(from, from + BULK));
+        }
+
+        // all the branches but the last end
+        for (int branch = 0; branch < BRANCHES - 1; branch++) {
+            for (int from = 0; from < OPEN_SPLITS; from += BULK) {
+                List<Execution> branches = new ArrayList<>();
+                for (int i = from; i < from + BULK; i++) {
+                    branches.add(createBranch(i, branch));
+                }
+                splitJoinService.endBranch(branches);
+            }
+        }
+        Mockito.verify(queueDispatcherService, Mockito.times(OPEN_SPLITS * BRANCHES / 1000)).dispatch(Mockito.anyList());
+
+        measurePolls(COUNT_BRANCHES_QUERY, POLLS); //warm up
+        measurePolls(COMPARE_COUNTER_QUERY, POLLS);
+        measurePolls(COMPARE_COUNTER_QUERY, POLLS);
+        measurePolls(COUNT_BRANCHES_QUERY, POLLS);
+        // the finished branches had no index on their suspended execution before the counter
+        new JdbcTemplate(dataSource).execute("DROP INDEX OO_FINISHED_BRANCHES_SE_IDX");
+        long pollNanos = measurePolls(COUNT_BRANCHES_QUERY, POLLS_WITHOUT_INDEX);
+
+        // the last branches end, each one joins its split
+        long startTime = System.nanoTime();
+        for (int i = 0; i < JOINS; i++) {
+            splitJoinService.endBranch(Arrays.asList(createBranch(i, BRANCHES - 1)));
+        }
+        long joinNanos = (System.nanoTime() - startTime) / JOINS;
+        Mockito.verify(queueDispatcherService, Mockito.times(OPEN_SPLITS * BRANCHES / 1000 + JOINS)).dispatch(Mockito.anyList());
+        assertEquals(0, splitJoinService.joinFinishedSplits(JOINS));
+        assertEquals(0, poll(COMPARE_COUNTER_QUERY));
+
+        logger.info("count the finished branches: a split is joined " + (JOB_DELAY / 2 + pollNanos / 1000000) +
+                " ms on average after its last branch ends (half the job delay and a poll)");
+        logger.info("compare the counter: a split is joined " + joinNanos / 1000 + " µs after its last branch ends (in the transaction of the branch)");
+    }
+
+    private long measurePolls(String query, int polls) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long startTime = System.nanoTime();
+        long startCpuTime = threadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < polls; i++) {
+            assertEquals(0, poll(query));
+        }
+        long cpuTime = (threadMXBean.getCurrentThreadCpuTime() - startCpuTime) / polls;
+        long time = (System.nanoTime() - startTime) / polls;
+        logger.info(query + ": poll of " + OPEN_SPLITS + " open splits takes " + time / 1000 + " µs, " + cpuTime / 1000 + " µs cpu");
+        return time;
+    }
+
+    private int poll(String query) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery(query).setMaxResults(200).getResultList().size();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private Execution createExecution(long executionId) {
+        HashMap<String, Serializable> contexts = new HashMap<>();
+        contexts.put("flowContext", "value" + executionId);
+        return new Execution(executionId, 1L, 1L, contexts, null);
+    }
+
+    private Execution createBranch(long executionId, int branch) {
+        Execution execution = createExecution(executionId);
+        execution.getSystemContext().setSplitId("split" + executionId);
+        execution.getSystemContext().setBranchId("branch" + branch);
+        return execution;
+    }
+
+    @Configuration
+    @EnableJpaRepositories("io.cloudslang.orchestrator.repositories")
+    @EnableTransactionManagement
+    static class Configurator {
+        @Bean
+        DataSource dataSource() {
+            BasicDataSource ds = new BasicDataSource();
+            ds.setDriverClassName("org.h2.Driver");
+            ds.setUrl("jdbc:h2:mem:joinBenchmark");
+            ds.setUsername("sa");
+            ds.setPassword("sa");
+            ds.setDefaultAutoCommit(false);
+            return new TransactionAwareDataSourceProxy(ds);
+        }
+
+        @Bean
+        SpringLiquibase liquibase(DataSource dataSource) {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource);
+            liquibase.setChangeLog("classpath:/META-INF/database/score.changes.xml");
+            return liquibase;
+        }
+
+        @Bean
+        @DependsOn("liquibase")
+        FactoryBean<IdentityGenerator> identityGenerator() {
+            return new HiloFactoryBean();
+        }
+
+        @Bean
+        Properties hibernateProperties() {
+            return new Properties(){{
+                setProperty("hibernate.hbm2ddl.auto", "validate");
+                setProperty("hibernate.cache.use_query_cache", "false");
+                setProperty("hibernate.cache.use_second_level_cache", "false");
+            }};
+        }
+
+        @Bean
+        JpaVendorAdapter jpaVendorAdapter() {
+            HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
+            adapter.setShowSql(false);
+            return adapter;
+        }
+
+        @Bean(name="entityManagerFactory")
+        @DependsOn("identityGenerator")
+        FactoryBean<EntityManagerFactory> emf(JpaVendorAdapter jpaVendorAdapter) {
+            LocalContainerEntityManagerFactoryBean fb = new LocalContainerEntityManagerFactoryBean();
+            fb.setJpaProperties(hibernateProperties());
+            fb.setDataSource(dataSource());
+            fb.setPersistenceProviderClass(org.hibernate.ejb.HibernatePersistence.class);
+            fb.setPackagesToScan("io.cloudslang.orchestrator.entities", "io.cloudslang.score.facade.entities");
+            fb.setJpaVendorAdapter(jpaVendorAdapter);
+            return fb;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
+            return new JpaTransactionManager(emf);
+        }
+
+        @Bean
+        DataBaseDetector dataBaseDetector() {
+            return new DataBaseDetector();
+        }
+
+        @Bean
+        ExecutionSerializationUtil executionSerializationUtil() {
+            return new ExecutionSerializationUtil();
+        }
+
+        @Bean
+        ExecutionMessageConverter executionMessageConverter() {
+            return new ExecutionMessageConverter();
+        }
+
+        @Bean
+        QueueDispatcherService queueDispatcherService() {
+            return mock(QueueDispatcherService.class);
+        }
+
+        @Bean
+        SuspendedExecutionsJdbcRepository suspendedExecutionsJdbcRepository() {
+            return new SuspendedExecutionsJdbcRepositoryImpl();
+        }
+
+        @Bean
+        SplitJoinService splitJoinService() {
+            return new SplitJoinServiceImpl();
+        }
+    }
+}
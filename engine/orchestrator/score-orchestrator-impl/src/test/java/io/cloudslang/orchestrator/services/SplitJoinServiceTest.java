@@ -16,11 +16,13 @@ import io.cloudslang.engine.queue.entities.ExecutionMessage;
 import io.cloudslang.engine.queue.entities.ExecutionMessageConverter;
 import io.cloudslang.engine.queue.services.QueueDispatcherService;
 import io.cloudslang.score.facade.entities.Execution;
+import io.cloudslang.score.facade.execution.ExecutionStatus;
 import io.cloudslang.orchestrator.entities.BranchContexts;
 import io.cloudslang.orchestrator.entities.FinishedBranch;
 import io.cloudslang.orchestrator.entities.SplitMessage;
 import io.cloudslang.orchestrator.entities.SuspendedExecution;
 import io.cloudslang.orchestrator.repositories.FinishedBranchRepository;
+import io.cloudslang.orchestrator.repositories.SuspendedExecutionsJdbcRepository;
 import io.cloudslang.orchestrator.repositories.SuspendedExecutionsRepository;
 import io.cloudslang.score.lang.SystemContext;
 import org.junit.Before;
@@ -32,12 +34,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -60,6 +66,9 @@ public class SplitJoinServiceTest {
     @Mock
     private SuspendedExecutionsRepository suspendedExecutionsRepository;
 
+    @Mock
+    private SuspendedExecutionsJdbcRepository suspendedExecutionsJdbcRepository;
+
     @Mock
     private FinishedBranchRepository finishedBranchRepository;
 
@@ -112,7 +121,7 @@ public class SplitJoinServiceTest {
         SplitMessage splitMessage = createSplitMessage(splitId);
 
         splitJoinService.split(Arrays.asList(splitMessage));
-        Mockito.verify(suspendedExecutionsRepository).save(suspendedExecutionsSaveCaptor.capture());
+        Mockito.verify(suspendedExecutionsJdbcRepository).insertSuspendedExecutions(suspendedExecutionsSaveCaptor.capture());
         List<SuspendedExecution> value = suspendedExecutionsSaveCaptor.getValue();
 
         assertThat("exactly one suspended entity must be created", value.size(), is(1));
@@ -120,6 +129,29 @@ public class SplitJoinServiceTest {
         assertThat("suspended entity has incorrect execution object", value.get(0).getExecutionObj(), is(splitMessage.getParent()));
     }
 
+    @Test
+    public void triggerChildrenInBatchesSplitTest() {
+        ReflectionTestUtils.setField(splitJoinService, "splitBatchSize", 2);
+        SplitMessage splitMessage1 = new SplitMessage(UUID.randomUUID().toString(), createExecution(1L),
+                Arrays.asList(createExecution(2L), createExecution(3L), createExecution(4L)));
+        SplitMessage splitMessage2 = new SplitMessage(UUID.randomUUID().toString(), createExecution(5L),
+                Arrays.asList(createExecution(6L), createExecution(7L)));
+        final List<Integer> batchSizes = new ArrayList<>();
+        Mockito.doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                batchSizes.add(((List) invocation.getArguments()[0]).size());
+                return null;
+            }
+        }).when(queueDispatcherService).dispatch(Mockito.anyList());
+
+        splitJoinService.split(Arrays.asList(splitMessage1, splitMessage2));
+
+        assertThat("branches should be dispatched in batches", batchSizes, is(Arrays.asList(2, 2, 1)));
+        Mockito.verify(suspendedExecutionsJdbcRepository).insertSuspendedExecutions(suspendedExecutionsSaveCaptor.capture());
+        assertThat("both parents must be suspended", suspendedExecutionsSaveCaptor.getValue().size(), is(2));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void nullParamSplitTest() {
         splitJoinService.split(null);
@@ -148,6 +180,76 @@ public class SplitJoinServiceTest {
         splitJoinService.endBranch(Arrays.asList(branch1, branch2));
     }
 
+    @Test
+    public void countBranchesEndBranchTest() {
+        String splitId = UUID.randomUUID().toString();
+        Mockito.when(suspendedExecutionsRepository.findBySplitIdIn(Arrays.asList(splitId, splitId))).thenReturn(Arrays.asList(createSuspendedExecution(splitId, 3)));
+
+        splitJoinService.endBranch(Arrays.asList(createBranch(splitId, "1"), createBranch(splitId, "2")));
+
+        Mockito.verify(finishedBranchRepository, Mockito.times(2)).save(any(FinishedBranch.class));
+        Mockito.verify(suspendedExecutionsRepository).incrementFinishedBranchesCount(Arrays.asList(splitId), 2);
+        Mockito.verify(suspendedExecutionsRepository).findFinishedSplitIds(Arrays.asList(splitId));
+        // not all the branches ended yet
+        Mockito.verify(queueDispatcherService, Mockito.never()).dispatch(Mockito.anyList());
+        Mockito.verify(suspendedExecutionsRepository, Mockito.never()).deleteByIds(Mockito.anyList());
+    }
+
+    @Test
+    public void joinLastBranchEndBranchTest() {
+        String splitId = UUID.randomUUID().toString();
+        SuspendedExecution suspendedExecution = createSuspendedExecution(splitId, 2);
+        Mockito.when(suspendedExecutionsRepository.findBySplitIdIn(Arrays.asList(splitId))).thenReturn(Arrays.asList(suspendedExecution));
+        Mockito.when(suspendedExecutionsRepository.findFinishedSplitIds(Arrays.asList(splitId))).thenReturn(Arrays.asList(splitId));
+        mockStoredFinishedBranches(createFinishedBranch(splitId, "1", new HashMap<String, Serializable>(), new HashMap<String, Serializable>()),
+                createFinishedBranch(splitId, "2", new HashMap<String, Serializable>(), new HashMap<String, Serializable>()));
+
+        splitJoinService.endBranch(Arrays.asList(createBranch(splitId, "2")));
+
+        Mockito.verify(suspendedExecutionsRepository).incrementFinishedBranchesCount(Arrays.asList(splitId), 1);
+        Mockito.verify(queueDispatcherService).dispatch(queueDispatcherDispatchCaptor.capture());
+        assertThat("the parent should be sent back to the queue", queueDispatcherDispatchCaptor.getValue().size(), is(1));
+        assertThat("the parent should get both branches", suspendedExecution.getExecutionObj().getSystemContext().getFinishedChildBranchesData().size(), is(2));
+        Mockito.verify(finishedBranchRepository).deleteBySuspendedExecutionIds(Arrays.asList(suspendedExecution.getId()));
+        Mockito.verify(suspendedExecutionsRepository).deleteByIds(Arrays.asList(suspendedExecution.getId()));
+    }
+
+    @Test
+    public void joinOneBranchEndBranchTest() {
+        String splitId = UUID.randomUUID().toString();
+        SuspendedExecution suspendedExecution = createSuspendedExecution(splitId, 1);
+        Mockito.when(suspendedExecutionsRepository.findBySplitIdIn(Arrays.asList(splitId))).thenReturn(Arrays.asList(suspendedExecution));
+
+        splitJoinService.endBranch(Arrays.asList(createBranch(splitId, "1")));
+
+        // the branch is joined from memory, it is not stored nor counted
+        Mockito.verify(finishedBranchRepository, Mockito.never()).save(any(FinishedBranch.class));
+        Mockito.verify(suspendedExecutionsRepository, Mockito.never()).incrementFinishedBranchesCount(Mockito.anyList(), Mockito.anyInt());
+        Mockito.verify(finishedBranchRepository, Mockito.never()).deleteBySuspendedExecutionIds(Mockito.anyList());
+        Mockito.verify(queueDispatcherService).dispatch(queueDispatcherDispatchCaptor.capture());
+        assertThat("the parent should be sent back to the queue", queueDispatcherDispatchCaptor.getValue().size(), is(1));
+        assertThat("the parent should get the branch", suspendedExecution.getExecutionObj().getSystemContext().getFinishedChildBranchesData().size(), is(1));
+        Mockito.verify(suspendedExecutionsRepository).deleteByIds(Arrays.asList(suspendedExecution.getId()));
+    }
+
+    @Test
+    public void readBranchesInPagesJoinFinishedSplitsTest() {
+        ReflectionTestUtils.setField(splitJoinService, "joinBatchSize", 2);
+        String splitId = UUID.randomUUID().toString();
+        SuspendedExecution suspendedExecution = createSuspendedExecution(splitId, 3);
+        Mockito.when(suspendedExecutionsRepository.findFinishedSuspendedExecutions(any(Pageable.class))).thenReturn(Arrays.asList(suspendedExecution));
+        List<Object[]> firstPage = Arrays.<Object[]>asList(branchRow(1L, false), branchRow(2L, false));
+        List<Object[]> secondPage = Arrays.<Object[]>asList(branchRow(3L, true));
+        Mockito.when(finishedBranchRepository.findBranchContexts(Mockito.eq(suspendedExecution.getId()), Mockito.eq(Long.MIN_VALUE), any(Pageable.class))).thenReturn(firstPage);
+        Mockito.when(finishedBranchRepository.findBranchContexts(Mockito.eq(suspendedExecution.getId()), Mockito.eq(2L), any(Pageable.class))).thenReturn(secondPage);
+
+        assertThat(splitJoinService.joinFinishedSplits(1), is(1));
+
+        SystemContext systemContext = suspendedExecution.getExecutionObj().getSystemContext();
+        assertThat("the parent should get the branches of both pages", systemContext.getFinishedChildBranchesData().size(), is(3));
+        assertThat("a cancelled branch cancels the parent", systemContext.getFlowTerminationType(), is(ExecutionStatus.CANCELED));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void nullParamEndBranchTest() {
         splitJoinService.endBranch(null);
@@ -163,7 +265,7 @@ public class SplitJoinServiceTest {
         HashMap<String, Serializable> context = new HashMap<>();
         context.put("someData", "1");
 
-        suspendedExecution.getFinishedBranches().add(createFinishedBranch(splitId, splitId + "1", context, new HashMap<String, Serializable>()));
+        mockStoredFinishedBranches(createFinishedBranch(splitId, splitId + "1", context, new HashMap<String, Serializable>()));
         Mockito.when(suspendedExecutionsRepository.findFinishedSuspendedExecutions(any(Pageable.class))).thenReturn(Arrays.asList(suspendedExecution));
 
         int joinedSplits = splitJoinService.joinFinishedSplits(1);
@@ -182,13 +284,14 @@ public class SplitJoinServiceTest {
     public void deleteParentJoinFinishedSplitsTest() {
         String splitId = UUID.randomUUID().toString();
         SuspendedExecution suspendedExecution = createSuspendedExecution(splitId, 1);
-        suspendedExecution.getFinishedBranches().add(createFinishedBranch(splitId, splitId + "1", new HashMap<String, Serializable>(), new HashMap<String, Serializable>()));
+        mockStoredFinishedBranches(createFinishedBranch(splitId, splitId + "1", new HashMap<String, Serializable>(), new HashMap<String, Serializable>()));
         Mockito.when(suspendedExecutionsRepository.findFinishedSuspendedExecutions(any(Pageable.class))).thenReturn(Arrays.asList(suspendedExecution));
 
         int joinedSplits = splitJoinService.joinFinishedSplits(1);
         assertThat(joinedSplits, is(1));
 
-        Mockito.verify(suspendedExecutionsRepository).delete(Arrays.asList(suspendedExecution));
+        Mockito.verify(finishedBranchRepository).deleteBySuspendedExecutionIds(Arrays.asList(suspendedExecution.getId()));
+        Mockito.verify(suspendedExecutionsRepository).deleteByIds(Arrays.asList(suspendedExecution.getId()));
     }
 
     @Test
@@ -199,7 +302,8 @@ public class SplitJoinServiceTest {
         Map<String, Serializable> branchSystemContext = new HashMap<>();
         context.put("haha", "lala");
 
-        suspendedExecution.getFinishedBranches().add(createFinishedBranch(splitId, splitId + "1", context, branchSystemContext));
+        FinishedBranch finishedBranch = createFinishedBranch(splitId, splitId + "1", context, branchSystemContext);
+        mockStoredFinishedBranches(finishedBranch);
         Mockito.when(suspendedExecutionsRepository.findFinishedSuspendedExecutions(any(Pageable.class))).thenReturn(Arrays.asList(suspendedExecution));
 
         int joinedSplits = splitJoinService.joinFinishedSplits(1);
@@ -210,13 +314,32 @@ public class SplitJoinServiceTest {
 
         List<EndBranchDataContainer> finishedChildContexts = value.getSystemContext().getFinishedChildBranchesData();
 
-        Map<String, Serializable> ooContexts = suspendedExecution.getFinishedBranches().get(0).getBranchContexts().getContexts();
-        Map<String, Serializable> systemContext = suspendedExecution.getFinishedBranches().get(0).getBranchContexts().getSystemContext();
+        Map<String, Serializable> ooContexts = finishedBranch.getBranchContexts().getContexts();
+        Map<String, Serializable> systemContext = finishedBranch.getBranchContexts().getSystemContext();
         assertThat("parent execution must contain children maps", finishedChildContexts, is(Arrays.asList(
                 new EndBranchDataContainer(ooContexts, systemContext, null))));
     }
 
     // private helpers
+    private Execution createBranch(String splitId, String branchId) {
+        Execution branch = createExecution(2L);
+        branch.getSystemContext().setSplitId(splitId);
+        branch.getSystemContext().setBranchId(branchId);
+        return branch;
+    }
+
+    private void mockStoredFinishedBranches(FinishedBranch... finishedBranches) {
+        List<Object[]> rows = new ArrayList<>();
+        for (FinishedBranch finishedBranch : finishedBranches) {
+            rows.add(new Object[]{(long) rows.size(), finishedBranch.getBranchContexts(), finishedBranch.getBranchException()});
+        }
+        Mockito.when(finishedBranchRepository.findBranchContexts(any(Long.class), any(Long.class), any(Pageable.class))).thenReturn(rows);
+    }
+
+    private Object[] branchRow(long id, boolean cancelled) {
+        return new Object[]{id, new BranchContexts(cancelled, new HashMap<String, Serializable>(), new HashMap<String, Serializable>()), null};
+    }
+
     private Execution createExecution(Long id) {
         Execution res = new Execution(id,null, null, null, new SystemContext());
         return res;
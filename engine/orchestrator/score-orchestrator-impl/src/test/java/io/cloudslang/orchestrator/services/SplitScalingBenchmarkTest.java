@@ -0,0 +1,140 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.orchestrator.services;
+
+import io.cloudslang.engine.queue.entities.ExecutionMessage;
+import io.cloudslang.engine.queue.entities.ExecutionMessageConverter;
+import io.cloudslang.engine.queue.services.QueueDispatcherService;
+import io.cloudslang.orchestrator.entities.SplitMessage;
+import io.cloudslang.orchestrator.repositories.FinishedBranchRepository;
+import io.cloudslang.orchestrator.repositories.SuspendedExecutionsJdbcRepository;
+import io.cloudslang.orchestrator.repositories.SuspendedExecutionsRepository;
+import io.cloudslang.score.facade.entities.Execution;
+import io.cloudslang.score.lang.SystemContext;
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Splits a parent to 100, 10,000 and 100,000 branches with real payloads, and reports the time of the split,
+ * the most payload bytes held by the split at once and the heap peak - with batches and with all the branches in one bulk
+ */
+public class SplitScalingBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(SplitScalingBenchmarkTest.class);
+
+    @InjectMocks
+    private SplitJoinService splitJoinService = new SplitJoinServiceImpl();
+
+    @Mock
+    private SuspendedExecutionsRepository suspendedExecutionsRepository;
+
+    @Mock
+    private SuspendedExecutionsJdbcRepository suspendedExecutionsJdbcRepository;
+
+    @Mock
+    private FinishedBranchRepository finishedBranchRepository;
+
+    @Mock
+    private QueueDispatcherService queueDispatcherService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(splitJoinService, "converter", new ExecutionMessageConverter());
+    }
+
+    @Test
+    public void splitScalingBenchmark() {
+        final long[] heldBytes = new long[1];
+        final int[] dispatchedBranches = new int[1];
+        Mockito.doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                long bytes = 0;
+                for (Object message : (List) invocation.getArguments()[0]) {
+                    bytes += ((ExecutionMessage) message).getPayload().getData().length;
+                }
+                heldBytes[0] = Math.max(heldBytes[0], bytes);
+                dispatchedBranches[0] += ((List) invocation.getArguments()[0]).size();
+                return null;
+            }
+        }).when(queueDispatcherService).dispatch(Mockito.anyList());
+
+        HashMap<String, Serializable> context = new HashMap<>();
+        context.put("data", new String(new char[1024]).replace('\0', 'x'));
+        for (int branches : new int[]{100, 10000, 100000}) {
+            List<Execution> children = new ArrayList<>(branches);
+            for (int i = 0; i < branches; i++) {
+                children.add(new Execution((long) i, 1L, 1L, context, null));
+            }
+            SplitMessage splitMessage = new SplitMessage(UUID.randomUUID().toString(), createExecution(1L), children);
+            // all the branches in one bulk does not fit the heap of the test with 100,000 branches
+            for (int batchSize : branches > 10000? new int[]{1000}: new int[]{1000, Integer.MAX_VALUE}) {
+                ReflectionTestUtils.setField(splitJoinService, "splitBatchSize", batchSize);
+                heldBytes[0] = 0;
+                dispatchedBranches[0] = 0;
+                System.gc();
+                long heapBefore = resetHeapPeak();
+                long startTime = System.nanoTime();
+                splitJoinService.split(Arrays.asList(splitMessage));
+                long time = (System.nanoTime() - startTime) / 1000000;
+                assertEquals(branches, dispatchedBranches[0]);
+                logger.info("split to " + branches + " branches with " + (batchSize == Integer.MAX_VALUE? "one bulk": "batches of " + batchSize) +
+                        ": " + time + " ms, held payloads " + heldBytes[0] / 1024 + " KB, heap peak " + (heapPeak() - heapBefore) / (1024 * 1024) + " MB above the start");
+            }
+        }
+    }
+
+    private long resetHeapPeak() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    private long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private Execution createExecution(Long id) {
+        return new Execution(id, null, null, null, new SystemContext());
+    }
+}
@@ -0,0 +1,298 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.engine.queue.entities;
+
+import io.cloudslang.score.facade.entities.Execution;
+import io.cloudslang.score.lang.SystemContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary {@link PayloadCodec} for {@link Execution} objects.
+ *
+ * The execution fields, the contexts and the system context are written field by field, and so are
+ * the common context values - strings, boxed primitives, hash maps, lists and sets.
+ * All the other values are java serialized together in a single stream at the head of the payload.
+ *
+ * Java serialization keeps shared references - the codec falls back to it for the whole payload when a
+ * collection appears more than once in the execution.
+ */
+public class BinaryPayloadCodec implements PayloadCodec {
+
+    public static final int ID = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte HASH_MAP = 6;
+    private static final byte LINKED_HASH_MAP = 7;
+    private static final byte ARRAY_LIST = 8;
+    private static final byte HASH_SET = 9;
+    private static final byte SYSTEM_CONTEXT = 10;
+    private static final byte SERIALIZED = 11;
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public boolean encode(Object obj, OutputStream out) throws IOException {
+        if (obj == null || obj.getClass() != Execution.class) {
+            return false;
+        }
+        Execution execution = (Execution) obj;
+        if (execution.getContexts() != null && execution.getContexts().getClass() != HashMap.class) {
+            return false;
+        }
+
+        Encoder encoder = new Encoder();
+        try {
+            encoder.writeExecution(execution);
+        } catch (SharedReferenceException ex) {
+            return false;
+        }
+
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(encoder.serialized.size());
+        if (!encoder.serialized.isEmpty()) {
+            ByteArrayOutputStream serializedBytes = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(serializedBytes);
+            oos.writeObject(encoder.serialized);
+            oos.close();
+            dos.writeInt(serializedBytes.size());
+            serializedBytes.writeTo(dos);
+        }
+        encoder.bytes.writeTo(dos);
+        dos.flush();
+        return true;
+    }
+
+    @Override
+    public Object decode(InputStream in) throws IOException, ClassNotFoundException {
+        DataInputStream dis = new DataInputStream(in);
+        List<?> serialized = null;
+        if (dis.readInt() > 0) {
+            byte[] serializedBytes = new byte[dis.readInt()];
+            dis.readFully(serializedBytes);
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serializedBytes))) {
+                serialized = (List<?>) ois.readObject();
+            }
+        }
+        return new Decoder(dis, serialized).readExecution();
+    }
+
+    private static class SharedReferenceException extends RuntimeException {
+    }
+
+    private static class Encoder {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final ArrayList<Object> serialized = new ArrayList<>();
+        private final Map<Object, Object> visited = new IdentityHashMap<>();
+
+        void writeExecution(Execution execution) throws IOException {
+            writeNullableLong(execution.getExecutionId());
+            writeNullableLong(execution.getRunningExecutionPlanId());
+            writeNullableLong(execution.getPosition());
+            writeValue(execution.getGroupName());
+            writeValue(execution.getContexts());
+            writeEntries(execution.getSystemContext());
+        }
+
+        private void writeNullableLong(Long value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeLong(value);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] data = value.getBytes(UTF_8);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            Class<?> type = value.getClass();
+            if (type == String.class) {
+                out.writeByte(STRING);
+                writeString((String) value);
+            } else if (type == Integer.class) {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) value);
+            } else if (type == Long.class) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (type == Boolean.class) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (type == Double.class) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (type == HashMap.class) {
+                out.writeByte(HASH_MAP);
+                writeEntries((Map<?, ?>) value);
+            } else if (type == LinkedHashMap.class) {
+                out.writeByte(LINKED_HASH_MAP);
+                writeEntries((Map<?, ?>) value);
+            } else if (type == ArrayList.class) {
+                out.writeByte(ARRAY_LIST);
+                writeElements((Collection<?>) value);
+            } else if (type == HashSet.class) {
+                out.writeByte(HASH_SET);
+                writeElements((Collection<?>) value);
+            } else if (type == SystemContext.class) {
+                out.writeByte(SYSTEM_CONTEXT);
+                writeEntries((Map<?, ?>) value);
+            } else {
+                //the serialized values share one stream, so references between them are kept
+                out.writeByte(SERIALIZED);
+                out.writeInt(serialized.size());
+                serialized.add(value);
+            }
+        }
+
+        private void writeEntries(Map<?, ?> map) throws IOException {
+            visit(map);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+
+        private void writeElements(Collection<?> collection) throws IOException {
+            visit(collection);
+            out.writeInt(collection.size());
+            for (Object element : collection) {
+                writeValue(element);
+            }
+        }
+
+        private void visit(Object value) {
+            if (visited.put(value, value) != null) {
+                throw new SharedReferenceException();
+            }
+        }
+    }
+
+    private static class Decoder {
+
+        private final DataInputStream in;
+        private final List<?> serialized;
+
+        Decoder(DataInputStream in, List<?> serialized) {
+            this.in = in;
+            this.serialized = serialized;
+        }
+
+        Execution readExecution() throws IOException {
+            Execution execution = new Execution();
+            execution.setExecutionId(readNullableLong());
+            execution.setRunningExecutionPlanId(readNullableLong());
+            execution.setPosition(readNullableLong());
+            execution.setGroupName((String) readValue());
+            //noinspection unchecked
+            execution.setContexts((Map<String, Serializable>) readValue());
+            readEntries(execution.getSystemContext());
+            return execution;
+        }
+
+        private Long readNullableLong() throws IOException {
+            return in.readBoolean()? in.readLong(): null;
+        }
+
+        private String readString() throws IOException {
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return new String(data, UTF_8);
+        }
+
+        private Object readValue() throws IOException {
+            byte type = in.readByte();
+            switch (type) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case INTEGER:
+                    return in.readInt();
+                case LONG:
+                    return in.readLong();
+                case BOOLEAN:
+                    return in.readBoolean();
+                case DOUBLE:
+                    return in.readDouble();
+                case HASH_MAP:
+                    return readEntries(new HashMap<>());
+                case LINKED_HASH_MAP:
+                    return readEntries(new LinkedHashMap<>());
+                case ARRAY_LIST:
+                    return readElements(new ArrayList<>());
+                case HASH_SET:
+                    return readElements(new HashSet<>());
+                case SYSTEM_CONTEXT:
+                    return readEntries(new SystemContext());
+                case SERIALIZED:
+                    return serialized.get(in.readInt());
+                default:
+                    throw new IOException("Unknown value type in payload: " + type);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private <M extends Map> M readEntries(M map) throws IOException {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                map.put(readValue(), readValue());
+            }
+            return map;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <C extends Collection> C readElements(C collection) throws IOException {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                collection.add(readValue());
+            }
+            return collection;
+        }
+    }
+}
@@ -49,6 +49,10 @@ public class ExecutionMessage implements Message, Cloneable {
 
     private transient Execution executionObject;
 
+	//set when the payload is created from a snapshot of the execution object only when the message is dispatched
+	private transient Execution deferredExecution;
+	private transient ExecutionMessageConverter payloadConverter;
+
 	public ExecutionMessage() {
 		execStateId = EMPTY_EXEC_STATE_ID;
 		workerId = ExecutionMessage.EMPTY_WORKER;
@@ -197,8 +201,42 @@ public class ExecutionMessage implements Message, Cloneable {
 
     public void setPayload(Payload payload) {
         this.payload = payload;
+        this.deferredExecution = null;
+        this.payloadConverter = null;
     }
 
+	/**
+	 * Defers the payload serialization until the message survives the shrink of the outbound buffer,
+	 * messages that are shrunk never serialize their execution.
+	 * The execution is copied here by the thread that owns it - the copy has its own contexts and system context maps,
+	 * so the steps that run before the drain do not change what it holds, except for values that they change in place
+	 */
+	public ExecutionMessage setDeferredPayload(ExecutionMessageConverter converter) {
+		Execution snapshot = new Execution(executionObject.getExecutionId(), executionObject.getRunningExecutionPlanId(),
+				executionObject.getPosition(), executionObject.getContexts(), executionObject.getSystemContext());
+		snapshot.setGroupName(executionObject.getGroupName());
+		this.payload = null;
+		this.deferredExecution = snapshot;
+		this.payloadConverter = converter;
+		return this;
+	}
+
+	@JsonIgnore
+	public boolean hasDeferredPayload() {
+		return payloadConverter != null;
+	}
+
+	/**
+	 * Serializes the snapshot of the execution that was taken by {@link #setDeferredPayload(ExecutionMessageConverter)}
+	 */
+	public void createDeferredPayload() {
+		if (payloadConverter != null) {
+			payload = payloadConverter.createPayload(deferredExecution);
+			deferredExecution = null;
+			payloadConverter = null;
+		}
+	}
+
     public int getMsgSeqId() {
 		return msgSeqId;
 	}
@@ -19,8 +19,13 @@ import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Created with IntelliJ IDEA.
@@ -34,6 +39,26 @@ public class ExecutionMessageConverter {
 	@Autowired(required = false)
 	private SensitiveDataHandler sensitiveDataHandler;
 
+	//the codec for new payloads - java serialization is used when there is none, or when it does not support the execution
+	@Autowired(required = false)
+	private PayloadCodec payloadCodec = Boolean.getBoolean("payload.binary.codec")? new BinaryPayloadCodec(): null;
+
+	private static final PayloadCodec BINARY_PAYLOAD_CODEC = new BinaryPayloadCodec();
+
+	//payloads bigger than the threshold (in bytes) are deflated, 0 disables the compression
+	private int compressionThreshold = Integer.getInteger("payload.compression.threshold", 0);
+
+	//the deflate level, from 1 (BEST_SPEED) to 9 (BEST_COMPRESSION)
+	private int compressionLevel = Integer.getInteger("payload.compression.level", Deflater.BEST_SPEED);
+
+	//payload statistics
+	private final AtomicLong payloadsCount = new AtomicLong();
+	private final AtomicLong payloadsBytes = new AtomicLong();
+	private final AtomicLong compressedPayloadsCount = new AtomicLong();
+	private final AtomicLong compressionInputBytes = new AtomicLong();
+	private final AtomicLong compressionOutputBytes = new AtomicLong();
+	private final AtomicLong compressionNanos = new AtomicLong();
+
 	public <T> T extractExecution(Payload payload) {
 		return objFromBytes(payload.getData());
 	}
@@ -43,7 +68,14 @@ public class ExecutionMessageConverter {
 	}
 
 	public Payload createPayload(Execution execution, boolean setContainsSensitiveData) {
-		Payload payload = new Payload(objToBytes(execution));
+		byte[] bytes = objToBytes(execution);
+		if (compressionThreshold > 0 && bytes.length > compressionThreshold) {
+			bytes = compress(bytes);
+		}
+		payloadsCount.incrementAndGet();
+		payloadsBytes.addAndGet(bytes.length);
+
+		Payload payload = new Payload(bytes);
 		if(setContainsSensitiveData || checkContainsSensitiveData(execution)) {
 			setSensitive(payload);
 		}
@@ -61,11 +93,21 @@ public class ExecutionMessageConverter {
 
 	private <T> T objFromBytes(byte[] bytes) {
 		ObjectInputStream ois = null;
+		InputStream is = null;
 		try {
 			//2 Buffers are added to increase performance
-			ByteArrayInputStream is = new ByteArrayInputStream(bytes);
+			ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+
+			skipPayloadMetaData(bais);
 
-			skipPayloadMetaData(is);
+			//compressed payloads are inflated while they are read
+			is = isCompressed(bytes)? new InflaterInputStream(bais): bais;
+
+			int codecId = getCodecId(bytes);
+			if (codecId != JAVA_SERIALIZATION_CODEC_ID) {
+				//noinspection unchecked
+				return (T)findCodec(codecId).decode(is);
+			}
 
 			BufferedInputStream bis = new BufferedInputStream(is);
 			ois = new ObjectInputStream(bis);
@@ -78,16 +120,78 @@ public class ExecutionMessageConverter {
 		}
 		finally {
 			IOUtils.closeQuietly(ois);
+			IOUtils.closeQuietly(is);
 		}
 
 	}
 
+	private byte[] compress(byte[] bytes) {
+		long startTime = System.nanoTime();
+		Deflater deflater = new Deflater(compressionLevel);
+		try {
+			ByteArrayOutputStream bout = new ByteArrayOutputStream(bytes.length / 4);
+			bout.write(bytes, 0, PAYLOAD_META_DATA_INIT_BYTES.length);
+
+			DeflaterOutputStream dos = new DeflaterOutputStream(bout, deflater, SIZE);
+			dos.write(bytes, PAYLOAD_META_DATA_INIT_BYTES.length, bytes.length - PAYLOAD_META_DATA_INIT_BYTES.length);
+			dos.finish();
+
+			byte[] compressed = bout.toByteArray();
+			if (compressed.length >= bytes.length) {
+				return bytes; //the payload can not be compressed - keep it as is
+			}
+			compressed[INFRA_PART_BYTE] |= IS_COMPRESSED;
+			//only the payloads that are kept compressed are counted, the averages are of these payloads
+			compressedPayloadsCount.incrementAndGet();
+			compressionInputBytes.addAndGet(bytes.length);
+			compressionOutputBytes.addAndGet(compressed.length);
+			compressionNanos.addAndGet(System.nanoTime() - startTime);
+			return compressed;
+		}
+		catch(IOException ex) {
+			throw new RuntimeException("Failed to compress payload. Error: ", ex);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	public long getPayloadsCount() {
+		return payloadsCount.get();
+	}
+
+	public long getAveragePayloadSize() {
+		long count = payloadsCount.get();
+		return count == 0? 0: payloadsBytes.get() / count;
+	}
+
+	public long getCompressedPayloadsCount() {
+		return compressedPayloadsCount.get();
+	}
+
+	public double getCompressionRatio() {
+		long outputBytes = compressionOutputBytes.get();
+		return outputBytes == 0? 0: (double) compressionInputBytes.get() / outputBytes;
+	}
+
+	public long getAverageCompressionMicros() {
+		long count = compressedPayloadsCount.get();
+		return count == 0? 0: compressionNanos.get() / count / 1000;
+	}
+
 	private byte[] objToBytes(Object obj){
 		ObjectOutputStream oos = null;
 		try {
 			ByteArrayOutputStream bout = new ByteArrayOutputStream(SIZE);
 
-			initPayloadMetaData(bout);
+			if (payloadCodec != null) {
+				initPayloadMetaData(bout, payloadCodec.getId());
+				if (payloadCodec.encode(obj, bout)) {
+					return bout.toByteArray();
+				}
+				bout.reset();
+			}
+
+			initPayloadMetaData(bout, JAVA_SERIALIZATION_CODEC_ID);
 
 			BufferedOutputStream bos = new BufferedOutputStream(bout);
 			oos = new ObjectOutputStream(bos);
@@ -108,17 +212,44 @@ public class ExecutionMessageConverter {
 	//we padding payload with clean bytes which then will be used for metadata writing
 	private static final byte[] PAYLOAD_META_DATA_INIT_BYTES = {0};
 
-	//for now meta data is only one byte
+	//for now meta data is only one byte - bit 0 is the sensitive flag, bits 1-3 are the id of the payload codec,
+	//bit 4 is set when the rest of the payload is deflated
 	private static final int INFRA_PART_BYTE = 0;
 
 	private static final int IS_SENSITIVE = 1;
 
+	private static final int IS_COMPRESSED = 0x10;
+
+	private static final int CODEC_ID_SHIFT = 1;
+
+	private static final int CODEC_ID_MASK = 0x7;
+
+	private static final int JAVA_SERIALIZATION_CODEC_ID = 0;
+
 	private void setSensitive(Payload payload) {
-		payload.getData()[INFRA_PART_BYTE] = IS_SENSITIVE;
+		payload.getData()[INFRA_PART_BYTE] |= IS_SENSITIVE;
 	}
 
 	private boolean isSensitive(Payload payload) {
-		return payload.getData()[INFRA_PART_BYTE] == IS_SENSITIVE;
+		return (payload.getData()[INFRA_PART_BYTE] & IS_SENSITIVE) != 0;
+	}
+
+	private boolean isCompressed(byte[] bytes) {
+		return (bytes[INFRA_PART_BYTE] & IS_COMPRESSED) != 0;
+	}
+
+	private int getCodecId(byte[] bytes) {
+		return (bytes[INFRA_PART_BYTE] >> CODEC_ID_SHIFT) & CODEC_ID_MASK;
+	}
+
+	private PayloadCodec findCodec(int codecId) {
+		if (payloadCodec != null && payloadCodec.getId() == codecId) {
+			return payloadCodec;
+		}
+		if (codecId == BinaryPayloadCodec.ID) {
+			return BINARY_PAYLOAD_CODEC;
+		}
+		throw new RuntimeException("Unknown payload codec: " + codecId);
 	}
 
 	private void skipPayloadMetaData(ByteArrayInputStream is) throws IOException {
@@ -127,7 +258,9 @@ public class ExecutionMessageConverter {
 		}
 	}
 
-	private void initPayloadMetaData(ByteArrayOutputStream baos) throws IOException {
-		baos.write(PAYLOAD_META_DATA_INIT_BYTES);
+	private void initPayloadMetaData(ByteArrayOutputStream baos, int codecId) throws IOException {
+		byte[] metaData = PAYLOAD_META_DATA_INIT_BYTES.clone();
+		metaData[INFRA_PART_BYTE] = (byte)(codecId << CODEC_ID_SHIFT);
+		baos.write(metaData);
 	}
 }
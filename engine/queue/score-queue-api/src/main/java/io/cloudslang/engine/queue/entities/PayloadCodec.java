@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.engine.queue.entities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Encodes the object of an {@link ExecutionMessage} payload.
+ *
+ * The id of the codec that wrote a payload is kept in its meta data byte, so every node must be able
+ * to decode the payloads of all the codecs that are in use in the cluster.
+ * Objects that the codec does not support are written with java serialization (id 0).
+ */
+public interface PayloadCodec {
+
+    /**
+     * @return the id that is kept in the payload meta data - 1 to 7, 0 is reserved for java serialization
+     */
+    int getId();
+
+    /**
+     *
+     * write the object to the stream
+     *
+     * @param obj the object to encode
+     * @param out the stream to write to
+     * @return false if the object is not supported by the codec - the content of the stream is then discarded
+     * @throws IOException if the stream failed
+     */
+    boolean encode(Object obj, OutputStream out) throws IOException;
+
+    /**
+     *
+     * read an object that was written by {@link #encode(Object, java.io.OutputStream)}
+     *
+     * @param in the stream to read from
+     * @return the decoded object
+     * @throws IOException if the stream failed
+     * @throws ClassNotFoundException if a java serialized part of the payload refers to an unknown class
+     */
+    Object decode(InputStream in) throws IOException, ClassNotFoundException;
+}
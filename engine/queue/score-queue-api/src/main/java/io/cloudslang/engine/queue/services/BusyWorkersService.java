@@ -14,5 +14,6 @@ package io.cloudslang.engine.queue.services;
 public interface BusyWorkersService {
     boolean isWorkerBusy(String workerId);
     void findBusyWorkers();
+    void markWorkerBusy(String workerId);
     void clearBusyWorkers();
 }
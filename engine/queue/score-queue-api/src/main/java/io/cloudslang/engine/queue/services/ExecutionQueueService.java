@@ -93,4 +93,13 @@ public interface ExecutionQueueService {
      * @return the number of messages that didn't receive ack for a number of recovery versions
      */
     int countMessagesWithoutAckForWorker(int maxSize,long minVersionAllowed, String workerUuid);
+
+    /**
+     *
+     * counts the messages that didn't receive ack for a number of recovery versions, for all the workers at once
+     *
+     * @param minVersionAllowed min version that the messages didn't send ack
+     * @return a map of the worker uuid to its number of messages that didn't receive ack, workers without such messages are not in the map
+     */
+    Map<String, Integer> countMessagesWithoutAckByWorker(long minVersionAllowed);
 }
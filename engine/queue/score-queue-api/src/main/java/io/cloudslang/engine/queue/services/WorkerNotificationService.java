@@ -0,0 +1,45 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.queue.services;
+
+import java.util.Collection;
+
+/**
+ * Push channel between the orchestrator and the workers.
+ *
+ * The orchestrator notifies the workers once messages were assigned to them, so a worker can
+ * long-poll on {@link #awaitAssignment(String, long)} instead of polling the queue periodically.
+ * Polling the queue remains the only way to receive the messages themselves - a missed notification
+ * only delays the worker until its long-poll times out.
+ */
+public interface WorkerNotificationService {
+
+    /**
+     *
+     * notify the given workers that messages were assigned to them
+     * should be called after the assignment was committed
+     *
+     * @param workerIds the uuids of the workers that got new messages
+     */
+    void notifyAssigned(Collection<String> workerIds);
+
+    /**
+     *
+     * block until messages are assigned to the worker or until the timeout elapses
+     * a notification that arrived since the previous call returns immediately
+     *
+     * @param workerId the worker uuid
+     * @param timeoutMillis max time to wait in milliseconds
+     * @return true if messages were assigned to the worker, false on timeout
+     * @throws InterruptedException if the waiting thread was interrupted
+     */
+    boolean awaitAssignment(String workerId, long timeoutMillis) throws InterruptedException;
+}
@@ -10,6 +10,8 @@
 
 package io.cloudslang.engine.queue.services.recovery;
 
+import java.util.List;
+
 /**
  * Created with IntelliJ IDEA.
  * User: kravtsov
@@ -31,4 +33,11 @@ public interface WorkerRecoveryService {
      * @param workerUuid - the uuid of worker
      */
     void doWorkerAndMessageRecovery(String workerUuid);
+
+    /**
+     * Used by the recovery job in order to find the workers to pass to {@link #doWorkerAndMessageRecovery(String)}
+     * The non responsive workers and the not acknowledged messages of all the workers are read once
+     * @return the uuids of the workers that are in recovery, non responsive or have not acknowledged messages
+     */
+    List<String> readWorkersForRecovery();
 }
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.engine.queue.entities;
+
+import io.cloudslang.score.facade.entities.Execution;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import static io.cloudslang.engine.queue.entities.BinaryPayloadCodecTest.createConverter;
+import static io.cloudslang.engine.queue.entities.BinaryPayloadCodecTest.createExecution;
+
+public class BinaryPayloadCodecBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(BinaryPayloadCodecBenchmarkTest.class);
+
+    private final ExecutionMessageConverter binaryConverter = createConverter(new BinaryPayloadCodec());
+
+    private final ExecutionMessageConverter javaConverter = createConverter(null);
+
+    //serialize/deserialize time and payload size for small, medium and 1MB contexts
+    @Test
+    public void codecBenchmark() {
+        int[] sizes = {1, 50, 1024};
+        int[] iterations = {5000, 500, 20};
+        for (int i = 0; i < sizes.length; i++) {
+            Execution execution = createExecution(sizes[i]);
+            benchmark("java", javaConverter, execution, sizes[i], iterations[i]);
+            benchmark("binary", binaryConverter, execution, sizes[i], iterations[i]);
+        }
+    }
+
+    private void benchmark(String name, ExecutionMessageConverter converter, Execution execution, int kilobytes, int iterations) {
+        Payload payload = null;
+        for (int i = 0; i < iterations; i++) {
+            payload = converter.createPayload(execution);
+            converter.extractExecution(payload);
+        }
+
+        long t = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            payload = converter.createPayload(execution);
+        }
+        long serializeTime = (System.nanoTime() - t) / iterations;
+
+        t = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            converter.extractExecution(payload);
+        }
+        long deserializeTime = (System.nanoTime() - t) / iterations;
+
+        logger.info(name + " codec, ~" + kilobytes + "KB context: serialize " + serializeTime + " ns/op, deserialize " +
+                deserializeTime + " ns/op, " + payload.getData().length + " bytes");
+    }
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.engine.queue.entities;
+
+import io.cloudslang.score.facade.entities.Execution;
+import io.cloudslang.score.lang.SystemContext;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BinaryPayloadCodecTest {
+
+    private final ExecutionMessageConverter binaryConverter = createConverter(new BinaryPayloadCodec());
+
+    private final ExecutionMessageConverter javaConverter = createConverter(null);
+
+    @Test
+    public void testRoundTrip() {
+        Execution execution = createExecution(10);
+        Payload payload = binaryConverter.createPayload(execution);
+        assertEquals(BinaryPayloadCodec.ID << 1, payload.getData()[0]);
+
+        Execution afterConvert = binaryConverter.extractExecution(payload);
+
+        assertEquals(execution, afterConvert);
+        assertEquals(execution.getGroupName(), afterConvert.getGroupName());
+        assertEquals(execution.getContexts(), afterConvert.getContexts());
+        assertEquals(new HashMap<>(execution.getSystemContext()), new HashMap<>(afterConvert.getSystemContext()));
+        assertEquals(LinkedHashMap.class, afterConvert.getContexts().get("ordered").getClass());
+        assertEquals(SystemContext.class, ((Map) afterConvert.getContexts().get("nested")).get("systemContext").getClass());
+    }
+
+    @Test
+    public void testBinaryPayloadIsReadWithoutCodec() {
+        Execution execution = createExecution(10);
+        Payload payload = binaryConverter.createPayload(execution, true);
+        assertTrue(binaryConverter.containsSensitiveData(payload));
+
+        Execution afterConvert = javaConverter.extractExecution(payload);
+        assertEquals(execution.getContexts(), afterConvert.getContexts());
+    }
+
+    @Test
+    public void testJavaPayloadIsReadWithCodec() {
+        Execution execution = createExecution(10);
+        Payload payload = javaConverter.createPayload(execution);
+        assertEquals(0, payload.getData()[0]);
+
+        Execution afterConvert = binaryConverter.extractExecution(payload);
+        assertEquals(execution.getContexts(), afterConvert.getContexts());
+    }
+
+    @Test
+    public void testUnsupportedExecutionFallsBackToJavaSerialization() {
+        MyExecutionForTest execution = new MyExecutionForTest(111L, 999L, 0L, Arrays.asList("lala"));
+        Payload payload = binaryConverter.createPayload(execution);
+        assertEquals(0, payload.getData()[0]);
+
+        MyExecutionForTest afterConvert = binaryConverter.extractExecution(payload);
+        assertEquals(execution.getContextsNames(), afterConvert.getContextsNames());
+    }
+
+    @Test
+    public void testSharedReferenceFallsBackToJavaSerialization() {
+        Execution execution = createExecution(1);
+        ArrayList<String> shared = new ArrayList<>(Arrays.asList("a", "b"));
+        execution.getContexts().put("first", shared);
+        execution.getContexts().put("second", shared);
+
+        Payload payload = binaryConverter.createPayload(execution);
+        assertEquals(0, payload.getData()[0]);
+
+        Execution afterConvert = binaryConverter.extractExecution(payload);
+        assertSame(afterConvert.getContexts().get("first"), afterConvert.getContexts().get("second"));
+    }
+
+    @Test
+    public void testSerializedValuesKeepSharedReferences() {
+        Execution execution = createExecution(1);
+        BigDecimal shared = new BigDecimal("1.5");
+        execution.getContexts().put("first", shared);
+        execution.getSystemContext().put("second", shared);
+
+        Payload payload = binaryConverter.createPayload(execution);
+        assertEquals(BinaryPayloadCodec.ID << 1, payload.getData()[0]);
+
+        Execution afterConvert = binaryConverter.extractExecution(payload);
+        assertSame(afterConvert.getContexts().get("first"), afterConvert.getSystemContext().get("second"));
+    }
+
+    static Execution createExecution(int kilobytes) {
+        Map<String, Serializable> contexts = new HashMap<>();
+        contexts.put("flowName", "benchmark");
+        contexts.put("retries", 3);
+        contexts.put("timeout", 60000L);
+        contexts.put("ratio", 0.75);
+        contexts.put("enabled", true);
+        contexts.put("nothing", null);
+
+        LinkedHashMap<String, Serializable> ordered = new LinkedHashMap<>();
+        ordered.put("z", "last");
+        ordered.put("a", "first");
+        contexts.put("ordered", ordered);
+
+        HashMap<String, Serializable> nested = new HashMap<>();
+        SystemContext nestedSystemContext = new SystemContext();
+        nestedSystemContext.put("branch", "1");
+        nested.put("systemContext", nestedSystemContext);
+        nested.put("tags", new HashSet<>(Arrays.asList("x", "y")));
+        contexts.put("nested", nested);
+
+        //fill the context with ~1KB entries up to the requested size
+        ArrayList<Serializable> values = new ArrayList<>();
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'v');
+        for (int i = 0; i < kilobytes; i++) {
+            values.add(i + new String(chars));
+        }
+        contexts.put("values", values);
+
+        Map<String, Serializable> systemContext = new HashMap<>();
+        systemContext.put("EXECUTION_ID", 123L);
+        systemContext.put("LANGUAGE_TYPE", "cloudslang");
+        systemContext.put("decimal", new BigDecimal("10.25"));
+
+        Execution execution = new Execution(123L, 456L, 7L, contexts, systemContext);
+        execution.setGroupName("RAS_Operator_Path");
+        return execution;
+    }
+
+    static ExecutionMessageConverter createConverter(PayloadCodec payloadCodec) {
+        ExecutionMessageConverter converter = new ExecutionMessageConverter();
+        ReflectionTestUtils.setField(converter, "payloadCodec", payloadCodec);
+        return converter;
+    }
+
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.queue.entities;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static io.cloudslang.engine.queue.entities.ExecutionMessageConverterTest.createNames;
+import static org.mockito.Mockito.mock;
+
+public class ExecutionMessageConverterBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(ExecutionMessageConverterBenchmarkTest.class);
+
+    private final SensitiveDataHandler sensitiveDataHandler = mock(SensitiveDataHandler.class);
+
+    @Test
+    public void compressionBenchmark() {
+        MyExecutionForTest execution = new MyExecutionForTest(111L, 999L, 0L, createNames(2000));
+        final int iterations = 500;
+
+        for (int level : new int[]{0, 1, 6, 9}) {
+            ExecutionMessageConverter converter = new ExecutionMessageConverter();
+            ReflectionTestUtils.setField(converter, "sensitiveDataHandler", sensitiveDataHandler);
+            ReflectionTestUtils.setField(converter, "compressionThreshold", level == 0? 0: 512);
+            ReflectionTestUtils.setField(converter, "compressionLevel", level);
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                converter.extractExecution(converter.createPayload(execution));
+            }
+            long micros = (System.nanoTime() - startTime) / iterations / 1000;
+            logger.info("Compression level " + level + ": " + converter.getAveragePayloadSize() + " bytes per step, ratio " +
+                    converter.getCompressionRatio() + ", " + converter.getAverageCompressionMicros() + " us compression, " +
+                    micros + " us per round trip");
+        }
+    }
+}
@@ -19,10 +19,12 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.mockito.Mockito.*;
 
@@ -114,6 +116,56 @@ public class ExecutionMessageConverterTest {
         assertTrue(executionMessageConverter.containsSensitiveData(p));
     }
 
+    @Test
+    public void testCompressedPayload() {
+        when(sensitiveDataHandler.containsSensitiveData(any(SystemContext.class), anyMap())).thenReturn(false);
+        MyExecutionForTest execution = new MyExecutionForTest(111L, 999L, 0L, createNames(1000));
+
+        Payload plainPayload = executionMessageConverter.createPayload(execution);
+        ReflectionTestUtils.setField(executionMessageConverter, "compressionThreshold", 4096);
+        try {
+            Payload payload = executionMessageConverter.createPayload(execution, true);
+            assertTrue(payload.getData().length < plainPayload.getData().length);
+            assertTrue(executionMessageConverter.containsSensitiveData(payload));
+            assertTrue(executionMessageConverter.getCompressionRatio() > 1);
+
+            MyExecutionForTest afterConvert = executionMessageConverter.extractExecution(payload);
+            assertEquals(execution.getExecutionId(), afterConvert.getExecutionId());
+            assertEquals(execution.getContextsNames(), afterConvert.getContextsNames());
+
+            //payloads written before the compression was enabled are still readable
+            afterConvert = executionMessageConverter.extractExecution(plainPayload);
+            assertEquals(execution.getContextsNames(), afterConvert.getContextsNames());
+
+            //small payloads are not compressed
+            payload = executionMessageConverter.createPayload(new MyExecutionForTest(111L, 999L, 0L, createNames(1)));
+            assertTrue(payload.getData()[0] == 0);
+        } finally {
+            ReflectionTestUtils.setField(executionMessageConverter, "compressionThreshold", 0);
+        }
+    }
+
+    @Test
+    public void testIncompressiblePayloadIsNotCounted() {
+        byte[] data = new byte[8192];
+        new Random(1).nextBytes(data);
+        data[0] = 0;
+        long compressedPayloadsCount = executionMessageConverter.getCompressedPayloadsCount();
+
+        byte[] bytes = ReflectionTestUtils.invokeMethod(executionMessageConverter, "compress", (Object) data);
+
+        assertSame(data, bytes);
+        assertEquals(compressedPayloadsCount, executionMessageConverter.getCompressedPayloadsCount());
+    }
+
+    static List<String> createNames(int size) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            names.add("name_" + (i % 50));
+        }
+        return names;
+    }
+
 //    @Test
 //    public void testConverterWithSession() throws IOException {
 //        List<String> names = new ArrayList<>();
@@ -33,8 +33,12 @@ public interface ExecutionQueueRepository {
 
     Integer countMessagesWithoutAckForWorker(int maxSize, long minVersionAllowed, String workerUuid);
 
+    Map<String, Integer> countMessagesWithoutAckByWorker(long minVersionAllowed);
+
 	long generateExecStateId();
 
+	long[] generateExecStateIds(int count);
+
 	void insertExecutionStates(final List<ExecutionMessage> stateMessages);
 
 	void insertExecutionQueue(final List<ExecutionMessage> messages,long version);
@@ -11,13 +11,16 @@
 package io.cloudslang.engine.queue.repositories;
 
 import io.cloudslang.engine.data.IdentityGenerator;
+import io.cloudslang.engine.data.SimpleHiloIdentifierGenerator;
 import io.cloudslang.engine.queue.entities.ExecStatus;
 import io.cloudslang.engine.queue.entities.ExecutionMessage;
 import io.cloudslang.engine.queue.entities.Payload;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
@@ -25,9 +28,11 @@ import org.springframework.jdbc.core.SingleColumnRowMapper;
 
 import javax.annotation.PostConstruct;
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -93,6 +98,20 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 					"      ) AND " +
 					"      (q.MSG_VERSION < ?)  ";
 
+	final private String QUERY_COUNT_MESSAGES_WITHOUT_ACK_BY_WORKER_SQL =
+			"SELECT ASSIGNED_WORKER, COUNT(*) AS MSG_COUNT  " +
+					"  FROM  OO_EXECUTION_QUEUES  q  " +
+					"  WHERE " +
+					"      (q.STATUS  = ? ) AND " +
+					"     (NOT EXISTS (SELECT qq.MSG_SEQ_ID " +
+					"                  FROM OO_EXECUTION_QUEUES qq " +
+					"                  WHERE (qq.EXEC_STATE_ID = q.EXEC_STATE_ID) AND " +
+					"                        qq.MSG_SEQ_ID > q.MSG_SEQ_ID " +
+					"                 )" +
+					"      ) AND " +
+					"      (q.MSG_VERSION < ?)  " +
+					" GROUP BY ASSIGNED_WORKER";
+
 
 	final private String QUERY_WORKER_SQL =
 			"SELECT EXEC_STATE_ID,      " +
@@ -160,10 +179,105 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 					" GROUP BY ASSIGNED_WORKER";
 
 
+	//the same queries over OO_EXECUTION_QUEUES_LATEST - it holds only the latest message of each exec state,
+	//so the NOT EXISTS anti-join on MSG_SEQ_ID is not needed
+	final private String SELECT_FINISHED_STEPS_IDS_LATEST =  " SELECT EXEC_STATE_ID FROM OO_EXECUTION_QUEUES_LATEST " +
+			" WHERE STATUS IN (" + ExecStatus.TERMINATED.getNumber() + "," + ExecStatus.FAILED.getNumber() + "," + ExecStatus.FINISHED.getNumber() + ") ";
+
+	final private String QUERY_DELETE_FINISHED_STEPS_FROM_LATEST = "DELETE FROM OO_EXECUTION_QUEUES_LATEST " +
+			" WHERE EXEC_STATE_ID in (:ids)";
+
+	final private String QUERY_MESSAGES_WITHOUT_ACK_LATEST_SQL =
+			"SELECT EXEC_STATE_ID,      " +
+					"       ASSIGNED_WORKER,      " +
+					"       EXEC_GROUP ,       " +
+					"       STATUS,       " +
+					"       MSG_SEQ_ID,   " +
+					"      CREATE_TIME " +
+					"  FROM  OO_EXECUTION_QUEUES_LATEST q  " +
+					"  WHERE " +
+					"      (q.STATUS  = ? ) AND " +
+					"      (q.MSG_VERSION < ?) ";
+
+	final private String QUERY_COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER_LATEST_SQL =
+			"SELECT COUNT(*)  " +
+					"  FROM  OO_EXECUTION_QUEUES_LATEST  q  " +
+					"  WHERE " +
+					"      (q.ASSIGNED_WORKER  = ? ) AND " +
+					"      (q.STATUS  = ? ) AND " +
+					"      (q.MSG_VERSION < ?)  ";
+
+	final private String QUERY_COUNT_MESSAGES_WITHOUT_ACK_BY_WORKER_LATEST_SQL =
+			"SELECT ASSIGNED_WORKER, COUNT(*) AS MSG_COUNT  " +
+					"  FROM  OO_EXECUTION_QUEUES_LATEST  q  " +
+					"  WHERE " +
+					"      (q.STATUS  = ? ) AND " +
+					"      (q.MSG_VERSION < ?)  " +
+					" GROUP BY ASSIGNED_WORKER";
+
+	final private String QUERY_WORKER_LATEST_SQL =
+			"SELECT EXEC_STATE_ID,      " +
+					"       ASSIGNED_WORKER,      " +
+					"       EXEC_GROUP ,       " +
+					"       STATUS,       " +
+					"       PAYLOAD,       " +
+					"       MSG_SEQ_ID ,      " +
+					"       MSG_ID," +
+					"       q.CREATE_TIME " +
+					" FROM  OO_EXECUTION_QUEUES_LATEST q,  " +
+					"      OO_EXECUTION_STATES s   " +
+					" WHERE  " +
+					"      (q.ASSIGNED_WORKER =  ?)  AND " +
+					"      (q.STATUS IN (:status)) AND " +
+					" (q.EXEC_STATE_ID = s.ID) " +
+					" ORDER BY q.CREATE_TIME  ";
+
+	final private String QUERY_WORKER_RECOVERY_LATEST_SQL =
+			"SELECT         EXEC_STATE_ID,      " +
+					"       ASSIGNED_WORKER,      " +
+					"       EXEC_GROUP,       " +
+					"       STATUS,       " +
+					"       PAYLOAD,       " +
+					"       MSG_SEQ_ID,      " +
+					"       MSG_ID," +
+					"       q.CREATE_TIME " +
+					" FROM  OO_EXECUTION_QUEUES_LATEST q,  " +
+					"       OO_EXECUTION_STATES s1   " +
+					" WHERE  " +
+					"      (q.ASSIGNED_WORKER =  ?)  AND " +
+					"      (q.STATUS IN (:status)) AND " +
+					" q.EXEC_STATE_ID = s1.ID ";
+
+	final private String QUERY_MESSAGES_BY_STATUSES_LATEST =
+			"SELECT EXEC_STATE_ID, " +
+					"  ASSIGNED_WORKER, " +
+					"  EXEC_GROUP , " +
+					"  STATUS, " +
+					"  MSG_SEQ_ID, " +
+					"  CREATE_TIME " +
+					"FROM  OO_EXECUTION_QUEUES_LATEST q  " +
+					"WHERE STATUS IN (:status)";
+
+	final private String BUSY_WORKERS_LATEST_SQL =
+			"SELECT ASSIGNED_WORKER      " +
+					" FROM  OO_EXECUTION_QUEUES_LATEST q  " +
+					" WHERE  " +
+					"      (q.STATUS IN (:status)) " +
+					" GROUP BY ASSIGNED_WORKER";
+
 	final private String INSERT_EXEC_STATE = "INSERT INTO OO_EXECUTION_STATES  (ID, MSG_ID,  PAYLOAD, CREATE_TIME) VALUES (?, ?, ?, CURRENT_TIMESTAMP)";
 
 	final private String INSERT_QUEUE = "INSERT INTO OO_EXECUTION_QUEUES (ID, EXEC_STATE_ID, ASSIGNED_WORKER, EXEC_GROUP, STATUS,MSG_SEQ_ID, CREATE_TIME,MSG_VERSION) VALUES (?, ?, ?, ?, ?, ?,?,?)";
 
+	final private String QUERY_LATEST_SEQ_IDS = "SELECT EXEC_STATE_ID, MSG_SEQ_ID FROM OO_EXECUTION_QUEUES_LATEST WHERE EXEC_STATE_ID IN (:ids)";
+
+	final private String INSERT_LATEST = "INSERT INTO OO_EXECUTION_QUEUES_LATEST (EXEC_STATE_ID, ASSIGNED_WORKER, EXEC_GROUP, STATUS, MSG_SEQ_ID, CREATE_TIME, MSG_VERSION) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	final private String UPDATE_LATEST = "UPDATE OO_EXECUTION_QUEUES_LATEST SET ASSIGNED_WORKER = ?, EXEC_GROUP = ?, STATUS = ?, MSG_SEQ_ID = ?, CREATE_TIME = ?, MSG_VERSION = ? " +
+			" WHERE EXEC_STATE_ID = ? AND MSG_SEQ_ID < ?";
+
+	private static final int DATABASE_IN_CLAUSE_LIMIT = 1000;
+
 	private static final String QUERY_PAYLOAD_BY_EXECUTION_IDS = "SELECT ID, PAYLOAD FROM OO_EXECUTION_STATES WHERE ID IN (:IDS)";
 
 
@@ -175,9 +289,15 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 	private JdbcTemplate deleteFinishedStepsJDBCTemplate;
 	private JdbcTemplate pollMessagesWithoutAckJDBCTemplate;
 	private JdbcTemplate countMessagesWithoutAckForWorkerJDBCTemplate;
+	private JdbcTemplate countMessagesWithoutAckByWorkerJDBCTemplate;
 	private JdbcTemplate findPayloadByExecutionIdsJDBCTemplate;
 	private JdbcTemplate findByStatusesJDBCTemplate;
 	private JdbcTemplate getBusyWorkersTemplate;
+	private JdbcTemplate latestMessagesJDBCTemplate;
+
+	//OO_EXECUTION_QUEUES_LATEST is maintained only while this flag is on, it must be the same on all the nodes.
+	//Switching it on while executions are queued requires copying their latest messages first, like the changeSet that created the table does
+	private boolean latestMessagesQueries = Boolean.getBoolean("queue.latest.messages.queries");
 
 
 	@Autowired
@@ -196,9 +316,12 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		this.deleteFinishedStepsJDBCTemplate = new JdbcTemplate(dataSource);
 		this.pollMessagesWithoutAckJDBCTemplate = new JdbcTemplate(dataSource);
 		this.countMessagesWithoutAckForWorkerJDBCTemplate = new JdbcTemplate(dataSource);
+		this.countMessagesWithoutAckByWorkerJDBCTemplate = new JdbcTemplate(dataSource);
 		this.findPayloadByExecutionIdsJDBCTemplate = new JdbcTemplate(dataSource);
 		this.findByStatusesJDBCTemplate = new JdbcTemplate(dataSource);
 		this.getBusyWorkersTemplate = new JdbcTemplate(dataSource);
+		this.latestMessagesJDBCTemplate = new JdbcTemplate(dataSource);
+		if (latestMessagesQueries) logger.info("Queue queries are using the OO_EXECUTION_QUEUES_LATEST table");
 	}
 
 	@Override
@@ -206,6 +329,24 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		return idGen.next();
 	}
 
+	@Override
+	public long[] generateExecStateIds(int count) {
+		return reserveIds(count);
+	}
+
+	// the hilo generator can not reserve a range larger than its chunk, so larger ranges are reserved in pieces of a chunk
+	private long[] reserveIds(int count) {
+		long[] ids = new long[count];
+		for (int offset = 0; offset < count; offset += SimpleHiloIdentifierGenerator.CHUNK_SIZE) {
+			int rangeSize = (int) Math.min(SimpleHiloIdentifierGenerator.CHUNK_SIZE, count - offset);
+			long firstId = idGen.reserve(rangeSize);
+			for (int i = 0; i < rangeSize; i++) {
+				ids[offset + i] = firstId + i;
+			}
+		}
+		return ids;
+	}
+
 	@Override
 	public void insertExecutionStates(final List<ExecutionMessage> stateMessages) {
 		String insertExecStateSQL = INSERT_EXEC_STATE;
@@ -233,11 +374,12 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		String insertQueueSQL = INSERT_QUEUE;
 
 		long t = System.currentTimeMillis();
+		final long[] ids = reserveIds(messages.size());
 		insertExecutionJDBCTemplate.batchUpdate(insertQueueSQL, new BatchPreparedStatementSetter() {
 			@Override
 			public void setValues(PreparedStatement ps, int i) throws SQLException {
 				ExecutionMessage msg = messages.get(i);
-				ps.setLong(1, idGen.next());
+				ps.setLong(1, ids[i]);
 				ps.setLong(2, msg.getExecStateId());
 				ps.setString(3, msg.getWorkerId());
 				ps.setString(4, msg.getWorkerGroup());
@@ -252,10 +394,120 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 				return messages.size();
 			}
 		});
+		if (latestMessagesQueries) {
+			updateLatestMessages(messages, version);
+		}
 		t = System.currentTimeMillis() - t;
 		if (logger.isDebugEnabled()) logger.debug("Insert to queue: " + messages.size() + "/" + t + " messages/ms");
 	}
 
+	private void updateLatestMessages(List<ExecutionMessage> messages, final long version) {
+		// a bulk may hold several messages of the same exec state - only the one with the highest MSG_SEQ_ID counts
+		Map<Long, ExecutionMessage> latestMessages = new HashMap<>();
+		for (ExecutionMessage msg : messages) {
+			ExecutionMessage latest = latestMessages.get(msg.getExecStateId());
+			if (latest == null || msg.getMsgSeqId() > latest.getMsgSeqId()) {
+				latestMessages.put(msg.getExecStateId(), msg);
+			}
+		}
+
+		List<ExecutionMessage> pending = new ArrayList<>(latestMessages.values());
+		while (!pending.isEmpty()) {
+			List<Long> execStateIds = new ArrayList<>();
+			for (ExecutionMessage msg : pending) {
+				execStateIds.add(msg.getExecStateId());
+			}
+			Map<Long, Integer> currentSeqIds = findLatestSeqIds(execStateIds);
+
+			final List<ExecutionMessage> toInsert = new ArrayList<>();
+			final List<ExecutionMessage> toUpdate = new ArrayList<>();
+			for (ExecutionMessage msg : pending) {
+				Integer currentSeqId = currentSeqIds.get(msg.getExecStateId());
+				if (currentSeqId == null) {
+					toInsert.add(msg);
+				} else if (msg.getMsgSeqId() > currentSeqId) {
+					toUpdate.add(msg);
+				}
+			}
+
+			if (!toUpdate.isEmpty()) {
+				latestMessagesJDBCTemplate.batchUpdate(UPDATE_LATEST, new BatchPreparedStatementSetter() {
+					@Override
+					public void setValues(PreparedStatement ps, int i) throws SQLException {
+						ExecutionMessage msg = toUpdate.get(i);
+						ps.setString(1, msg.getWorkerId());
+						ps.setString(2, msg.getWorkerGroup());
+						ps.setInt(3, msg.getStatus().getNumber());
+						ps.setInt(4, msg.getMsgSeqId());
+						ps.setLong(5, Calendar.getInstance().getTimeInMillis());
+						ps.setLong(6, version);
+						ps.setLong(7, msg.getExecStateId());
+						ps.setInt(8, msg.getMsgSeqId());
+					}
+
+					@Override
+					public int getBatchSize() {
+						return toUpdate.size();
+					}
+				});
+			}
+			// another transaction has inserted the first latest row of some of these exec states meanwhile - read them again
+			pending = insertLatestMessages(toInsert, version)? new ArrayList<ExecutionMessage>(): toInsert;
+		}
+	}
+
+	//returns false, having inserted nothing, if the latest row of one of the exec states already exists
+	private boolean insertLatestMessages(final List<ExecutionMessage> toInsert, final long version) {
+		if (toInsert.isEmpty()) {
+			return true;
+		}
+		return latestMessagesJDBCTemplate.execute(new ConnectionCallback<Boolean>() {
+			@Override
+			public Boolean doInConnection(Connection connection) throws SQLException {
+				// the failed batch is rolled back to a savepoint so the enqueue transaction can go on
+				Savepoint savepoint = connection.getAutoCommit()? null: connection.setSavepoint();
+				try (PreparedStatement ps = connection.prepareStatement(INSERT_LATEST)) {
+					for (ExecutionMessage msg : toInsert) {
+						ps.setLong(1, msg.getExecStateId());
+						ps.setString(2, msg.getWorkerId());
+						ps.setString(3, msg.getWorkerGroup());
+						ps.setInt(4, msg.getStatus().getNumber());
+						ps.setInt(5, msg.getMsgSeqId());
+						ps.setLong(6, Calendar.getInstance().getTimeInMillis());
+						ps.setLong(7, version);
+						ps.addBatch();
+					}
+					ps.executeBatch();
+					return true;
+				} catch (SQLException ex) {
+					if (savepoint != null) {
+						connection.rollback(savepoint);
+					}
+					if (latestMessagesJDBCTemplate.getExceptionTranslator().translate("insertLatestMessages", INSERT_LATEST, ex) instanceof DuplicateKeyException) {
+						if (logger.isDebugEnabled()) logger.debug("Latest messages were inserted concurrently, updating them instead");
+						return false;
+					}
+					throw ex;
+				}
+			}
+		});
+	}
+
+	private Map<Long, Integer> findLatestSeqIds(List<Long> execStateIds) {
+		final Map<Long, Integer> result = new HashMap<>();
+		for (int from = 0; from < execStateIds.size(); from += DATABASE_IN_CLAUSE_LIMIT) {
+			List<Long> ids = execStateIds.subList(from, Math.min(from + DATABASE_IN_CLAUSE_LIMIT, execStateIds.size()));
+			String query = QUERY_LATEST_SEQ_IDS.replaceAll(":ids", StringUtils.repeat("?", ",", ids.size()));
+			latestMessagesJDBCTemplate.query(query, ids.toArray(), new RowCallbackHandler() {
+				@Override
+				public void processRow(ResultSet resultSet) throws SQLException {
+					result.put(resultSet.getLong(1), resultSet.getInt(2));
+				}
+			});
+		}
+		return result;
+	}
+
 	@Override
 	public List<ExecutionMessage> pollRecovery(String workerId, int maxSize, ExecStatus... statuses) {
 
@@ -263,7 +515,7 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		pollForRecoveryJDBCTemplate.setFetchSize(maxSize);
 
 		// prepare the sql statement
-		String sqlStatPrvTable = QUERY_WORKER_RECOVERY_SQL
+		String sqlStatPrvTable = (latestMessagesQueries? QUERY_WORKER_RECOVERY_LATEST_SQL: QUERY_WORKER_RECOVERY_SQL)
 				.replaceAll(":status", StringUtils.repeat("?", ",", statuses.length));
 
 		// prepare the argument
@@ -287,7 +539,7 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		pollJDBCTemplate.setFetchSize(maxSize);
 
 		// prepare the sql statement
-		String sqlStat = QUERY_WORKER_SQL
+		String sqlStat = (latestMessagesQueries? QUERY_WORKER_LATEST_SQL: QUERY_WORKER_SQL)
 				.replaceAll(":status", StringUtils.repeat("?", ",", statuses.length));
 
 		// prepare the argument
@@ -328,6 +580,16 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		if(logger.isDebugEnabled()){
 			logger.debug("Deleted " + deletedRows + " rows of finished steps from OO_EXECUTION_QUEUES table.");
 		}
+
+		//regardless of the flag, so the rows left from a time it was on do not stay forever
+		query = QUERY_DELETE_FINISHED_STEPS_FROM_LATEST.replaceAll(":ids", StringUtils.repeat("?", ",", ids.size()));
+		logSQL(query,args);
+
+		deletedRows = deleteFinishedStepsJDBCTemplate.update(query, args);
+
+		if(logger.isDebugEnabled()){
+			logger.debug("Deleted " + deletedRows + " rows of finished steps from OO_EXECUTION_QUEUES_LATEST table.");
+		}
 	}
 
 	@Override
@@ -335,7 +597,8 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		getFinishedExecStateIdsJDBCTemplate.setMaxRows(1000000);
 		getFinishedExecStateIdsJDBCTemplate.setFetchSize(1000000);
 
-		List<Long> result = doSelectWithTemplate(getFinishedExecStateIdsJDBCTemplate, SELECT_FINISHED_STEPS_IDS, new SingleColumnRowMapper<>(Long.class));
+		String sqlStat = latestMessagesQueries? SELECT_FINISHED_STEPS_IDS_LATEST: SELECT_FINISHED_STEPS_IDS;
+		List<Long> result = doSelectWithTemplate(getFinishedExecStateIdsJDBCTemplate, sqlStat, new SingleColumnRowMapper<>(Long.class));
 
 		return new HashSet<>(result);
 	}
@@ -343,7 +606,7 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 
 	public List<ExecutionMessage> pollMessagesWithoutAck(int maxSize, long minVersionAllowed) {
 
-		String sqlStat = QUERY_MESSAGES_WITHOUT_ACK_SQL;
+		String sqlStat = latestMessagesQueries? QUERY_MESSAGES_WITHOUT_ACK_LATEST_SQL: QUERY_MESSAGES_WITHOUT_ACK_SQL;
 
 		pollMessagesWithoutAckJDBCTemplate.setMaxRows(maxSize);
 		pollMessagesWithoutAckJDBCTemplate.setFetchSize(maxSize);
@@ -384,11 +647,13 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 
 		};
 
+		String sqlStat = latestMessagesQueries? QUERY_COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER_LATEST_SQL: QUERY_COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER_SQL;
+
 		long time = System.currentTimeMillis();
-		Integer result = countMessagesWithoutAckForWorkerJDBCTemplate.queryForObject(QUERY_COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER_SQL, values,Integer.class);
+		Integer result = countMessagesWithoutAckForWorkerJDBCTemplate.queryForObject(sqlStat, values,Integer.class);
 
 		if (logger.isTraceEnabled())
-			logger.trace("Query [" + QUERY_COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER_SQL + "] took " + (System.currentTimeMillis() - time) + " ms");
+			logger.trace("Query [" + sqlStat + "] took " + (System.currentTimeMillis() - time) + " ms");
 
 		if (logger.isDebugEnabled()) {
 			logger.debug("Got msg without ack :" + result + ",for version:" + minVersionAllowed + ",for worker:" + workerUuid);
@@ -396,6 +661,34 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		return result;
 	}
 
+	@Override
+	public Map<String, Integer> countMessagesWithoutAckByWorker(long minVersionAllowed) {
+		Object[] values = {
+				ExecStatus.SENT.getNumber(),
+				minVersionAllowed
+		};
+
+		String sqlStat = latestMessagesQueries? QUERY_COUNT_MESSAGES_WITHOUT_ACK_BY_WORKER_LATEST_SQL: QUERY_COUNT_MESSAGES_WITHOUT_ACK_BY_WORKER_SQL;
+		logSQL(sqlStat, values);
+
+		long time = System.currentTimeMillis();
+		final Map<String, Integer> result = new HashMap<>();
+		countMessagesWithoutAckByWorkerJDBCTemplate.query(sqlStat, values, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet resultSet) throws SQLException {
+				result.put(resultSet.getString("ASSIGNED_WORKER"), resultSet.getInt("MSG_COUNT"));
+			}
+		});
+
+		if (logger.isTraceEnabled())
+			logger.trace("Query [" + sqlStat + "] took " + (System.currentTimeMillis() - time) + " ms");
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Got msg without ack for " + result.size() + " workers, for version:" + minVersionAllowed);
+		}
+		return result;
+	}
+
 	@Override
 	public Map<Long, Payload> findPayloadByExecutionIds(Long... ids) {
 		String qMarks = StringUtils.repeat("?", ",", ids.length);
@@ -421,7 +714,7 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		findByStatusesJDBCTemplate.setFetchSize(maxSize);
 
 		// prepare the sql statement
-		String sqlStat = QUERY_MESSAGES_BY_STATUSES
+		String sqlStat = (latestMessagesQueries? QUERY_MESSAGES_BY_STATUSES_LATEST: QUERY_MESSAGES_BY_STATUSES)
 				.replaceAll(":status", StringUtils.repeat("?", ",", statuses.length)); // set ? according to the number of parameters
 
 		Object[] values = new Object[statuses.length];
@@ -442,7 +735,7 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 	public List<String> getBusyWorkers(ExecStatus... statuses) {
 		//todo Change to stream when score is upgraded to java 8
 		// prepare the sql statement
-		String sqlStat = BUSY_WORKERS_SQL
+		String sqlStat = (latestMessagesQueries? BUSY_WORKERS_LATEST_SQL: BUSY_WORKERS_SQL)
 				.replaceAll(":status", StringUtils.repeat("?", ",", statuses.length));
 		// prepare the argument
 		Object[] values = new Object[statuses.length];
@@ -52,6 +52,11 @@ public class BusyWorkersServiceImpl implements BusyWorkersService {
         }
     }
 
+    @Override
+    public void markWorkerBusy(String workerId) {
+        busyWorkersMap.put(workerId, workerId);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public void clearBusyWorkers() {
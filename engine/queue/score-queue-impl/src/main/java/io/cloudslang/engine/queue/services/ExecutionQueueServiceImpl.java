@@ -22,11 +22,15 @@ import org.apache.commons.lang.time.StopWatch;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User:
@@ -52,6 +56,9 @@ final public class ExecutionQueueServiceImpl implements ExecutionQueueService {
 	@Autowired
 	private VersionService versionService;
 
+	@Autowired(required = false)
+	private WorkerNotificationService workerNotificationService;
+
 	@Override
 	@Transactional
 	public void enqueue(List<ExecutionMessage> messages) {
@@ -67,11 +74,18 @@ final public class ExecutionQueueServiceImpl implements ExecutionQueueService {
 
 		final List<ExecutionMessage> stateMessages = new ArrayList<>(messages.size());
 
-		// first fill the execution state id for new insert
+		// first fill the execution state id for new insert - the ids of all the new messages are reserved at once
+		int newMessagesCount = 0;
+		for (ExecutionMessage msg : messages) {
+			if (msg.getExecStateId() == ExecutionMessage.EMPTY_EXEC_STATE_ID) {
+				newMessagesCount++;
+			}
+		}
+		long[] execStateIds = executionQueueRepository.generateExecStateIds(newMessagesCount);
+		int execStateIdIndex = 0;
 		for (ExecutionMessage msg : messages) {
 			if (msg.getExecStateId() == ExecutionMessage.EMPTY_EXEC_STATE_ID) {
-				long execStateId = executionQueueRepository.generateExecStateId();
-				msg.setExecStateId(execStateId);
+				msg.setExecStateId(execStateIds[execStateIdIndex++]);
 				stateMessages.add(msg);
 			} else if (msg.getPayload() != null && msg.getStatus() == ExecStatus.IN_PROGRESS) {
 				stateMessages.add(msg);
@@ -94,6 +108,10 @@ final public class ExecutionQueueServiceImpl implements ExecutionQueueService {
 		executionQueueRepository.insertExecutionQueue(messages, msgVersion);
 		if (logger.isDebugEnabled()) logger.debug("Persistency done in " + (stopWatch.getSplitTime()) + " ms");
 
+		if (workerNotificationService != null) {
+			notifyAssignedWorkers(messages);
+		}
+
 		if (CollectionUtils.isNotEmpty(listeners)) {
 			stopWatch.split();
 			List<ExecutionMessage> failedMessages = filter(messages, ExecStatus.FAILED);
@@ -116,6 +134,29 @@ final public class ExecutionQueueServiceImpl implements ExecutionQueueService {
 		if (logger.isDebugEnabled()) logger.debug("Enqueue done in " + (stopWatch.getTime()) + " ms");
 	}
 
+	private void notifyAssignedWorkers(List<ExecutionMessage> messages) {
+		final Set<String> workerIds = new HashSet<>();
+		for (ExecutionMessage msg : messages) {
+			if (msg.getStatus() == ExecStatus.ASSIGNED) {
+				workerIds.add(msg.getWorkerId());
+			}
+		}
+		if (workerIds.isEmpty()) {
+			return;
+		}
+		//the workers must not poll before the assignment is visible to them
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					workerNotificationService.notifyAssigned(workerIds);
+				}
+			});
+		} else {
+			workerNotificationService.notifyAssigned(workerIds);
+		}
+	}
+
 	private List<ExecutionMessage> filter(List<ExecutionMessage> messages, ExecStatus status) {
 		List<ExecutionMessage> result = new ArrayList<>();
 		for (ExecutionMessage msg : messages) {
@@ -189,4 +230,10 @@ final public class ExecutionQueueServiceImpl implements ExecutionQueueService {
     public int countMessagesWithoutAckForWorker(int maxSize, long minVersionAllowed, String workerUuid) {
         return executionQueueRepository.countMessagesWithoutAckForWorker(maxSize, minVersionAllowed, workerUuid);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Integer> countMessagesWithoutAckByWorker(long minVersionAllowed) {
+        return executionQueueRepository.countMessagesWithoutAckByWorker(minVersionAllowed);
+    }
 }
@@ -0,0 +1,77 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.queue.services;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * In-process implementation of the {@link WorkerNotificationService}.
+ * Only workers that already long-polled once are notified - the others keep polling the queue.
+ */
+public class WorkerNotificationServiceImpl implements WorkerNotificationService {
+
+    private final Logger logger = Logger.getLogger(getClass());
+
+    private final ConcurrentMap<String, AssignmentSignal> signals = new ConcurrentHashMap<>();
+
+    @Autowired
+    private BusyWorkersService busyWorkersService;
+
+    @Override
+    public void notifyAssigned(Collection<String> workerIds) {
+        for (String workerId : workerIds) {
+            AssignmentSignal signal = signals.get(workerId);
+            if (signal != null) {
+                //the worker will poll right away - do not let it wait for the next findBusyWorkers() iteration
+                busyWorkersService.markWorkerBusy(workerId);
+                signal.signal();
+                if (logger.isDebugEnabled()) logger.debug("Worker [" + workerId + "] was notified on new assigned messages");
+            }
+        }
+    }
+
+    @Override
+    public boolean awaitAssignment(String workerId, long timeoutMillis) throws InterruptedException {
+        AssignmentSignal signal = signals.get(workerId);
+        if (signal == null) {
+            signals.putIfAbsent(workerId, new AssignmentSignal());
+            signal = signals.get(workerId);
+        }
+        return signal.await(timeoutMillis);
+    }
+
+    private static class AssignmentSignal {
+
+        private boolean assigned;
+
+        synchronized void signal() {
+            assigned = true;
+            notifyAll();
+        }
+
+        synchronized boolean await(long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            long remaining = timeoutMillis;
+            while (!assigned && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            boolean result = assigned;
+            assigned = false;
+            return result;
+        }
+    }
+}
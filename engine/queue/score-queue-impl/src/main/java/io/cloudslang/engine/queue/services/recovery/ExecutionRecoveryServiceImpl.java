@@ -19,8 +19,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * User:
@@ -32,6 +41,11 @@ final public class ExecutionRecoveryServiceImpl implements ExecutionRecoveryServ
 
     static final int DEFAULT_POLL_SIZE = 1000;
 
+    //the workers are recovered in parallel, every recovery holds a database connection
+    private int poolSize = 4;
+
+    private ExecutorService recoveryExecutor;
+
     @Autowired
     private WorkerNodeService workerNodeService;
 
@@ -44,6 +58,30 @@ final public class ExecutionRecoveryServiceImpl implements ExecutionRecoveryServ
     @Autowired
     private MessageRecoveryService messageRecoveryService;
 
+    @PostConstruct
+    public void init() {
+        poolSize = Integer.getInteger("recovery.workers.pool.size", poolSize);
+        recoveryExecutor = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "worker-recovery-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        recoveryExecutor.shutdownNow();
+    }
+
+    int getPoolSize() {
+        return poolSize;
+    }
+
     @Override
     @Transactional(propagation = Propagation.NEVER)
     public void doRecovery() {
@@ -63,17 +101,38 @@ final public class ExecutionRecoveryServiceImpl implements ExecutionRecoveryServ
             logger.debug("Workers recovery is being started");
         }
         long time = System.currentTimeMillis();
-        // Recovery for all workers
-        List<String> workersUuids = workerNodeService.readAllWorkersUuids();
+        // Recovery for the workers that need it - each one is checked again under its lock
+        List<String> workersUuids = workerRecoveryService.readWorkersForRecovery();
 
-        for (String workerUuid : workersUuids) {
+        List<Future<?>> futures = new ArrayList<>(workersUuids.size());
+        for (final String workerUuid : workersUuids) {
+            futures.add(recoveryExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    recoverWorker(workerUuid);
+                }
+            }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
             try {
-                workerRecoveryService.doWorkerAndMessageRecovery(workerUuid);
-            } catch (Exception ex) {
-                logger.error("Failed to recover worker [" + workerUuid + "]", ex);
+                futures.get(i).get();
+            } catch (InterruptedException ex) {
+                logger.error("Interrupted while waiting for the recovery of worker [" + workersUuids.get(i) + "]", ex);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ex) {
+                logger.error("Failed to recover worker [" + workersUuids.get(i) + "]", ex.getCause());
             }
         }
-        if (logger.isDebugEnabled()) logger.debug("Workers recovery is done in " + (System.currentTimeMillis() - time) + " ms");
+        if (logger.isDebugEnabled()) logger.debug("Workers recovery of " + workersUuids.size() + " workers is done in " + (System.currentTimeMillis() - time) + " ms");
+    }
+
+    private void recoverWorker(String workerUuid) {
+        try {
+            workerRecoveryService.doWorkerAndMessageRecovery(workerUuid);
+        } catch (Exception ex) {
+            logger.error("Failed to recover worker [" + workerUuid + "]", ex);
+        }
     }
 
     protected void assignRecoveredMessages() {
@@ -21,7 +21,11 @@ import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -82,6 +86,23 @@ public class WorkerRecoveryServiceImpl implements WorkerRecoveryService, LoginLi
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> readWorkersForRecovery() {
+        Set<String> nonRespondingWorkers = new HashSet<>(workerNodeService.readNonRespondingWorkers());
+        Map<String, Integer> messagesCounts = executionQueueService.countMessagesWithoutAckByWorker(getMinVersionAllowed());
+
+        List<String> result = new ArrayList<>();
+        for (WorkerNode worker : workerNodeService.readAllWorkers()) {
+            String workerUuid = worker.getUuid();
+            if (worker.getStatus() == WorkerStatus.IN_RECOVERY || nonRespondingWorkers.contains(workerUuid) || messagesCounts.containsKey(workerUuid)) {
+                result.add(workerUuid);
+            }
+        }
+        if (logger.isDebugEnabled()) logger.debug("Workers for recovery: " + result);
+        return result;
+    }
+
     @Override
     @Transactional
     public void doWorkerRecovery(String workerUuid) {
@@ -111,15 +132,18 @@ public class WorkerRecoveryServiceImpl implements WorkerRecoveryService, LoginLi
     private int getMessagesWithoutAck(int maxSize, String workerUuid) {
         if (logger.isDebugEnabled()) logger.debug("Getting messages count without ack for worker: " + workerUuid);
 
-        long systemVersion = versionService.getCurrentVersion(VersionService.MSG_RECOVERY_VERSION_COUNTER_NAME);
-        long minVersionAllowed = Math.max( systemVersion - maxAllowedGap , 0);
-        int result = executionQueueService.countMessagesWithoutAckForWorker(maxSize, minVersionAllowed, workerUuid);
+        int result = executionQueueService.countMessagesWithoutAckForWorker(maxSize, getMinVersionAllowed(), workerUuid);
 
         if (logger.isDebugEnabled()) logger.debug("Messages without ack found: " + result + " for worker: " + workerUuid);
 
         return result;
     }
 
+    private long getMinVersionAllowed() {
+        long systemVersion = versionService.getCurrentVersion(VersionService.MSG_RECOVERY_VERSION_COUNTER_NAME);
+        return Math.max( systemVersion - maxAllowedGap , 0);
+    }
+
     @Override
     @Transactional
     public void preLogin(String uuid) {
@@ -0,0 +1,192 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.queue.repositories;
+
+import io.cloudslang.engine.data.IdentityGenerator;
+import io.cloudslang.engine.queue.entities.ExecStatus;
+import io.cloudslang.engine.queue.entities.ExecutionMessage;
+import io.cloudslang.engine.queue.entities.Payload;
+import junit.framework.Assert;
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the read queries over OO_EXECUTION_QUEUES with the ones over OO_EXECUTION_QUEUES_LATEST
+ * as the queue grows between cleaner runs.
+ * The sizes (number of queue rows) are set by -Dqueue.scaling.test.sizes, e.g. 100000,1000000,5000000
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class ExecutionQueueRepositoryScalingBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(ExecutionQueueRepositoryScalingBenchmarkTest.class);
+
+    private static final String SIZES = System.getProperty("queue.scaling.test.sizes", "100000");
+
+    //every step goes through ASSIGNED -> SENT -> IN_PROGRESS, one of every POLLABLE_RATIO steps stays ASSIGNED
+    private static final int ROWS_PER_STEP = 3;
+    private static final int POLLABLE_RATIO = 100;
+    private static final int WORKERS = 50;
+    private static final int BULK_SIZE = 1000;
+
+    @Autowired
+    private ExecutionQueueRepository executionQueueRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test(timeout = 3600000)
+    public void testQueriesScaling() {
+        long execStateId = 1;
+        int rows = 0;
+        for (String size : SIZES.split(",")) {
+            int targetRows = Integer.parseInt(size.trim());
+            while (rows < targetRows) {
+                execStateId = insertSteps(execStateId, BULK_SIZE);
+                rows += BULK_SIZE * ROWS_PER_STEP;
+            }
+            int[] results = measure(rows, false);
+            int[] latestResults = measure(rows, true);
+            for (int i = 0; i < results.length; i++) {
+                Assert.assertEquals(results[i], latestResults[i]);
+            }
+        }
+    }
+
+    private long insertSteps(long firstExecStateId, int steps) {
+        List<ExecutionMessage> assigned = new ArrayList<>(steps);
+        List<ExecutionMessage> inProgress = new ArrayList<>(steps);
+        List<ExecutionMessage> states = new ArrayList<>();
+        long execStateId = firstExecStateId;
+        for (int i = 0; i < steps; i++, execStateId++) {
+            String worker = "worker" + (execStateId / POLLABLE_RATIO % WORKERS);
+            ExecutionMessage msg = new ExecutionMessage(execStateId, worker, "group", "1", ExecStatus.ASSIGNED, new Payload("payload".getBytes()), 1);
+            assigned.add(msg);
+            if (execStateId % POLLABLE_RATIO == 0) {
+                states.add(msg);
+            } else {
+                inProgress.add(new ExecutionMessage(execStateId, worker, "group", "1", ExecStatus.SENT, null, 2));
+                inProgress.add(new ExecutionMessage(execStateId, worker, "group", "1", ExecStatus.IN_PROGRESS, null, 3));
+            }
+        }
+        if (!states.isEmpty()) {
+            executionQueueRepository.insertExecutionStates(states);
+        }
+        executionQueueRepository.insertExecutionQueue(assigned, 1L);
+        executionQueueRepository.insertExecutionQueue(inProgress, 1L);
+        return execStateId;
+    }
+
+    private int[] measure(int rows, boolean latestMessagesQueries) {
+        ReflectionTestUtils.setField(executionQueueRepository, "latestMessagesQueries", latestMessagesQueries);
+        try {
+            long t = System.currentTimeMillis();
+            int polled = executionQueueRepository.poll("worker0", 100, ExecStatus.ASSIGNED).size();
+            long pollTime = System.currentTimeMillis() - t;
+
+            t = System.currentTimeMillis();
+            int busyWorkers = executionQueueRepository.getBusyWorkers(ExecStatus.ASSIGNED).size();
+            long busyWorkersTime = System.currentTimeMillis() - t;
+
+            t = System.currentTimeMillis();
+            int byStatuses = executionQueueRepository.findByStatuses(100000, ExecStatus.ASSIGNED).size();
+            long byStatusesTime = System.currentTimeMillis() - t;
+
+            t = System.currentTimeMillis();
+            int withoutAck = executionQueueRepository.pollMessagesWithoutAck(1000, 2).size();
+            long withoutAckTime = System.currentTimeMillis() - t;
+
+            Assert.assertEquals(WORKERS, busyWorkers);
+            Assert.assertEquals(countSteps() / POLLABLE_RATIO, byStatuses);
+            Assert.assertEquals(0, withoutAck);
+
+            logger.info((latestMessagesQueries? "OO_EXECUTION_QUEUES_LATEST": "OO_EXECUTION_QUEUES") + " with " + rows + " rows: " +
+                    "poll " + pollTime + " ms, busy workers " + busyWorkersTime + " ms, " +
+                    "by statuses " + byStatusesTime + " ms, without ack " + withoutAckTime + " ms");
+            return new int[]{polled, busyWorkers, byStatuses, withoutAck};
+        }
+        finally {
+            ReflectionTestUtils.setField(executionQueueRepository, "latestMessagesQueries", false);
+        }
+    }
+
+    private int countSteps() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OO_EXECUTION_QUEUES_LATEST", Integer.class);
+    }
+
+    @Configuration
+    static class Configurator {
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .setName("queueScalingTest")
+                    .build();
+        }
+
+        @Bean
+        SpringLiquibase liquibase(DataSource dataSource) {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource);
+            liquibase.setChangeLog("classpath:/META-INF/database/test.changes.xml");
+            return liquibase;
+        }
+
+        @Bean
+        JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        IdentityGenerator identifierGenerator() {
+            return new IdentityGenerator() {
+                long id = 1;
+
+                @Override
+                public synchronized Long next() {
+                    return id++;
+                }
+
+                @Override
+                public List<Long> bulk(int bulkSize) {
+                    return null;
+                }
+
+                @Override
+                public synchronized long reserve(int rangeSize) {
+                    long firstId = id;
+                    id += rangeSize;
+                    return firstId;
+                }
+            };
+        }
+
+        @Bean
+        ExecutionQueueRepository executionQueueRepository() {
+            return new ExecutionQueueRepositoryImpl();
+        }
+    }
+}
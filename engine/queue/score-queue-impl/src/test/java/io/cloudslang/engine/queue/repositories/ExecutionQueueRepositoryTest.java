@@ -11,6 +11,7 @@
 package io.cloudslang.engine.queue.repositories;
 
 import io.cloudslang.engine.data.IdentityGenerator;
+import io.cloudslang.engine.data.SimpleHiloIdentifierGenerator;
 import io.cloudslang.engine.node.services.WorkerNodeService;
 import io.cloudslang.engine.queue.entities.ExecStatus;
 import io.cloudslang.engine.queue.entities.ExecutionMessage;
@@ -25,18 +26,22 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -53,6 +58,9 @@ public class ExecutionQueueRepositoryTest {
     @Autowired
     private ExecutionQueueRepository executionQueueRepository;
 
+    @Autowired
+    private DataSource dataSource;
+
 
     @Test
     public void testInsert(){
@@ -69,6 +77,18 @@ public class ExecutionQueueRepositoryTest {
         Assert.assertEquals("group1",resultMsg.getWorkerGroup());
     }
 
+    @Test
+    public void testGenerateExecStateIdsAboveChunkSize(){
+        long[] ids = executionQueueRepository.generateExecStateIds(250001);
+        Assert.assertEquals(250001, ids.length);
+
+        Set<Long> uniqueIds = new HashSet<>();
+        for (long id : ids) {
+            uniqueIds.add(id);
+        }
+        Assert.assertEquals(250001, uniqueIds.size());
+    }
+
     @Test(expected = RuntimeException.class)
     public void testInsertFailureDueToUniqueConstraint(){
         List<ExecutionMessage> msg = new ArrayList<>();
@@ -132,6 +152,27 @@ public class ExecutionQueueRepositoryTest {
         Assert.assertEquals(result.intValue(), 0);
     }
 
+    @Test
+    public void testCountMessagesWithoutAckByWorker(){
+        List<ExecutionMessage> msg = new ArrayList<>();
+        msg.add(generateMessageForWorker(1, "group1", "msg1", "uuid1", 1));
+        msg.add(generateMessageForWorker(2, "group2", "msg2", "uuid2", 1));
+        msg.add(generateMessageForWorker(3, "group3", "msg3", "uuid2", 1));
+        msg.add(generateMessageForWorker(4, "group4", "msg4", "uuid3", 1));
+        executionQueueRepository.insertExecutionQueue(msg, 1L);
+
+        msg.clear();
+        msg.add(generateMessageForWorker(1, "group1", "msg1", "uuid1", 2)); //acknowledged in a newer version
+        msg.add(generateMessageForWorker(5, "group5", "msg5", "uuid3", 1));
+        executionQueueRepository.insertExecutionQueue(msg, 4L);
+
+        Map<String, Integer> result = executionQueueRepository.countMessagesWithoutAckByWorker(3);
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(2, result.get("uuid2").intValue());
+        Assert.assertEquals(1, result.get("uuid3").intValue());
+        Assert.assertEquals(executionQueueRepository.countMessagesWithoutAckForWorker(100, 3, "uuid3"), result.get("uuid3"));
+    }
+
     @Test
     public void testPollMessagesWithoutAckEmptyResult(){
         List<ExecutionMessage> msg = new ArrayList<>();
@@ -229,6 +270,68 @@ public class ExecutionQueueRepositoryTest {
         Assert.assertNotNull(busyWorkers);
     }
 
+    @Test
+    public void testLatestMessagesQueries(){
+        ReflectionTestUtils.setField(executionQueueRepository, "latestMessagesQueries", true);
+        try {
+            List<ExecutionMessage> msg = new ArrayList<>();
+            ExecutionMessage execMsg = generateMessageForWorker(1, "group1", "msg1", "worker1", 1);
+            execMsg.setStatus(ExecStatus.ASSIGNED);
+            msg.add(execMsg);
+            executionQueueRepository.insertExecutionStates(msg);
+            executionQueueRepository.insertExecutionQueue(msg, 1L);
+
+            Assert.assertEquals(1, executionQueueRepository.poll("worker1", 10, ExecStatus.ASSIGNED).size());
+            Assert.assertEquals(1, executionQueueRepository.getBusyWorkers(ExecStatus.ASSIGNED).size());
+
+            //the same bulk holds an older and a newer message of the step - only the newer one is the latest
+            msg.clear();
+            msg.add(generateMessageForWorker(1, "group1", "msg1", "worker1", 3));
+            msg.add(generateMessageForWorker(1, "group1", "msg1", "worker1", 2));
+            executionQueueRepository.insertExecutionQueue(msg, 1L);
+
+            Assert.assertTrue(executionQueueRepository.poll("worker1", 10, ExecStatus.ASSIGNED).isEmpty());
+            Assert.assertTrue(executionQueueRepository.getBusyWorkers(ExecStatus.ASSIGNED).isEmpty());
+            List<ExecutionMessage> result = executionQueueRepository.pollRecovery("worker1", 10, ExecStatus.SENT);
+            Assert.assertEquals(1, result.size());
+            Assert.assertEquals(3, result.get(0).getMsgSeqId());
+            Assert.assertEquals(1, executionQueueRepository.countMessagesWithoutAckForWorker(100, 2, "worker1").intValue());
+            Assert.assertEquals(1, executionQueueRepository.countMessagesWithoutAckByWorker(2).get("worker1").intValue());
+
+            //a message that arrives late must not override the latest one
+            msg.clear();
+            ExecutionMessage lateMsg = generateMessageForWorker(1, "group1", "msg1", "worker1", 0);
+            lateMsg.setStatus(ExecStatus.ASSIGNED);
+            msg.add(lateMsg);
+            executionQueueRepository.insertExecutionQueue(msg, 1L);
+            Assert.assertTrue(executionQueueRepository.poll("worker1", 10, ExecStatus.ASSIGNED).isEmpty());
+
+            msg.clear();
+            msg.add(generateFinishedMessage(1L, 4));
+            executionQueueRepository.insertExecutionQueue(msg, 1L);
+            Set<Long> finished = executionQueueRepository.getFinishedExecStateIds();
+            Assert.assertEquals(1, finished.size());
+
+            executionQueueRepository.deleteFinishedSteps(finished);
+            Assert.assertTrue(executionQueueRepository.getFinishedExecStateIds().isEmpty());
+            Assert.assertTrue(executionQueueRepository.findByStatuses(100, ExecStatus.SENT, ExecStatus.FINISHED).isEmpty());
+        }
+        finally {
+            ReflectionTestUtils.setField(executionQueueRepository, "latestMessagesQueries", false);
+        }
+    }
+
+    @Test
+    public void testLatestMessagesNotMaintainedWhenQueriesAreOff(){
+        List<ExecutionMessage> msg = new ArrayList<>();
+        msg.add(generateMessage(1, "group1", "msg1", 1));
+        executionQueueRepository.insertExecutionQueue(msg, 1L);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Assert.assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OO_EXECUTION_QUEUES", Integer.class).intValue());
+        Assert.assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OO_EXECUTION_QUEUES_LATEST", Integer.class).intValue());
+    }
+
     private ExecutionMessage generateMessage(String groupName,String msgId, int msg_seq_id) {
         byte[] payloadData;
         payloadData = "This is just a test".getBytes();
@@ -302,6 +405,16 @@ public class ExecutionQueueRepositoryTest {
                 public List<Long> bulk(int bulkSize) {
                     return null;
                 }
+
+                @Override
+                public synchronized long reserve(int rangeSize) {
+                    if (rangeSize < 1 || rangeSize > SimpleHiloIdentifierGenerator.CHUNK_SIZE) {
+                        throw new IllegalArgumentException("Range size must be between 1 and " + SimpleHiloIdentifierGenerator.CHUNK_SIZE + ", got " + rangeSize);
+                    }
+                    long firstId = id;
+                    id += rangeSize;
+                    return firstId;
+                }
             };
         }
 
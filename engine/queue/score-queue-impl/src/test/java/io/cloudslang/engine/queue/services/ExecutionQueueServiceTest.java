@@ -80,6 +80,7 @@ public class ExecutionQueueServiceTest {
 	public void before() {
 		jdbcTemplate.execute("delete from OO_EXECUTION_QUEUES");
 		jdbcTemplate.execute("delete from OO_EXECUTION_STATES");
+		jdbcTemplate.execute("delete from OO_EXECUTION_QUEUES_LATEST");
 
 		reset(workerNodeService, engineVersionService);
 	}
@@ -310,6 +311,13 @@ public class ExecutionQueueServiceTest {
 				public List<Long> bulk(int bulkSize) {
 					return null;
 				}
+
+				@Override
+				public synchronized long reserve(int rangeSize) {
+					long firstId = id;
+					id += rangeSize;
+					return firstId;
+				}
 			};
 		}
 
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.engine.queue.services;
+
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class WorkerNotificationServiceBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(WorkerNotificationServiceBenchmarkTest.class);
+
+    private static final int WORKERS = 50;
+    private static final int MESSAGES = 1000;
+    private static final long ASSIGN_INTERVAL_MILLIS = 3;
+    private static final long COOL_DOWN_POLLING_MILLIS = 200;
+    private static final long LONG_POLL_MILLIS = 5000;
+
+    @Autowired
+    private WorkerNotificationService workerNotificationService;
+
+    //simulates workers that poll an in memory queue and compares the poll rate and the dispatch latency
+    @Test(timeout = 120000)
+    public void dispatchBenchmark() throws Exception {
+        runBenchmark(false);
+        runBenchmark(true);
+    }
+
+    private void runBenchmark(final boolean longPoll) throws Exception {
+        final String prefix = longPoll? "longPollWorker": "pollWorker";
+        @SuppressWarnings("unchecked")
+        final Queue<Long>[] queues = new Queue[WORKERS];
+        final AtomicLong queries = new AtomicLong();
+        final AtomicLong emptyQueries = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong totalLatency = new AtomicLong();
+        final CountDownLatch allReceived = new CountDownLatch(MESSAGES);
+        final boolean[] running = {true};
+
+        Thread[] workers = new Thread[WORKERS];
+        for (int i = 0; i < WORKERS; i++) {
+            final int index = i;
+            queues[i] = new ConcurrentLinkedQueue<>();
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (running[0]) {
+                            queries.incrementAndGet();
+                            boolean empty = true;
+                            Long assignTime;
+                            while ((assignTime = queues[index].poll()) != null) {
+                                empty = false;
+                                totalLatency.addAndGet(System.currentTimeMillis() - assignTime);
+                                received.incrementAndGet();
+                                allReceived.countDown();
+                            }
+                            if (empty) {
+                                emptyQueries.incrementAndGet();
+                            }
+                            //the same waits the InBuffer does after a poll that did not fill it
+                            if (longPoll) {
+                                workerNotificationService.awaitAssignment(prefix + index, LONG_POLL_MILLIS);
+                            } else {
+                                Thread.sleep(empty? COOL_DOWN_POLLING_MILLIS: COOL_DOWN_POLLING_MILLIS / 8);
+                            }
+                        }
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        //let the long-poll workers register
+        Thread.sleep(100);
+
+        Random random = new Random(1);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < MESSAGES; i++) {
+            int index = random.nextInt(WORKERS);
+            queues[index].add(System.currentTimeMillis());
+            workerNotificationService.notifyAssigned(Collections.singleton(prefix + index));
+            Thread.sleep(ASSIGN_INTERVAL_MILLIS);
+        }
+        allReceived.await();
+        long duration = System.currentTimeMillis() - start;
+
+        running[0] = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+            worker.join();
+        }
+
+        Assert.assertEquals(MESSAGES, received.get());
+        logger.info((longPoll? "Long-poll": "Polling") + " with " + WORKERS + " workers: " +
+                (queries.get() * 1000 / duration) + " queries/sec (" + (emptyQueries.get() * 1000 / duration) +
+                " empty), average dispatch latency " +
+                ((double) totalLatency.get() / MESSAGES) + " ms");
+    }
+
+    @Configuration
+    static class EmptyConfig {
+        @Bean
+        public WorkerNotificationService workerNotificationService() {
+            return new WorkerNotificationServiceImpl();
+        }
+
+        @Bean
+        public BusyWorkersService busyWorkersService() {
+            return mock(BusyWorkersService.class);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.engine.queue.services;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.Mockito.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class WorkerNotificationServiceTest {
+
+    @Autowired
+    private WorkerNotificationService workerNotificationService;
+
+    @Autowired
+    private BusyWorkersService busyWorkersService;
+
+    @Before
+    public void setUp() {
+        reset(busyWorkersService);
+    }
+
+    @Test(timeout = 5000)
+    public void testAwaitTimesOut() throws Exception {
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(workerNotificationService.awaitAssignment("worker1", 100));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 100);
+    }
+
+    @Test(timeout = 5000)
+    public void testNotificationBeforeAwaitIsNotLost() throws Exception {
+        workerNotificationService.awaitAssignment("worker2", 1);
+
+        workerNotificationService.notifyAssigned(Arrays.asList("worker2"));
+        verify(busyWorkersService).markWorkerBusy("worker2");
+
+        Assert.assertTrue(workerNotificationService.awaitAssignment("worker2", 60000));
+        //the notification is consumed
+        Assert.assertFalse(workerNotificationService.awaitAssignment("worker2", 1));
+    }
+
+    @Test(timeout = 5000)
+    public void testNotificationWakesUpWaitingWorker() throws Exception {
+        workerNotificationService.awaitAssignment("worker3", 1);
+        final CountDownLatch woken = new CountDownLatch(1);
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (workerNotificationService.awaitAssignment("worker3", 60000)) {
+                        woken.countDown();
+                    }
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        worker.start();
+
+        workerNotificationService.notifyAssigned(Collections.singleton("worker3"));
+        worker.join();
+        Assert.assertEquals(0, woken.getCount());
+    }
+
+    @Test
+    public void testUnknownWorkerIsNotNotified() {
+        workerNotificationService.notifyAssigned(Arrays.asList("unknownWorker"));
+        verify(busyWorkersService, never()).markWorkerBusy(anyString());
+    }
+
+    @Configuration
+    static class EmptyConfig {
+        @Bean
+        public WorkerNotificationService workerNotificationService() {
+            return new WorkerNotificationServiceImpl();
+        }
+
+        @Bean
+        public BusyWorkersService busyWorkersService() {
+            return mock(BusyWorkersService.class);
+        }
+    }
+}
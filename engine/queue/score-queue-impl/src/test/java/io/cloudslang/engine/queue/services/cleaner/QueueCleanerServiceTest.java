@@ -77,6 +77,7 @@ public class QueueCleanerServiceTest {
 	public void before() {
 		jdbcTemplate.execute("delete from OO_EXECUTION_QUEUES");
 		jdbcTemplate.execute("delete from OO_EXECUTION_STATES");
+		jdbcTemplate.execute("delete from OO_EXECUTION_QUEUES_LATEST");
 	}
 
 	@Test
@@ -175,6 +176,13 @@ public class QueueCleanerServiceTest {
 				public List<Long> bulk(int bulkSize) {
 					return null;
 				}
+
+				@Override
+				public synchronized long reserve(int rangeSize) {
+					long firstId = id;
+					id += rangeSize;
+					return firstId;
+				}
 			};
 		}
 
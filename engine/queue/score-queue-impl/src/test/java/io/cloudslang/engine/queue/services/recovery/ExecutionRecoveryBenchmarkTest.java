@@ -0,0 +1,288 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.engine.queue.services.recovery;
+
+import io.cloudslang.engine.data.IdentityGenerator;
+import io.cloudslang.engine.node.entities.WorkerNode;
+import io.cloudslang.engine.node.services.WorkerLockService;
+import io.cloudslang.engine.node.services.WorkerNodeService;
+import io.cloudslang.engine.queue.entities.ExecStatus;
+import io.cloudslang.engine.queue.entities.ExecutionMessage;
+import io.cloudslang.engine.queue.entities.Payload;
+import io.cloudslang.engine.queue.repositories.ExecutionQueueRepository;
+import io.cloudslang.engine.queue.repositories.ExecutionQueueRepositoryImpl;
+import io.cloudslang.engine.queue.services.BusyWorkersService;
+import io.cloudslang.engine.queue.services.ExecutionQueueService;
+import io.cloudslang.engine.queue.services.ExecutionQueueServiceImpl;
+import io.cloudslang.engine.queue.services.assigner.ExecutionAssignerService;
+import io.cloudslang.engine.versioning.services.VersionService;
+import io.cloudslang.score.api.nodes.WorkerStatus;
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reports the duration of a pass of the recovery job with 500 workers and 200,000 messages in flight, of which
+ * the workers that stopped responding hold 4,000 - when every worker is checked with its own queries one after the other,
+ * and when the workers to recover are found with one query and are recovered in parallel.
+ * Both passes recover the same messages, with the queries over OO_EXECUTION_QUEUES and over OO_EXECUTION_QUEUES_LATEST.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class ExecutionRecoveryBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(ExecutionRecoveryBenchmarkTest.class);
+
+    private static final int WORKERS = 500;
+    private static final int MESSAGES = 200000;
+    private static final int DEAD_WORKERS = 10;
+    private static final int BULK_SIZE = 1000;
+
+    private static final long CURRENT_VERSION = 100L;
+    private static final long ACKNOWLEDGED_VERSION = CURRENT_VERSION;
+    private static final long NOT_ACKNOWLEDGED_VERSION = CURRENT_VERSION - 50;
+
+    @Autowired
+    private ExecutionRecoveryServiceImpl executionRecoveryService;
+
+    @Autowired
+    private WorkerRecoveryService workerRecoveryService;
+
+    @Autowired
+    private WorkerNodeService workerNodeService;
+
+    @Autowired
+    private ExecutionQueueRepository executionQueueRepository;
+
+    private int deadWorkersMsgSeqId = 1;
+
+    @Test(timeout = 3600000)
+    public void testRecoveryPassBenchmark() {
+        insertMessages();
+
+        for (boolean latestMessagesQueries : new boolean[]{false, true}) {
+            ReflectionTestUtils.setField(executionQueueRepository, "latestMessagesQueries", latestMessagesQueries);
+            try {
+                long sequentialTime = measurePass(false);
+                long parallelTime = measurePass(true);
+                logger.info((latestMessagesQueries? "OO_EXECUTION_QUEUES_LATEST": "OO_EXECUTION_QUEUES") + ": recovery pass of " +
+                        WORKERS + " workers with " + MESSAGES + " messages in flight takes " + sequentialTime + " ms when every worker is checked, " +
+                        parallelTime + " ms when the workers to recover are read once and recovered by " + executionRecoveryService.getPoolSize() + " threads");
+            } finally {
+                ReflectionTestUtils.setField(executionQueueRepository, "latestMessagesQueries", false);
+            }
+        }
+    }
+
+    private long measurePass(boolean parallel) {
+        resendToDeadWorkers();
+        Assert.assertEquals(DEAD_WORKERS, executionQueueRepository.countMessagesWithoutAckByWorker(CURRENT_VERSION - 10).size());
+
+        long t = System.currentTimeMillis();
+        if (parallel) {
+            executionRecoveryService.recoverWorkers();
+        } else {
+            //the pass before the workers to recover were read at once
+            for (String workerUuid : workerNodeService.readAllWorkersUuids()) {
+                workerRecoveryService.doWorkerAndMessageRecovery(workerUuid);
+            }
+        }
+        long time = System.currentTimeMillis() - t;
+
+        Assert.assertTrue(executionQueueRepository.countMessagesWithoutAckByWorker(CURRENT_VERSION - 10).isEmpty());
+        Assert.assertEquals(MESSAGES / WORKERS * DEAD_WORKERS, executionQueueRepository.findByStatuses(MESSAGES, ExecStatus.RECOVERED).size());
+        return time;
+    }
+
+    private void insertMessages() {
+        List<ExecutionMessage> messages = new ArrayList<>(BULK_SIZE);
+        List<ExecutionMessage> states = new ArrayList<>();
+        for (long execStateId = 1; execStateId <= MESSAGES; execStateId++) {
+            int worker = (int) (execStateId % WORKERS);
+            ExecutionMessage msg = new ExecutionMessage(execStateId, "worker" + worker, "group", "1", ExecStatus.SENT, new Payload("payload".getBytes()), 1);
+            if (worker < DEAD_WORKERS) {
+                states.add(msg);
+            } else {
+                messages.add(msg);
+            }
+            if (messages.size() == BULK_SIZE) {
+                executionQueueRepository.insertExecutionQueue(messages, ACKNOWLEDGED_VERSION);
+                messages.clear();
+            }
+        }
+        executionQueueRepository.insertExecutionQueue(messages, ACKNOWLEDGED_VERSION);
+        executionQueueRepository.insertExecutionStates(states);
+    }
+
+    //the messages of the workers that stopped responding are sent to them again, so every pass has the same work
+    private void resendToDeadWorkers() {
+        List<ExecutionMessage> messages = new ArrayList<>();
+        for (long execStateId = 1; execStateId <= MESSAGES; execStateId++) {
+            int worker = (int) (execStateId % WORKERS);
+            if (worker < DEAD_WORKERS) {
+                messages.add(new ExecutionMessage(execStateId, "worker" + worker, "group", "1", ExecStatus.SENT, null, deadWorkersMsgSeqId));
+            }
+        }
+        executionQueueRepository.insertExecutionQueue(messages, NOT_ACKNOWLEDGED_VERSION);
+        deadWorkersMsgSeqId += 2; //the recovery adds the next one
+    }
+
+    @Configuration
+    static class Configurator {
+        @Bean
+        DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .setName("recoveryBenchmark")
+                    .build();
+        }
+
+        @Bean
+        SpringLiquibase liquibase(DataSource dataSource) {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource);
+            liquibase.setChangeLog("classpath:/META-INF/database/test.changes.xml");
+            return liquibase;
+        }
+
+        @Bean
+        IdentityGenerator identifierGenerator() {
+            return new IdentityGenerator() {
+                long id = MESSAGES + 1;
+
+                @Override
+                public synchronized Long next() {
+                    return id++;
+                }
+
+                @Override
+                public List<Long> bulk(int bulkSize) {
+                    return null;
+                }
+
+                @Override
+                public synchronized long reserve(int rangeSize) {
+                    long firstId = id;
+                    id += rangeSize;
+                    return firstId;
+                }
+            };
+        }
+
+        @Bean
+        ExecutionQueueRepository executionQueueRepository() {
+            return new ExecutionQueueRepositoryImpl();
+        }
+
+        @Bean
+        ExecutionQueueService executionQueueService() {
+            return new ExecutionQueueServiceImpl();
+        }
+
+        @Bean
+        ExecutionRecoveryService executionRecoveryService() {
+            return new ExecutionRecoveryServiceImpl();
+        }
+
+        @Bean
+        WorkerRecoveryService workerRecoveryService() {
+            return new WorkerRecoveryServiceImpl();
+        }
+
+        @Bean
+        MessageRecoveryService messageRecoveryService() {
+            return new MessageRecoveryServiceImpl();
+        }
+
+        @Bean
+        WorkerNodeService workerNodeService() {
+            List<String> uuids = new ArrayList<>();
+            List<WorkerNode> workers = new ArrayList<>();
+            final Map<String, WorkerNode> workersByUuid = new HashMap<>();
+            List<String> nonRespondingWorkers = new ArrayList<>();
+            for (int i = 0; i < WORKERS; i++) {
+                WorkerNode worker = new WorkerNode();
+                worker.setUuid("worker" + i);
+                worker.setStatus(WorkerStatus.RUNNING);
+                uuids.add(worker.getUuid());
+                workers.add(worker);
+                workersByUuid.put(worker.getUuid(), worker);
+                if (i < DEAD_WORKERS) {
+                    nonRespondingWorkers.add(worker.getUuid());
+                }
+            }
+            WorkerNodeService workerNodeService = mock(WorkerNodeService.class);
+            when(workerNodeService.readAllWorkersUuids()).thenReturn(uuids);
+            when(workerNodeService.readAllWorkers()).thenReturn(workers);
+            when(workerNodeService.readNonRespondingWorkers()).thenReturn(nonRespondingWorkers);
+            when(workerNodeService.findByUuid(anyString())).thenAnswer(new Answer<WorkerNode>() {
+                @Override
+                public WorkerNode answer(InvocationOnMock invocation) {
+                    return workersByUuid.get((String) invocation.getArguments()[0]);
+                }
+            });
+            return workerNodeService;
+        }
+
+        @Bean
+        WorkerLockService workerLockService() {
+            return mock(WorkerLockService.class);
+        }
+
+        @Bean
+        VersionService versionService() {
+            VersionService versionService = mock(VersionService.class);
+            when(versionService.getCurrentVersion(anyString())).thenReturn(CURRENT_VERSION);
+            return versionService;
+        }
+
+        @Bean
+        ExecutionAssignerService executionAssignerService() {
+            ExecutionAssignerService executionAssignerService = mock(ExecutionAssignerService.class);
+            when(executionAssignerService.assignWorkers(anyListOf(ExecutionMessage.class))).thenAnswer(new Answer<List<ExecutionMessage>>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public List<ExecutionMessage> answer(InvocationOnMock invocation) {
+                    return (List<ExecutionMessage>) invocation.getArguments()[0];
+                }
+            });
+            return executionAssignerService;
+        }
+
+        @Bean
+        BusyWorkersService busyWorkersService() {
+            return mock(BusyWorkersService.class);
+        }
+    }
+}
@@ -55,17 +55,29 @@ public class ExecutionRecoveryServiceTest {
 
     @Before
     public void setUp() {
-        reset(workerNodeService, executionQueueService, messageRecoveryService);
+        reset(workerNodeService, workerRecoveryService, executionQueueService, messageRecoveryService);
     }
 
     @Test
     public void testRecoverWorkers() throws Exception {
-        when(workerNodeService.readAllWorkersUuids()).thenReturn(getWorkers());
+        when(workerRecoveryService.readWorkersForRecovery()).thenReturn(getWorkers());
         executionRecoveryService.recoverWorkers();
 
         verify(workerRecoveryService, times(1)).doWorkerAndMessageRecovery("123");
         verify(workerRecoveryService, times(1)).doWorkerAndMessageRecovery("456");
         verify(workerRecoveryService, times(1)).doWorkerAndMessageRecovery("789");
+        verify(workerNodeService, never()).readAllWorkersUuids();
+    }
+
+    @Test
+    public void testRecoverWorkersFailure() throws Exception {
+        when(workerRecoveryService.readWorkersForRecovery()).thenReturn(getWorkers());
+        doThrow(new RuntimeException("recovery failed")).when(workerRecoveryService).doWorkerAndMessageRecovery("123");
+        executionRecoveryService.recoverWorkers();
+
+        //the failure of one worker does not stop the recovery of the others
+        verify(workerRecoveryService, times(1)).doWorkerAndMessageRecovery("456");
+        verify(workerRecoveryService, times(1)).doWorkerAndMessageRecovery("789");
     }
 
     private List<String> getWorkers(){
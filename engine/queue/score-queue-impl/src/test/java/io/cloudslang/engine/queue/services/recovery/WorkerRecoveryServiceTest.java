@@ -16,6 +16,7 @@ import io.cloudslang.engine.node.services.WorkerLockService;
 import io.cloudslang.engine.node.services.WorkerNodeService;
 import io.cloudslang.engine.queue.services.ExecutionQueueService;
 import io.cloudslang.engine.versioning.services.VersionService;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,6 +28,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -150,6 +152,31 @@ public class WorkerRecoveryServiceTest {
         verify(workerNodeService, times(1)).updateStatus("worker1", WorkerStatus.RECOVERED);
     }
 
+    @Test
+    public void testReadWorkersForRecovery() throws Exception {
+        List<WorkerNode> workers = new ArrayList<>();
+        workers.add(createWorker("running", WorkerStatus.RUNNING));
+        workers.add(createWorker("inRecovery", WorkerStatus.IN_RECOVERY));
+        workers.add(createWorker("123", WorkerStatus.RUNNING));
+        workers.add(createWorker("withoutAck", WorkerStatus.RUNNING));
+        when(workerNodeService.readAllWorkers()).thenReturn(workers);
+        when(workerNodeService.readNonRespondingWorkers()).thenReturn(getNonResponsiveWorkers());
+        when(executionQueueService.countMessagesWithoutAckByWorker(anyLong())).thenReturn(Collections.singletonMap("withoutAck", 5));
+
+        Assert.assertEquals(Arrays.asList("inRecovery", "123", "withoutAck"), workerRecoveryService.readWorkersForRecovery());
+        //the non responsive workers and the messages without ack are read once for all the workers
+        verify(workerNodeService, times(1)).readNonRespondingWorkers();
+        verify(executionQueueService, times(1)).countMessagesWithoutAckByWorker(anyLong());
+        verify(executionQueueService, never()).countMessagesWithoutAckForWorker(anyInt(), anyLong(), anyString());
+    }
+
+    private WorkerNode createWorker(String uuid, WorkerStatus status) {
+        WorkerNode worker = new WorkerNode();
+        worker.setUuid(uuid);
+        worker.setStatus(status);
+        return worker;
+    }
+
     private List<String> getNonResponsiveWorkers() {
         List<String> workers = new ArrayList<>();
         workers.add("123");
@@ -0,0 +1,580 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.score.facade.entities;
+
+import io.cloudslang.score.api.ControlActionMetadata;
+import io.cloudslang.score.api.ExecutionPlan;
+import io.cloudslang.score.api.ExecutionStep;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The binary format of the execution plans:
+ * <pre>
+ * magic (2 bytes) | version (1 byte) | flags (1 byte) | SHA-256 of the body (32 bytes) | body length (4 bytes) | body
+ * </pre>
+ * The body holds the fields of the plan, its steps ordered by their ids and their control actions.
+ * Strings, numbers, booleans and the plain collections in the data of the steps are written by tags,
+ * any other value is written with Java serialization to one object stream at the end of the body.
+ * The body is deflated when it is bigger than the compression threshold.
+ * Plans of subclasses of ExecutionPlan can not be written in this format.
+ */
+final class ExecutionPlanBinaryFormat {
+
+    static final byte[] MAGIC = {(byte) 0xE5, (byte) 0x9C};
+    static final byte VERSION = 1;
+
+    private static final int FLAG_DEFLATED = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_LENGTH = MAGIC.length + 2 + HASH_LENGTH + 4;
+
+    private static final int COMPRESSION_THRESHOLD = Integer.getInteger("execution.plan.compression.threshold", 32 * 1024);
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte HASH_MAP = 6;
+    private static final byte LINKED_HASH_MAP = 7;
+    private static final byte ARRAY_LIST = 8;
+    private static final byte HASH_SET = 9;
+    private static final byte SERIALIZED = 10;
+    private static final byte PLAIN = 11; //a step or a control action that is written field by field
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final Comparator<Map.Entry<?, ?>> KEY_ORDER = new Comparator<Map.Entry<?, ?>>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(Map.Entry<?, ?> entry1, Map.Entry<?, ?> entry2) {
+            return ((Comparable<Object>) entry1.getKey()).compareTo(entry2.getKey());
+        }
+    };
+
+    //getNavigationData() hides null - the field is read directly so the plan is read back equal to the written one
+    private static final Field NAVIGATION_DATA;
+    //the plan has no setter of its steps - the field is set directly when the written steps were null
+    private static final Field STEPS;
+
+    static {
+        try {
+            NAVIGATION_DATA = ExecutionStep.class.getDeclaredField("navigationData");
+            NAVIGATION_DATA.setAccessible(true);
+            STEPS = ExecutionPlan.class.getDeclaredField("steps");
+            STEPS.setAccessible(true);
+        } catch (NoSuchFieldException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private ExecutionPlanBinaryFormat() {
+    }
+
+    static boolean canWrite(ExecutionPlan executionPlan) {
+        return executionPlan.getClass() == ExecutionPlan.class;
+    }
+
+    static boolean isBinaryFormat(byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_LENGTH && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1];
+    }
+
+    static byte[] write(ExecutionPlan executionPlan) throws IOException {
+        PlanWriter body = new PlanWriter();
+        writePlan(body, executionPlan);
+        byte[] plainBody = body.toByteArray();
+        byte[] hash = sha256(plainBody);
+
+        int flags = 0;
+        byte[] storedBody = plainBody;
+        if (plainBody.length > COMPRESSION_THRESHOLD) {
+            storedBody = deflate(plainBody);
+            flags |= FLAG_DEFLATED;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_LENGTH + storedBody.length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(flags);
+        out.write(hash);
+        out.writeInt(plainBody.length);
+        out.write(storedBody);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static ExecutionPlan read(byte[] bytes) throws IOException, ClassNotFoundException {
+        if (bytes[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported execution plan format version: " + bytes[MAGIC.length]);
+        }
+        int flags = bytes[MAGIC.length + 1];
+        int bodyLength = readInt(bytes, HEADER_LENGTH - 4);
+        byte[] body;
+        int offset;
+        if ((flags & FLAG_DEFLATED) != 0) {
+            body = inflate(bytes, HEADER_LENGTH, bodyLength);
+            offset = 0;
+        } else {
+            body = bytes;
+            offset = HEADER_LENGTH;
+        }
+        return readPlan(new PlanReader(body, offset, bodyLength));
+    }
+
+    /**
+     * @return the hex SHA-256 of the body of the plan. The steps, hash maps and hash sets are written in a stable order,
+     * so equal plans usually have the same hash - but plans with the same hash are always equal
+     */
+    static String getHash(byte[] bytes) {
+        char[] hash = new char[HASH_LENGTH * 2];
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            int b = bytes[MAGIC.length + 2 + i] & 0xFF;
+            hash[i * 2] = HEX[b >>> 4];
+            hash[i * 2 + 1] = HEX[b & 0x0F];
+        }
+        return new String(hash);
+    }
+
+    private static void writePlan(PlanWriter out, ExecutionPlan executionPlan) throws IOException {
+        writeString(out, executionPlan.getFlowUuid());
+        writeString(out, executionPlan.getName());
+        writeString(out, executionPlan.getLanguage());
+        writeLong(out, executionPlan.getBeginStep());
+        writeStrings(out, executionPlan.getSubflowsUUIDs());
+        writeStrings(out, executionPlan.getSysAccPaths());
+
+        Map<Long, ExecutionStep> steps = executionPlan.getSteps();
+        if (steps == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(steps.size());
+        for (Map.Entry<Long, ExecutionStep> entry : sortedEntries(steps)) {
+            writeLong(out, entry.getKey());
+            writeStep(out, entry.getValue());
+        }
+    }
+
+    private static ExecutionPlan readPlan(PlanReader in) throws IOException, ClassNotFoundException {
+        ExecutionPlan executionPlan = new ExecutionPlan();
+        executionPlan.setFlowUuid(readString(in));
+        executionPlan.setName(readString(in));
+        executionPlan.setLanguage(readString(in));
+        executionPlan.setBeginStep(readLong(in));
+        executionPlan.setSubflowsUUIDs(readStrings(in));
+        executionPlan.setSysAccPaths(readStrings(in));
+
+        int size = in.readInt();
+        if (size < 0) {
+            setNullSteps(executionPlan);
+        } else {
+            Map<Long, ExecutionStep> steps = executionPlan.getSteps();
+            for (int i = 0; i < size; i++) {
+                Long stepId = readLong(in);
+                steps.put(stepId, readStep(in));
+            }
+        }
+        return executionPlan;
+    }
+
+    private static void writeStep(PlanWriter out, ExecutionStep step) throws IOException {
+        if (step == null || step.getClass() != ExecutionStep.class) {
+            writeValue(out, step);
+            return;
+        }
+        out.writeByte(PLAIN);
+        writeLong(out, step.getExecStepId());
+        out.writeBoolean(step.isSplitStep());
+        writeMetadata(out, step.getAction());
+        writeValue(out, step.getActionData());
+        writeMetadata(out, step.getNavigation());
+        writeValue(out, getNavigationData(step));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ExecutionStep readStep(PlanReader in) throws IOException, ClassNotFoundException {
+        byte tag = in.readByte();
+        if (tag != PLAIN) {
+            return (ExecutionStep) readValue(in, tag);
+        }
+        ExecutionStep step = new ExecutionStep(readLong(in));
+        step.setSplitStep(in.readBoolean());
+        step.setAction(readMetadata(in));
+        step.setActionData((Map<String, ?>) readValue(in, in.readByte()));
+        step.setNavigation(readMetadata(in));
+        step.setNavigationData((Map<String, ?>) readValue(in, in.readByte()));
+        return step;
+    }
+
+    private static void writeMetadata(PlanWriter out, ControlActionMetadata metadata) throws IOException {
+        if (metadata == null || metadata.getClass() != ControlActionMetadata.class) {
+            writeValue(out, metadata);
+            return;
+        }
+        out.writeByte(PLAIN);
+        writeString(out, metadata.getClassName());
+        writeString(out, metadata.getMethodName());
+    }
+
+    private static ControlActionMetadata readMetadata(PlanReader in) throws IOException, ClassNotFoundException {
+        byte tag = in.readByte();
+        if (tag != PLAIN) {
+            return (ControlActionMetadata) readValue(in, tag);
+        }
+        return new ControlActionMetadata(readString(in), readString(in));
+    }
+
+    private static void writeValue(PlanWriter out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (type == Integer.class) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (type == Boolean.class) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (type == HashMap.class) {
+            out.writeByte(HASH_MAP);
+            writeEntries(out, sortedEntries((Map<?, ?>) value));
+        } else if (type == LinkedHashMap.class) {
+            out.writeByte(LINKED_HASH_MAP);
+            writeEntries(out, ((Map<?, ?>) value).entrySet());
+        } else if (type == ArrayList.class) {
+            out.writeByte(ARRAY_LIST);
+            writeElements(out, (Collection<?>) value);
+        } else if (type == HashSet.class) {
+            out.writeByte(HASH_SET);
+            writeElements(out, sorted((Collection<?>) value));
+        } else {
+            out.writeByte(SERIALIZED);
+            out.getObjects().writeObject(value);
+        }
+    }
+
+    private static Object readValue(PlanReader in, byte tag) throws IOException, ClassNotFoundException {
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BOOLEAN:
+                return in.readBoolean();
+            case DOUBLE:
+                return in.readDouble();
+            case HASH_MAP:
+                return readEntries(in, new HashMap<>());
+            case LINKED_HASH_MAP:
+                return readEntries(in, new LinkedHashMap<>());
+            case ARRAY_LIST:
+                return readElements(in, new ArrayList<>());
+            case HASH_SET:
+                return readElements(in, new HashSet<>());
+            case SERIALIZED:
+                return in.getObjects().readObject();
+            default:
+                throw new IOException("Unknown value tag in execution plan: " + tag);
+        }
+    }
+
+    private static void writeEntries(PlanWriter out, Collection<? extends Map.Entry<?, ?>> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (Map.Entry<?, ?> entry : entries) {
+            writeValue(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static Map<Object, Object> readEntries(PlanReader in, Map<Object, Object> map) throws IOException, ClassNotFoundException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            Object key = readValue(in, in.readByte());
+            map.put(key, readValue(in, in.readByte()));
+        }
+        return map;
+    }
+
+    private static void writeElements(PlanWriter out, Collection<?> elements) throws IOException {
+        out.writeInt(elements.size());
+        for (Object element : elements) {
+            writeValue(out, element);
+        }
+    }
+
+    private static Collection<Object> readElements(PlanReader in, Collection<Object> collection) throws IOException, ClassNotFoundException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(in, in.readByte()));
+        }
+        return collection;
+    }
+
+    private static void writeStrings(PlanWriter out, Set<String> strings) throws IOException {
+        if (strings == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(strings.size());
+        for (Object string : sorted(strings)) {
+            writeString(out, (String) string);
+        }
+    }
+
+    private static Set<String> readStrings(PlanReader in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) return null;
+        Set<String> strings = new HashSet<>(Math.max(16, (int) (size / .75f) + 1));
+        for (int i = 0; i < size; i++) {
+            strings.add(readString(in));
+        }
+        return strings;
+    }
+
+    //a string is written once, its next occurrences refer to the first one: -1 is null, -2 and below are references
+    private static void writeString(PlanWriter out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        Integer index = out.strings.get(string);
+        if (index != null) {
+            out.writeInt(-2 - index);
+            return;
+        }
+        out.strings.put(string, out.strings.size());
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(PlanReader in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) return null;
+        if (length < -1) return in.strings.get(-2 - length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        String string = new String(bytes, StandardCharsets.UTF_8);
+        in.strings.add(string);
+        return string;
+    }
+
+    private static void writeLong(PlanWriter out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(PlanReader in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    //the entries of a hash map in the order of their keys, so equal maps are written the same.
+    //the entries are sorted in a list - keys that compare equal but are not equal, like 1.0 and 1.00, are all kept
+    private static <K, V> Collection<Map.Entry<K, V>> sortedEntries(Map<K, V> map) {
+        List<Map.Entry<K, V>> entries = new ArrayList<>(map.entrySet());
+        for (Map.Entry<K, V> entry : entries) {
+            if (!(entry.getKey() instanceof Comparable)) {
+                return map.entrySet();
+            }
+        }
+        try {
+            Collections.sort(entries, KEY_ORDER);
+        } catch (ClassCastException ex) {
+            return map.entrySet(); //keys of different types
+        }
+        return entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<?> sorted(Collection<?> collection) {
+        Object[] elements = collection.toArray();
+        for (Object element : elements) {
+            if (!(element instanceof Comparable)) {
+                return collection;
+            }
+        }
+        try {
+            Arrays.sort(elements);
+        } catch (ClassCastException ex) {
+            return collection;
+        }
+        return Arrays.asList(elements);
+    }
+
+    private static void setNullSteps(ExecutionPlan executionPlan) throws IOException {
+        try {
+            STEPS.set(executionPlan, null);
+        } catch (IllegalAccessException ex) {
+            throw new IOException("Failed to read the null steps of an execution plan", ex);
+        }
+    }
+
+    private static Map<String, ?> getNavigationData(ExecutionStep step) {
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, ?> navigationData = (Map<String, ?>) NAVIGATION_DATA.get(step);
+            return navigationData;
+        } catch (IllegalAccessException ex) {
+            return step.getNavigationData();
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, bytes.length - offset);
+            byte[] body = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = inflater.inflate(body, read, length - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Execution plan body is shorter than " + length + " bytes");
+                }
+                read += n;
+            }
+            return body;
+        } catch (DataFormatException ex) {
+            throw new IOException("Failed to inflate execution plan body", ex);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * Writes the fields to the body and the serialized values to a single object stream after them,
+     * so the classes of the values are described once in the plan. Keeps the strings that were written.
+     */
+    private static final class PlanWriter extends DataOutputStream {
+        private final ByteArrayOutputStream objectBytes = new ByteArrayOutputStream();
+        private final Map<String, Integer> strings = new HashMap<>();
+        private ObjectOutputStream objects;
+
+        PlanWriter() {
+            super(new ByteArrayOutputStream(1024));
+        }
+
+        ObjectOutputStream getObjects() throws IOException {
+            if (objects == null) {
+                objects = new ObjectOutputStream(objectBytes);
+            }
+            return objects;
+        }
+
+        // fields length (4 bytes) | fields | serialized values
+        byte[] toByteArray() throws IOException {
+            flush();
+            if (objects != null) {
+                objects.close();
+            }
+            ByteArrayOutputStream fields = (ByteArrayOutputStream) out;
+            ByteArrayOutputStream body = new ByteArrayOutputStream(4 + fields.size() + objectBytes.size());
+            DataOutputStream bodyOut = new DataOutputStream(body);
+            bodyOut.writeInt(fields.size());
+            fields.writeTo(bodyOut);
+            objectBytes.writeTo(bodyOut);
+            bodyOut.flush();
+            return body.toByteArray();
+        }
+    }
+
+    private static final class PlanReader extends DataInputStream {
+        private final byte[] body;
+        private final int objectsOffset;
+        private final int objectsLength;
+        private final ArrayList<String> strings = new ArrayList<>();
+        private ObjectInputStream objects;
+
+        PlanReader(byte[] body, int offset, int length) {
+            super(new ByteArrayInputStream(body, offset + 4, ExecutionPlanBinaryFormat.readInt(body, offset)));
+            this.body = body;
+            int fieldsLength = ExecutionPlanBinaryFormat.readInt(body, offset);
+            objectsOffset = offset + 4 + fieldsLength;
+            objectsLength = length - 4 - fieldsLength;
+        }
+
+        ObjectInputStream getObjects() throws IOException {
+            if (objects == null) {
+                objects = new ObjectInputStream(new ByteArrayInputStream(body, objectsOffset, objectsLength));
+            }
+            return objects;
+        }
+    }
+}
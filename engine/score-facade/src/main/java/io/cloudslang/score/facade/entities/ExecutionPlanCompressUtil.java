@@ -32,14 +32,25 @@ import java.util.zip.GZIPOutputStream;
 public class ExecutionPlanCompressUtil {
     private static final Logger logger = Logger.getLogger(ExecutionPlanCompressUtil.class);
 
+    //write the plans zipped with Java serialization, for workers that can not read the binary format yet
+    private static final boolean LEGACY_FORMAT = Boolean.getBoolean("execution.plan.legacy.format");
+
     /**
-     * Gets byte[] that contains serialized object ExecutionPlan + zipped
+     * Gets byte[] that contains the ExecutionPlan in the binary format, or serialized object ExecutionPlan + zipped
      * and creates ExecutionPlan from it
      *
-     * @param bytes - compressed serialized object of ExecutionPlan
+     * @param bytes - the binary format or compressed serialized object of ExecutionPlan
      * @return ExecutionPlan
      */
     public static ExecutionPlan getExecutionPlanFromBytes(byte[] bytes) {
+        if (ExecutionPlanBinaryFormat.isBinaryFormat(bytes)) {
+            try {
+                return ExecutionPlanBinaryFormat.read(bytes);
+            } catch (IOException | ClassNotFoundException | RuntimeException ex) {
+                logger.error("Failed to read execution plan from byte[]. Error: ", ex);
+                throw new RuntimeException("Failed to read execution plan from byte[]. Error: ", ex);
+            }
+        }
 
         try (ByteArrayInputStream is = new ByteArrayInputStream(bytes);
              BufferedInputStream bis = new BufferedInputStream(is);
@@ -56,7 +67,35 @@ public class ExecutionPlanCompressUtil {
         }
   }
 
+    /**
+     * Writes the ExecutionPlan in the binary format, or as compressed serialized object
+     * when it is a subclass of ExecutionPlan or the legacy format is set
+     *
+     * @param executionPlan - the plan to write
+     * @return the bytes of the plan
+     */
     public static byte[] getBytesFromExecutionPlan(ExecutionPlan executionPlan) {
+        if (!LEGACY_FORMAT && ExecutionPlanBinaryFormat.canWrite(executionPlan)) {
+            try {
+                return ExecutionPlanBinaryFormat.write(executionPlan);
+            } catch (IOException ex) {
+                logger.error("Failed to serialize execution plan. Error: ", ex);
+                throw new RuntimeException("Failed to serialize execution plan. Error: ", ex);
+            }
+        }
+        return getZippedBytesFromExecutionPlan(executionPlan);
+    }
+
+    /**
+     * @param bytes - the bytes of an ExecutionPlan
+     * @return the content hash of the plan - plans with the same hash are equal,
+     * or null when the plan is a compressed serialized object that has no hash
+     */
+    public static String getExecutionPlanHash(byte[] bytes) {
+        return ExecutionPlanBinaryFormat.isBinaryFormat(bytes)? ExecutionPlanBinaryFormat.getHash(bytes): null;
+    }
+
+    static byte[] getZippedBytesFromExecutionPlan(ExecutionPlan executionPlan) {
         ObjectOutputStream oos = null;
         try {
             ByteArrayOutputStream bout = new ByteArrayOutputStream();
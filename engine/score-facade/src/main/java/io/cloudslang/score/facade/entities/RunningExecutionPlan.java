@@ -12,7 +12,6 @@ package io.cloudslang.score.facade.entities;
 
 import io.cloudslang.score.api.ExecutionPlan;
 import io.cloudslang.engine.data.AbstractIdentifiable;
-import org.apache.commons.lang.SerializationUtils;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 
@@ -31,7 +30,7 @@ import javax.persistence.Transient;
  * Time: 9:53 AM
  */
 @Entity
-@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 @Table(name = "OO_RUNNING_EXECUTION_PLANS")
 public class RunningExecutionPlan extends AbstractIdentifiable {
     private static final long serialVersionUID = 3465194293828514413L;
@@ -44,6 +43,10 @@ public class RunningExecutionPlan extends AbstractIdentifiable {
     @Transient
     private ExecutionPlan executionPlan;
 
+    //the content hash of the plan, null for the plans that were written as compressed serialized objects
+    @Column(name = "EXECUTION_PLAN_HASH", length = 64)
+    private String executionPlanHash;
+
     @Column(name = "UUID", nullable = false)
     private String flowUUID;
 
@@ -63,9 +66,20 @@ public class RunningExecutionPlan extends AbstractIdentifiable {
     }
 
     public void setExecutionPlan(ExecutionPlan executionPlan) {
+        setExecutionPlanBytes(ExecutionPlanCompressUtil.getBytesFromExecutionPlan(executionPlan));
+    }
+
+    /**
+     * Sets the plan from bytes that were written by ExecutionPlanCompressUtil, the plan itself is a copy that is read from them
+     */
+    public void setExecutionPlanBytes(byte[] executionPlanBytes) {
+        executionPlanZipped = executionPlanBytes;
+        executionPlanHash = ExecutionPlanCompressUtil.getExecutionPlanHash(executionPlanBytes);
+        executionPlan = ExecutionPlanCompressUtil.getExecutionPlanFromBytes(executionPlanBytes);
+    }
 
-        this.executionPlan = (ExecutionPlan) SerializationUtils.clone(executionPlan);
-        executionPlanZipped = ExecutionPlanCompressUtil.getBytesFromExecutionPlan(this.executionPlan);
+    public String getExecutionPlanHash() {
+        return executionPlanHash;
     }
 
     public String getFlowUUID() {
@@ -0,0 +1,65 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.score.facade.entities;
+
+import io.cloudslang.score.api.ExecutionPlan;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import static io.cloudslang.score.facade.entities.ExecutionPlanCompressUtilTest.createPlan;
+
+public class ExecutionPlanCompressUtilBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(ExecutionPlanCompressUtilBenchmarkTest.class);
+
+    private static final int[] BENCHMARK_STEPS = {10, 1000, 20000};
+
+    /**
+     * Writes and reads plans of different sizes in the legacy format and in the binary format, and reports the average times and sizes.
+     * Every size runs twice and the second pass is reported, after the JIT warmed up.
+     */
+    @Test
+    public void formatBenchmark() {
+        for (int pass = 0; pass < 2 * BENCHMARK_STEPS.length; pass++) {
+            int steps = BENCHMARK_STEPS[pass / 2];
+            ExecutionPlan exePlan = createPlan(steps);
+            int rounds = Math.max(3, 20000 / steps);
+
+            byte[] legacyBytes = null;
+            long startTime = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                legacyBytes = ExecutionPlanCompressUtil.getZippedBytesFromExecutionPlan(exePlan);
+            }
+            long legacyWrite = (System.nanoTime() - startTime) / rounds / 1000;
+            startTime = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                ExecutionPlanCompressUtil.getExecutionPlanFromBytes(legacyBytes);
+            }
+            long legacyRead = (System.nanoTime() - startTime) / rounds / 1000;
+
+            byte[] bytes = null;
+            startTime = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                bytes = ExecutionPlanCompressUtil.getBytesFromExecutionPlan(exePlan);
+            }
+            long binaryWrite = (System.nanoTime() - startTime) / rounds / 1000;
+            startTime = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                ExecutionPlanCompressUtil.getExecutionPlanFromBytes(bytes);
+            }
+            long binaryRead = (System.nanoTime() - startTime) / rounds / 1000;
+
+            if (pass % 2 == 0) continue;
+            logger.info("Plan with " + steps + " steps: legacy write " + legacyWrite + " us, read " + legacyRead + " us, " + legacyBytes.length +
+                    " bytes; binary write " + binaryWrite + " us, read " + binaryRead + " us, " + bytes.length + " bytes");
+        }
+    }
+}
@@ -17,7 +17,14 @@ import junit.framework.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -61,4 +68,136 @@ public class ExecutionPlanCompressUtilTest {
 
         System.out.println("Map values: " + executionPlanAfterStream.getStep(0L).getActionData().get("key"));
     }
+
+    @Test
+    public void testBinaryFormatReadsTheSamePlan() {
+        ExecutionPlan exePlan = createPlan(50);
+        exePlan.getStep(3L).setNavigationData(null);
+        exePlan.getStep(4L).setSplitStep(true);
+
+        byte[] bytes = ExecutionPlanCompressUtil.getBytesFromExecutionPlan(exePlan);
+        Assert.assertTrue(ExecutionPlanBinaryFormat.isBinaryFormat(bytes));
+
+        ExecutionPlan executionPlanAfterStream = ExecutionPlanCompressUtil.getExecutionPlanFromBytes(bytes);
+        Assert.assertEquals(exePlan, executionPlanAfterStream);
+        Assert.assertEquals(exePlan.getSteps(), executionPlanAfterStream.getSteps());
+        Assert.assertEquals(exePlan.getSubflowsUUIDs(), executionPlanAfterStream.getSubflowsUUIDs());
+        Assert.assertTrue(executionPlanAfterStream.getStep(4L).isSplitStep());
+        Assert.assertEquals(new BigDecimal("1.5"), executionPlanAfterStream.getStep(0L).getActionData().get("serialized"));
+        Assert.assertEquals(LinkedHashMap.class, executionPlanAfterStream.getStep(0L).getActionData().get("ordered").getClass());
+    }
+
+    @Test
+    public void testKeysThatCompareEqualAreKept() {
+        ExecutionPlan exePlan = createPlan(1);
+        Map<BigDecimal, String> amounts = new HashMap<>();
+        amounts.put(new BigDecimal("1.0"), "one");
+        amounts.put(new BigDecimal("1.00"), "one too");
+        Map<String, Object> actionData = new HashMap<>();
+        actionData.put("amounts", amounts);
+        exePlan.getStep(0L).setActionData(actionData);
+
+        ExecutionPlan executionPlanAfterStream = ExecutionPlanCompressUtil.getExecutionPlanFromBytes(ExecutionPlanCompressUtil.getBytesFromExecutionPlan(exePlan));
+        Assert.assertEquals(amounts, executionPlanAfterStream.getStep(0L).getActionData().get("amounts"));
+    }
+
+    @Test
+    public void testNullStepsAreReadAsNull() throws Exception {
+        ExecutionPlan exePlan = createPlan(1);
+        Field steps = ExecutionPlan.class.getDeclaredField("steps");
+        steps.setAccessible(true);
+        steps.set(exePlan, null);
+
+        ExecutionPlan executionPlanAfterStream = ExecutionPlanCompressUtil.getExecutionPlanFromBytes(ExecutionPlanCompressUtil.getBytesFromExecutionPlan(exePlan));
+        Assert.assertNull(executionPlanAfterStream.getSteps());
+
+        //an empty plan is still read with its empty steps
+        ExecutionPlan emptyPlan = new ExecutionPlan();
+        Assert.assertEquals(0, ExecutionPlanCompressUtil.getExecutionPlanFromBytes(ExecutionPlanCompressUtil.getBytesFromExecutionPlan(emptyPlan)).getSteps().size());
+    }
+
+    @Test
+    public void testLegacyPlansAreReadable() {
+        ExecutionPlan exePlan = createPlan(5);
+        byte[] legacyBytes = ExecutionPlanCompressUtil.getZippedBytesFromExecutionPlan(exePlan);
+
+        Assert.assertFalse(ExecutionPlanBinaryFormat.isBinaryFormat(legacyBytes));
+        Assert.assertNull(ExecutionPlanCompressUtil.getExecutionPlanHash(legacyBytes));
+        Assert.assertEquals(exePlan, ExecutionPlanCompressUtil.getExecutionPlanFromBytes(legacyBytes));
+    }
+
+    @Test
+    public void testEqualPlansHaveTheSameHash() {
+        ExecutionPlan exePlan = createPlan(20);
+        ExecutionPlan samePlan = createPlan(20);
+        //the same content in a different insertion order
+        Map<String, Object> reversedData = new HashMap<>();
+        List<String> keys = new ArrayList<>(exePlan.getStep(7L).getActionData().keySet());
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            reversedData.put(keys.get(i), exePlan.getStep(7L).getActionData().get(keys.get(i)));
+        }
+        samePlan.getStep(7L).setActionData(reversedData);
+
+        String hash = ExecutionPlanCompressUtil.getExecutionPlanHash(ExecutionPlanCompressUtil.getBytesFromExecutionPlan(exePlan));
+        Assert.assertEquals(64, hash.length());
+        Assert.assertEquals(hash, ExecutionPlanCompressUtil.getExecutionPlanHash(ExecutionPlanCompressUtil.getBytesFromExecutionPlan(samePlan)));
+
+        samePlan.setBeginStep(1L);
+        Assert.assertFalse(hash.equals(ExecutionPlanCompressUtil.getExecutionPlanHash(ExecutionPlanCompressUtil.getBytesFromExecutionPlan(samePlan))));
+    }
+
+    @Test
+    public void testBigPlanIsDeflated() {
+        ExecutionPlan exePlan = createPlan(2000);
+        byte[] bytes = ExecutionPlanCompressUtil.getBytesFromExecutionPlan(exePlan);
+
+        Assert.assertEquals(1, bytes[ExecutionPlanBinaryFormat.MAGIC.length + 1]);
+        Assert.assertEquals(exePlan, ExecutionPlanCompressUtil.getExecutionPlanFromBytes(bytes));
+    }
+
+    @Test
+    public void testSubclassOfPlanIsSerialized() {
+        ExecutionPlan exePlan = new SubExecutionPlan();
+        exePlan.setFlowUuid("sub");
+        byte[] bytes = ExecutionPlanCompressUtil.getBytesFromExecutionPlan(exePlan);
+
+        Assert.assertNull(ExecutionPlanCompressUtil.getExecutionPlanHash(bytes));
+        Assert.assertEquals(SubExecutionPlan.class, ExecutionPlanCompressUtil.getExecutionPlanFromBytes(bytes).getClass());
+    }
+
+    static ExecutionPlan createPlan(int steps) {
+        ExecutionPlan exePlan = new ExecutionPlan();
+        exePlan.setBeginStep(0L);
+        exePlan.setFlowUuid("flow-" + steps);
+        exePlan.setLanguage("afl");
+        exePlan.setName("Test flow");
+        exePlan.setSubflowsUUIDs(new HashSet<>(Arrays.asList("sub1", "sub2", "sub3")));
+        for (long i = 0; i < steps; i++) {
+            Map<String, Object> actionData = new HashMap<>();
+            actionData.put("operation", "operation-" + i);
+            actionData.put("timeout", 300);
+            actionData.put("position", i);
+            actionData.put("enabled", true);
+            actionData.put("inputs", new ArrayList<>(Arrays.asList("host", "port", "user")));
+            Map<String, String> ordered = new LinkedHashMap<>();
+            ordered.put("z", "last");
+            ordered.put("a", "first");
+            actionData.put("ordered", ordered);
+            actionData.put("serialized", new BigDecimal("1.5"));
+            Map<String, Long> navigationData = new HashMap<>();
+            navigationData.put("SUCCESS", i + 1);
+            navigationData.put("FAILURE", -1L);
+
+            ExecutionStep exeStep = new ExecutionStep(i);
+            exeStep.setAction(new ControlActionMetadata("io.cloudslang.Actions", "doAction"));
+            exeStep.setActionData(actionData);
+            exeStep.setNavigation(new ControlActionMetadata("io.cloudslang.Navigations", "navigate"));
+            exeStep.setNavigationData(navigationData);
+            exePlan.addStep(exeStep);
+        }
+        return exePlan;
+    }
+
+    static class SubExecutionPlan extends ExecutionPlan {
+    }
 }
@@ -10,6 +10,7 @@
 
 package io.cloudslang.schema;
 
+import io.cloudslang.engine.cache.EngineCacheMBean;
 import io.cloudslang.engine.node.services.WorkerLockServiceImpl;
 import io.cloudslang.engine.node.services.WorkerNodeServiceImpl;
 import io.cloudslang.engine.node.services.WorkersMBean;
@@ -22,6 +23,7 @@ import io.cloudslang.engine.queue.services.recovery.ExecutionRecoveryServiceImpl
 import io.cloudslang.engine.queue.services.recovery.MessageRecoveryServiceImpl;
 import io.cloudslang.engine.queue.services.recovery.WorkerRecoveryServiceImpl;
 import io.cloudslang.engine.versioning.services.VersionServiceImpl;
+import io.cloudslang.orchestrator.repositories.SuspendedExecutionsJdbcRepositoryImpl;
 import io.cloudslang.orchestrator.services.*;
 import io.cloudslang.engine.partitions.services.PartitionCallback;
 import io.cloudslang.engine.partitions.services.PartitionServiceImpl;
@@ -86,12 +88,15 @@ public class EngineBeanDefinitionParser extends AbstractBeanDefinitionParser {
 		put(SqlInQueryReader.class, null);
 		put(DataBaseDetector.class, null);
 		put(ExecutionQueueRepositoryImpl.class, null);
+		put(SuspendedExecutionsJdbcRepositoryImpl.class, null);
 		put(HiloFactoryBean.class, "scoreHiloFactoryBean");
 		put(WorkersMBean.class, "io.cloudslang.engine.node.services.WorkersMBean");
+		put(EngineCacheMBean.class, "io.cloudslang.engine.cache.EngineCacheMBean");
         put(WorkerDbSupportServiceImpl.class, null);
         put(ScoreDeprecatedImpl.class, null);
         put(ScoreEngineJobsImpl.class,"scoreEngineJobs");
 		put(BusyWorkersServiceImpl.class,"busyWorkersService");
+		put(WorkerNotificationServiceImpl.class,"workerNotificationService");
 		put(MergedConfigurationServiceImpl.class,"MergedConfigurationService");
 	}};
 
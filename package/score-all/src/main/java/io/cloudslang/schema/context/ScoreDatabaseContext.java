@@ -10,6 +10,7 @@
 
 package io.cloudslang.schema.context;
 
+import io.cloudslang.engine.cache.ScoreRegionFactory;
 import io.cloudslang.engine.data.SimpleHiloIdentifierGenerator;
 import org.hibernate.ejb.HibernatePersistence;
 import org.springframework.context.annotation.Bean;
@@ -41,9 +42,15 @@ public class ScoreDatabaseContext {
         Properties props = new Properties();
         props.setProperty("hibernate.format_sql", Boolean.TRUE.toString());
         props.setProperty("hibernate.hbm2ddl.auto", System.getProperty("hibernate.hbm2ddl.auto", "validate"));
-        props.setProperty("hibernate.cache.use_query_cache", Boolean.FALSE.toString());
-        props.setProperty("hibernate.generate_statistics", Boolean.FALSE.toString());
-        props.setProperty("hibernate.cache.use_second_level_cache", Boolean.FALSE.toString());
+        //the second level cache is off unless enabled with a system property of the same name, the query cache follows it
+        //since the running execution plans are found by cacheable queries
+        props.setProperty("hibernate.cache.use_second_level_cache", System.getProperty("hibernate.cache.use_second_level_cache", Boolean.FALSE.toString()));
+        props.setProperty("hibernate.cache.use_query_cache", System.getProperty("hibernate.cache.use_query_cache", props.getProperty("hibernate.cache.use_second_level_cache")));
+        props.setProperty("hibernate.generate_statistics", System.getProperty("hibernate.generate_statistics", Boolean.FALSE.toString()));
+        props.setProperty("hibernate.cache.region.factory_class", System.getProperty("hibernate.cache.region.factory_class", ScoreRegionFactory.class.getName()));
+        props.setProperty(ScoreRegionFactory.MAX_ENTRIES, System.getProperty(ScoreRegionFactory.MAX_ENTRIES, String.valueOf(ScoreRegionFactory.DEFAULT_MAX_ENTRIES)));
+        //only the running execution plans are cached, as read only by their annotation - the cache is local to the engine,
+        //so entities that another engine of the cluster can change, like the partition groups, are never cached
         props.setProperty("hibernate.order_updates", Boolean.TRUE.toString());
         props.setProperty("hibernate.order_inserts", Boolean.TRUE.toString());
         props.setProperty("hibernate.dialect_resolvers", "io.cloudslang.engine.dialects.ScoreDialectResolver");
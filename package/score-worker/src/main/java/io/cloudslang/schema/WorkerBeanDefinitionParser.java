@@ -10,8 +10,10 @@
 
 package io.cloudslang.schema;
 
+import io.cloudslang.score.events.AsyncEventBusImpl;
 import io.cloudslang.score.events.EventBusImpl;
 import io.cloudslang.worker.execution.reflection.ReflectionAdapterImpl;
+import io.cloudslang.worker.execution.services.ExecutionPlanCacheImpl;
 import io.cloudslang.worker.execution.services.ExecutionServiceImpl;
 import io.cloudslang.worker.execution.services.SessionDataHandlerImpl;
 import io.cloudslang.worker.management.WorkerConfigurationServiceImpl;
@@ -41,10 +43,10 @@ public class WorkerBeanDefinitionParser extends AbstractBeanDefinitionParser {
 
 	private Map<Class<?>,String> beans = new HashMap<Class<?>,String>(){{
 		put(WorkerManager.class, "workerManager");
-		put(EventBusImpl.class, null);
+		put(Boolean.getBoolean(AsyncEventBusImpl.ASYNC)? AsyncEventBusImpl.class: EventBusImpl.class, null);
 		put(ExecutionServiceImpl.class, "agent");
+		put(ExecutionPlanCacheImpl.class, "executionPlanCache");
 		put(InBuffer.class, null);
-		put(OutboundBufferImpl.class, "outBuffer");
 		put(RetryTemplate.class, null);
 		put(SimpleExecutionRunnableFactory.class, null);
 		put(WorkerManagerMBean.class, "io.cloudslang.worker.management.services.WorkerManagerMBean");
@@ -115,6 +117,13 @@ public class WorkerBeanDefinitionParser extends AbstractBeanDefinitionParser {
 		}
 
 		registerWorkerVersionService(element, parserContext);
+		registerOutboundBuffer(parserContext);
+	}
+
+	private static void registerOutboundBuffer(ParserContext parserContext){
+		//the striped buffer lets the execution threads put messages without contending on a single lock
+		Class<?> outBufferClass = Boolean.getBoolean("out.buffer.striped")? StripedOutboundBufferImpl.class: OutboundBufferImpl.class;
+		new BeanRegistrator(parserContext).NAME("outBuffer").CLASS(outBufferClass).register();
 	}
 
 	private static void registerWorkerVersionService(Element element, ParserContext parserContext){
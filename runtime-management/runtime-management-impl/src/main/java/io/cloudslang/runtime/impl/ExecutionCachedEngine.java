@@ -13,10 +13,21 @@ package io.cloudslang.runtime.impl;
 import io.cloudslang.dependency.api.services.DependencyService;
 
 import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -24,51 +35,224 @@ import java.util.concurrent.locks.ReentrantLock;
  * Created by Genadi Rabinovich, genadi@hpe.com on 05/05/2016.
  */
 public abstract class ExecutionCachedEngine<T extends Executor> extends ExecutionEngine {
+    //closes the evicted executors so the allocating threads do not wait for it
+    private static final ExecutorService EXECUTORS_CLOSER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "evicted-executors-closer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     private final Logger logger = Logger.getLogger(getClass());
     // key --> dependencies concatenated
-    // value --> classloader/pythoninterpreter which was build with classpath from these dependencies
+    // value --> the future of the classloader/pythoninterpreter which is built with classpath from these dependencies
     // if we reached the limit of cache we will release the least recently used
-    private final Map<String, T> executors = new LinkedHashMap<>();
+    // the map is access ordered - the least recently used executor is the first
+    private final Map<String, CachedExecutor> executors = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight = 0;
 
+    //guards the map only, the executors are created outside of the lock
     private final Lock lock = new ReentrantLock();
 
     public T allocateExecutor(Set<String> dependencies) {
         String dependenciesKey = generatedDependenciesKey(dependencies);
 
-        T executor;
-        T candidateForRemove = null;
+        while (true) {
+            CachedExecutor cachedExecutor;
+            boolean load = false;
+            List<CachedExecutor> candidatesForRemove = Collections.emptyList();
+            lock.lock();
+            try {
+                cachedExecutor = executors.get(dependenciesKey);
+                if (cachedExecutor == null) {
+                    cachedExecutor = new CachedExecutor(dependencies);
+                    executors.put(dependenciesKey, cachedExecutor);
+                    candidatesForRemove = removeLeastRecentlyUsed();
+                    load = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            closeExecutors(candidatesForRemove);
+
+            if (load) {
+                loadExecutor(dependenciesKey, cachedExecutor);
+            }
+            T executor = getExecutor(dependenciesKey, cachedExecutor);
+
+            lock.lock();
+            try {
+                // the executor may be evicted while it was loaded - then it is already closed or about to be closed
+                if (executors.get(dependenciesKey) == cachedExecutor) {
+                    executor.allocate();
+                    return executor;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    protected void releaseExecutor(T executor) {
+        executor.release();
+    }
+
+    /**
+     * Closes an executor that was removed from the cache once it is loaded
+     */
+    protected void closeEvictedExecutor(final Future<T> executor) {
+        EXECUTORS_CLOSER.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.get().close();
+                } catch (ExecutionException e) {
+                    // the executor failed to load, nothing to close
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to close evicted executor", e);
+                }
+            }
+        });
+    }
+
+    private void loadExecutor(String dependenciesKey, CachedExecutor cachedExecutor) {
+        cachedExecutor.run();
+        if (!cachedExecutor.isLoaded()) {
+            return;
+        }
+        List<CachedExecutor> candidatesForRemove;
         lock.lock();
         try {
-            executor = executors.get(dependenciesKey);
-            if (executor == null) {
-                int cacheSize = getCacheSize();
-                if (executors.size() == cacheSize) {
-                    logger.info("Reached cached executors limit[" + cacheSize + "], replacing LRU executor.");
-                    Iterator<Map.Entry<String, T>> iterator = executors.entrySet().iterator();
-                    candidateForRemove = iterator.next().getValue();
-                    iterator.remove();
-                }
-                executor = createNewExecutor(getDependencyService().getDependencies(dependencies));
-            } else {
-                // remove it and place at the end - most recently used
-                executors.remove(dependenciesKey);
+            if (executors.get(dependenciesKey) != cachedExecutor) {
+                return;
             }
-            executor.allocate();
-            executors.put(dependenciesKey, executor);
+            totalWeight += cachedExecutor.getWeight();
+            cachedExecutor.weighed = true;
+            candidatesForRemove = removeLeastRecentlyUsed();
         } finally {
             lock.unlock();
         }
-        if(candidateForRemove != null) {
-            candidateForRemove.close();
+        closeExecutors(candidatesForRemove);
+    }
+
+    private T getExecutor(String dependenciesKey, CachedExecutor cachedExecutor) {
+        try {
+            return cachedExecutor.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for executor of dependencies [" + dependenciesKey + "]", e);
+        } catch (ExecutionException e) {
+            // the next allocation will try to load it again
+            lock.lock();
+            try {
+                if (executors.get(dependenciesKey) == cachedExecutor) {
+                    executors.remove(dependenciesKey);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    //must be called under the lock, keeps the most recently used executor even if it is heavier than the limit
+    private List<CachedExecutor> removeLeastRecentlyUsed() {
+        int cacheSize = getCacheSize();
+        long cacheWeight = getCacheWeight();
+        List<CachedExecutor> candidatesForRemove = Collections.emptyList();
+        Iterator<CachedExecutor> iterator = executors.values().iterator();
+        while ((executors.size() > cacheSize || (cacheWeight > 0 && totalWeight > cacheWeight)) && executors.size() > 1) {
+            CachedExecutor candidateForRemove = iterator.next();
+            iterator.remove();
+            if (candidateForRemove.weighed) {
+                totalWeight -= candidateForRemove.getWeight();
+            }
+            if (candidatesForRemove.isEmpty()) {
+                candidatesForRemove = new ArrayList<>();
+                logger.info("Reached cached executors limit[" + cacheSize + (cacheWeight > 0 ? ", weight " + cacheWeight : "") +
+                        "], replacing LRU executor.");
+            }
+            candidatesForRemove.add(candidateForRemove);
         }
-        return executor;
+        return candidatesForRemove;
     }
 
-    protected void releaseExecutor(T executor) {
-        executor.release();
+    private void closeExecutors(List<CachedExecutor> candidatesForRemove) {
+        for (CachedExecutor candidateForRemove : candidatesForRemove) {
+            closeEvictedExecutor(candidateForRemove);
+        }
+    }
+
+    /**
+     * The max total weight of the cached executors, 0 for no limit
+     */
+    protected long getCacheWeight() {
+        return 0;
+    }
+
+    /**
+     * The weight of an executor in the cache - by default the number of its dependency files
+     */
+    protected long getExecutorWeight(Set<String> filePaths) {
+        return Math.max(filePaths.size(), 1);
     }
 
     protected abstract DependencyService getDependencyService();
     protected abstract int getCacheSize();
     protected abstract T createNewExecutor(Set<String> filePaths);
+
+    /**
+     * Loads the executor once, the threads that need it meanwhile wait for it
+     */
+    private class CachedExecutor extends FutureTask<T> {
+        private final ExecutorLoader loader;
+        //the weight is counted in the total weight, guarded by the cache lock
+        private boolean weighed = false;
+
+        CachedExecutor(Set<String> dependencies) {
+            this(new ExecutorLoader(dependencies));
+        }
+
+        private CachedExecutor(ExecutorLoader loader) {
+            super(loader);
+            this.loader = loader;
+        }
+
+        boolean isLoaded() {
+            return loader.loaded;
+        }
+
+        long getWeight() {
+            return loader.weight;
+        }
+    }
+
+    private class ExecutorLoader implements Callable<T> {
+        private final Set<String> dependencies;
+        private long weight;
+        private volatile boolean loaded = false;
+
+        ExecutorLoader(Set<String> dependencies) {
+            this.dependencies = dependencies;
+        }
+
+        @Override
+        public T call() {
+            Set<String> filePaths = getDependencyService().getDependencies(dependencies);
+            T executor = createNewExecutor(filePaths);
+            weight = getExecutorWeight(filePaths);
+            loaded = true;
+            return executor;
+        }
+    }
 }
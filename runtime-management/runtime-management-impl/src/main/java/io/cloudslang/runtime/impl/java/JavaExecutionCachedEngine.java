@@ -29,6 +29,10 @@ public class JavaExecutionCachedEngine extends ExecutionCachedEngine<JavaExecuto
     @Value("#{systemProperties['" + JavaExecutionConfigurationConsts.JAVA_EXECUTOR_CACHE_SIZE + "'] != null ? systemProperties['" + JavaExecutionConfigurationConsts.JAVA_EXECUTOR_CACHE_SIZE + "'] : " + JavaExecutionConfigurationConsts.JAVA_EXECUTOR_CACHE_DEFAULT_SIZE + "}")
     private int cacheSize;
 
+    //the max number of dependency files of the cached executors, 0 for no limit
+    @Value("#{systemProperties['" + JavaExecutionConfigurationConsts.JAVA_EXECUTOR_CACHE_WEIGHT + "'] != null ? systemProperties['" + JavaExecutionConfigurationConsts.JAVA_EXECUTOR_CACHE_WEIGHT + "'] : 0}")
+    private long cacheWeight;
+
     @Override
     public Object execute(String dependency, String className, String methodName, JavaExecutionParametersProvider parametersProvider) {
         JavaExecutor executor = allocateExecutor((dependency == null || dependency.isEmpty()) ? Sets.<String>newHashSet() :
@@ -50,6 +54,11 @@ public class JavaExecutionCachedEngine extends ExecutionCachedEngine<JavaExecuto
         return cacheSize;
     }
 
+    @Override
+    protected long getCacheWeight() {
+        return cacheWeight;
+    }
+
     @Override
     protected JavaExecutor createNewExecutor(Set<String> filePaths) {
         return new JavaExecutor(filePaths);
@@ -7,4 +7,5 @@ public interface JavaExecutionConfigurationConsts {
     String JAVA_EXECUTOR_ENGINE = "java.executor.engine";
     String JAVA_EXECUTOR_CACHE_SIZE = "java.executor.cache.size";
     int JAVA_EXECUTOR_CACHE_DEFAULT_SIZE = 200;
+    String JAVA_EXECUTOR_CACHE_WEIGHT = "java.executor.cache.weight";
 }
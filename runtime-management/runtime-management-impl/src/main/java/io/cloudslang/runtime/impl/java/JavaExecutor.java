@@ -11,6 +11,7 @@
 package io.cloudslang.runtime.impl.java;
 
 import io.cloudslang.runtime.api.java.JavaExecutionParametersProvider;
+import io.cloudslang.runtime.api.java.StatelessAction;
 import io.cloudslang.runtime.impl.Executor;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.DirectoryFileFilter;
@@ -19,12 +20,20 @@ import org.apache.log4j.Logger;
 import org.python.google.common.collect.Sets;
 
 import java.io.File;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Created by Genadi Rabinovich, genadi@hpe.com on 05/05/2016.
@@ -66,6 +75,9 @@ public class JavaExecutor implements Executor {
 
     private final ClassLoader classLoader;
 
+    //class name and method name --> the resolved action method, lives as long as the classloader
+    private final ConcurrentMap<String, ActionMethod> actionMethods = new ConcurrentHashMap<>();
+
     JavaExecutor(Set<String> filePaths) {
         logger.info("Creating java classloader with [" + filePaths.size() + "] dependencies [" + filePaths + "]");
         if(!filePaths.isEmpty()) {
@@ -88,9 +100,8 @@ public class JavaExecutor implements Executor {
         ClassLoader origCL = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(classLoader);
-            Class actionClass = getActionClass(className);
-            Method executionMethod = getMethodByName(actionClass, methodName);
-            return executionMethod.invoke(actionClass.newInstance(), parametersProvider.getExecutionParameters(executionMethod));
+            ActionMethod actionMethod = getActionMethod(className, methodName);
+            return actionMethod.invoke(parametersProvider.getExecutionParameters(actionMethod.method));
         } catch (Exception e) {
             throw new RuntimeException("Method [" + methodName + "] invocation of class [" + className + "] failed!!!!", e);
         } finally {
@@ -98,6 +109,21 @@ public class JavaExecutor implements Executor {
         }
     }
 
+    private ActionMethod getActionMethod(String className, String methodName) throws Exception {
+        String key = className + '#' + methodName;
+        ActionMethod actionMethod = actionMethods.get(key);
+        if (actionMethod == null) {
+            Class actionClass = getActionClass(className);
+            actionMethod = new ActionMethod(actionClass, getMethodByName(actionClass, methodName));
+            //resolving the same method twice is harmless, the first one wins
+            ActionMethod existingActionMethod = actionMethods.putIfAbsent(key, actionMethod);
+            if (existingActionMethod != null) {
+                actionMethod = existingActionMethod;
+            }
+        }
+        return actionMethod;
+    }
+
     private Class getActionClass(String className) {
         Class actionClass;
         try {
@@ -124,6 +150,73 @@ public class JavaExecutor implements Executor {
 
     @Override
     public void release() {}
+
     @Override
-    public void close() {}
+    public void close() {
+        actionMethods.clear();
+    }
+
+    /**
+     * An action method with the handle that invokes it and the action instance if the action class is stateless
+     */
+    private static class ActionMethod {
+        private final Class actionClass;
+        private final Method method;
+        //(Object instance, Object[] parameters)Object, null if the method is not accessible through a handle
+        private final MethodHandle handle;
+        private final Object statelessInstance;
+
+        ActionMethod(Class actionClass, Method method) throws Exception {
+            this.actionClass = actionClass;
+            this.method = method;
+            this.handle = method == null ? null : createHandle(method);
+            this.statelessInstance = isStateless(actionClass) ? actionClass.newInstance() : null;
+        }
+
+        Object invoke(Object[] parameters) throws Exception {
+            Object instance = statelessInstance != null ? statelessInstance : actionClass.newInstance();
+            if (handle == null) {
+                return method.invoke(instance, parameters);
+            }
+            if (parameters.length != method.getParameterTypes().length) {
+                throw new IllegalArgumentException("wrong number of arguments");
+            }
+            try {
+                return (Object) handle.invokeExact(instance, parameters);
+            } catch (Throwable t) {
+                //same as the reflective invocation
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        private static MethodHandle createHandle(Method method) {
+            MethodHandle handle;
+            try {
+                //a varargs method gets its array as is, like in the reflective invocation
+                handle = MethodHandles.publicLookup().unreflect(method).asFixedArity();
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+            int parametersCount = method.getParameterTypes().length;
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle.asType(MethodType.genericMethodType(parametersCount)), 0, Object.class);
+            } else {
+                handle = handle.asType(MethodType.genericMethodType(parametersCount + 1));
+            }
+            return handle.asSpreader(Object[].class, parametersCount);
+        }
+
+        //the classloader of the action dependencies can load its own copy of the annotation, which is the same type by name
+        private static boolean isStateless(Class<?> actionClass) {
+            if (actionClass.isAnnotationPresent(StatelessAction.class)) {
+                return true;
+            }
+            for (Annotation annotation : actionClass.getAnnotations()) {
+                if (StatelessAction.class.getName().equals(annotation.annotationType().getName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.runtime.impl.python;
+
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
+import org.python.core.PyCode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of compiled python code keyed by the script text.
+ * The compiled code does not depend on the interpreter that runs it, so a single cache is shared by all the python executors.
+ * A cache of size 0 compiles the script on every call.
+ */
+public class PythonCompiledCodeCache {
+    private static final String FILE_NAME = "<string>";
+
+    private final CompiledCodes execCodes;
+    private final CompiledCodes evalCodes;
+
+    public PythonCompiledCodeCache(int maxSize) {
+        execCodes = new CompiledCodes(maxSize);
+        evalCodes = new CompiledCodes(maxSize);
+    }
+
+    public PyCode getExecCode(String script) {
+        return getCode(execCodes, script, CompileMode.exec);
+    }
+
+    public PyCode getEvalCode(String expression) {
+        return getCode(evalCodes, expression, CompileMode.eval);
+    }
+
+    //a script can be compiled twice by concurrent callers - the second result replaces the first one
+    private PyCode getCode(CompiledCodes codes, String script, CompileMode mode) {
+        PyCode code = codes.getCode(script);
+        if (code == null) {
+            code = Py.compile_flags(script, FILE_NAME, mode, new CompilerFlags());
+            codes.putCode(script, code);
+        }
+        return code;
+    }
+
+    public long getHitCount() {
+        return execCodes.getHitCount() + evalCodes.getHitCount();
+    }
+
+    public long getMissCount() {
+        return execCodes.getMissCount() + evalCodes.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return execCodes.getEvictionCount() + evalCodes.getEvictionCount();
+    }
+
+    // the map is access ordered - the least recently used code is the first and is removed once the map is full
+    // the map is changed by get as well, so every access is guarded by the map, the compilation is done outside of it
+    private static class CompiledCodes extends LinkedHashMap<String, PyCode> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+        private long hitCount;
+        private long missCount;
+        private long evictionCount;
+
+        CompiledCodes(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        synchronized PyCode getCode(String script) {
+            PyCode code = get(script);
+            if (code == null) {
+                missCount++;
+            } else {
+                hitCount++;
+            }
+            return code;
+        }
+
+        synchronized void putCode(String script, PyCode code) {
+            put(script, code);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PyCode> eldest) {
+            if (size() > maxSize) {
+                evictionCount++;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized long getHitCount() {
+            return hitCount;
+        }
+
+        synchronized long getMissCount() {
+            return missCount;
+        }
+
+        synchronized long getEvictionCount() {
+            return evictionCount;
+        }
+    }
+}
@@ -32,6 +32,10 @@ public class PythonExecutionCachedEngine extends ExecutionCachedEngine<PythonExe
     @Value("#{systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_SIZE + "'] != null ? systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_SIZE + "'] : " + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_DEFAULT_SIZE + "}")
     private int cacheSize;
 
+    //the max number of dependency files of the cached executors, 0 for no limit
+    @Value("#{systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_WEIGHT + "'] != null ? systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_WEIGHT + "'] : 0}")
+    private long cacheWeight;
+
     @Override
     public PythonExecutionResult exec(Set<String> dependencies, String script, Map<String, Serializable> vars) {
         PythonExecutor executor = allocateExecutor(dependencies);
@@ -62,6 +66,11 @@ public class PythonExecutionCachedEngine extends ExecutionCachedEngine<PythonExe
         return cacheSize;
     }
 
+    @Override
+    protected long getCacheWeight() {
+        return cacheWeight;
+    }
+
     @Override
     protected PythonExecutor createNewExecutor(Set<String> filePaths) {
         return new PythonExecutor(filePaths);
@@ -7,4 +7,14 @@ public class PythonExecutionConfigurationConsts {
     public static final String PYTHON_EXECUTOR_ENGINE = "python.executor.engine";
     public static final String PYTHON_EXECUTOR_CACHE_SIZE = "python.executor.cache.size";
     public static final int PYTHON_EXECUTOR_CACHE_DEFAULT_SIZE = 200;
+    public static final String PYTHON_EXECUTOR_CACHE_WEIGHT = "python.executor.cache.weight";
+    public static final String PYTHON_COMPILED_CODE_CACHE_SIZE = "python.compiled.code.cache.size";
+    public static final int PYTHON_COMPILED_CODE_CACHE_DEFAULT_SIZE = 10000;
+    public static final String PYTHON_EXECUTOR_POOL_MIN_SIZE = "python.executor.pool.minSize";
+    public static final int PYTHON_EXECUTOR_POOL_DEFAULT_MIN_SIZE = 1;
+    public static final String PYTHON_EXECUTOR_POOL_MAX_SIZE = "python.executor.pool.maxSize";
+    public static final int PYTHON_EXECUTOR_POOL_DEFAULT_MAX_SIZE = 8;
+    public static final String PYTHON_EXECUTOR_POOL_IDLE_TIMEOUT = "python.executor.pool.idleTimeoutMillis";
+    public static final long PYTHON_EXECUTOR_POOL_DEFAULT_IDLE_TIMEOUT = 300000L;
+    public static final String PYTHON_EXECUTOR_POOL_WARM_UP_MODULES = "python.executor.pool.warmUpModules";
 }
@@ -33,7 +33,11 @@ public class PythonExecutionEngineConfiguration {
     PythonExecutionEngine pythonExecutionEngine() {
         String noCacheEngine = PythonExecutionNotCachedEngine.class.getSimpleName();
         String cacheEngine = PythonExecutionCachedEngine.class.getSimpleName();
-        return System.getProperty(PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_ENGINE, cacheEngine).equals(noCacheEngine) ?
-                new PythonExecutionNotCachedEngine() : new PythonExecutionCachedEngine();
+        String poolEngine = PythonExecutionPooledEngine.class.getSimpleName();
+        String engine = System.getProperty(PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_ENGINE, cacheEngine);
+        if (engine.equals(noCacheEngine)) {
+            return new PythonExecutionNotCachedEngine();
+        }
+        return engine.equals(poolEngine) ? new PythonExecutionPooledEngine() : new PythonExecutionCachedEngine();
     }
 }
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.runtime.impl.python;
+
+import io.cloudslang.dependency.api.services.DependencyService;
+import io.cloudslang.runtime.api.python.PythonEvaluationResult;
+import io.cloudslang.runtime.api.python.PythonExecutionResult;
+import io.cloudslang.runtime.impl.ExecutionCachedEngine;
+import org.python.google.common.collect.Sets;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches a pool of python executors per set of dependencies, so concurrent executions of the same dependencies
+ * run on different interpreters instead of sharing one.
+ */
+public class PythonExecutionPooledEngine extends ExecutionCachedEngine<PythonExecutorPool> implements PythonExecutionEngine {
+    @Autowired
+    private DependencyService dependencyService;
+
+    @Value("#{systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_SIZE + "'] != null ? systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_SIZE + "'] : " + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_DEFAULT_SIZE + "}")
+    private int cacheSize;
+
+    //the max number of dependency files of the cached executors, 0 for no limit
+    @Value("#{systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_WEIGHT + "'] != null ? systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_CACHE_WEIGHT + "'] : 0}")
+    private long cacheWeight;
+
+    @Value("#{systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_MIN_SIZE + "'] != null ? systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_MIN_SIZE + "'] : " + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_DEFAULT_MIN_SIZE + "}")
+    private int poolMinSize;
+
+    @Value("#{systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_MAX_SIZE + "'] != null ? systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_MAX_SIZE + "'] : " + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_DEFAULT_MAX_SIZE + "}")
+    private int poolMaxSize;
+
+    @Value("#{systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_IDLE_TIMEOUT + "'] != null ? systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_IDLE_TIMEOUT + "'] : " + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_DEFAULT_IDLE_TIMEOUT + "}")
+    private long poolIdleTimeout;
+
+    //comma separated modules to import when an interpreter is created
+    @Value("#{systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_WARM_UP_MODULES + "'] != null ? systemProperties['" + PythonExecutionConfigurationConsts.PYTHON_EXECUTOR_POOL_WARM_UP_MODULES + "'] : ''}")
+    private String poolWarmUpModules;
+
+    @Override
+    public PythonExecutionResult exec(Set<String> dependencies, String script, Map<String, Serializable> vars) {
+        PythonExecutorPool pool = allocateExecutor(dependencies);
+        PythonExecutor executor = pool.borrowExecutor();
+        try {
+            return executor.exec(script, vars);
+        } finally {
+            pool.returnExecutor(executor);
+        }
+    }
+
+    @Override
+    public PythonEvaluationResult eval(String prepareEnvironmentScript, String script, Map<String, Serializable> vars) {
+        PythonExecutorPool pool = allocateExecutor(Sets.<String>newHashSet());
+        PythonExecutor executor = pool.borrowExecutor();
+        try {
+            return executor.eval(prepareEnvironmentScript, script, vars);
+        } finally {
+            pool.returnExecutor(executor);
+        }
+    }
+
+    @Override
+    protected DependencyService getDependencyService() {
+        return dependencyService;
+    }
+
+    @Override
+    protected int getCacheSize() {
+        return cacheSize;
+    }
+
+    @Override
+    protected long getCacheWeight() {
+        return cacheWeight;
+    }
+
+    @Override
+    protected PythonExecutorPool createNewExecutor(Set<String> filePaths) {
+        return new PythonExecutorPool(filePaths, poolMinSize, poolMaxSize, poolIdleTimeout, Arrays.asList(poolWarmUpModules.split(",")));
+    }
+}
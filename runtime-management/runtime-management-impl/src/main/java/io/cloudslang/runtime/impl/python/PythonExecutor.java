@@ -35,6 +35,10 @@ public class PythonExecutor implements Executor {
 
     private static final PythonInterpreter GLOBAL_INTERPRETER = new ThreadSafePythonInterpreter(null);
 
+    private static final PythonCompiledCodeCache COMPILED_CODE_CACHE = new PythonCompiledCodeCache(
+            Integer.getInteger(PythonExecutionConfigurationConsts.PYTHON_COMPILED_CODE_CACHE_SIZE,
+                    PythonExecutionConfigurationConsts.PYTHON_COMPILED_CODE_CACHE_DEFAULT_SIZE));
+
     /**
      * There is an issue in loaded environment - existing python module not found in PySystem.modules.table
      * although it exists in the table.
@@ -49,6 +53,11 @@ public class PythonExecutor implements Executor {
 
     private final PythonInterpreter interpreter;
 
+    private final PythonCompiledCodeCache compiledCodeCache;
+
+    //the executor does not share the global interpreter even when it has no dependencies
+    private final boolean privateInterpreter;
+
     private final Lock allocationLock = new ReentrantLock();
     private int allocations = 0;
     //Executor marked to be actuallyClosed. Executor may be still in use thus we don't close it immediately
@@ -63,10 +72,24 @@ public class PythonExecutor implements Executor {
     }
 
     public PythonExecutor(Set<String> dependencies) {
+        this(dependencies, COMPILED_CODE_CACHE);
+    }
+
+    public PythonExecutor(Set<String> dependencies, PythonCompiledCodeCache compiledCodeCache) {
+        this(dependencies, compiledCodeCache, false);
+    }
+
+    public PythonExecutor(Set<String> dependencies, PythonCompiledCodeCache compiledCodeCache, boolean privateInterpreter) {
         this.dependencies = dependencies;
+        this.compiledCodeCache = compiledCodeCache;
+        this.privateInterpreter = privateInterpreter;
         interpreter = initInterpreter(dependencies);
     }
 
+    public static PythonCompiledCodeCache getCompiledCodeCache() {
+        return COMPILED_CODE_CACHE;
+    }
+
     protected PythonInterpreter initInterpreter(Set<String> dependencies) {
         logger.info("Creating python interpreter with [" + dependencies.size() + "] dependencies [" + dependencies + "]");
         if(!dependencies.isEmpty()) {
@@ -76,6 +99,12 @@ public class PythonExecutor implements Executor {
             }
             return new ThreadSafePythonInterpreter(systemState);
         }
+        if(privateInterpreter) {
+            PythonInterpreter interpreter = new ThreadSafePythonInterpreter(new PySystemState());
+            //same as for the global interpreter
+            interpreter.exec("import io");
+            return interpreter;
+        }
         return GLOBAL_INTERPRETER;
     }
 
@@ -111,7 +140,7 @@ public class PythonExecutor implements Executor {
     }
 
     private PythonExecutionResult exec(String script) {
-        interpreter.exec(script);
+        interpreter.exec(compiledCodeCache.getExecCode(script));
         Iterator<PyObject> localsIterator = interpreter.getLocals().asIterable().iterator();
         Map<String, Serializable> returnValue = new HashMap<>();
         while (localsIterator.hasNext()) {
@@ -180,9 +209,9 @@ public class PythonExecutor implements Executor {
         }
 
         if(prepareEnvironmentScript != null && !prepareEnvironmentScript.isEmpty()) {
-            interpreter.exec(prepareEnvironmentScript);
+            interpreter.exec(compiledCodeCache.getExecCode(prepareEnvironmentScript));
         }
-        PyObject evalResultAsPyObject = interpreter.eval(script);
+        PyObject evalResultAsPyObject = interpreter.eval(compiledCodeCache.getEvalCode(script));
         Serializable evalResult;
         evalResult = resolveJythonObjectToJavaEval(evalResultAsPyObject, script);
         return evalResult;
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.runtime.impl.python;
+
+import io.cloudslang.runtime.impl.Executor;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of python executors for one set of dependencies.
+ * Every executor has its own interpreter and is used by one thread at a time, so the threads do not share the interpreter.
+ * The pool grows on demand up to its max size and closes the executors that stay idle longer than the idle timeout,
+ * keeping at least its min size.
+ */
+public class PythonExecutorPool implements Executor {
+    private static final Logger logger = Logger.getLogger(PythonExecutorPool.class);
+
+    private final Set<String> dependencies;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeout;
+    private final String warmUpScript;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition executorReturned = lock.newCondition();
+    //most recently returned first
+    private final ArrayDeque<IdleExecutor> idleExecutors = new ArrayDeque<>();
+    private int size = 0;
+    private boolean closed = false;
+
+    public PythonExecutorPool(Set<String> dependencies, int minSize, int maxSize, long idleTimeout, List<String> warmUpModules) {
+        this.dependencies = dependencies;
+        this.maxSize = Math.max(maxSize, 1);
+        this.minSize = Math.min(minSize, this.maxSize);
+        this.idleTimeout = idleTimeout;
+        this.warmUpScript = createWarmUpScript(warmUpModules);
+        for (int i = 0; i < this.minSize; i++) {
+            idleExecutors.addLast(new IdleExecutor(createExecutor()));
+            size++;
+        }
+    }
+
+    public PythonExecutor borrowExecutor() {
+        lock.lock();
+        try {
+            while (idleExecutors.isEmpty() && size >= maxSize) {
+                executorReturned.awaitUninterruptibly();
+            }
+            if (!idleExecutors.isEmpty()) {
+                return idleExecutors.pollFirst().executor;
+            }
+            size++;
+        } finally {
+            lock.unlock();
+        }
+        //the interpreter is created outside of the lock
+        try {
+            return createExecutor();
+        } catch (RuntimeException | Error e) {
+            lock.lock();
+            try {
+                size--;
+                executorReturned.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    public void returnExecutor(PythonExecutor executor) {
+        List<PythonExecutor> executorsToClose = new ArrayList<>();
+        lock.lock();
+        try {
+            if (closed) {
+                size--;
+                executorsToClose.add(executor);
+            } else {
+                idleExecutors.addFirst(new IdleExecutor(executor));
+                executorsToClose.addAll(removeExpiredExecutors());
+            }
+            executorReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+        closeExecutors(executorsToClose);
+    }
+
+    public int getSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //the pool tracks its executors when they are borrowed and returned
+    @Override
+    public void allocate() {
+    }
+
+    @Override
+    public void release() {
+    }
+
+    //the idle executors are closed now, the borrowed ones when they are returned
+    @Override
+    public void close() {
+        List<PythonExecutor> executorsToClose = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            for (IdleExecutor idleExecutor : idleExecutors) {
+                executorsToClose.add(idleExecutor.executor);
+            }
+            size -= idleExecutors.size();
+            idleExecutors.clear();
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Closing python executors pool for dependencies [" + dependencies + "]");
+        closeExecutors(executorsToClose);
+    }
+
+    //must be called under the lock, the least recently returned executors are at the end
+    private List<PythonExecutor> removeExpiredExecutors() {
+        long expirationTime = System.currentTimeMillis() - idleTimeout;
+        List<PythonExecutor> expiredExecutors = Collections.emptyList();
+        Iterator<IdleExecutor> iterator = idleExecutors.descendingIterator();
+        while (size > minSize && iterator.hasNext()) {
+            IdleExecutor idleExecutor = iterator.next();
+            if (idleExecutor.idleSince > expirationTime) {
+                break;
+            }
+            iterator.remove();
+            size--;
+            if (expiredExecutors.isEmpty()) {
+                expiredExecutors = new ArrayList<>();
+            }
+            expiredExecutors.add(idleExecutor.executor);
+        }
+        return expiredExecutors;
+    }
+
+    private void closeExecutors(List<PythonExecutor> executors) {
+        for (PythonExecutor executor : executors) {
+            executor.close();
+        }
+    }
+
+    private PythonExecutor createExecutor() {
+        PythonExecutor executor = new PythonExecutor(dependencies, PythonExecutor.getCompiledCodeCache(), true);
+        if (warmUpScript != null) {
+            try {
+                executor.exec(warmUpScript, Collections.<String, Serializable>emptyMap());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to warm up python executor for dependencies [" + dependencies + "]", e);
+            }
+        }
+        return executor;
+    }
+
+    private String createWarmUpScript(List<String> modules) {
+        StringBuilder sb = new StringBuilder();
+        for (String module : modules) {
+            if (StringUtils.isNotBlank(module)) {
+                sb.append("import ").append(module.trim()).append("\n");
+            }
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
+    private static class IdleExecutor {
+        private final PythonExecutor executor;
+        private final long idleSince = System.currentTimeMillis();
+
+        IdleExecutor(PythonExecutor executor) {
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.cloudslang.runtime.impl;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.cloudslang.runtime.impl.ExecutionCachedEngineTest.COLD_DEPENDENCIES;
+import static io.cloudslang.runtime.impl.ExecutionCachedEngineTest.WARM_DEPENDENCIES;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutionCachedEngineBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(ExecutionCachedEngineBenchmarkTest.class);
+
+    private static final int ALLOCATIONS = 1000;
+
+    /**
+     * Reports how long the allocations of a cached executor take while another executor is being loaded
+     */
+    @Test(timeout = 60000)
+    public void warmAllocationsBenchmark() throws InterruptedException {
+        final ExecutionCachedEngineTest.TestEngine engine = new ExecutionCachedEngineTest.TestEngine(10, 0);
+        engine.allocateExecutor(WARM_DEPENDENCIES);
+        engine.block(COLD_DEPENDENCIES);
+        Thread coldThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                engine.allocateExecutor(COLD_DEPENDENCIES);
+            }
+        });
+        coldThread.start();
+        assertTrue(engine.loadStarted.await(5, TimeUnit.SECONDS));
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ALLOCATIONS; i++) {
+            engine.allocateExecutor(WARM_DEPENDENCIES);
+        }
+        long warmTime = System.nanoTime() - startTime;
+        assertTrue(coldThread.isAlive());
+        logger.info(ALLOCATIONS + " warm allocations during a cold load took " + warmTime / 1000 + " us");
+
+        engine.unblock();
+        coldThread.join();
+    }
+}
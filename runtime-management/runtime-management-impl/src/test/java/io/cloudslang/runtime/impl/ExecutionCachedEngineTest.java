@@ -0,0 +1,213 @@
+package io.cloudslang.runtime.impl;
+
+import io.cloudslang.dependency.api.services.DependencyService;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExecutionCachedEngineTest {
+
+    static final Set<String> WARM_DEPENDENCIES = Collections.singleton("g1:a1:v1");
+    static final Set<String> COLD_DEPENDENCIES = Collections.singleton("g2:a2:v2");
+
+    @Test(timeout = 10000)
+    public void testColdLoadDoesNotBlockWarmAllocations() throws InterruptedException {
+        final TestEngine engine = new TestEngine(10, 0);
+        final TestExecutor warmExecutor = engine.allocateExecutor(WARM_DEPENDENCIES);
+        engine.block(COLD_DEPENDENCIES);
+
+        final AtomicReference<TestExecutor> coldExecutor = new AtomicReference<>();
+        Thread coldThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                coldExecutor.set(engine.allocateExecutor(COLD_DEPENDENCIES));
+            }
+        });
+        coldThread.start();
+        assertTrue(engine.loadStarted.await(5, TimeUnit.SECONDS));
+
+        //the cold dependencies are still loading
+        for (int i = 0; i < 1000; i++) {
+            assertSame(warmExecutor, engine.allocateExecutor(WARM_DEPENDENCIES));
+        }
+        assertTrue(coldThread.isAlive());
+
+        engine.unblock();
+        coldThread.join();
+        assertNotSame(warmExecutor, coldExecutor.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testExecutorLoadedOnce() throws InterruptedException {
+        final TestEngine engine = new TestEngine(10, 0);
+        engine.block(COLD_DEPENDENCIES);
+        final Set<TestExecutor> executors = Collections.newSetFromMap(new ConcurrentHashMap<TestExecutor, Boolean>());
+        Thread[] threads = new Thread[10];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    executors.add(engine.allocateExecutor(COLD_DEPENDENCIES));
+                }
+            });
+            threads[i].start();
+        }
+        assertTrue(engine.loadStarted.await(5, TimeUnit.SECONDS));
+        engine.unblock();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, executors.size());
+        assertEquals(1, engine.loads.get());
+        assertEquals(threads.length, executors.iterator().next().allocations.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testEvictedExecutorsClosed() throws InterruptedException {
+        TestEngine engine = new TestEngine(2, 0);
+        TestExecutor executor1 = engine.allocateExecutor(dependencies(1));
+        TestExecutor executor2 = engine.allocateExecutor(dependencies(2));
+        engine.allocateExecutor(dependencies(1));
+        engine.allocateExecutor(dependencies(3));
+
+        //2 was the least recently used
+        assertTrue(executor2.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, executor1.closed.getCount());
+        assertSame(executor1, engine.allocateExecutor(dependencies(1)));
+    }
+
+    @Test(timeout = 10000)
+    public void testWeightEviction() throws InterruptedException {
+        TestEngine engine = new TestEngine(10, 5);
+        TestExecutor executor1 = engine.allocateExecutor(dependencies(1, 2));
+        TestExecutor executor2 = engine.allocateExecutor(dependencies(3, 4));
+        //weight 6 with the third executor
+        engine.allocateExecutor(dependencies(5, 6));
+
+        assertTrue(executor1.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, executor2.closed.getCount());
+        assertSame(executor2, engine.allocateExecutor(dependencies(3, 4)));
+    }
+
+    @Test
+    public void testFailedLoadRetried() {
+        TestEngine engine = new TestEngine(10, 0);
+        engine.fail = true;
+        try {
+            engine.allocateExecutor(COLD_DEPENDENCIES);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("failed to load", e.getMessage());
+        }
+
+        engine.fail = false;
+        TestExecutor executor = engine.allocateExecutor(COLD_DEPENDENCIES);
+        assertSame(executor, engine.allocateExecutor(COLD_DEPENDENCIES));
+        assertEquals(2, engine.loads.get());
+    }
+
+    private Set<String> dependencies(Integer... ids) {
+        Set<String> dependencies = new HashSet<>();
+        for (Integer id : Arrays.asList(ids)) {
+            dependencies.add("g:a:" + id);
+        }
+        return dependencies;
+    }
+
+    static class TestEngine extends ExecutionCachedEngine<TestExecutor> {
+        private final int cacheSize;
+        private final long cacheWeight;
+        private final Map<Set<String>, Boolean> blocked = new ConcurrentHashMap<>();
+        final CountDownLatch loadStarted = new CountDownLatch(1);
+        private final CountDownLatch unblocked = new CountDownLatch(1);
+        private final AtomicInteger loads = new AtomicInteger();
+        private volatile boolean fail = false;
+
+        TestEngine(int cacheSize, long cacheWeight) {
+            this.cacheSize = cacheSize;
+            this.cacheWeight = cacheWeight;
+        }
+
+        void block(Set<String> dependencies) {
+            blocked.put(dependencies, Boolean.TRUE);
+        }
+
+        void unblock() {
+            unblocked.countDown();
+        }
+
+        //the dependency service stands for the slow maven resolution
+        @Override
+        protected DependencyService getDependencyService() {
+            return new DependencyService() {
+                @Override
+                public Set<String> getDependencies(Set<String> resources) {
+                    loads.incrementAndGet();
+                    if (fail) {
+                        throw new IllegalStateException("failed to load");
+                    }
+                    if (blocked.containsKey(resources)) {
+                        loadStarted.countDown();
+                        try {
+                            unblocked.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return resources;
+                }
+            };
+        }
+
+        @Override
+        protected int getCacheSize() {
+            return cacheSize;
+        }
+
+        @Override
+        protected long getCacheWeight() {
+            return cacheWeight;
+        }
+
+        @Override
+        protected TestExecutor createNewExecutor(Set<String> filePaths) {
+            return new TestExecutor();
+        }
+    }
+
+    static class TestExecutor implements Executor {
+        private final AtomicInteger allocations = new AtomicInteger();
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void allocate() {
+            allocations.incrementAndGet();
+        }
+
+        @Override
+        public void release() {
+            allocations.decrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
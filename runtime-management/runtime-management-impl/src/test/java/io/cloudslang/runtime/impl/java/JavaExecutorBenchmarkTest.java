@@ -0,0 +1,58 @@
+package io.cloudslang.runtime.impl.java;
+
+import io.cloudslang.runtime.api.java.JavaExecutionParametersProvider;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import static io.cloudslang.runtime.impl.java.JavaExecutorTest.parameters;
+
+public class JavaExecutorBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(JavaExecutorBenchmarkTest.class);
+
+    /**
+     * Measures the overhead of an action call with the reflective lookup on every call as before,
+     * with a cold cache and with a warm cache
+     */
+    @Test
+    public void invocationBenchmark() throws Exception {
+        JavaExecutor javaExecutor = new JavaExecutor(Collections.<String>emptySet());
+        JavaExecutionParametersProvider parameters = parameters(1, 2);
+        int calls = 200000;
+        for (int round = 0; round < 2; round++) { //the first round warms up the jit
+            long startTime = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                Class actionClass = Class.forName(JavaExecutorTest.CountingAction.class.getName(), true, getClass().getClassLoader());
+                Method method = null;
+                for (Method m : actionClass.getDeclaredMethods()) {
+                    if (m.getName().equals("add")) {
+                        method = m;
+                    }
+                }
+                method.invoke(actionClass.newInstance(), parameters.getExecutionParameters(method));
+            }
+            long reflectionTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < calls / 10; i++) {
+                javaExecutor.close();
+                javaExecutor.execute(JavaExecutorTest.CountingAction.class.getName(), "add", parameters);
+            }
+            long coldTime = (System.nanoTime() - startTime) * 10;
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                javaExecutor.execute(JavaExecutorTest.CountingAction.class.getName(), "add", parameters);
+            }
+            long warmTime = System.nanoTime() - startTime;
+
+            if (round == 1) {
+                logger.info("Action call overhead: reflection " + reflectionTime / calls + " ns, cold cache " +
+                        coldTime / calls + " ns, warm cache " + warmTime / calls + " ns");
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.cloudslang.runtime.impl.java;
 
 import io.cloudslang.runtime.api.java.JavaExecutionParametersProvider;
+import io.cloudslang.runtime.api.java.StatelessAction;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -10,11 +11,18 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.io.File;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Created by Genadi Rabinovich, genadi@hpe.com on 05/05/2016.
@@ -80,6 +88,120 @@ public class JavaExecutorTest {
         javaExecutor.execute(CLASS_NAME, METHOD_NAME, PARAM_PROVIDER).toString();
     }
 
+    @Test
+    public void testActionMethodInvocation() {
+        JavaExecutor javaExecutor = new JavaExecutor(Collections.<String>emptySet());
+        int instances = CountingAction.INSTANCES.get();
+
+        assertEquals(5, javaExecutor.execute(CountingAction.class.getName(), "add", parameters(2, 3)));
+        assertEquals(7, javaExecutor.execute(CountingAction.class.getName(), "add", parameters(3, 4)));
+        assertEquals("a-b", javaExecutor.execute(CountingAction.class.getName(), "join", parameters((Object) new String[]{"a", "b"})));
+        assertEquals(6, javaExecutor.execute(CountingAction.class.getName(), "multiply", parameters(2, 3)));
+        assertEquals(null, javaExecutor.execute(CountingAction.class.getName(), "nothing", parameters()));
+        //a new instance on every call
+        assertEquals(instances + 5, CountingAction.INSTANCES.get());
+
+        try {
+            javaExecutor.execute(CountingAction.class.getName(), "fail", parameters());
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof InvocationTargetException);
+            assertEquals("failed", e.getCause().getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testStatelessActionReused() {
+        JavaExecutor javaExecutor = new JavaExecutor(Collections.<String>emptySet());
+        int instances = ReusedAction.INSTANCES.get();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, javaExecutor.execute(ReusedAction.class.getName(), "add", parameters(i, 1)));
+        }
+        assertEquals(instances + 1, ReusedAction.INSTANCES.get());
+
+        //the cache is dropped with the executor
+        javaExecutor.close();
+        javaExecutor.execute(ReusedAction.class.getName(), "add", parameters(1, 1));
+        assertEquals(instances + 2, ReusedAction.INSTANCES.get());
+    }
+
+    @Test
+    public void testOtherStatelessAnnotationIsIgnored() {
+        JavaExecutor javaExecutor = new JavaExecutor(Collections.<String>emptySet());
+        int instances = NotReusedAction.INSTANCES.get();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, javaExecutor.execute(NotReusedAction.class.getName(), "add", parameters(i, 1)));
+        }
+        assertEquals(instances + 10, NotReusedAction.INSTANCES.get());
+    }
+
+    static JavaExecutionParametersProvider parameters(final Object... parameters) {
+        return new JavaExecutionParametersProvider() {
+            @Override
+            public Object[] getExecutionParameters(Method executionMethod) {
+                return parameters;
+            }
+        };
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Stateless {
+    }
+
+    public static class CountingAction {
+        private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        public CountingAction() {
+            INSTANCES.incrementAndGet();
+        }
+
+        public int add(Integer a, int b) {
+            return a + b;
+        }
+
+        public String join(String... values) {
+            return values[0] + "-" + values[1];
+        }
+
+        public static int multiply(int a, int b) {
+            return a * b;
+        }
+
+        public void nothing() {
+        }
+
+        public void fail() {
+            throw new IllegalStateException("failed");
+        }
+    }
+
+    @StatelessAction
+    public static class ReusedAction {
+        private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        public ReusedAction() {
+            INSTANCES.incrementAndGet();
+        }
+
+        public int add(int a, int b) {
+            return a + b;
+        }
+    }
+
+    //an annotation of the same simple name, like javax.ejb.Stateless, does not make the action shared
+    @Stateless
+    public static class NotReusedAction {
+        private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+        public NotReusedAction() {
+            INSTANCES.incrementAndGet();
+        }
+
+        public int add(int a, int b) {
+            return a + b;
+        }
+    }
+
     @Configuration
     static class TestConfig {
     }
@@ -0,0 +1,49 @@
+package io.cloudslang.runtime.impl.python;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static io.cloudslang.runtime.impl.python.PythonCompiledCodeCacheTest.context;
+
+public class PythonCompiledCodeCacheBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(PythonCompiledCodeCacheBenchmarkTest.class);
+
+    private static final int BENCHMARK_ITERATIONS = 5000;
+    private static final String[] EXPRESSIONS = {
+            "x + y",
+            "str(x) + '_' + str(y)",
+            "x if x > y else y",
+            "len(name) > 3 and name.upper() or name.lower()",
+            "name.split(',')[0].strip() if ',' in name else name",
+            " x * 2"
+    };
+
+    /**
+     * Evaluates typical flow expressions with the cache disabled and enabled and reports the average evaluation time
+     */
+    @Test
+    public void evalBenchmark() {
+        for (int cacheSize : new int[] {0, PythonExecutionConfigurationConsts.PYTHON_COMPILED_CODE_CACHE_DEFAULT_SIZE}) {
+            PythonCompiledCodeCache cache = new PythonCompiledCodeCache(cacheSize);
+            PythonExecutor executor = new PythonExecutor(Collections.<String>emptySet(), cache);
+            runEvaluations(executor, BENCHMARK_ITERATIONS / 10); //warm up
+
+            long startTime = System.nanoTime();
+            runEvaluations(executor, BENCHMARK_ITERATIONS);
+            long totalTime = System.nanoTime() - startTime;
+
+            logger.info("Cache size " + cacheSize + ": " + BENCHMARK_ITERATIONS + " evaluations, avg " +
+                    totalTime / BENCHMARK_ITERATIONS / 1000 + " micros per evaluation, hits " + cache.getHitCount() +
+                    ", misses " + cache.getMissCount() + ", evictions " + cache.getEvictionCount());
+        }
+    }
+
+    private void runEvaluations(PythonExecutor executor, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            executor.eval(null, EXPRESSIONS[i % EXPRESSIONS.length], context(i));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.cloudslang.runtime.impl.python;
+
+import io.cloudslang.runtime.api.python.PythonEvaluationResult;
+import io.cloudslang.runtime.api.python.PythonExecutionResult;
+import org.junit.Test;
+import org.python.core.PyCode;
+import org.python.core.PyException;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PythonCompiledCodeCacheTest {
+
+    @Test
+    public void testCompiledCodeReused() {
+        PythonCompiledCodeCache cache = new PythonCompiledCodeCache(10);
+        PyCode code = cache.getEvalCode("x + 1");
+
+        assertSame(code, cache.getEvalCode("x + 1"));
+        assertNotSame(code, cache.getExecCode("x + 1"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testEviction() {
+        PythonCompiledCodeCache cache = new PythonCompiledCodeCache(2);
+        cache.getEvalCode("1");
+        cache.getEvalCode("2");
+        cache.getEvalCode("3");
+
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testDisabledCache() {
+        PythonCompiledCodeCache cache = new PythonCompiledCodeCache(0);
+
+        assertNotSame(cache.getEvalCode("x + 1"), cache.getEvalCode("x + 1"));
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test(expected = PyException.class)
+    public void testSyntaxError() {
+        new PythonCompiledCodeCache(10).getEvalCode("x +");
+    }
+
+    @Test
+    public void testExecutorResults() {
+        PythonExecutor executor = new PythonExecutor(Collections.<String>emptySet(), new PythonCompiledCodeCache(10));
+        for (int i = 0; i < 2; i++) {
+            PythonEvaluationResult evaluationResult = executor.eval("import string", " x * 2", context(i));
+            assertEquals(2 * i, evaluationResult.getEvalResult());
+
+            PythonExecutionResult executionResult = executor.exec("y = x + 1", Collections.singletonMap("x", (Serializable) i));
+            assertEquals(i + 1, executionResult.getExecutionResult().get("y"));
+        }
+    }
+
+    static Map<String, Serializable> context(int i) {
+        Map<String, Serializable> context = new HashMap<>();
+        context.put("x", i);
+        context.put("y", i % 7);
+        context.put("name", "a,b" + i);
+        return context;
+    }
+}
@@ -14,6 +14,8 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -212,5 +214,15 @@ public class PythonExecutionCachedEngineTest extends AbsExecutionCachedEngineTes
         public void releaseExecutor(PythonExecutor executor) {
             super.releaseExecutor(executor);
         }
+
+        //closes the evicted executors right away so the test can check them
+        @Override
+        protected void closeEvictedExecutor(Future<PythonExecutor> executor) {
+            try {
+                executor.get().close();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 }
@@ -0,0 +1,66 @@
+package io.cloudslang.runtime.impl.python;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.cloudslang.runtime.impl.python.PythonExecutorPoolTest.createEngine;
+import static org.junit.Assert.assertEquals;
+
+public class PythonExecutorPoolBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(PythonExecutorPoolBenchmarkTest.class);
+
+    private static final int EVALUATIONS = 4000;
+    private static final int[] THREADS = {1, 4, 16, 64};
+
+    /**
+     * Runs the same number of evaluations on a growing number of threads with the cached engine,
+     * that shares a single interpreter, and with the pooled engine, and reports the throughput
+     */
+    @Test
+    public void evalThroughputBenchmark() throws InterruptedException {
+        for (PythonExecutionEngine engine : Arrays.asList(createEngine(new PythonExecutionCachedEngine()), createEngine(new PythonExecutionPooledEngine()))) {
+            runEvaluations(engine, THREADS[THREADS.length - 1], EVALUATIONS / 4); //warm up, lets the pool grow
+            for (int threads : THREADS) {
+                long time = runEvaluations(engine, threads, EVALUATIONS);
+                logger.info(engine.getClass().getSimpleName() + ", " + threads + " threads: " + EVALUATIONS +
+                        " evaluations in " + time + " ms, " + EVALUATIONS * 1000L / Math.max(time, 1) + " evaluations per second");
+            }
+        }
+    }
+
+    private long runEvaluations(final PythonExecutionEngine engine, int threads, int evaluations) throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        final AtomicInteger counter = new AtomicInteger(evaluations);
+        final CountDownLatch latch = new CountDownLatch(threads);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < threads; i++) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    int i;
+                    while ((i = counter.decrementAndGet()) >= 0) {
+                        Map<String, Serializable> context = new HashMap<>();
+                        context.put("x", i);
+                        context.put("name", "a,b" + i);
+                        assertEquals(i % 2 == 0, engine.eval(null, "x % 2 == 0 and len(name.split(',')) == 2", context).getEvalResult());
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        long time = System.currentTimeMillis() - startTime;
+        executorService.shutdown();
+        return time;
+    }
+}
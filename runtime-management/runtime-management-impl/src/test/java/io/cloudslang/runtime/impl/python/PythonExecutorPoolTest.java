@@ -0,0 +1,116 @@
+package io.cloudslang.runtime.impl.python;
+
+import io.cloudslang.dependency.api.services.DependencyService;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PythonExecutorPoolTest {
+
+    @Test
+    public void testExecutorsReused() {
+        PythonExecutorPool pool = new PythonExecutorPool(Collections.<String>emptySet(), 1, 2, 60000L, Collections.<String>emptyList());
+        assertEquals(1, pool.getSize());
+
+        PythonExecutor executor1 = pool.borrowExecutor();
+        PythonExecutor executor2 = pool.borrowExecutor();
+        assertNotSame(executor1, executor2);
+        assertEquals(2, pool.getSize());
+
+        pool.returnExecutor(executor1);
+        assertSame(executor1, pool.borrowExecutor());
+        pool.returnExecutor(executor1);
+        pool.returnExecutor(executor2);
+        assertEquals(2, pool.getSize());
+    }
+
+    @Test(timeout = 10000)
+    public void testBorrowWaitsForReturnedExecutor() throws InterruptedException {
+        final PythonExecutorPool pool = new PythonExecutorPool(Collections.<String>emptySet(), 0, 1, 60000L, Collections.<String>emptyList());
+        final PythonExecutor executor = pool.borrowExecutor();
+        final CountDownLatch borrowed = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pool.returnExecutor(pool.borrowExecutor());
+                borrowed.countDown();
+            }
+        }).start();
+
+        assertFalse(borrowed.await(200, TimeUnit.MILLISECONDS));
+        pool.returnExecutor(executor);
+        assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, pool.getSize());
+    }
+
+    @Test
+    public void testIdleExecutorsClosed() throws InterruptedException {
+        PythonExecutorPool pool = new PythonExecutorPool(Collections.<String>emptySet(), 1, 3, 50L, Collections.<String>emptyList());
+        PythonExecutor executor1 = pool.borrowExecutor();
+        PythonExecutor executor2 = pool.borrowExecutor();
+        PythonExecutor executor3 = pool.borrowExecutor();
+        pool.returnExecutor(executor1);
+        pool.returnExecutor(executor2);
+        Thread.sleep(100);
+        pool.returnExecutor(executor3);
+
+        //the executors idle longer than the timeout are closed down to the min size
+        assertEquals(1, pool.getSize());
+        assertTrue(executor1.isClosed());
+        assertTrue(executor2.isClosed());
+        assertFalse(executor3.isClosed());
+    }
+
+    @Test
+    public void testClose() {
+        PythonExecutorPool pool = new PythonExecutorPool(Collections.<String>emptySet(), 0, 2, 60000L, Arrays.asList("string", " re"));
+        PythonExecutor idleExecutor = pool.borrowExecutor();
+        PythonExecutor busyExecutor = pool.borrowExecutor();
+        pool.returnExecutor(idleExecutor);
+
+        pool.close();
+        assertTrue(idleExecutor.isClosed());
+        assertFalse(busyExecutor.isClosed());
+
+        pool.returnExecutor(busyExecutor);
+        assertTrue(busyExecutor.isClosed());
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void testPooledEngine() {
+        PythonExecutionEngine engine = createEngine(new PythonExecutionPooledEngine());
+        assertEquals(3, engine.eval(null, "x + 1", Collections.singletonMap("x", (Serializable) 2)).getEvalResult());
+        assertEquals(4, engine.exec(Collections.<String>emptySet(), "y = x + 2", Collections.singletonMap("x", (Serializable) 2))
+                .getExecutionResult().get("y"));
+    }
+
+    static PythonExecutionEngine createEngine(PythonExecutionEngine engine) {
+        ReflectionTestUtils.setField(engine, "dependencyService", new DependencyService() {
+            @Override
+            public Set<String> getDependencies(Set<String> resources) {
+                return resources;
+            }
+        });
+        ReflectionTestUtils.setField(engine, "cacheSize", 10);
+        if (engine instanceof PythonExecutionPooledEngine) {
+            ReflectionTestUtils.setField(engine, "poolMinSize", 1);
+            ReflectionTestUtils.setField(engine, "poolMaxSize", 8);
+            ReflectionTestUtils.setField(engine, "poolIdleTimeout", 60000L);
+            ReflectionTestUtils.setField(engine, "poolWarmUpModules", "");
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,449 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.score.events;
+
+import io.cloudslang.score.api.execution.ExecutionParametersConsts;
+import org.apache.log4j.Logger;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An event bus that delivers the events to every listener on its own threads, so a slow listener does not hold the dispatching thread.
+ * Every listener has a number of partitions, each with a bounded queue and a delivery thread.
+ * The events of an execution always go to the same partition, so a listener gets them in the order they were dispatched.
+ * A listener with more than one partition is called concurrently and must be thread safe.
+ * When the queue of a partition is full the {@link OverflowPolicy} decides what happens to the event.
+ * Listeners that implement {@link ScoreEventBatchListener} get the waiting events in batches.
+ */
+public class AsyncEventBusImpl implements EventBus {
+	private final Logger logger = Logger.getLogger(getClass());
+
+	// the worker registers this bus instead of the synchronous one when the property is true
+	public static final String ASYNC = "event.bus.async";
+	public static final String QUEUE_CAPACITY = "event.bus.queue.capacity";
+	public static final String PARTITIONS = "event.bus.partitions";
+	public static final String BATCH_SIZE = "event.bus.batch.size";
+	public static final String OVERFLOW_POLICY = "event.bus.overflow.policy";
+
+	public enum OverflowPolicy {
+		/** the dispatching thread waits for room in the queue */
+		BLOCK,
+		/** the event is dropped */
+		DROP,
+		/** the event is written to a temporary file and delivered when the listener catches up */
+		SPILL
+	}
+
+	private final int queueCapacity;
+	private final int partitions;
+	private final int batchSize;
+	private final OverflowPolicy overflowPolicy;
+
+	private final Map<ScoreEventListener, ListenerDelivery> deliveries = new HashMap<>();
+	// event type --> the deliveries of the listeners of the type, rebuilt on every subscription change
+	private volatile Map<String, ListenerDelivery[]> deliveriesByType = Collections.emptyMap();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong spilledCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+
+	public AsyncEventBusImpl() {
+		this(Integer.getInteger(QUEUE_CAPACITY, 10000), Integer.getInteger(PARTITIONS, 1), Integer.getInteger(BATCH_SIZE, 100),
+				OverflowPolicy.valueOf(System.getProperty(OVERFLOW_POLICY, OverflowPolicy.BLOCK.name()).toUpperCase()));
+	}
+
+	public AsyncEventBusImpl(int queueCapacity, int partitions, int batchSize, OverflowPolicy overflowPolicy) {
+		if (queueCapacity < 1 || partitions < 1 || batchSize < 1) {
+			throw new IllegalArgumentException("Queue capacity, partitions and batch size must be positive");
+		}
+		this.queueCapacity = queueCapacity;
+		this.partitions = partitions;
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	@Override
+	public synchronized void subscribe(ScoreEventListener eventListener, Set<String> eventTypes) {
+		ListenerDelivery previous = deliveries.put(eventListener, new ListenerDelivery(eventListener, new HashSet<>(eventTypes)));
+		indexDeliveries();
+		if (previous != null) previous.close();
+	}
+
+	@Override
+	public synchronized void unsubscribe(ScoreEventListener eventListener) {
+		ListenerDelivery delivery = deliveries.remove(eventListener);
+		indexDeliveries();
+		if (delivery != null) delivery.close();
+	}
+
+	@Override
+	public void dispatch(ScoreEvent... events) throws InterruptedException {
+		Map<String, ListenerDelivery[]> index = deliveriesByType;
+		for (ScoreEvent event : events) {
+			ListenerDelivery[] eventDeliveries = index.get(event.getEventType());
+			if (eventDeliveries == null) continue;
+			Object executionId = getExecutionId(event);
+			for (ListenerDelivery delivery : eventDeliveries) {
+				delivery.offer(event, executionId);
+			}
+		}
+	}
+
+	/**
+	 * Unsubscribes all the listeners, the events that were already dispatched are still delivered
+	 */
+	@PreDestroy
+	public synchronized void close() {
+		List<ListenerDelivery> closed = new ArrayList<>(deliveries.values());
+		deliveries.clear();
+		indexDeliveries();
+		for (ListenerDelivery delivery : closed) {
+			delivery.close();
+		}
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	public long getSpilledCount() {
+		return spilledCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	// must be called under the bus monitor
+	private void indexDeliveries() {
+		Map<String, List<ListenerDelivery>> byType = new HashMap<>();
+		for (ListenerDelivery delivery : deliveries.values()) {
+			for (String eventType : delivery.eventTypes) {
+				List<ListenerDelivery> typeDeliveries = byType.get(eventType);
+				if (typeDeliveries == null) {
+					typeDeliveries = new ArrayList<>();
+					byType.put(eventType, typeDeliveries);
+				}
+				typeDeliveries.add(delivery);
+			}
+		}
+		Map<String, ListenerDelivery[]> index = new HashMap<>();
+		for (Map.Entry<String, List<ListenerDelivery>> entry : byType.entrySet()) {
+			index.put(entry.getKey(), entry.getValue().toArray(new ListenerDelivery[entry.getValue().size()]));
+		}
+		deliveriesByType = index;
+	}
+
+	// the execution events of the engine and the worker carry the execution id in their data or in its system context
+	private static Object getExecutionId(ScoreEvent event) {
+		Object executionId = null;
+		if (event.getData() instanceof Map) {
+			Map<?, ?> data = (Map<?, ?>) event.getData();
+			executionId = data.get(EventConstants.EXECUTION_ID_CONTEXT);
+			if (executionId == null && data.get(ExecutionParametersConsts.SYSTEM_CONTEXT) instanceof Map) {
+				executionId = ((Map<?, ?>) data.get(ExecutionParametersConsts.SYSTEM_CONTEXT)).get(EventConstants.EXECUTION_ID_CONTEXT);
+			}
+		}
+		if (executionId == null && event.getMetadata() != null) {
+			executionId = event.getMetadata().get(EventConstants.EXECUTION_ID_CONTEXT);
+		}
+		return executionId;
+	}
+
+	private class ListenerDelivery {
+		private final ScoreEventListener listener;
+		private final Set<String> eventTypes;
+		private final Partition[] listenerPartitions;
+
+		ListenerDelivery(ScoreEventListener listener, Set<String> eventTypes) {
+			this.listener = listener;
+			this.eventTypes = eventTypes;
+			listenerPartitions = new Partition[partitions];
+			for (int i = 0; i < partitions; i++) {
+				listenerPartitions[i] = new Partition(this);
+				Thread thread = new Thread(listenerPartitions[i], "event-bus-" + listener.getClass().getSimpleName() + "-" + i);
+				thread.setDaemon(true);
+				thread.start();
+			}
+		}
+
+		void offer(ScoreEvent event, Object executionId) throws InterruptedException {
+			int partition = executionId == null ? 0 : (executionId.hashCode() & Integer.MAX_VALUE) % listenerPartitions.length;
+			listenerPartitions[partition].offer(event);
+		}
+
+		void deliver(List<ScoreEvent> events) {
+			if (listener instanceof ScoreEventBatchListener) {
+				try {
+					((ScoreEventBatchListener) listener).onEvents(events);
+				} catch (Exception ex) {
+					reportFailure(ex);
+				}
+			} else {
+				for (ScoreEvent event : events) {
+					try {
+						listener.onEvent(event);
+					} catch (Exception ex) {
+						reportFailure(ex);
+					}
+				}
+			}
+		}
+
+		// the delivery goes on with the next events - an InterruptedException of the listener does not stop the partition either
+		private void reportFailure(Exception ex) {
+			failedCount.incrementAndGet();
+			logger.error("Listener " + listener + " failed to handle events", ex);
+		}
+
+		void close() {
+			for (Partition partition : listenerPartitions) {
+				partition.close();
+			}
+		}
+	}
+
+	private class Partition implements Runnable {
+		private final ListenerDelivery delivery;
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notEmpty = lock.newCondition();
+		private final Condition notFull = lock.newCondition();
+		private final ArrayDeque<ScoreEvent> queue = new ArrayDeque<>();
+		// the events that did not fit in the queue, they come after the events of the queue
+		private SpillFile spillFile;
+		private boolean closed;
+
+		Partition(ListenerDelivery delivery) {
+			this.delivery = delivery;
+		}
+
+		void offer(ScoreEvent event) throws InterruptedException {
+			lock.lock();
+			try {
+				if (closed) return;
+				if (spillFile == null && queue.size() >= queueCapacity) {
+					switch (overflowPolicy) {
+						case DROP:
+							droppedCount.incrementAndGet();
+							return;
+						case SPILL:
+							spillFile = SpillFile.create();
+							if (spillFile == null) {
+								droppedCount.incrementAndGet();
+								return;
+							}
+							break;
+						default:
+							while (queue.size() >= queueCapacity && !closed) {
+								notFull.await();
+							}
+							if (closed) return;
+					}
+				}
+				if (spillFile != null) {
+					if (spillFile.write(event)) {
+						spilledCount.incrementAndGet();
+					} else {
+						droppedCount.incrementAndGet();
+					}
+				} else {
+					queue.addLast(event);
+				}
+				notEmpty.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		void close() {
+			lock.lock();
+			try {
+				closed = true;
+				notEmpty.signal();
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		// the partition ends only when it is closed and all its events were delivered
+		@Override
+		public void run() {
+			List<ScoreEvent> batch;
+			while ((batch = take()) != null) {
+				if (!batch.isEmpty()) delivery.deliver(batch);
+			}
+		}
+
+		// the next batch of events, null when the partition is closed and all its events were delivered
+		private List<ScoreEvent> take() {
+			SpillFile file;
+			int spilledEvents;
+			lock.lock();
+			try {
+				while (queue.isEmpty() && spillFile == null) {
+					if (closed) return null;
+					notEmpty.awaitUninterruptibly();
+				}
+				if (!queue.isEmpty()) {
+					List<ScoreEvent> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+					while (batch.size() < batchSize && !queue.isEmpty()) {
+						batch.add(queue.pollFirst());
+					}
+					notFull.signalAll();
+					return batch;
+				}
+				file = spillFile;
+				spilledEvents = Math.min(batchSize, file.getCount());
+			} finally {
+				lock.unlock();
+			}
+
+			// only this thread reads the file, the dispatching threads go on writing to it meanwhile
+			List<ScoreEvent> batch = new ArrayList<>(spilledEvents);
+			for (int i = 0; i < spilledEvents; i++) {
+				ScoreEvent event = file.read();
+				if (event != null) batch.add(event);
+			}
+
+			lock.lock();
+			try {
+				file.consumed(spilledEvents);
+				if (!file.hasNext()) {
+					droppedCount.addAndGet(file.close());
+					spillFile = null;
+					notFull.signalAll();
+				}
+			} finally {
+				lock.unlock();
+			}
+			return batch;
+		}
+	}
+
+	/**
+	 * A temporary file of length prefixed serialized events, read in the order it was written.
+	 * The events are written and counted under the lock of the partition, they are read by the partition thread only
+	 */
+	private static class SpillFile {
+		private final File file;
+		private final DataOutputStream out;
+		private DataInputStream in;
+		private int count; // the written events that were not consumed yet
+		private int lostCount;
+		private boolean writeFailed;
+		private boolean readFailed;
+
+		private SpillFile(File file) throws IOException {
+			this.file = file;
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		}
+
+		// null if the file can not be created
+		static SpillFile create() {
+			try {
+				File file = File.createTempFile("score-events", ".spill");
+				file.deleteOnExit();
+				return new SpillFile(file);
+			} catch (IOException ex) {
+				return null;
+			}
+		}
+
+		boolean write(ScoreEvent event) {
+			if (writeFailed) return false;
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+				objectOut.writeObject(event);
+			} catch (IOException ex) { // e.g. data that is not serializable
+				return false;
+			}
+			try {
+				out.writeInt(bytes.size());
+				bytes.writeTo(out);
+				out.flush();
+				count++;
+				return true;
+			} catch (IOException ex) {
+				// nothing is written from here on, the events that were counted can still be read
+				writeFailed = true;
+				return false;
+			}
+		}
+
+		boolean hasNext() {
+			return count > 0;
+		}
+
+		int getCount() {
+			return count;
+		}
+
+		void consumed(int events) {
+			count -= events;
+		}
+
+		// null if the event can not be read
+		ScoreEvent read() {
+			if (readFailed) {
+				lostCount++;
+				return null;
+			}
+			try {
+				if (in == null) in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+					return (ScoreEvent) objectIn.readObject();
+				}
+			} catch (IOException | ClassNotFoundException ex) {
+				readFailed = true;
+				lostCount++;
+				return null;
+			}
+		}
+
+		// deletes the file and returns the number of events that were lost
+		int close() {
+			try {
+				out.close();
+				if (in != null) in.close();
+			} catch (IOException ignore) {
+				// the file is deleted anyway
+			}
+			file.delete();
+			return lostCount;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.score.events;
+
+import java.util.List;
+
+/**
+ * A listener that gets the events in batches when it is subscribed to the {@link AsyncEventBusImpl}.
+ * The synchronous event bus calls {@link #onEvent(ScoreEvent)} for every event.
+ */
+public interface ScoreEventBatchListener extends ScoreEventListener {
+
+    /**
+     * handler of score events, this method will be called with the events that waited for the listener
+     * @param events - the dispatched events, in the order they were dispatched
+     */
+	void onEvents(List<ScoreEvent> events) throws InterruptedException;
+
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.score.events;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncEventBusBenchmarkTest {
+
+	private static final Logger logger = Logger.getLogger(AsyncEventBusBenchmarkTest.class);
+
+	private static final Set<String> TYPES = new HashSet<>(Arrays.asList("type1", "type2"));
+	private static final int BENCHMARK_EVENTS = 1000;
+
+	/**
+	 * Dispatches events to a listener that takes a millisecond per call with the synchronous bus and with the async bus,
+	 * and reports how long the dispatching thread was held and how long it took to deliver all the events
+	 */
+	@Test
+	public void slowListenerBenchmark() throws Exception {
+		Map<String, EventBus> buses = new LinkedHashMap<>();
+		buses.put("sync", new EventBusImpl());
+		buses.put("async", new AsyncEventBusImpl(BENCHMARK_EVENTS, 1, 1, AsyncEventBusImpl.OverflowPolicy.BLOCK));
+		buses.put("async batches of 100", new AsyncEventBusImpl(BENCHMARK_EVENTS, 1, 100, AsyncEventBusImpl.OverflowPolicy.BLOCK));
+		for (Map.Entry<String, EventBus> entry : buses.entrySet()) {
+			EventBus bus = entry.getValue();
+			for (boolean batch : Arrays.asList(false, true)) {
+				if (batch && bus instanceof EventBusImpl) continue;
+				final CountDownLatch delivered = new CountDownLatch(BENCHMARK_EVENTS);
+				ScoreEventListener listener = batch ? new SlowBatchListener(delivered) : new SlowListener(delivered);
+				bus.subscribe(listener, TYPES);
+				long maxLatency = 0;
+				long start = System.nanoTime();
+				for (int i = 0; i < BENCHMARK_EVENTS; i++) {
+					long dispatchStart = System.nanoTime();
+					bus.dispatch(event("type1", 1L, i));
+					maxLatency = Math.max(maxLatency, System.nanoTime() - dispatchStart);
+				}
+				long dispatchTime = System.nanoTime() - start;
+				delivered.await();
+				long deliveryTime = System.nanoTime() - start;
+				bus.unsubscribe(listener);
+				logger.info(entry.getKey() + (batch ? ", batch listener" : "") + ": dispatch " + TimeUnit.NANOSECONDS.toMicros(dispatchTime / BENCHMARK_EVENTS) + " us per event (max " +
+						TimeUnit.NANOSECONDS.toMicros(maxLatency) + " us), " + BENCHMARK_EVENTS + " events delivered after " + TimeUnit.NANOSECONDS.toMillis(deliveryTime) + " ms");
+			}
+		}
+	}
+
+	private static ScoreEvent event(String type, Long executionId, int index) {
+		HashMap<String, Serializable> data = new HashMap<>();
+		data.put(EventConstants.EXECUTION_ID_CONTEXT, executionId);
+		data.put("index", index);
+		return new ScoreEvent(type, data);
+	}
+
+	static class SlowListener implements ScoreEventListener {
+		private final CountDownLatch delivered;
+
+		SlowListener(CountDownLatch delivered) {
+			this.delivered = delivered;
+		}
+
+		@Override
+		public void onEvent(ScoreEvent event) throws InterruptedException {
+			Thread.sleep(1);
+			delivered.countDown();
+		}
+	}
+
+	// writes a batch at the cost of a single event
+	static class SlowBatchListener extends SlowListener implements ScoreEventBatchListener {
+		private final CountDownLatch delivered;
+
+		SlowBatchListener(CountDownLatch delivered) {
+			super(delivered);
+			this.delivered = delivered;
+		}
+
+		@Override
+		public void onEvents(List<ScoreEvent> events) throws InterruptedException {
+			Thread.sleep(1);
+			for (int i = 0; i < events.size(); i++) {
+				delivered.countDown();
+			}
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.score.events;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+public class AsyncEventBusTest {
+
+	private static final Set<String> TYPES = new HashSet<>(Arrays.asList("type1", "type2"));
+
+	private AsyncEventBusImpl eventBus;
+
+	@After
+	public void close() {
+		if (eventBus != null) eventBus.close();
+	}
+
+	@Test(timeout = 10000)
+	public void testDispatchByType() throws Exception {
+		eventBus = new AsyncEventBusImpl(100, 1, 10, AsyncEventBusImpl.OverflowPolicy.BLOCK);
+		RecordingListener type1Listener = new RecordingListener(0);
+		RecordingListener bothListener = new RecordingListener(0);
+		eventBus.subscribe(type1Listener, Collections.singleton("type1"));
+		eventBus.subscribe(bothListener, TYPES);
+
+		eventBus.dispatch(event("type1", 1L, 0), event("type2", 1L, 1), event("typeX", 1L, 2));
+		eventBus.close();
+
+		Assert.assertEquals(Collections.singletonList(0), type1Listener.await(1));
+		Assert.assertEquals(Arrays.asList(0, 1), bothListener.await(2));
+	}
+
+	@Test(timeout = 10000)
+	public void testUnsubscribeDeliversDispatchedEvents() throws Exception {
+		eventBus = new AsyncEventBusImpl(100, 1, 10, AsyncEventBusImpl.OverflowPolicy.BLOCK);
+		RecordingListener listener = new RecordingListener(1);
+		eventBus.subscribe(listener, TYPES);
+		for (int i = 0; i < 20; i++) {
+			eventBus.dispatch(event("type1", 1L, i));
+		}
+		eventBus.unsubscribe(listener);
+		eventBus.dispatch(event("type1", 1L, 20));
+
+		Assert.assertEquals(20, listener.await(20).size());
+		Thread.sleep(50);
+		Assert.assertEquals(20, listener.getEvents().size());
+	}
+
+	@Test(timeout = 10000)
+	public void testPartitionsKeepExecutionOrder() throws Exception {
+		eventBus = new AsyncEventBusImpl(10, 4, 5, AsyncEventBusImpl.OverflowPolicy.BLOCK);
+		RecordingListener listener = new RecordingListener(0);
+		eventBus.subscribe(listener, TYPES);
+		for (int i = 0; i < 1000; i++) {
+			eventBus.dispatch(event("type1", (long) (i % 7), i));
+		}
+		eventBus.close();
+
+		List<ScoreEvent> events = listener.awaitEvents(1000);
+		Map<Object, Integer> lastIndexes = new HashMap<>();
+		for (ScoreEvent event : events) {
+			Map<?, ?> data = (Map<?, ?>) event.getData();
+			Object executionId = data.get(EventConstants.EXECUTION_ID_CONTEXT);
+			Integer index = (Integer) data.get("index");
+			Integer lastIndex = lastIndexes.put(executionId, index);
+			Assert.assertTrue(lastIndex == null || lastIndex < index);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testDropPolicy() throws Exception {
+		eventBus = new AsyncEventBusImpl(5, 1, 1, AsyncEventBusImpl.OverflowPolicy.DROP);
+		BlockedListener listener = new BlockedListener();
+		eventBus.subscribe(listener, TYPES);
+		eventBus.dispatch(event("type1", 1L, 0));
+		listener.started.await();
+		for (int i = 1; i <= 10; i++) {
+			eventBus.dispatch(event("type1", 1L, i));
+		}
+		listener.release.countDown();
+		eventBus.close();
+
+		Assert.assertEquals(5, eventBus.getDroppedCount());
+		Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), listener.await(6));
+	}
+
+	@Test(timeout = 10000)
+	public void testSpillPolicyKeepsOrder() throws Exception {
+		eventBus = new AsyncEventBusImpl(5, 1, 3, AsyncEventBusImpl.OverflowPolicy.SPILL);
+		BlockedListener listener = new BlockedListener();
+		eventBus.subscribe(listener, TYPES);
+		eventBus.dispatch(event("type1", 1L, 0));
+		listener.started.await();
+		List<Integer> expected = new ArrayList<>();
+		expected.add(0);
+		for (int i = 1; i <= 50; i++) {
+			eventBus.dispatch(event("type1", 1L, i));
+			expected.add(i);
+		}
+		listener.release.countDown();
+		eventBus.close();
+
+		Assert.assertEquals(45, eventBus.getSpilledCount());
+		Assert.assertEquals(0, eventBus.getDroppedCount());
+		Assert.assertEquals(expected, listener.await(51));
+	}
+
+	@Test(timeout = 10000)
+	public void testBlockPolicy() throws Exception {
+		eventBus = new AsyncEventBusImpl(2, 1, 1, AsyncEventBusImpl.OverflowPolicy.BLOCK);
+		final BlockedListener listener = new BlockedListener();
+		eventBus.subscribe(listener, TYPES);
+		eventBus.dispatch(event("type1", 1L, 0));
+		listener.started.await();
+		eventBus.dispatch(event("type1", 1L, 1), event("type1", 1L, 2));
+		Thread dispatcher = new Thread() {
+			@Override
+			public void run() {
+				try {
+					eventBus.dispatch(event("type1", 1L, 3));
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		dispatcher.start();
+		dispatcher.join(200);
+		Assert.assertTrue(dispatcher.isAlive());
+
+		listener.release.countDown();
+		dispatcher.join();
+		eventBus.close();
+		Assert.assertEquals(Arrays.asList(0, 1, 2, 3), listener.await(4));
+	}
+
+	@Test(timeout = 10000)
+	public void testBatchListener() throws Exception {
+		eventBus = new AsyncEventBusImpl(100, 1, 10, AsyncEventBusImpl.OverflowPolicy.BLOCK);
+		BlockedListener listener = new BlockedListener();
+		eventBus.subscribe(listener, TYPES);
+		eventBus.dispatch(event("type1", 1L, 0));
+		listener.started.await();
+		for (int i = 1; i <= 25; i++) {
+			eventBus.dispatch(event("type1", 1L, i));
+		}
+		listener.release.countDown();
+		eventBus.close();
+
+		Assert.assertEquals(26, listener.await(26).size());
+		Assert.assertEquals(Arrays.asList(1, 10, 10, 5), listener.batchSizes);
+	}
+
+	@Test(timeout = 10000)
+	public void testFailingListener() throws Exception {
+		eventBus = new AsyncEventBusImpl(100, 1, 1, AsyncEventBusImpl.OverflowPolicy.BLOCK);
+		RecordingListener listener = new RecordingListener(0) {
+			@Override
+			public void onEvent(ScoreEvent event) throws InterruptedException {
+				super.onEvent(event);
+				if (getEvents().size() == 1) throw new IllegalStateException("first event failed");
+			}
+		};
+		eventBus.subscribe(listener, TYPES);
+		eventBus.dispatch(event("type1", 1L, 0), event("type1", 1L, 1));
+		eventBus.close();
+
+		Assert.assertEquals(Arrays.asList(0, 1), listener.await(2));
+		Assert.assertEquals(1, eventBus.getFailedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testInterruptedListener() throws Exception {
+		eventBus = new AsyncEventBusImpl(1, 1, 1, AsyncEventBusImpl.OverflowPolicy.BLOCK);
+		RecordingListener listener = new RecordingListener(0) {
+			@Override
+			public void onEvent(ScoreEvent event) throws InterruptedException {
+				super.onEvent(event);
+				if (getEvents().size() == 1) throw new InterruptedException("first event interrupted");
+			}
+		};
+		eventBus.subscribe(listener, TYPES);
+		// the queue holds a single event, the dispatch waits forever if the partition stopped on the interruption
+		for (int i = 0; i < 5; i++) {
+			eventBus.dispatch(event("type1", 1L, i));
+		}
+		eventBus.close();
+
+		Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4), listener.await(5));
+		Assert.assertEquals(1, eventBus.getFailedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testSpillWhileDelivering() throws Exception {
+		eventBus = new AsyncEventBusImpl(5, 1, 3, AsyncEventBusImpl.OverflowPolicy.SPILL);
+		BlockedListener listener = new BlockedListener();
+		eventBus.subscribe(listener, TYPES);
+		eventBus.dispatch(event("type1", 1L, 0));
+		listener.started.await();
+		List<Integer> expected = new ArrayList<>();
+		expected.add(0);
+		for (int i = 1; i <= 50; i++) {
+			eventBus.dispatch(event("type1", 1L, i));
+			expected.add(i);
+		}
+		// the spill file is written while it is read
+		listener.release.countDown();
+		for (int i = 51; i <= 200; i++) {
+			eventBus.dispatch(event("type1", 1L, i));
+			expected.add(i);
+		}
+		eventBus.close();
+
+		Assert.assertEquals(0, eventBus.getDroppedCount());
+		Assert.assertEquals(expected, listener.await(201));
+	}
+
+	private static ScoreEvent event(String type, Long executionId, int index) {
+		HashMap<String, Serializable> data = new HashMap<>();
+		data.put(EventConstants.EXECUTION_ID_CONTEXT, executionId);
+		data.put("index", index);
+		return new ScoreEvent(type, data);
+	}
+
+	private static Integer index(ScoreEvent event) {
+		return (Integer) ((Map<?, ?>) event.getData()).get("index");
+	}
+
+	static class RecordingListener implements ScoreEventListener {
+		private final long delay;
+		private final List<ScoreEvent> events = Collections.synchronizedList(new ArrayList<ScoreEvent>());
+
+		RecordingListener(long delay) {
+			this.delay = delay;
+		}
+
+		@Override
+		public void onEvent(ScoreEvent event) throws InterruptedException {
+			if (delay > 0) Thread.sleep(delay);
+			events.add(event);
+		}
+
+		List<ScoreEvent> getEvents() {
+			return events;
+		}
+
+		List<ScoreEvent> awaitEvents(int count) throws InterruptedException {
+			while (events.size() < count) {
+				Thread.sleep(5);
+			}
+			synchronized (events) {
+				return new ArrayList<>(events);
+			}
+		}
+
+		List<Integer> await(int count) throws InterruptedException {
+			List<Integer> indexes = new ArrayList<>();
+			for (ScoreEvent event : awaitEvents(count)) {
+				indexes.add(index(event));
+			}
+			return indexes;
+		}
+	}
+
+	// a batch listener that holds its first event until it is released
+	static class BlockedListener extends RecordingListener implements ScoreEventBatchListener {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+		BlockedListener() {
+			super(0);
+		}
+
+		@Override
+		public void onEvents(List<ScoreEvent> events) throws InterruptedException {
+			started.countDown();
+			release.await();
+			batchSizes.add(events.size());
+			for (ScoreEvent event : events) {
+				onEvent(event);
+			}
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.execution.services;
+
+import io.cloudslang.score.api.ExecutionPlan;
+
+import java.util.Collection;
+
+/**
+ * The execution plans that the worker runs, kept deserialized by their running execution plan id
+ */
+public interface ExecutionPlanCache {
+
+    /**
+     *
+     * @param runningExecutionPlanId the id of the running execution plan
+     * @return the execution plan of the running execution plan, loaded if it is not cached, null if there is no such plan
+     */
+    ExecutionPlan getExecutionPlan(Long runningExecutionPlanId);
+
+    /**
+     * Loads the given plans in the background, if they are not cached yet
+     *
+     * @param runningExecutionPlanIds the ids of the running execution plans that are about to be run
+     */
+    void preload(Collection<Long> runningExecutionPlanIds);
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    long getRefreshCount();
+
+    int getSize();
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.execution.reflection;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.cloudslang.score.api.execution.ExecutionParametersConsts;
+
+/**
+ * A control action method bound to its bean, with the names of its parameters resolved once.
+ * The method is invoked through a method handle that takes the arguments array, or reflectively if it is not accessible.
+ */
+class ControlActionInvoker {
+
+	// primitive type --> the wrappers that widen to it, as accepted by Method.invoke()
+	private static final Map<Class<?>, List<Class<?>>> PRIMITIVE_ARGUMENTS = new HashMap<>();
+
+	static {
+		PRIMITIVE_ARGUMENTS.put(boolean.class, Arrays.<Class<?>> asList(Boolean.class));
+		PRIMITIVE_ARGUMENTS.put(char.class, Arrays.<Class<?>> asList(Character.class));
+		PRIMITIVE_ARGUMENTS.put(byte.class, Arrays.<Class<?>> asList(Byte.class));
+		PRIMITIVE_ARGUMENTS.put(short.class, Arrays.<Class<?>> asList(Short.class, Byte.class));
+		PRIMITIVE_ARGUMENTS.put(int.class, Arrays.<Class<?>> asList(Integer.class, Character.class, Short.class, Byte.class));
+		PRIMITIVE_ARGUMENTS.put(long.class, Arrays.<Class<?>> asList(Long.class, Integer.class, Character.class, Short.class, Byte.class));
+		PRIMITIVE_ARGUMENTS.put(float.class, Arrays.<Class<?>> asList(Float.class, Long.class, Integer.class, Character.class, Short.class, Byte.class));
+		PRIMITIVE_ARGUMENTS.put(double.class,
+			Arrays.<Class<?>> asList(Double.class, Float.class, Long.class, Integer.class, Character.class, Short.class, Byte.class));
+	}
+
+	private final Object bean;
+	private final Method method;
+	private final String[] paramNames;
+	private final Class<?>[] paramTypes;
+	// the index of the non serializable execution data parameter, -1 if the method does not take it
+	private final int nonSerializableDataIndex;
+	// (Object[])Object, null if the method is invoked reflectively
+	private final MethodHandle handle;
+
+	ControlActionInvoker(Object bean, Method method, String[] paramNames) {
+		this.bean = bean;
+		this.method = method;
+		this.paramNames = paramNames;
+		this.paramTypes = method.getParameterTypes();
+		this.nonSerializableDataIndex = Arrays.asList(paramNames).indexOf(ExecutionParametersConsts.NON_SERIALIZABLE_EXECUTION_DATA);
+		this.handle = createHandle(bean, method);
+	}
+
+	String[] getParamNames() {
+		return paramNames;
+	}
+
+	int getNonSerializableDataIndex() {
+		return nonSerializableDataIndex;
+	}
+
+	Object invoke(Object[] arguments) throws IllegalAccessException, InvocationTargetException {
+		if(handle == null) return method.invoke(bean, arguments);
+		checkArguments(arguments);
+		try {
+			return (Object)handle.invokeExact(arguments);
+		} catch(Throwable ex) {
+			// same as the reflective invocation
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	// the handle would fail with a ClassCastException or a NullPointerException that could not be told apart from the action's own
+	private void checkArguments(Object[] arguments) {
+		if(arguments.length != paramTypes.length) throw new IllegalArgumentException("wrong number of arguments");
+		for(int i = 0; i < arguments.length; i++) {
+			Class<?> paramType = paramTypes[i];
+			Object argument = arguments[i];
+			if(paramType.isPrimitive()) {
+				if(argument == null || !PRIMITIVE_ARGUMENTS.get(paramType).contains(argument.getClass())) {
+					throw new IllegalArgumentException("argument type mismatch");
+				}
+			} else if(argument != null && !paramType.isInstance(argument)) {
+				throw new IllegalArgumentException("argument type mismatch");
+			}
+		}
+	}
+
+	private static MethodHandle createHandle(Object bean, Method method) {
+		boolean isStatic = Modifier.isStatic(method.getModifiers());
+		// e.g. a proxy of the bean, Method.invoke() reports it
+		if(!isStatic && !method.getDeclaringClass().isInstance(bean)) return null;
+		MethodHandle handle;
+		try {
+			handle = MethodHandles.publicLookup().unreflect(method).asFixedArity();
+		} catch(IllegalAccessException ex) {
+			return null;
+		}
+		if(!isStatic) handle = handle.bindTo(bean);
+		int paramsCount = method.getParameterTypes().length;
+		return handle.asType(MethodType.genericMethodType(paramsCount)).asSpreader(Object[].class, paramsCount);
+	}
+}
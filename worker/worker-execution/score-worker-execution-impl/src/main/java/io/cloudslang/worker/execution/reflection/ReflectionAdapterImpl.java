@@ -12,8 +12,6 @@ package io.cloudslang.worker.execution.reflection;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -46,20 +44,18 @@ public class ReflectionAdapterImpl implements ReflectionAdapter, ApplicationCont
 	private SessionDataHandler sessionDataHandler;
 	private ApplicationContext applicationContext;
 	private Map<String, Object> cacheBeans = new ConcurrentHashMap<>();
-	private Map<String, Method> cacheMethods = new ConcurrentHashMap<>();
 	private ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
-	private Map<String, String[]> cacheParamNames = new ConcurrentHashMap<>();
+	private Map<ControlActionMetadata, ControlActionInvoker> cacheInvokers = new ConcurrentHashMap<>();
 
 	@Override
 	public Object executeControlAction(ControlActionMetadata actionMetadata, Map<String, ?> actionData) {
 		Validate.notNull(actionMetadata, "Action metadata is null");
 		if(logger.isDebugEnabled()) logger.debug("Executing control action [" + actionMetadata.getClassName() + '.' + actionMetadata.getMethodName() + ']');
 		try {
-			Object actionBean = getActionBean(actionMetadata);
-			Method actionMethod = getActionMethod(actionMetadata);
-			Object[] arguments = buildParametersArray(actionMethod, actionData);
+			ControlActionInvoker invoker = getInvoker(actionMetadata);
+			Object[] arguments = buildParametersArray(invoker, actionData);
 			if(logger.isTraceEnabled()) logger.trace("Invoking...");
-			Object result = actionMethod.invoke(actionBean, arguments);
+			Object result = invoker.invoke(arguments);
 			clearStateAfterInvocation(actionData);
 			if(logger.isDebugEnabled()) logger.debug("Control action [" + actionMetadata.getClassName() + '.' + actionMetadata.getMethodName() + "] done");
 			return result;
@@ -80,6 +76,18 @@ public class ReflectionAdapterImpl implements ReflectionAdapter, ApplicationCont
 		sessionDataHandler.setSessionDataInactive(getExecutionIdFromActionData(actionData));
 	}
 
+	private ControlActionInvoker getInvoker(ControlActionMetadata actionMetadata) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+		ControlActionInvoker invoker = cacheInvokers.get(actionMetadata);
+		if(invoker == null) {
+			if(logger.isTraceEnabled()) logger.trace(actionMetadata.getClassName() + '.' + actionMetadata.getMethodName() + " wasn't found in the invokers cache");
+			Method actionMethod = getActionMethod(actionMetadata);
+			invoker = new ControlActionInvoker(getActionBean(actionMetadata), actionMethod, parameterNameDiscoverer.getParameterNames(actionMethod));
+			// the metadata is mutable, the key is a copy of it
+			cacheInvokers.put(new ControlActionMetadata(actionMetadata.getClassName(), actionMetadata.getMethodName()), invoker);
+		}
+		return invoker;
+	}
+
 	private Object getActionBean(ControlActionMetadata actionMetadata) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
 		Object bean = cacheBeans.get(actionMetadata.getClassName());
 		if(bean == null) {
@@ -97,19 +105,13 @@ public class ReflectionAdapterImpl implements ReflectionAdapter, ApplicationCont
 		return bean;
 	}
 
-	private Method getActionMethod(ControlActionMetadata actionMetadata) throws ClassNotFoundException {
-		Method actionMethod = cacheMethods.get(actionMetadata.getClassName() + '.' + actionMetadata.getMethodName());
-		if(actionMethod == null) {
-			if(logger.isTraceEnabled()) logger.trace(actionMetadata.getClassName() + '.' + actionMetadata.getMethodName() + " wasn't found in the methods cache");
-			for(Method method : Class.forName(actionMetadata.getClassName()).getMethods()) {
-				if(method.getName().equals(actionMetadata.getMethodName())) {
-					actionMethod = method;
-					cacheMethods.put(actionMetadata.getClassName() + '.' + actionMetadata.getMethodName(), method);
-					break;
-				}
+	private static Method getActionMethod(ControlActionMetadata actionMetadata) throws ClassNotFoundException {
+		Method actionMethod = null;
+		for(Method method : Class.forName(actionMetadata.getClassName()).getMethods()) {
+			if(method.getName().equals(actionMetadata.getMethodName())) {
+				actionMethod = method;
+				break;
 			}
-		} else if(logger.isTraceEnabled()) {
-			logger.trace(actionMetadata.getClassName() + '.' + actionMetadata.getMethodName() + " was found in the methods cache");
 		}
 		if(actionMethod == null) {
 			String errMessage = "Method: " + actionMetadata.getMethodName() + " was not found in class:  " + actionMetadata.getClassName();
@@ -119,28 +121,23 @@ public class ReflectionAdapterImpl implements ReflectionAdapter, ApplicationCont
 		return actionMethod;
 	}
 
-	private Object[] buildParametersArray(Method actionMethod, Map<String, ?> actionData) {
-		String actionFullName = actionMethod.getDeclaringClass().getName() + "." + actionMethod.getName();
-		String[] paramNames = cacheParamNames.get(actionFullName);
-		if(paramNames == null) {
-			paramNames = parameterNameDiscoverer.getParameterNames(actionMethod);
-			cacheParamNames.put(actionFullName, paramNames);
-		}
-		List<Object> args = new ArrayList<>(paramNames.length);
-		for(String paramName : paramNames) {
-			if(ExecutionParametersConsts.NON_SERIALIZABLE_EXECUTION_DATA.equals(paramName)) {
+	private Object[] buildParametersArray(ControlActionInvoker invoker, Map<String, ?> actionData) {
+		String[] paramNames = invoker.getParamNames();
+		int nonSerializableDataIndex = invoker.getNonSerializableDataIndex();
+		Object[] args = new Object[paramNames.length];
+		for(int i = 0; i < paramNames.length; i++) {
+			if(i == nonSerializableDataIndex) {
 				Long executionId = getExecutionIdFromActionData(actionData);
 				Map<String, Object> nonSerializableExecutionData = sessionDataHandler.getNonSerializableExecutionData(executionId);
-				args.add(nonSerializableExecutionData);
+				args[i] = nonSerializableExecutionData;
 				// If the control action requires non-serializable session data, we add it to the arguments array
 				// and set the session data as active, so that it won't be cleared
 				sessionDataHandler.setSessionDataActive(executionId);
 				continue;
 			}
-			Object param = actionData.get(paramName);
-			args.add(param);
+			args[i] = actionData.get(paramNames[i]);
 		}
-		return args.toArray(new Object[args.size()]);
+		return args;
 	}
 
 	private static Long getExecutionIdFromActionData(Map<String, ?> actionData) {
@@ -0,0 +1,339 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.execution.services;
+
+import io.cloudslang.score.api.ExecutionPlan;
+import io.cloudslang.score.api.ExecutionStep;
+import io.cloudslang.score.facade.entities.RunningExecutionPlan;
+import io.cloudslang.worker.management.services.dbsupport.WorkerDbSupportService;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the deserialized execution plans in the least recently used order, bounded by the number of plans and by their total number of steps.
+ * A plan is loaded from the database once - the threads that need it while it loads wait for the same load.
+ * With a refresh interval, a plan that is older than the interval is reloaded in the background while the cached one is still returned.
+ * A cached plan is shared by all the executions that run it, so the maps, lists and sets in the data of its steps are made read-only when it is loaded.
+ */
+public class ExecutionPlanCacheImpl implements ExecutionPlanCache {
+
+	private static final Logger logger = Logger.getLogger(ExecutionPlanCacheImpl.class);
+
+	@Autowired
+	private WorkerDbSupportService workerDbSupportService;
+
+	private int maxPlans = 1000;
+	private long maxSteps = 100000;
+	private long refreshAfterMillis = 0;
+
+	// guarded by itself, in access order
+	private final LinkedHashMap<Long, CachedPlan> plans = new LinkedHashMap<>(16, 0.75f, true);
+	private long totalSteps;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong refreshCount = new AtomicLong();
+
+	private ExecutorService loader;
+
+	@PostConstruct
+	void init() {
+		maxPlans = Integer.getInteger("worker.executionPlanCache.maxPlans", maxPlans);
+		maxSteps = Long.getLong("worker.executionPlanCache.maxSteps", maxSteps);
+		refreshAfterMillis = Long.getLong("worker.executionPlanCache.refreshAfterMillis", refreshAfterMillis);
+		loader = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "execution-plan-cache-loader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		logger.info("Execution plan cache is set to max " + maxPlans + " plans and " + maxSteps + " steps" +
+				(refreshAfterMillis > 0 ? ", refreshAfterMillis is set to :" + refreshAfterMillis : ""));
+	}
+
+	@PreDestroy
+	void destroy() {
+		loader.shutdownNow();
+	}
+
+	@Override
+	public ExecutionPlan getExecutionPlan(Long runningExecutionPlanId) {
+		CachedPlan cachedPlan;
+		boolean load = false;
+		synchronized (plans) {
+			cachedPlan = plans.get(runningExecutionPlanId);
+			if (cachedPlan == null) {
+				cachedPlan = new CachedPlan(runningExecutionPlanId);
+				plans.put(runningExecutionPlanId, cachedPlan);
+				load = true;
+			}
+		}
+		if (load) {
+			missCount.incrementAndGet();
+			load(cachedPlan);
+		} else {
+			hitCount.incrementAndGet();
+			refreshIfNeeded(cachedPlan);
+		}
+		return cachedPlan.get();
+	}
+
+	@Override
+	public void preload(Collection<Long> runningExecutionPlanIds) {
+		for (Long runningExecutionPlanId : runningExecutionPlanIds) {
+			final CachedPlan cachedPlan;
+			synchronized (plans) {
+				if (runningExecutionPlanId == null || plans.containsKey(runningExecutionPlanId)) continue;
+				cachedPlan = new CachedPlan(runningExecutionPlanId);
+				plans.put(runningExecutionPlanId, cachedPlan);
+			}
+			try {
+				loader.execute(new Runnable() {
+					@Override
+					public void run() {
+						load(cachedPlan);
+					}
+				});
+			} catch (RejectedExecutionException ex) {
+				load(cachedPlan);
+			}
+		}
+	}
+
+	@Override
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	@Override
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	@Override
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	@Override
+	public long getRefreshCount() {
+		return refreshCount.get();
+	}
+
+	@Override
+	public int getSize() {
+		synchronized (plans) {
+			return plans.size();
+		}
+	}
+
+	// loads the plan outside the lock of the cache, then accounts for its steps
+	private void load(CachedPlan cachedPlan) {
+		ExecutionPlan executionPlan = null;
+		RuntimeException failure = null;
+		try {
+			executionPlan = readExecutionPlan(cachedPlan.runningExecutionPlanId);
+		} catch (RuntimeException ex) {
+			failure = ex;
+		}
+		synchronized (plans) {
+			if (executionPlan == null) {
+				// not cached, the next call tries again
+				if (plans.get(cachedPlan.runningExecutionPlanId) == cachedPlan) plans.remove(cachedPlan.runningExecutionPlanId);
+			} else if (plans.get(cachedPlan.runningExecutionPlanId) == cachedPlan) {
+				cachedPlan.steps = executionPlan.getSteps().size();
+				totalSteps += cachedPlan.steps;
+				evictIfNeeded(cachedPlan);
+			}
+		}
+		if (failure != null) {
+			cachedPlan.fail(failure);
+		} else {
+			cachedPlan.set(executionPlan);
+		}
+	}
+
+	private void refreshIfNeeded(final CachedPlan cachedPlan) {
+		if (refreshAfterMillis <= 0 || !cachedPlan.isLoaded() || System.currentTimeMillis() - cachedPlan.loadTime < refreshAfterMillis) return;
+		if (!cachedPlan.startRefresh()) return;
+		try {
+			loader.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						ExecutionPlan executionPlan = readExecutionPlan(cachedPlan.runningExecutionPlanId);
+						if (executionPlan != null) {
+							synchronized (plans) {
+								if (plans.get(cachedPlan.runningExecutionPlanId) == cachedPlan) {
+									int steps = executionPlan.getSteps().size();
+									totalSteps += steps - cachedPlan.steps;
+									cachedPlan.steps = steps;
+									evictIfNeeded(cachedPlan);
+								}
+							}
+							cachedPlan.set(executionPlan);
+							refreshCount.incrementAndGet();
+						}
+					} catch (RuntimeException ex) {
+						logger.warn("Failed to refresh execution plan of running execution plan " + cachedPlan.runningExecutionPlanId, ex);
+					} finally {
+						cachedPlan.endRefresh();
+					}
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			cachedPlan.endRefresh();
+		}
+	}
+
+	// must be called under the lock of the cache, never evicts the given plan
+	private void evictIfNeeded(CachedPlan keep) {
+		Iterator<CachedPlan> iterator = plans.values().iterator();
+		while ((plans.size() > maxPlans || (maxSteps > 0 && totalSteps > maxSteps)) && iterator.hasNext()) {
+			CachedPlan eldest = iterator.next();
+			if (eldest == keep || !eldest.isLoaded()) continue;
+			iterator.remove();
+			totalSteps -= eldest.steps;
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	private ExecutionPlan readExecutionPlan(Long runningExecutionPlanId) {
+		RunningExecutionPlan runningExecutionPlan = workerDbSupportService.readExecutionPlanById(runningExecutionPlanId);
+		if (runningExecutionPlan == null) return null;
+		ExecutionPlan executionPlan = runningExecutionPlan.getExecutionPlan();
+		for (ExecutionStep step : executionPlan.getSteps().values()) {
+			if (step.getActionData() != null) {
+				step.setActionData(readOnlyMap(step.getActionData()));
+			}
+			// getNavigationData() hides null with an empty map
+			if (!step.getNavigationData().isEmpty()) {
+				step.setNavigationData(readOnlyMap(step.getNavigationData()));
+			}
+		}
+		return executionPlan;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, ?> readOnlyMap(Map<String, ?> data) {
+		return (Map<String, ?>) readOnlyValue(data);
+	}
+
+	// other values are shared as they are - the immutable ones and the objects a control action is not expected to change
+	private static Object readOnlyValue(Object value) {
+		if (value instanceof Map) {
+			Map<Object, Object> copy = new LinkedHashMap<>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				copy.put(entry.getKey(), readOnlyValue(entry.getValue()));
+			}
+			return Collections.unmodifiableMap(copy);
+		}
+		if (value instanceof List) {
+			List<Object> copy = new ArrayList<>();
+			for (Object element : (List<?>) value) {
+				copy.add(readOnlyValue(element));
+			}
+			return Collections.unmodifiableList(copy);
+		}
+		if (value instanceof Set) {
+			Set<Object> copy = new LinkedHashSet<>();
+			for (Object element : (Set<?>) value) {
+				copy.add(readOnlyValue(element));
+			}
+			return Collections.unmodifiableSet(copy);
+		}
+		return value;
+	}
+
+	private static class CachedPlan {
+		private final Long runningExecutionPlanId;
+		private volatile ExecutionPlan executionPlan;
+		private volatile long loadTime;
+		private RuntimeException failure;
+		private boolean done;
+		private boolean refreshing;
+		// guarded by the cache lock
+		private int steps;
+
+		CachedPlan(Long runningExecutionPlanId) {
+			this.runningExecutionPlanId = runningExecutionPlanId;
+		}
+
+		synchronized void set(ExecutionPlan executionPlan) {
+			this.executionPlan = executionPlan;
+			loadTime = System.currentTimeMillis();
+			done = true;
+			notifyAll();
+		}
+
+		synchronized void fail(RuntimeException failure) {
+			this.failure = failure;
+			done = true;
+			notifyAll();
+		}
+
+		boolean isLoaded() {
+			return executionPlan != null;
+		}
+
+		// waits for the first load of the plan
+		ExecutionPlan get() {
+			ExecutionPlan loaded = executionPlan;
+			if (loaded != null) return loaded;
+			boolean interrupted = false;
+			synchronized (this) {
+				while (!done) {
+					try {
+						wait();
+					} catch (InterruptedException ex) {
+						interrupted = true;
+					}
+				}
+			}
+			if (interrupted) Thread.currentThread().interrupt();
+			if (failure != null) throw failure;
+			return executionPlan;
+		}
+
+		synchronized boolean startRefresh() {
+			if (refreshing) return false;
+			refreshing = true;
+			return true;
+		}
+
+		synchronized void endRefresh() {
+			refreshing = false;
+		}
+	}
+}
@@ -61,6 +61,8 @@ public final class ExecutionServiceImpl implements ExecutionService {
 	private WorkerConfigurationService workerConfigurationService;
 	@Autowired
 	private EventBus eventBus;
+	@Autowired(required = false)
+	private ExecutionPlanCache executionPlanCache;
 
 	@Override
 	public Execution execute(Execution execution) throws InterruptedException {
@@ -288,7 +290,7 @@ public final class ExecutionServiceImpl implements ExecutionService {
 	}
 
 	protected ExecutionStep loadExecutionStep(Execution execution) {
-		RunningExecutionPlan runningExecutionPlan;
+		ExecutionPlan executionPlan;
 		if(execution != null) {
 			// Optimization for external workers - run the content only without loading the execution plan
 			if(execution.getSystemContext().get(TempConstants.CONTENT_EXECUTION_STEP) != null) {
@@ -296,12 +298,12 @@ public final class ExecutionServiceImpl implements ExecutionService {
 			}
 			Long position = execution.getPosition();
 			if(position != null) {
-				runningExecutionPlan = workerDbSupportService.readExecutionPlanById(execution.getRunningExecutionPlanId());
-				if(runningExecutionPlan != null) {
-					updateMetadata(execution,runningExecutionPlan);
-					ExecutionStep currStep = runningExecutionPlan.getExecutionPlan().getStep(position);
+				executionPlan = loadExecutionPlan(execution.getRunningExecutionPlanId());
+				if(executionPlan != null) {
+					updateMetadata(execution,executionPlan);
+					ExecutionStep currStep = executionPlan.getStep(position);
 					if(logger.isDebugEnabled()) {
-						logger.debug("Begin step: " + position + " in flow " + runningExecutionPlan.getExecutionPlan().getFlowUuid() + " [" + execution.getExecutionId() + "]");
+						logger.debug("Begin step: " + position + " in flow " + executionPlan.getFlowUuid() + " [" + execution.getExecutionId() + "]");
 					}
 					if(currStep != null) {
 						return currStep;
@@ -313,9 +315,16 @@ public final class ExecutionServiceImpl implements ExecutionService {
 		throw new RuntimeException("Failed to load ExecutionStep!");
 	}
 
-	private void updateMetadata(Execution execution, RunningExecutionPlan runningExecutionPlan){
+	private ExecutionPlan loadExecutionPlan(Long runningExecutionPlanId) {
+		if(executionPlanCache != null) {
+			return executionPlanCache.getExecutionPlan(runningExecutionPlanId);
+		}
+		RunningExecutionPlan runningExecutionPlan = workerDbSupportService.readExecutionPlanById(runningExecutionPlanId);
+		return runningExecutionPlan == null ? null : runningExecutionPlan.getExecutionPlan();
+	}
+
+	private void updateMetadata(Execution execution, ExecutionPlan executionPlan){
 		Map<String,Serializable> executionMetadata = (Map<String,Serializable>)execution.getSystemContext().getMetaData();
-		ExecutionPlan executionPlan  = runningExecutionPlan.getExecutionPlan();
 		executionMetadata.put(ExecutionMetadataConsts.EXECUTION_PLAN_ID,executionPlan.getFlowUuid());
 		executionMetadata.put(ExecutionMetadataConsts.EXECUTION_PLAN_NAME,executionPlan.getName());
 	}
@@ -335,16 +344,21 @@ public final class ExecutionServiceImpl implements ExecutionService {
 	}
 
 	private Map<String, Object> prepareStepData(Execution execution, ExecutionStep currStep) {
-        Map<String, ?> actionData = currStep.getActionData();
-        Map<String, Object> stepData = new HashMap<>();
-        if (actionData != null){
-            stepData.putAll(actionData);
-        }
+		Map<String, Object> stepData = copyStepData(currStep.getActionData());
 		// We add all the contexts to the step data - so inside of each control action we will have access to all contexts
 		addContextData(stepData, execution);
 		return stepData;
 	}
 
+	// The values of the step data of a plan from the execution plan cache are read-only, the cache makes them so when it loads the plan
+	private Map<String, Object> copyStepData(Map<String, ?> data) {
+		Map<String, Object> stepData = new HashMap<>();
+		if(data != null) {
+			stepData.putAll(data);
+		}
+		return stepData;
+	}
+
 	private void createErrorEvent(String ex, String logMessage, String errorType, SystemContext systemContext) throws InterruptedException {
 		HashMap<String, Serializable> eventData = new HashMap<>();
 		eventData.put(ExecutionParametersConsts.SYSTEM_CONTEXT, new HashMap<>(systemContext));
@@ -359,7 +373,7 @@ public final class ExecutionServiceImpl implements ExecutionService {
 		Long position;
 		try {
 			if(currStep.getNavigation() != null) {
-				Map<String, Object> navigationData = new HashMap<>(currStep.getNavigationData());
+				Map<String, Object> navigationData = copyStepData(currStep.getNavigationData());
 				// We add all the contexts to the step data - so inside of each control action we will have access to all contexts
 				addContextData(navigationData, execution);
 				position = (Long)reflectionAdapter.executeControlAction(currStep.getNavigation(), navigationData);
@@ -0,0 +1,108 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.execution.reflection;
+
+import io.cloudslang.samples.controlactions.NavigationActions;
+import io.cloudslang.score.api.ControlActionMetadata;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = ReflectionAdapterTest.Context.class)
+public class ReflectionAdapterBenchmarkTest {
+
+	private static final Logger logger = Logger.getLogger(ReflectionAdapterBenchmarkTest.class);
+
+	private static final int BENCHMARK_ITERATIONS = 200000;
+
+	@Autowired
+	private ReflectionAdapter adapter;
+
+	/**
+	 * Runs the navigation actions of the samples with the cached invokers of the adapter
+	 * and with the reflective invocation that the adapter used before, and reports the average time of an action
+	 */
+	@Test
+	public void executeControlActionBenchmark() throws Exception {
+		ControlActionMetadata nextStep = new ControlActionMetadata(NavigationActions.class.getName(), "nextStepNavigation");
+		ControlActionMetadata simpleNavigation = new ControlActionMetadata(NavigationActions.class.getName(), "simpleNavigation");
+		Map<String, Object> actionData = new HashMap<>();
+		actionData.put("nextStepId", 2L);
+		ReflectiveInvoker reflectiveInvoker = new ReflectiveInvoker();
+		for(int round = 0; round < 2; round++) { // the first round warms up
+			long start = System.nanoTime();
+			for(int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+				reflectiveInvoker.invoke(nextStep, actionData);
+				Assert.assertEquals(2L, reflectiveInvoker.invoke(simpleNavigation, actionData));
+			}
+			long reflectionTime = System.nanoTime() - start;
+			start = System.nanoTime();
+			for(int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+				adapter.executeControlAction(nextStep, actionData);
+				Assert.assertEquals(2L, adapter.executeControlAction(simpleNavigation, actionData));
+			}
+			long invokersTime = System.nanoTime() - start;
+			if(round > 0) {
+				logger.info("Control action average time: reflection " + reflectionTime / (2 * BENCHMARK_ITERATIONS) + " ns, cached invokers " +
+					invokersTime / (2 * BENCHMARK_ITERATIONS) + " ns");
+			}
+		}
+	}
+
+	// the invocation of the adapter before the invokers were cached
+	private static class ReflectiveInvoker {
+
+		private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+		private final Map<String, Object> beans = new ConcurrentHashMap<>();
+		private final Map<String, Method> methods = new ConcurrentHashMap<>();
+		private final Map<String, String[]> paramNames = new ConcurrentHashMap<>();
+
+		Object invoke(ControlActionMetadata metadata, Map<String, ?> actionData) throws Exception {
+			Object bean = beans.get(metadata.getClassName());
+			if(bean == null) {
+				bean = Class.forName(metadata.getClassName()).newInstance();
+				beans.put(metadata.getClassName(), bean);
+			}
+			Method method = methods.get(metadata.getClassName() + '.' + metadata.getMethodName());
+			if(method == null) {
+				for(Method classMethod : Class.forName(metadata.getClassName()).getMethods()) {
+					if(classMethod.getName().equals(metadata.getMethodName())) method = classMethod;
+				}
+				methods.put(metadata.getClassName() + '.' + metadata.getMethodName(), method);
+			}
+			String actionFullName = method.getDeclaringClass().getName() + "." + method.getName();
+			String[] names = paramNames.get(actionFullName);
+			if(names == null) {
+				names = parameterNameDiscoverer.getParameterNames(method);
+				paramNames.put(actionFullName, names);
+			}
+			List<Object> args = new ArrayList<>(names.length);
+			for(String name : names) {
+				args.add(actionData.get(name));
+			}
+			return method.invoke(bean, args.toArray(new Object[args.size()]));
+		}
+	}
+}
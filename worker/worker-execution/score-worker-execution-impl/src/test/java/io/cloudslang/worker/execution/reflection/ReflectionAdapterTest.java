@@ -11,7 +11,9 @@
 package io.cloudslang.worker.execution.reflection;
 
 import io.cloudslang.worker.execution.services.SessionDataHandler;
+import io.cloudslang.worker.execution.services.SessionDataHandlerImpl;
 import io.cloudslang.score.api.ControlActionMetadata;
+import io.cloudslang.score.exceptions.FlowExecutionException;
 import junit.framework.Assert;
 import org.apache.log4j.Logger;
 import org.junit.Test;
@@ -88,6 +90,63 @@ public class ReflectionAdapterTest {
 		Assert.assertNull(result);
 	}
 
+	@Test
+	public void executeStaticControlActionTest() {
+		ControlActionMetadata metadata = new ControlActionMetadata("io.cloudslang.worker.execution.reflection.ReflectionAdapterTestHelper", "myMethod_5");
+		Map<String, Object> actionData = new HashMap<>();
+		actionData.put("parameter_1", 21);
+		Assert.assertEquals(42L, adapter.executeControlAction(metadata, actionData));
+	}
+
+	@Test
+	public void executeControlActionWrongArgumentsTest() {
+		ControlActionMetadata metadata = new ControlActionMetadata("io.cloudslang.worker.execution.reflection.ReflectionAdapterTestHelper", "myMethod_2");
+		Map<String, Object> actionData = new HashMap<>();
+		actionData.put("parameter_1", "5");
+		actionData.put("parameter_2", 3);
+		try {
+			adapter.executeControlAction(metadata, actionData);
+			Assert.fail();
+		} catch(FlowExecutionException ex) {
+			Assert.assertTrue(ex.getMessage().startsWith("Failed to run the action! Wrong arguments were passed"));
+		}
+		actionData.remove("parameter_1");
+		try {
+			adapter.executeControlAction(metadata, actionData);
+			Assert.fail();
+		} catch(FlowExecutionException ex) {
+			Assert.assertTrue(ex.getMessage().startsWith("Failed to run the action! Wrong arguments were passed"));
+		}
+	}
+
+	@Test
+	public void executeControlActionFailureTest() {
+		ControlActionMetadata metadata = new ControlActionMetadata("io.cloudslang.worker.execution.reflection.ReflectionAdapterTestHelper", "myMethod_6");
+		Map<String, Object> actionData = new HashMap<>();
+		actionData.put("parameter_1", "action failed");
+		try {
+			adapter.executeControlAction(metadata, actionData);
+			Assert.fail();
+		} catch(FlowExecutionException ex) {
+			Assert.assertEquals("action failed", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void executeControlActionChangedMetadataTest() {
+		ControlActionMetadata metadata = new ControlActionMetadata("io.cloudslang.worker.execution.reflection.ReflectionAdapterTestHelper", "myMethod_2");
+		Map<String, Object> actionData = new HashMap<>();
+		actionData.put("parameter_1", 5);
+		actionData.put("parameter_2", 3);
+		Assert.assertEquals(8, adapter.executeControlAction(metadata, actionData));
+		metadata.setMethodName("myMethod_5");
+		actionData.put("parameter_1", 4L);
+		Assert.assertEquals(8L, adapter.executeControlAction(metadata, actionData));
+		metadata.setMethodName("myMethod_2");
+		actionData.put("parameter_1", 4);
+		Assert.assertEquals(7, adapter.executeControlAction(metadata, actionData));
+	}
+
 	@Configuration
 	static class Context {
 
@@ -105,7 +164,7 @@ public class ReflectionAdapterTest {
 
         @Bean
         SessionDataHandler sessionDataHandler(){
-            return org.mockito.Mockito.mock(SessionDataHandler.class);
+            return new SessionDataHandlerImpl();
         }
 	}
 
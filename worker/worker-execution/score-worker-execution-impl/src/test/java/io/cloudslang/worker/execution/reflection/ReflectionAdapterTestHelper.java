@@ -33,4 +33,13 @@ public class ReflectionAdapterTestHelper {
 		return executionContext;
 	}
 
+	public static long myMethod_5(long parameter_1) {
+		return parameter_1 * 2;
+	}
+
+	@SuppressWarnings("static-method")
+	public void myMethod_6(String parameter_1) {
+		throw new IllegalStateException(parameter_1);
+	}
+
 }
@@ -0,0 +1,83 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.execution.services;
+
+import io.cloudslang.score.facade.entities.RunningExecutionPlan;
+import io.cloudslang.worker.management.services.dbsupport.WorkerDbSupportService;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static io.cloudslang.worker.execution.services.ExecutionPlanCacheImplTest.zipPlan;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExecutionPlanCacheImplBenchmarkTest {
+
+	private static final Logger logger = Logger.getLogger(ExecutionPlanCacheImplBenchmarkTest.class);
+
+	private static final int STEPS = 200;
+	private static final int LOOKUPS = 20000;
+
+	private ExecutionPlanCacheImpl cache;
+	private WorkerDbSupportService workerDbSupportService;
+
+	@Before
+	public void setUp() {
+		final byte[] zipped = zipPlan("flow1", STEPS);
+		workerDbSupportService = mock(WorkerDbSupportService.class);
+		//every read returns a new entity like the database does
+		when(workerDbSupportService.readExecutionPlanById(anyLong())).thenAnswer(new Answer<RunningExecutionPlan>() {
+			@Override
+			public RunningExecutionPlan answer(InvocationOnMock invocation) {
+				RunningExecutionPlan runningExecutionPlan = new RunningExecutionPlan();
+				runningExecutionPlan.setExecutionPlanZipped(zipped);
+				return runningExecutionPlan;
+			}
+		});
+		cache = new ExecutionPlanCacheImpl();
+		ReflectionTestUtils.setField(cache, "workerDbSupportService", workerDbSupportService);
+		cache.init();
+	}
+
+	@After
+	public void tearDown() {
+		cache.destroy();
+	}
+
+	/**
+	 * Looks up the steps of a plan the way the worker did - reading the entity and unzipping its plan for every step,
+	 * and through the cache, and reports the average time of a lookup
+	 */
+	@Test
+	public void lookupBenchmark() {
+		long startTime = System.nanoTime();
+		for (int i = 0; i < LOOKUPS / 20; i++) {
+			assertNotNull(workerDbSupportService.readExecutionPlanById(1L).getExecutionPlan().getStep((long) (i % STEPS)));
+		}
+		long entityTime = (System.nanoTime() - startTime) / (LOOKUPS / 20);
+
+		startTime = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			assertNotNull(cache.getExecutionPlan(1L).getStep((long) (i % STEPS)));
+		}
+		long cacheTime = (System.nanoTime() - startTime) / LOOKUPS;
+
+		logger.info("Step lookup of a plan with " + STEPS + " steps: unzipped every time " + entityTime +
+				" ns, execution plan cache " + cacheTime + " ns");
+	}
+}
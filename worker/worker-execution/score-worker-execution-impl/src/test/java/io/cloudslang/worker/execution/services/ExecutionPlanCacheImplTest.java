@@ -0,0 +1,293 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.execution.services;
+
+import io.cloudslang.score.api.ControlActionMetadata;
+import io.cloudslang.score.api.ExecutionPlan;
+import io.cloudslang.score.api.ExecutionStep;
+import io.cloudslang.score.facade.entities.RunningExecutionPlan;
+import io.cloudslang.worker.management.services.dbsupport.WorkerDbSupportService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ExecutionPlanCacheImplTest {
+
+	private static final int STEPS = 200;
+
+	private ExecutionPlanCacheImpl cache;
+	private WorkerDbSupportService workerDbSupportService;
+	//the zipped plans in the "database", every read returns a new entity like the database does
+	private final Map<Long, byte[]> zippedPlans = new HashMap<>();
+	//when set, the reads wait for it
+	private volatile CountDownLatch readLatch;
+
+	@Before
+	public void setUp() {
+		workerDbSupportService = mock(WorkerDbSupportService.class);
+		when(workerDbSupportService.readExecutionPlanById(anyLong())).thenAnswer(new Answer<RunningExecutionPlan>() {
+			@Override
+			public RunningExecutionPlan answer(InvocationOnMock invocation) throws InterruptedException {
+				if (readLatch != null) {
+					readLatch.await();
+				}
+				byte[] zipped = zippedPlans.get((Long) invocation.getArguments()[0]);
+				if (zipped == null) return null;
+				RunningExecutionPlan runningExecutionPlan = new RunningExecutionPlan();
+				runningExecutionPlan.setExecutionPlanZipped(zipped);
+				return runningExecutionPlan;
+			}
+		});
+		cache = new ExecutionPlanCacheImpl();
+		ReflectionTestUtils.setField(cache, "workerDbSupportService", workerDbSupportService);
+		cache.init();
+	}
+
+	@After
+	public void tearDown() {
+		cache.destroy();
+	}
+
+	@Test
+	public void testPlanIsLoadedOnce() {
+		addPlan(1L, "flow1", 3);
+
+		ExecutionPlan executionPlan = cache.getExecutionPlan(1L);
+		assertEquals("flow1", executionPlan.getFlowUuid());
+		assertNotNull(executionPlan.getStep(2L));
+		assertSame(executionPlan, cache.getExecutionPlan(1L));
+
+		verify(workerDbSupportService, times(1)).readExecutionPlanById(1L);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getSize());
+	}
+
+	@Test
+	public void testMissingPlanIsNotCached() {
+		assertNull(cache.getExecutionPlan(1L));
+		assertEquals(0, cache.getSize());
+
+		addPlan(1L, "flow1", 1);
+		assertNotNull(cache.getExecutionPlan(1L));
+	}
+
+	@Test
+	public void testFailedLoadIsNotCached() {
+		when(workerDbSupportService.readExecutionPlanById(5L)).thenThrow(new RuntimeException("db is down"));
+		try {
+			cache.getExecutionPlan(5L);
+			fail("the failure of the load must reach the caller");
+		} catch (RuntimeException ex) {
+			assertEquals("db is down", ex.getMessage());
+		}
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedPlanIsEvicted() {
+		ReflectionTestUtils.setField(cache, "maxPlans", 2);
+		addPlan(1L, "flow1", 1);
+		addPlan(2L, "flow2", 1);
+		addPlan(3L, "flow3", 1);
+
+		cache.getExecutionPlan(1L);
+		cache.getExecutionPlan(2L);
+		cache.getExecutionPlan(1L);
+		cache.getExecutionPlan(3L); //evicts 2 that was used before 1
+
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getEvictionCount());
+		cache.getExecutionPlan(1L);
+		verify(workerDbSupportService, times(1)).readExecutionPlanById(1L);
+		cache.getExecutionPlan(2L);
+		verify(workerDbSupportService, times(2)).readExecutionPlanById(2L);
+	}
+
+	@Test
+	public void testPlansAreBoundedByTheirSteps() {
+		ReflectionTestUtils.setField(cache, "maxSteps", 10L);
+		addPlan(1L, "flow1", 4);
+		addPlan(2L, "flow2", 4);
+		addPlan(3L, "flow3", 4);
+
+		cache.getExecutionPlan(1L);
+		cache.getExecutionPlan(2L);
+		assertEquals(2, cache.getSize());
+		cache.getExecutionPlan(3L);
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getEvictionCount());
+
+		//a plan that is bigger than the bound is still returned and cached alone
+		addPlan(4L, "flow4", 20);
+		assertEquals(20, cache.getExecutionPlan(4L).getSteps().size());
+		assertEquals(1, cache.getSize());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testStepDataIsReadOnly() {
+		HashMap<String, Serializable> inputs = new HashMap<>();
+		inputs.put("input", new ArrayList<>(Arrays.asList("value")));
+		HashMap<String, Serializable> actionData = new HashMap<>();
+		actionData.put("inputs", inputs);
+		actionData.put("name", "step");
+		ExecutionPlan executionPlan = new ExecutionPlan();
+		executionPlan.setFlowUuid("flow1");
+		executionPlan.setBeginStep(0L);
+		executionPlan.addStep(new ExecutionStep(0L).setActionData(actionData));
+		RunningExecutionPlan runningExecutionPlan = new RunningExecutionPlan();
+		runningExecutionPlan.setExecutionPlan(executionPlan);
+		zippedPlans.put(1L, runningExecutionPlan.getExecutionPlanZipped());
+
+		//the plan is shared by all the executions that run it - none of them can change its data
+		ExecutionStep step = cache.getExecutionPlan(1L).getStep(0L);
+		assertEquals("step", step.getActionData().get("name"));
+		assertTrue(step.getNavigationData().isEmpty());
+		Map<String, List<String>> cachedInputs = (Map<String, List<String>>) step.getActionData().get("inputs");
+		assertEquals(Arrays.asList("value"), cachedInputs.get("input"));
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				((Map<String, Object>) cache.getExecutionPlan(1L).getStep(0L).getActionData()).put("name", "changed");
+			}
+		});
+		assertUnsupported(new Runnable() {
+			@Override
+			public void run() {
+				((Map<String, List<String>>) cache.getExecutionPlan(1L).getStep(0L).getActionData().get("inputs")).get("input").add("changed");
+			}
+		});
+	}
+
+	@Test
+	public void testStalePlanIsRefreshedInTheBackground() {
+		ReflectionTestUtils.setField(cache, "refreshAfterMillis", 1L);
+		addPlan(1L, "flow1", 1);
+		ExecutionPlan executionPlan = cache.getExecutionPlan(1L);
+
+		sleep(10);
+		addPlan(1L, "flow1-updated", 1);
+		readLatch = new CountDownLatch(1);
+		assertSame(executionPlan, cache.getExecutionPlan(1L)); //the cached plan is returned while it refreshes
+		readLatch.countDown();
+
+		verify(workerDbSupportService, timeout(1000).times(2)).readExecutionPlanById(1L);
+		long endTime = System.currentTimeMillis() + 1000;
+		while (cache.getRefreshCount() == 0 && System.currentTimeMillis() < endTime) {
+			sleep(5);
+		}
+		assertEquals("flow1-updated", cache.getExecutionPlan(1L).getFlowUuid());
+	}
+
+	@Test
+	public void testPreloadLoadsInTheBackground() {
+		addPlan(1L, "flow1", 1);
+		addPlan(2L, "flow2", 1);
+
+		cache.preload(Arrays.asList(1L, 2L, 1L));
+
+		//the lookups wait for the loads that preload started
+		assertEquals("flow1", cache.getExecutionPlan(1L).getFlowUuid());
+		assertEquals("flow2", cache.getExecutionPlan(2L).getFlowUuid());
+		verify(workerDbSupportService, times(1)).readExecutionPlanById(1L);
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	public void testConcurrentLookupsLoadOnce() throws InterruptedException {
+		addPlan(1L, "flow1", STEPS);
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 8; i++) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException ex) {
+						return;
+					}
+					assertNotNull(cache.getExecutionPlan(1L));
+				}
+			});
+		}
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		verify(workerDbSupportService, times(1)).readExecutionPlanById(1L);
+		assertEquals(8, cache.getHitCount() + cache.getMissCount());
+	}
+
+	private void addPlan(Long id, String flowUuid, int steps) {
+		zippedPlans.put(id, zipPlan(flowUuid, steps));
+	}
+
+	static byte[] zipPlan(String flowUuid, int steps) {
+		ExecutionPlan executionPlan = new ExecutionPlan();
+		executionPlan.setFlowUuid(flowUuid);
+		executionPlan.setBeginStep(0L);
+		for (long i = 0; i < steps; i++) {
+			ExecutionStep step = new ExecutionStep(i);
+			step.setAction(new ControlActionMetadata("some.Class", "method" + i));
+			step.setNavigation(new ControlActionMetadata("some.Navigation", "navigate" + i));
+			executionPlan.addStep(step);
+		}
+		RunningExecutionPlan runningExecutionPlan = new RunningExecutionPlan();
+		runningExecutionPlan.setExecutionPlan(executionPlan);
+		return runningExecutionPlan.getExecutionPlanZipped();
+	}
+
+	private void assertUnsupported(Runnable change) {
+		try {
+			change.run();
+			fail("the step data of a cached plan must be read-only");
+		} catch (UnsupportedOperationException ex) {
+			//expected
+		}
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -34,4 +34,13 @@ public interface SynchronizationManager {
 
     void startDrain();
     void finishDrain();
+
+    //used by buffers that let several threads put messages at the same time (see StripedOutboundBufferImpl)
+    void startConcurrentPutMessages();
+    void finishConcurrentPutMessages();
+
+    void startConcurrentDrain();
+    void finishConcurrentDrain();
+
+    void releaseConcurrentPutLocks();
 }
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Apache License v2.0 which accompany this distribution.
+ *
+ * The Apache License is available at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *******************************************************************************/
+
+package io.cloudslang.worker.management;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A set of primitive longs with open addressing and linear probing - a lookup does not box and does not follow references.
+ * It is not thread safe, the worker configuration replaces the set instead of changing a set that is being read.
+ */
+final class LongHashSet {
+
+	private static final long EMPTY = 0L; // the zero value is kept aside
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private long[] table;
+	private int mask;
+	private int size;
+	private boolean containsZero;
+
+	LongHashSet() {
+		this(16);
+	}
+
+	LongHashSet(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+		table = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	static LongHashSet of(Collection<Long> values) {
+		LongHashSet set = new LongHashSet(values == null ? 0 : values.size());
+		if (values != null) {
+			for (Long value : values) {
+				if (value != null) set.add(value);
+			}
+		}
+		return set;
+	}
+
+	boolean contains(long value) {
+		if (value == EMPTY) return containsZero;
+		long[] table = this.table;
+		int mask = this.mask;
+		int index = hash(value) & mask;
+		long current;
+		while ((current = table[index]) != EMPTY) {
+			if (current == value) return true;
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	boolean add(long value) {
+		if (value == EMPTY) {
+			if (containsZero) return false;
+			containsZero = true;
+			size++;
+			return true;
+		}
+		int index = hash(value) & mask;
+		long current;
+		while ((current = table[index]) != EMPTY) {
+			if (current == value) return false;
+			index = (index + 1) & mask;
+		}
+		table[index] = value;
+		if (++size > table.length * LOAD_FACTOR) {
+			resize(table.length << 1);
+		}
+		return true;
+	}
+
+	boolean remove(long value) {
+		if (value == EMPTY) {
+			if (!containsZero) return false;
+			containsZero = false;
+			size--;
+			return true;
+		}
+		int index = hash(value) & mask;
+		long current;
+		while ((current = table[index]) != EMPTY) {
+			if (current == value) {
+				shiftBack(index);
+				size--;
+				return true;
+			}
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	int size() {
+		return size;
+	}
+
+	LongHashSet copy() {
+		LongHashSet copy = new LongHashSet();
+		copy.table = Arrays.copyOf(table, table.length);
+		copy.mask = mask;
+		copy.size = size;
+		copy.containsZero = containsZero;
+		return copy;
+	}
+
+	// closes the gap of a removed value, so the probing of the values after it still finds them
+	private void shiftBack(int gap) {
+		int index = gap;
+		while (true) {
+			index = (index + 1) & mask;
+			long current = table[index];
+			if (current == EMPTY) break;
+			int home = hash(current) & mask;
+			// the value can move to the gap if its home slot is not between the gap and its current slot
+			if (((index - home) & mask) >= ((index - gap) & mask)) {
+				table[gap] = current;
+				gap = index;
+			}
+		}
+		table[gap] = EMPTY;
+	}
+
+	private void resize(int capacity) {
+		long[] oldTable = table;
+		table = new long[capacity];
+		mask = capacity - 1;
+		for (long value : oldTable) {
+			if (value != EMPTY) {
+				int index = hash(value) & mask;
+				while (table[index] != EMPTY) {
+					index = (index + 1) & mask;
+				}
+				table[index] = value;
+			}
+		}
+	}
+
+	private static int hash(long value) {
+		long hash = value * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+}
@@ -10,7 +10,12 @@
 
 package io.cloudslang.worker.management;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import io.cloudslang.orchestrator.entities.MergedConfigurationDataContainer;
@@ -32,22 +37,30 @@ public class WorkerConfigurationServiceImpl implements WorkerConfigurationServic
 
 	private static final Logger log = Logger.getLogger(WorkerConfigurationServiceImpl.class);
 
-	private volatile List<Long> cancelledExecutions;
-	private volatile Set<String> pausedExecutions;
+	//the worker asks for the changes since the version it has, instead of the whole configuration on every refresh
+	private final boolean fullSync = Boolean.getBoolean("worker.configuration.fullSync");
+
+	//the sets are replaced on every change, so the execution threads read them without locking
+	private volatile LongHashSet cancelledExecutions = new LongHashSet();
+	private volatile PausedExecutions pausedExecutions = PausedExecutions.EMPTY;
 	private volatile List<String> workerGroups;
 	private volatile boolean enabled;
 
+	//written only by the refresh
+	private String epoch;
+	private long version;
+
 	@Autowired
 	private MergedConfigurationService 	mergedConfigurationService;
 
 	@Override
 	public boolean isExecutionCancelled(Long executionId) {
-		return cancelledExecutions != null && cancelledExecutions.contains(executionId);
+		return executionId != null && cancelledExecutions.contains(executionId);
 	}
 
 	@Override
 	public boolean isExecutionPaused(Long executionId, String branchId) {
-		return pausedExecutions != null && pausedExecutions.contains(executionId + ":" + String.valueOf(branchId)); // handle "null"
+		return pausedExecutions.contains(executionId, branchId);
 	}
 
 	@Override
@@ -62,15 +75,58 @@ public class WorkerConfigurationServiceImpl implements WorkerConfigurationServic
 
 	public void refresh() {
 		if(!enabled) return;
+		if(!fullSync) {
+			try {
+				MergedConfigurationDataContainer mergedConfigurationDataContainer = mergedConfigurationService.fetchMergedConfigurationDelta(getWorkerUuid(), epoch, version);
+				if(mergedConfigurationDataContainer != null && mergedConfigurationDataContainer.getEpoch() != null) {
+					applyConfiguration(mergedConfigurationDataContainer);
+					return;
+				}
+			} catch(Exception ex) {
+				log.error("Failed to fetch configuration changes, fetching the whole configuration: ", ex);
+			}
+		}
 		MergedConfigurationDataContainer mergedConfigurationDataContainer = mergedConfigurationService.fetchMergedConfiguration(getWorkerUuid());
+		epoch = null;
 		setCanceledExecutions(mergedConfigurationDataContainer);
 		setPausedExecutions(mergedConfigurationDataContainer);
 		setWorkerGroups(mergedConfigurationDataContainer);
 	}
 
+	private void applyConfiguration(MergedConfigurationDataContainer mergedConfigurationDataContainer) {
+		if(mergedConfigurationDataContainer.isDelta()) {
+			if(!isEmpty(mergedConfigurationDataContainer.getCancelledExecutions()) || !isEmpty(mergedConfigurationDataContainer.getRemovedCancelledExecutions())) {
+				LongHashSet cancelled = cancelledExecutions.copy();
+				if(mergedConfigurationDataContainer.getRemovedCancelledExecutions() != null) {
+					for(Long executionId : mergedConfigurationDataContainer.getRemovedCancelledExecutions()) {
+						cancelled.remove(executionId);
+					}
+				}
+				if(mergedConfigurationDataContainer.getCancelledExecutions() != null) {
+					for(Long executionId : mergedConfigurationDataContainer.getCancelledExecutions()) {
+						cancelled.add(executionId);
+					}
+				}
+				cancelledExecutions = cancelled;
+			}
+			if(!isEmpty(mergedConfigurationDataContainer.getPausedExecutions()) || !isEmpty(mergedConfigurationDataContainer.getRemovedPausedExecutions())) {
+				pausedExecutions = pausedExecutions.update(mergedConfigurationDataContainer.getPausedExecutions(), mergedConfigurationDataContainer.getRemovedPausedExecutions());
+			}
+			if(mergedConfigurationDataContainer.getWorkerGroups() != null) {
+				workerGroups = mergedConfigurationDataContainer.getWorkerGroups();
+			}
+		} else {
+			setCanceledExecutions(mergedConfigurationDataContainer);
+			setPausedExecutions(mergedConfigurationDataContainer);
+			setWorkerGroups(mergedConfigurationDataContainer);
+		}
+		epoch = mergedConfigurationDataContainer.getEpoch();
+		version = mergedConfigurationDataContainer.getVersion();
+	}
+
 	protected void setCanceledExecutions(MergedConfigurationDataContainer mergedConfigurationDataContainer) {
 		try {
-			cancelledExecutions = mergedConfigurationDataContainer.getCancelledExecutions();
+			cancelledExecutions = LongHashSet.of(mergedConfigurationDataContainer.getCancelledExecutions());
 		} catch(Exception ex) {
 			log.error("Failed to fetch cancelled information: ", ex);
 		}
@@ -78,7 +134,7 @@ public class WorkerConfigurationServiceImpl implements WorkerConfigurationServic
 
 	protected void setPausedExecutions(MergedConfigurationDataContainer mergedConfigurationDataContainer) {
 		try {
-			pausedExecutions = mergedConfigurationDataContainer.getPausedExecutions();
+			pausedExecutions = PausedExecutions.EMPTY.update(mergedConfigurationDataContainer.getPausedExecutions(), null);
 		} catch(Exception ex) {
 			log.error("Failed to fetch paused information: ", ex);
 		}
@@ -92,8 +148,89 @@ public class WorkerConfigurationServiceImpl implements WorkerConfigurationServic
 		}
 	}
 
+	private static boolean isEmpty(Collection<?> collection) {
+		return collection == null || collection.isEmpty();
+	}
+
 	protected static String getWorkerUuid() {
 		return System.getProperty("worker.uuid");
 	}
 
+	/**
+	 * The paused branches by execution id - a lookup does not build the "executionId:branchId" key of the orchestrator.
+	 * An instance is never changed, an update returns a new one.
+	 */
+	static final class PausedExecutions {
+
+		static final PausedExecutions EMPTY = new PausedExecutions(Collections.<Long, Set<String>>emptyMap(), Collections.<String>emptySet());
+
+		private final Map<Long, Set<String>> branchesByExecution;
+		private final Set<String> otherKeys; // keys that are not of the "executionId:branchId" form
+
+		private PausedExecutions(Map<Long, Set<String>> branchesByExecution, Set<String> otherKeys) {
+			this.branchesByExecution = branchesByExecution;
+			this.otherKeys = otherKeys;
+		}
+
+		boolean contains(Long executionId, String branchId) {
+			Set<String> branches = branchesByExecution.isEmpty()? null: branchesByExecution.get(executionId);
+			if(branches != null && branches.contains(String.valueOf(branchId))) { // handle "null"
+				return true;
+			}
+			return !otherKeys.isEmpty() && otherKeys.contains(executionId + ":" + String.valueOf(branchId));
+		}
+
+		PausedExecutions update(Collection<String> added, Collection<String> removed) {
+			Map<Long, Set<String>> branchesByExecution = new HashMap<>(this.branchesByExecution);
+			Set<String> otherKeys = new HashSet<>(this.otherKeys);
+			if(removed != null) {
+				for(String key : removed) {
+					Long executionId = getExecutionId(key);
+					if(executionId == null) {
+						otherKeys.remove(key);
+					} else {
+						Set<String> branches = branchesByExecution.get(executionId);
+						if(branches != null) {
+							branches = new HashSet<>(branches);
+							branches.remove(getBranchId(key));
+							if(branches.isEmpty()) {
+								branchesByExecution.remove(executionId);
+							} else {
+								branchesByExecution.put(executionId, branches);
+							}
+						}
+					}
+				}
+			}
+			if(added != null) {
+				for(String key : added) {
+					Long executionId = getExecutionId(key);
+					if(executionId == null) {
+						otherKeys.add(key);
+					} else {
+						Set<String> branches = branchesByExecution.get(executionId);
+						branches = branches == null? new HashSet<String>(): new HashSet<>(branches);
+						branches.add(getBranchId(key));
+						branchesByExecution.put(executionId, branches);
+					}
+				}
+			}
+			return new PausedExecutions(branchesByExecution, otherKeys);
+		}
+
+		private static Long getExecutionId(String key) {
+			int separator = key == null? -1: key.indexOf(':');
+			if(separator <= 0) return null;
+			try {
+				return Long.valueOf(key.substring(0, separator));
+			} catch(NumberFormatException ex) {
+				return null;
+			}
+		}
+
+		private static String getBranchId(String key) {
+			return key.substring(key.indexOf(':') + 1);
+		}
+	}
+
 }
@@ -0,0 +1,250 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management.services;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The queue of the worker execution threads that takes the tasks of the waiting executions in turns.
+ * Every execution has its own lane and the lanes are served round robin one task at a time,
+ * so a flow with thousands of parallel branches can not starve the small flows that arrive after it.
+ * Tasks that do not belong to an execution share a single lane.
+ */
+class FairExecutionQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private static final Object NO_EXECUTION = new Object();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Map<Object, ArrayDeque<Runnable>> lanes = new HashMap<>();
+    private final ArrayDeque<Object> turns = new ArrayDeque<>(); //the keys of the non empty lanes
+    private int count;
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        if (runnable == null) throw new NullPointerException();
+        Object key = getKey(runnable);
+        lock.lock();
+        try {
+            ArrayDeque<Runnable> lane = lanes.get(key);
+            if (lane == null) {
+                lane = new ArrayDeque<>();
+                lanes.put(key, lane);
+                turns.addLast(key);
+            }
+            lane.addLast(runnable);
+            count++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable runnable) {
+        offer(runnable);
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) {
+        return offer(runnable);
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return count == 0? null: dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return count == 0? null: lanes.get(turns.peekFirst()).peekFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof Runnable)) return false;
+        Object key = getKey((Runnable) object);
+        lock.lock();
+        try {
+            ArrayDeque<Runnable> lane = lanes.get(key);
+            if (lane == null || !lane.remove(object)) {
+                return false;
+            }
+            count--;
+            if (lane.isEmpty()) {
+                lanes.remove(key);
+                turns.remove(key);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> collection, int maxElements) {
+        if (collection == this) throw new IllegalArgumentException();
+        lock.lock();
+        try {
+            int drained = 0;
+            while (count > 0 && drained < maxElements) {
+                collection.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //the iterator works on a snapshot of the queue in the order of the turns
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> snapshot = new ArrayList<>(count);
+            for (Object key : turns) {
+                snapshot.addAll(lanes.get(key));
+            }
+            final Iterator<Runnable> iterator = snapshot.iterator();
+            return new Iterator<Runnable>() {
+                private Runnable last;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Runnable next() {
+                    last = iterator.next();
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    FairExecutionQueue.this.remove(last);
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //must be called under the lock when the queue is not empty
+    private Runnable dequeue() {
+        Object key = turns.pollFirst();
+        ArrayDeque<Runnable> lane = lanes.get(key);
+        Runnable runnable = lane.pollFirst();
+        if (lane.isEmpty()) {
+            lanes.remove(key);
+        } else {
+            turns.addLast(key); //the execution waits for its next turn
+        }
+        count--;
+        return runnable;
+    }
+
+    private Object getKey(Runnable runnable) {
+        if (runnable instanceof ExecutionTask && ((ExecutionTask) runnable).getExecutionId() != null) {
+            return ((ExecutionTask) runnable).getExecutionId();
+        }
+        return NO_EXECUTION;
+    }
+
+    /**
+     * The future of an execution step - tells the queue to which execution the step belongs
+     */
+    static class ExecutionTask extends FutureTask<Object> {
+        private final Long executionId;
+
+        ExecutionTask(Long executionId, Runnable runnable) {
+            super(runnable, null);
+            this.executionId = executionId;
+        }
+
+        public Long getExecutionId() {
+            return executionId;
+        }
+    }
+}
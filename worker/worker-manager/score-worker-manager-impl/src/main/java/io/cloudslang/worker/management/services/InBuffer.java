@@ -12,7 +12,12 @@ package io.cloudslang.worker.management.services;
 
 import io.cloudslang.engine.queue.entities.ExecStatus;
 import io.cloudslang.engine.queue.entities.ExecutionMessage;
+import io.cloudslang.engine.queue.entities.ExecutionMessageConverter;
+import io.cloudslang.engine.queue.entities.Payload;
 import io.cloudslang.engine.queue.services.QueueDispatcherService;
+import io.cloudslang.engine.queue.services.WorkerNotificationService;
+import io.cloudslang.score.facade.entities.Execution;
+import io.cloudslang.worker.execution.services.ExecutionPlanCache;
 import io.cloudslang.worker.management.ExecutionsActivityListener;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
@@ -25,7 +30,14 @@ import org.springframework.context.event.ContextRefreshedEvent;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 import static ch.lambdaj.Lambda.extract;
 import static ch.lambdaj.Lambda.on;
@@ -56,6 +68,23 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
     @Qualifier("coolDownPollingMillis")
     private Integer coolDownPollingMillis = 200;
 
+    //the delay before the next poll - backs off up to coolDownPollingMillis while the queue has nothing for us
+    private volatile long pollDelay = coolDownPollingMillis;
+
+    private long minPollDelay = coolDownPollingMillis / 8;
+
+    //the fill buffer thread waits on it while the execution threads are busy, WorkerManager.endExecution() wakes it up
+    private final Object freeSlotSignal = new Object();
+
+    private volatile boolean waitingForFreeSlot;
+
+    //poll statistics - written by the fill buffer thread only
+    private volatile long pollCount;
+    private volatile long emptyPollCount;
+    private volatile long pollTimeMillis;
+    private volatile long requestedMessagesCount;
+    private volatile long receivedMessagesCount;
+
     private Thread fillBufferThread = new Thread(this);
 
     private boolean inShutdown;
@@ -79,10 +108,39 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
     @Autowired(required = false)
     private ExecutionsActivityListener executionsActivityListener;
 
+    //available only when the worker runs in the same process with the orchestrator
+    @Autowired(required = false)
+    private WorkerNotificationService workerNotificationService;
+
+    //wait for assignment notifications instead of polling the queue while it is empty
+    private boolean longPollEnabled = false;
+
+    //max time to wait for a notification - the queue is polled after it anyway
+    private long longPollMillis = 5000;
+
+    @Autowired(required = false)
+    private ExecutionPlanCache executionPlanCache;
+
+    @Autowired
+    private ExecutionMessageConverter converter;
+
+    //load the plans of the polled messages into the plan cache while the messages wait in the buffer
+    private boolean preWarmEnabled = false;
+
+    //the payloads are deserialized on this thread, not on the thread that polls the queue
+    private volatile ExecutorService preWarmExecutor;
+
     @PostConstruct
     private void init(){
         capacity = Integer.getInteger("worker.inbuffer.capacity",capacity);
         coolDownPollingMillis = Integer.getInteger("worker.inbuffer.coolDownPollingMillis",coolDownPollingMillis);
+        minPollDelay = Math.max(1, coolDownPollingMillis / 8);
+        pollDelay = coolDownPollingMillis;
+        longPollEnabled = Boolean.getBoolean("worker.inbuffer.longPoll") && workerNotificationService != null;
+        longPollMillis = Long.getLong("worker.inbuffer.longPollMillis", longPollMillis);
+        if (longPollEnabled) logger.info("InBuffer long-poll is enabled, longPollMillis is set to :" + longPollMillis);
+        preWarmEnabled = Boolean.getBoolean("worker.inbuffer.preWarmPlans") && executionPlanCache != null;
+        if (preWarmEnabled) logger.info("InBuffer pre-warm of the execution plan cache is enabled");
         logger.info("InBuffer capacity is set to :" + capacity + ", coolDownPollingMillis is set to :"+ coolDownPollingMillis);
     }
 
@@ -109,7 +167,9 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
                         int messagesToGet = capacity - workerManager.getInBufferSize();
 
                         if (logger.isDebugEnabled()) logger.debug("Polling messages from queue (max " + messagesToGet + ")");
+                        long pollStartTime = System.currentTimeMillis();
                         List<ExecutionMessage> newMessages = queueDispatcher.poll(workerUuid, messagesToGet);
+                        onPollFinished(messagesToGet, newMessages.size(), System.currentTimeMillis() - pollStartTime);
                         if (executionsActivityListener != null) {
                             executionsActivityListener.onActivate(extract(newMessages, on(ExecutionMessage.class).getExecStateId()));
                         }
@@ -118,24 +178,27 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
                         if (!newMessages.isEmpty()) {
                             //we must acknowledge the messages that we took from the queue
                             ackMessages(newMessages);
+                            if (preWarmEnabled) {
+                                preWarmPlans(newMessages);
+                            }
                             for(ExecutionMessage msg :newMessages){
                                 addExecutionMessageInner(msg);
                             }
 
                             syncManager.finishGetMessages(); //release all locks before going to sleep!!!
 
-                            Thread.sleep(coolDownPollingMillis/8); //cool down - sleep a while
+                            waitForAssignment(); //cool down - sleep a while, or not at all if the queue had more messages than we asked for
                         }
                         else {
                             syncManager.finishGetMessages(); //release all locks before going to sleep!!!
 
-                            Thread.sleep(coolDownPollingMillis); //if there are no messages - sleep a while
+                            waitForAssignment(); //if there are no messages - sleep a while (longer after every empty poll) or long-poll for new assignments
                         }
                     }
                     else {
                         syncManager.finishGetMessages(); //release all locks before going to sleep!!!
 
-                        Thread.sleep(coolDownPollingMillis); //if the buffer is not empty enough yet or in recovery - sleep a while
+                        waitForFreeSlot(); //if the buffer is not empty enough yet - sleep until an execution ends
                     }
                 }
             } catch (InterruptedException ex) {
@@ -161,6 +224,60 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
         return bufferSize < (capacity * 0.2) && checkFreeMemorySpace(MEMORY_THRESHOLD);
     }
 
+    private void onPollFinished(int requested, int received, long pollTime) {
+        pollCount++;
+        pollTimeMillis += pollTime;
+        requestedMessagesCount += requested;
+        receivedMessagesCount += received;
+
+        if (received == 0) {
+            emptyPollCount++;
+            pollDelay = Math.min(coolDownPollingMillis, Math.max(minPollDelay, pollDelay * 2));
+        }
+        else if (received >= requested) {
+            pollDelay = 0; //the queue probably holds more messages for us
+        }
+        else {
+            pollDelay = minPollDelay;
+        }
+    }
+
+    private void waitForNextPoll() throws InterruptedException {
+        if (pollDelay > 0) {
+            Thread.sleep(pollDelay);
+        }
+    }
+
+    private void waitForAssignment() throws InterruptedException {
+        //we took all the messages that were assigned to us - the next ones will be notified
+        if (longPollEnabled && pollDelay > 0) {
+            workerNotificationService.awaitAssignment(workerUuid, longPollMillis);
+        }
+        else {
+            waitForNextPoll();
+        }
+    }
+
+    private void waitForFreeSlot() throws InterruptedException {
+        synchronized (freeSlotSignal) {
+            waitingForFreeSlot = true;
+            try {
+                freeSlotSignal.wait(coolDownPollingMillis);
+            } finally {
+                waitingForFreeSlot = false;
+            }
+        }
+    }
+
+    //called by the execution threads when they finish, the thread will take the next runnable from the buffer right after
+    public void onExecutionEnded() {
+        if (waitingForFreeSlot && workerManager.getInBufferSize() - 1 < capacity * 0.2) {
+            synchronized (freeSlotSignal) {
+                freeSlotSignal.notifyAll();
+            }
+        }
+    }
+
     private void ackMessages(List<ExecutionMessage> newMessages) throws InterruptedException {
         ExecutionMessage cloned;
         for (ExecutionMessage message : newMessages) {
@@ -177,6 +294,52 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
     }
 
 
+    //finds the plans of the messages in the background and loads them, while the messages wait in the buffer.
+    //the executions extracted here are not kept - their runnables extract them again, the messages are not shared between threads
+    private void preWarmPlans(List<ExecutionMessage> newMessages) {
+        final Set<Long> runningExecutionPlanIds = new LinkedHashSet<>();
+        final List<Payload> payloads = new ArrayList<>();
+        for (ExecutionMessage message : newMessages) {
+            if (message.getExecutionObject() != null) {
+                if (message.getExecutionObject().getRunningExecutionPlanId() != null) {
+                    runningExecutionPlanIds.add(message.getExecutionObject().getRunningExecutionPlanId());
+                }
+            } else if (message.getPayload() != null) {
+                payloads.add(message.getPayload());
+            }
+        }
+        if (preWarmExecutor == null) {
+            preWarmExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "WorkerPlanPreWarmThread");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        try {
+            preWarmExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (Payload payload : payloads) {
+                        try {
+                            Execution execution = converter.extractExecution(payload);
+                            if (execution != null && execution.getRunningExecutionPlanId() != null) {
+                                runningExecutionPlanIds.add(execution.getRunningExecutionPlanId());
+                            }
+                        } catch (RuntimeException ex) {
+                            logger.warn("Failed to extract an execution for the plan cache pre-warm", ex);
+                        }
+                    }
+                    executionPlanCache.preload(runningExecutionPlanIds);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            logger.debug("The plan cache pre-warm is shut down");
+        }
+    }
+
     public void addExecutionMessage(ExecutionMessage msg) throws InterruptedException {
         try{
             syncManager.startGetMessages(); //this is a public method that can push new executions from outside - from execution threads
@@ -210,6 +373,12 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
             fillBufferThread.start();
         } else if (applicationEvent instanceof ContextClosedEvent) {
             inShutdown = true;
+            if (preWarmExecutor != null) {
+                preWarmExecutor.shutdownNow();
+            }
+            synchronized (freeSlotSignal) {
+                freeSlotSignal.notifyAll();
+            }
         }
     }
 
@@ -243,4 +412,24 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
     public int getCapacity() {
         return capacity;
     }
+
+    public long getPollCount() {
+        return pollCount;
+    }
+
+    public long getEmptyPollCount() {
+        return emptyPollCount;
+    }
+
+    public long getAveragePollTime() {
+        return pollCount == 0? 0: pollTimeMillis / pollCount;
+    }
+
+    public double getAveragePollYield() {
+        return requestedMessagesCount == 0? 0: (double) receivedMessagesCount / requestedMessagesCount;
+    }
+
+    public long getPollDelay() {
+        return pollDelay;
+    }
 }
@@ -56,6 +56,8 @@ public class SimpleExecutionRunnable implements Runnable {
 
     private boolean isRecoveryDisabled; //System property - whether the executions are recoverable in case of restart/failure.
 
+    private boolean isDeferredPayload; //System property - whether the in progress messages of the InBuffer shortcut serialize the execution only when they are dispatched.
+
     private WorkerManager workerManager;
 
     public SimpleExecutionRunnable(ExecutionService executionService,
@@ -78,6 +80,7 @@ public class SimpleExecutionRunnable implements Runnable {
         this.workerConfigurationService = workerConfigurationService;
         this.workerManager = workerManager;
         this.isRecoveryDisabled = Boolean.getBoolean("is.recovery.disabled");
+        this.isDeferredPayload = Boolean.getBoolean("worker.outbuffer.lazyPayload");
     }
 
     public ExecutionMessage getExecutionMessage() {
@@ -472,14 +475,20 @@ public class SimpleExecutionRunnable implements Runnable {
 
         Long id = queueStateIdGeneratorService.generateStateId();
         // stay in the same worker in the next step
-        return new ExecutionMessage(id,
+        ExecutionMessage inProgressMessage = new ExecutionMessage(id,
                 executionMessage.getWorkerId(),
                 groupName,
                 executionMessage.getMsgId(),
                 ExecStatus.IN_PROGRESS,
                 nextStepExecution,
-                converter.createPayload(nextStepExecution),
+                null,
                 0).setWorkerKey(executionMessage.getWorkerKey());
+        if (isDeferredPayload) {
+            //the execution is copied now, the payload is created on drain and only if the message is not shrunk by a later message of the shortcut
+            return inProgressMessage.setDeferredPayload(converter);
+        }
+        inProgressMessage.setPayload(converter.createPayload(nextStepExecution));
+        return inProgressMessage;
     }
 
 
@@ -0,0 +1,257 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management.services;
+
+import io.cloudslang.orchestrator.entities.Message;
+import org.apache.commons.lang.Validate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbound buffer that lets the execution threads put messages without taking a shared mutex.
+ *
+ * Every thread appends to one of several stripes (chosen by the thread id), the buffer weight is reserved atomically
+ * and the recovery fence is a shared (read) lock, so producers only contend with threads of the same stripe.
+ * The drain takes the exclusive side of the fence for the short time of collecting the stripes and merges
+ * them back into the put order, so shrinking the messages of the same execution lane works as before.
+ *
+ * Enabled with -Dout.buffer.striped=true
+ */
+public class StripedOutboundBufferImpl extends AbstractOutboundBuffer {
+
+	private final Stripe[] stripes = createStripes(Integer.getInteger("out.buffer.stripes", 16));
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final AtomicInteger currentWeight = new AtomicInteger();
+
+	private final AtomicInteger currentSize = new AtomicInteger();
+
+	//taken only by threads that have to wait (full buffer or nothing to drain) and by those who wake them up
+	private final ReentrantLock waitLock = new ReentrantLock();
+	private final Condition notEmpty = waitLock.newCondition();
+	private final Condition notFull = waitLock.newCondition();
+
+	private volatile boolean drainWaiting;
+
+	private final AtomicInteger putWaiting = new AtomicInteger();
+
+	@Override
+	public void put(final Message... messages) throws InterruptedException {
+		Validate.notEmpty(messages, "The array of messages is null or empty");
+		Message message = toSingleMessage(messages);
+		try {
+			syncManager.startConcurrentPutMessages();
+
+			//We need to check if the current thread was interrupted while waiting for the lock (ExecutionThread or InBufferThread in ackMessages)
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedException("Thread was interrupted while waiting on the lock! Exiting...");
+			}
+
+			while (!reserveWeight(message.getWeight())) {
+				logger.warn("Outbound buffer is full. Waiting...");
+				syncManager.releaseConcurrentPutLocks(); //so drain and recovery can begin while we are waiting
+				waitForDrain();
+				syncManager.startConcurrentPutMessages();
+			}
+
+			Stripe stripe = stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+			synchronized (stripe) {
+				stripe.messages.add(new SequencedMessage(sequence.getAndIncrement(), message));
+			}
+			currentSize.incrementAndGet();
+
+			if (drainWaiting) {
+				signalNotEmpty();
+			}
+			if (logger.isTraceEnabled()) logger.trace(message.getClass().getSimpleName() + " added to the buffer. " + getStatus());
+		} catch (InterruptedException ex) {
+			logger.warn("Buffer put action was interrupted", ex);
+			throw ex;
+		} finally {
+			syncManager.finishConcurrentPutMessages();
+		}
+	}
+
+	@Override
+	public void drain() {
+		try {
+			waitForMessages();
+		} catch (InterruptedException e) {
+			logger.warn("Drain outgoing buffer was interrupted while waiting for messages on the buffer");
+			return;
+		}
+
+		List<Message> bufferToDrain;
+		try {
+			syncManager.startConcurrentDrain();
+
+			if (logger.isDebugEnabled()) logger.debug("buffer is going to be drained. " + getStatus());
+
+			bufferToDrain = collectStripes();
+		} finally {
+			syncManager.finishConcurrentDrain();
+		}
+		signalNotFull();
+
+		//the buffer could be cleared by recovery while we were waiting for the drain lock
+		if (!bufferToDrain.isEmpty()) {
+			drainInternal(bufferToDrain);
+		}
+	}
+
+	//must be called while holding the exclusive side of the put lock - no put is in the middle of adding a message
+	private List<Message> collectStripes() {
+		List<SequencedMessage> sequencedMessages = new ArrayList<>(currentSize.get());
+		for (Stripe stripe : stripes) {
+			sequencedMessages.addAll(stripe.messages);
+			stripe.messages = new ArrayList<>();
+		}
+		//every stripe is already sorted, so this only merges the stripes back into the put order
+		Collections.sort(sequencedMessages);
+
+		List<Message> result = new ArrayList<>(sequencedMessages.size());
+		int weight = 0;
+		for (SequencedMessage sequencedMessage : sequencedMessages) {
+			result.add(sequencedMessage.message);
+			weight += sequencedMessage.message.getWeight();
+		}
+		currentSize.addAndGet(-result.size());
+		currentWeight.addAndGet(-weight);
+		return result;
+	}
+
+	private boolean reserveWeight(int weight) {
+		int current;
+		do {
+			current = currentWeight.get();
+			if (current >= maxBufferWeight) {
+				return false;
+			}
+		} while (!currentWeight.compareAndSet(current, current + weight));
+		return true;
+	}
+
+	private void waitForDrain() throws InterruptedException {
+		waitLock.lockInterruptibly();
+		try {
+			putWaiting.incrementAndGet();
+			while (currentWeight.get() >= maxBufferWeight) {
+				notFull.await();
+			}
+		} finally {
+			putWaiting.decrementAndGet();
+			waitLock.unlock();
+		}
+	}
+
+	private void waitForMessages() throws InterruptedException {
+		if (currentSize.get() > 0) {
+			return;
+		}
+		waitLock.lockInterruptibly();
+		try {
+			drainWaiting = true;
+			while (currentSize.get() == 0) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("buffer is empty. Waiting to drain...");
+				}
+				notEmpty.await();
+			}
+		} finally {
+			drainWaiting = false;
+			waitLock.unlock();
+		}
+	}
+
+	private void signalNotEmpty() {
+		waitLock.lock();
+		try {
+			notEmpty.signal();
+		} finally {
+			waitLock.unlock();
+		}
+	}
+
+	private void signalNotFull() {
+		if (putWaiting.get() > 0) {
+			waitLock.lock();
+			try {
+				notFull.signalAll();
+			} finally {
+				waitLock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public int getSize() {
+		return currentSize.get();
+	}
+
+	@Override
+	public int getWeight() {
+		return currentWeight.get();
+	}
+
+	@Override
+	public String getStatus() {
+		return "Buffer status: [W:" + currentWeight.get() + '/' + maxBufferWeight + ",S:" + currentSize.get() + "]";
+	}
+
+	@Override
+	public void doRecovery() {
+		if (logger.isDebugEnabled()) {
+			logger.debug("OutboundBuffer is in recovery, clearing buffer.");
+		}
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				stripe.messages = new ArrayList<>();
+			}
+		}
+		currentSize.set(0);
+		currentWeight.set(0);
+		signalNotFull();
+	}
+
+	private static Stripe[] createStripes(int numberOfStripes) {
+		Stripe[] result = new Stripe[Math.max(1, numberOfStripes)];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = new Stripe();
+		}
+		return result;
+	}
+
+	private static class Stripe {
+		private List<SequencedMessage> messages = new ArrayList<>();
+	}
+
+	private static class SequencedMessage implements Comparable<SequencedMessage> {
+		private final long sequence;
+		private final Message message;
+
+		private SequencedMessage(long sequence, Message message) {
+			this.sequence = sequence;
+			this.message = message;
+		}
+
+		@Override
+		public int compareTo(SequencedMessage other) {
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+}
@@ -14,6 +14,7 @@ import org.apache.log4j.Logger;
 
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Created with IntelliJ IDEA.
@@ -33,6 +34,9 @@ public class SynchronizationManagerImpl implements SynchronizationManager {
     private final Condition notEmpty = outBufferLock.newCondition();
     private final Condition notFull = outBufferLock.newCondition();
 
+    //synchronizing concurrent OutBuffer put() with its drain() and with Recovery - put() takes the shared read lock only
+    ReentrantReadWriteLock concurrentPutLock = new ReentrantReadWriteLock();
+
 
     @Override
     public void startRecovery() {
@@ -46,6 +50,7 @@ public class SynchronizationManagerImpl implements SynchronizationManager {
         recoveryDrainLock.lock();
 
         outBufferLock.lock();
+        concurrentPutLock.writeLock().lock();
 
         if(logger.isDebugEnabled()){
             logger.debug("Got recovery locks...");
@@ -66,6 +71,7 @@ public class SynchronizationManagerImpl implements SynchronizationManager {
         recoveryDrainLock.unlock();
 
         outBufferLock.unlock();
+        concurrentPutLock.writeLock().unlock();
 
         if(logger.isDebugEnabled()){
             logger.debug("Released recovery locks...");
@@ -193,6 +199,84 @@ public class SynchronizationManagerImpl implements SynchronizationManager {
         }
     }
 
+    @Override
+    public void startConcurrentPutMessages() {
+        if(logger.isDebugEnabled()){
+            logger.debug("In SynchronizationManager.startConcurrentPutMessages()");
+        }
+
+        concurrentPutLock.readLock().lock();
+
+        if(logger.isDebugEnabled()){
+            logger.debug("Out SynchronizationManager.startConcurrentPutMessages()");
+        }
+    }
+
+    @Override
+    public void finishConcurrentPutMessages() {
+        if(logger.isDebugEnabled()){
+            logger.debug("In SynchronizationManager.finishConcurrentPutMessages()");
+        }
+
+        unlockReadCompletely(concurrentPutLock);
+
+        if(logger.isDebugEnabled()){
+            logger.debug("Out SynchronizationManager.finishConcurrentPutMessages()");
+        }
+    }
+
+    @Override
+    public void startConcurrentDrain() {
+        if(logger.isDebugEnabled()){
+            logger.debug("In SynchronizationManager.startConcurrentDrain()");
+        }
+        recoveryDrainLock.lock();
+        concurrentPutLock.writeLock().lock();
+
+        if(logger.isDebugEnabled()){
+            logger.debug("Out SynchronizationManager.startConcurrentDrain()");
+        }
+    }
+
+    @Override
+    public void finishConcurrentDrain() {
+        if(logger.isDebugEnabled()){
+            logger.debug("In SynchronizationManager.finishConcurrentDrain()");
+        }
+
+        if(concurrentPutLock.isWriteLockedByCurrentThread()){
+            concurrentPutLock.writeLock().unlock();
+        }
+        unlockCompletely(recoveryDrainLock);
+
+        if(logger.isDebugEnabled()){
+            logger.debug("Out SynchronizationManager.finishConcurrentDrain()");
+        }
+    }
+
+    @Override
+    public void releaseConcurrentPutLocks() {
+        if(logger.isDebugEnabled()){
+            logger.debug("In SynchronizationManager.releaseConcurrentPutLocks()");
+        }
+
+        //unlock all locks that could be taken - so while we are waiting for the buffer to be drained, drain and recovery will be able to begin
+        unlockReadCompletely(concurrentPutLock);
+        unlockCompletely(recoveryGetLock); //if we got here from the InBuffer thread
+
+        if(logger.isDebugEnabled()){
+            logger.debug("Out SynchronizationManager.releaseConcurrentPutLocks()");
+        }
+    }
+
+    private void unlockReadCompletely(ReentrantReadWriteLock lockToUnlock){
+        int counter = lockToUnlock.getReadHoldCount();
+
+        for(int i = 0; i<counter; i++){
+            lockToUnlock.readLock().unlock();
+        }
+    }
+
     // It is very important to use this method instead of just do unlock because of 2 reasons:
     // 1. The lock could be already unlocked in case out thread was in waitForMessages() or waitForDrain()
     //2. The lock can be locked more then once - for example in InBuffer startGetMessages() and then in ackMessages() do put() in OutBuffer and do startPutMessages()
@@ -29,6 +29,7 @@ import java.io.FileFilter;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
@@ -70,7 +71,10 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
 	@Autowired
 	protected WorkerVersionService workerVersionService;
 
-	private LinkedBlockingQueue<Runnable> inBuffer;
+	@Autowired(required = false)
+	private InBuffer inBufferPoller;
+
+	private BlockingQueue<Runnable> inBuffer;
 	@Autowired
 	@Qualifier("numberOfExecutionThreads")
 	private Integer numberOfThreads;
@@ -89,25 +93,36 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
 
     private volatile int threadPoolVersion = 0;
 
+	//the waiting steps of the executions are taken in turns and not by their arrival order
+	private boolean fairScheduling = Boolean.getBoolean("worker.fair.scheduling");
+
+	//execution threads are created on demand up to the max concurrency and retired when they are idle
+	private boolean elasticThreads = Boolean.getBoolean("worker.elastic.threads");
+	private int maxConcurrency = Integer.getInteger("worker.elastic.maxConcurrency", 0);
+	private long elasticKeepAliveMillis = Long.getLong("worker.elastic.keepAliveMillis", 60 * 1000L);
+	private long threadStackSize = Long.getLong("worker.thread.stackSize", 0L);
+
 
 	@PostConstruct
 	private void init() {
 		logger.info("Initialize worker with UUID: " + workerUuid);
 		System.setProperty("worker.uuid", workerUuid); //do not remove!!!
-        inBuffer = new LinkedBlockingQueue<>();
+        inBuffer = fairScheduling? new FairExecutionQueue(): new LinkedBlockingQueue<Runnable>();
+		if (!elasticThreads || maxConcurrency <= 0) {
+			maxConcurrency = numberOfThreads;
+		}
+		if (elasticThreads) logger.info("Worker runs executions on elastic threads, max concurrency is set to: " + maxConcurrency);
 
-		executorService = new ThreadPoolExecutor(numberOfThreads,
-				numberOfThreads,
-				Long.MAX_VALUE, TimeUnit.NANOSECONDS,
-				inBuffer,
-                new WorkerThreadFactory((++threadPoolVersion) + "_WorkerExecutionThread"));
+		++threadPoolVersion;
+		executorService = createExecutorService();
 
 		mapOfRunningTasks = new ConcurrentHashMap<>(numberOfThreads);
 	}
 
 	public void addExecution(Long executionId, Runnable runnable) {
 		//It is possible that in linear flow we will have step 2 that is already running, but step 1 that still did not clean itself from the table (race condition)
-        Future future = executorService.submit(runnable);
+        FairExecutionQueue.ExecutionTask future = new FairExecutionQueue.ExecutionTask(executionId, runnable);
+        executorService.execute(future);
 
 		if( mapOfRunningTasks.get(executionId) == null){
 			mapOfRunningTasks.put(executionId, new ConcurrentLinkedQueue<Future>());
@@ -124,6 +139,11 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
 		if(queue.isEmpty()){
 			mapOfRunningTasks.remove(executionId);
 		}
+
+		//a thread is free now - let the InBuffer poll without waiting for its cool down
+		if(inBufferPoller != null){
+			inBufferPoller.onExecutionEnded();
+		}
 	}
 
 	public int getInBufferSize() {
@@ -189,7 +209,7 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
     }
 
     public int getExecutionThreadsCount() {
-        return numberOfThreads;
+        return maxConcurrency;
     }
 
     @Override
@@ -321,10 +341,24 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
         mapOfRunningTasks.clear();
 
         //Make new executor
-        executorService = new ThreadPoolExecutor(numberOfThreads,
-                numberOfThreads,
-                Long.MAX_VALUE, TimeUnit.NANOSECONDS,
+        executorService = createExecutorService();
+    }
+
+    private ExecutorService createExecutorService() {
+        WorkerThreadFactory threadFactory = new WorkerThreadFactory(threadPoolVersion + "_WorkerExecutionThread", threadStackSize);
+        if (!elasticThreads) {
+            return new ThreadPoolExecutor(numberOfThreads,
+                    numberOfThreads,
+                    Long.MAX_VALUE, TimeUnit.NANOSECONDS,
+                    inBuffer,
+                    threadFactory);
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrency,
+                maxConcurrency,
+                elasticKeepAliveMillis, TimeUnit.MILLISECONDS,
                 inBuffer,
-                new WorkerThreadFactory((threadPoolVersion) + "_WorkerExecutionThread"));
+                threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 }
@@ -10,6 +10,8 @@
 
 package io.cloudslang.worker.management.services;
 
+import io.cloudslang.engine.queue.entities.ExecutionMessageConverter;
+import io.cloudslang.worker.execution.services.ExecutionPlanCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jmx.export.annotation.ManagedAttribute;
 import org.springframework.jmx.export.annotation.ManagedResource;
@@ -27,11 +29,92 @@ public class WorkerManagerMBean {
 	@Autowired
 	private OutboundBuffer outBuffer;
 
+	@Autowired
+	private InBuffer inBuffer;
+
+	@Autowired
+	private ExecutionMessageConverter converter;
+
+	@Autowired(required = false)
+	private ExecutionPlanCache executionPlanCache;
+
 	@ManagedAttribute(description = "Current In-Buffer Size")
 	public int getInBufferSize(){
 		return workerManager.getInBufferSize();
 	}
 
+	@ManagedAttribute(description = "In-Buffer Poll Count")
+	public long getInBufferPollCount(){
+		return inBuffer.getPollCount();
+	}
+
+	@ManagedAttribute(description = "In-Buffer Empty Poll Count")
+	public long getInBufferEmptyPollCount(){
+		return inBuffer.getEmptyPollCount();
+	}
+
+	@ManagedAttribute(description = "In-Buffer Average Poll Time (ms)")
+	public long getInBufferAveragePollTime(){
+		return inBuffer.getAveragePollTime();
+	}
+
+	@ManagedAttribute(description = "In-Buffer Average Poll Yield (received/requested messages)")
+	public double getInBufferAveragePollYield(){
+		return inBuffer.getAveragePollYield();
+	}
+
+	@ManagedAttribute(description = "In-Buffer Current Poll Delay (ms)")
+	public long getInBufferPollDelay(){
+		return inBuffer.getPollDelay();
+	}
+
+	@ManagedAttribute(description = "Payloads Created Count")
+	public long getPayloadsCount(){
+		return converter.getPayloadsCount();
+	}
+
+	@ManagedAttribute(description = "Average Payload Size Written per Step (bytes)")
+	public long getAveragePayloadSize(){
+		return converter.getAveragePayloadSize();
+	}
+
+	@ManagedAttribute(description = "Compressed Payloads Count")
+	public long getCompressedPayloadsCount(){
+		return converter.getCompressedPayloadsCount();
+	}
+
+	@ManagedAttribute(description = "Payload Compression Ratio (original/compressed bytes)")
+	public double getPayloadCompressionRatio(){
+		return converter.getCompressionRatio();
+	}
+
+	@ManagedAttribute(description = "Average Payload Compression Time (micro seconds)")
+	public long getAveragePayloadCompressionTime(){
+		return converter.getAverageCompressionMicros();
+	}
+
+	@ManagedAttribute(description = "Execution Plan Cache Size")
+	public int getExecutionPlanCacheSize(){
+		return executionPlanCache == null? 0: executionPlanCache.getSize();
+	}
+
+	@ManagedAttribute(description = "Execution Plan Cache Hit Rate (hits/lookups)")
+	public double getExecutionPlanCacheHitRate(){
+		if (executionPlanCache == null) return 0;
+		long lookups = executionPlanCache.getHitCount() + executionPlanCache.getMissCount();
+		return lookups == 0? 0: (double) executionPlanCache.getHitCount() / lookups;
+	}
+
+	@ManagedAttribute(description = "Execution Plan Cache Eviction Count")
+	public long getExecutionPlanCacheEvictionCount(){
+		return executionPlanCache == null? 0: executionPlanCache.getEvictionCount();
+	}
+
+	@ManagedAttribute(description = "Execution Plan Cache Refresh Count")
+	public long getExecutionPlanCacheRefreshCount(){
+		return executionPlanCache == null? 0: executionPlanCache.getRefreshCount();
+	}
+
 	@ManagedAttribute(description = "Current Out-Buffer Size")
 	public int getOutBufferSize(){
 		return outBuffer.getSize();
@@ -22,17 +22,23 @@ class WorkerThreadFactory implements ThreadFactory {
 
     private int index;
     private String name;
+    private long stackSize; //0 - the default stack size of the JVM
 
     public WorkerThreadFactory(String commonName) {
+        this(commonName, 0);
+    }
+
+    public WorkerThreadFactory(String commonName, long stackSize) {
         name = commonName;
+        this.stackSize = stackSize;
     }
 
     public Thread newThread(final Runnable command) {
-        return new Thread(new Runnable() {
+        return new Thread(null, new Runnable() {
             public void run() {
                 command.run();
             }
-        }, name + "-" + getThreadIDX());
+        }, name + "-" + getThreadIDX(), stackSize);
     }
 
     private int getThreadIDX() {
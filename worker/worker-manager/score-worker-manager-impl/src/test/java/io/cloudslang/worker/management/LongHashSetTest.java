@@ -0,0 +1,71 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongHashSetTest {
+
+    @Test
+    public void testAddContainsRemove() {
+        LongHashSet set = LongHashSet.of(Arrays.asList(1L, 0L, -5L, null, 1L));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0L));
+        assertTrue(set.contains(-5L));
+        assertFalse(set.contains(2L));
+
+        assertTrue(set.remove(0L));
+        assertFalse(set.remove(0L));
+        assertFalse(set.contains(0L));
+        assertFalse(set.add(1L));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        LongHashSet set = LongHashSet.of(Arrays.asList(1L, 2L));
+        LongHashSet copy = set.copy();
+        copy.add(3L);
+        copy.remove(1L);
+        assertTrue(set.contains(1L));
+        assertFalse(set.contains(3L));
+        assertFalse(copy.contains(1L));
+        assertTrue(copy.contains(3L));
+    }
+
+    @Test
+    public void testMatchesHashSet() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200000; i++) {
+            long value = random.nextInt(5000) * 1024L; //values that collide in the low bits
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value = 0; value < 5000 * 1024L; value += 1024) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management;
+
+import io.cloudslang.orchestrator.entities.MergedConfigurationDataContainer;
+import io.cloudslang.orchestrator.services.MergedConfigurationService;
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static io.cloudslang.worker.management.WorkerConfigurationServiceImplTest.container;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WorkerConfigurationServiceImplBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(WorkerConfigurationServiceImplBenchmarkTest.class);
+
+    private static final int CANCELLED_EXECUTIONS = 50000;
+    private static final int CHECKS = 1000000;
+
+    private WorkerConfigurationServiceImpl workerConfigurationService;
+    private MergedConfigurationService mergedConfigurationService;
+
+    @Before
+    public void setUp() {
+        workerConfigurationService = new WorkerConfigurationServiceImpl();
+        mergedConfigurationService = mock(MergedConfigurationService.class);
+        ReflectionTestUtils.setField(workerConfigurationService, "mergedConfigurationService", mergedConfigurationService);
+        workerConfigurationService.setEnabled(true);
+    }
+
+    /**
+     * Reports the cost of the cancel and pause checks that the worker makes before every step,
+     * with the list and the concatenated keys it used before and with the long set and the paused map
+     */
+    @Test
+    public void stepCheckBenchmark() {
+        List<Long> cancelled = new ArrayList<>();
+        Set<String> paused = new HashSet<>();
+        for (long i = 1; i <= CANCELLED_EXECUTIONS; i++) {
+            cancelled.add(i * 7);
+            paused.add(i * 7 + ":" + i);
+        }
+        MergedConfigurationDataContainer full = container("epoch1", 1, false, cancelled, null, paused, null, null);
+        when(mergedConfigurationService.fetchMergedConfigurationDelta(anyString(), anyString(), anyLong())).thenReturn(full);
+        workerConfigurationService.refresh();
+
+        for (int round = 0; round < 2; round++) { //the first round warms up
+            int found = 0;
+            long startTime = System.nanoTime();
+            for (int i = 0; i < CHECKS / 100; i++) { //the list is too slow for all of the checks
+                if (cancelled.contains((long) i)) found++;
+            }
+            long listTime = (System.nanoTime() - startTime) * 100;
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < CHECKS; i++) {
+                if (workerConfigurationService.isExecutionCancelled((long) i)) found++;
+            }
+            long setTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < CHECKS; i++) {
+                if (paused.contains(i + ":" + String.valueOf("branch"))) found++;
+            }
+            long concatTime = System.nanoTime() - startTime;
+
+            startTime = System.nanoTime();
+            for (int i = 0; i < CHECKS; i++) {
+                if (workerConfigurationService.isExecutionPaused((long) i, "branch")) found++;
+            }
+            long mapTime = System.nanoTime() - startTime;
+
+            if (round == 1) {
+                logger.info("Cancel check with " + CANCELLED_EXECUTIONS + " cancelled executions: list " + listTime / CHECKS +
+                        " ns, long set " + setTime / CHECKS + " ns. Pause check: concatenated key " + concatTime / CHECKS +
+                        " ns, paused map " + mapTime / CHECKS + " ns (" + found + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management;
+
+import io.cloudslang.orchestrator.entities.MergedConfigurationDataContainer;
+import io.cloudslang.orchestrator.services.MergedConfigurationService;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WorkerConfigurationServiceImplTest {
+
+    private WorkerConfigurationServiceImpl workerConfigurationService;
+    private MergedConfigurationService mergedConfigurationService;
+
+    @Before
+    public void setUp() {
+        workerConfigurationService = new WorkerConfigurationServiceImpl();
+        mergedConfigurationService = mock(MergedConfigurationService.class);
+        ReflectionTestUtils.setField(workerConfigurationService, "mergedConfigurationService", mergedConfigurationService);
+        workerConfigurationService.setEnabled(true);
+    }
+
+    @Test
+    public void testApplyDelta() {
+        MergedConfigurationDataContainer full = container("epoch1", 1, false, Arrays.asList(1L, 2L), null,
+                new HashSet<>(Arrays.asList("3:a", "3:null")), null, Arrays.asList("group1"));
+        when(mergedConfigurationService.fetchMergedConfigurationDelta(anyString(), eq((String) null), eq(0L))).thenReturn(full);
+        workerConfigurationService.refresh();
+        assertTrue(workerConfigurationService.isExecutionCancelled(1L));
+        assertTrue(workerConfigurationService.isExecutionPaused(3L, "a"));
+        assertTrue(workerConfigurationService.isExecutionPaused(3L, null));
+        assertFalse(workerConfigurationService.isExecutionPaused(3L, "b"));
+        assertTrue(workerConfigurationService.isMemberOf("group1"));
+
+        MergedConfigurationDataContainer delta = container("epoch1", 2, true, Arrays.asList(4L), Arrays.asList(1L),
+                Collections.singleton("5:b"), Collections.singleton("3:a"), null);
+        when(mergedConfigurationService.fetchMergedConfigurationDelta(anyString(), eq("epoch1"), eq(1L))).thenReturn(delta);
+        workerConfigurationService.refresh();
+        assertFalse(workerConfigurationService.isExecutionCancelled(1L));
+        assertTrue(workerConfigurationService.isExecutionCancelled(2L));
+        assertTrue(workerConfigurationService.isExecutionCancelled(4L));
+        assertFalse(workerConfigurationService.isExecutionPaused(3L, "a"));
+        assertTrue(workerConfigurationService.isExecutionPaused(3L, null));
+        assertTrue(workerConfigurationService.isExecutionPaused(5L, "b"));
+        assertTrue(workerConfigurationService.isMemberOf("group1")); //the groups did not change
+        verify(mergedConfigurationService, never()).fetchMergedConfiguration(anyString());
+    }
+
+    @Test
+    public void testFallbackToFullFetch() {
+        when(mergedConfigurationService.fetchMergedConfigurationDelta(anyString(), anyString(), anyLong())).thenThrow(new RuntimeException("old orchestrator"));
+        MergedConfigurationDataContainer full = new MergedConfigurationDataContainer();
+        full.setCancelledExecutions(Arrays.asList(1L));
+        full.setPausedExecutions(Collections.singleton("not an execution key"));
+        when(mergedConfigurationService.fetchMergedConfiguration(anyString())).thenReturn(full);
+        workerConfigurationService.refresh();
+        assertTrue(workerConfigurationService.isExecutionCancelled(1L));
+        assertFalse(workerConfigurationService.isExecutionCancelled(null));
+        assertFalse(workerConfigurationService.isExecutionPaused(1L, "a"));
+        assertFalse(workerConfigurationService.isMemberOf("group1"));
+    }
+
+    @Test
+    public void testDisabledWorkerDoesNotRefresh() {
+        workerConfigurationService.setEnabled(false);
+        workerConfigurationService.refresh();
+        verify(mergedConfigurationService, never()).fetchMergedConfigurationDelta(anyString(), anyString(), anyLong());
+        verify(mergedConfigurationService, never()).fetchMergedConfiguration(anyString());
+    }
+
+    static MergedConfigurationDataContainer container(String epoch, long version, boolean delta,
+                                                      List<Long> cancelled, List<Long> removedCancelled,
+                                                      Set<String> paused, Set<String> removedPaused, List<String> groups) {
+        MergedConfigurationDataContainer container = new MergedConfigurationDataContainer();
+        container.setEpoch(epoch);
+        container.setVersion(version);
+        container.setDelta(delta);
+        container.setCancelledExecutions(cancelled);
+        container.setRemovedCancelledExecutions(removedCancelled);
+        container.setPausedExecutions(paused);
+        container.setRemovedPausedExecutions(removedPaused);
+        container.setWorkerGroups(groups);
+        return container;
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management.services;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FairExecutionQueueBenchmarkTest {
+
+    private static final Logger logger = Logger.getLogger(FairExecutionQueueBenchmarkTest.class);
+
+    private static final int THREADS = 8;
+    private static final int BIG_FLOW_BRANCHES = 5000;
+    private static final int SMALL_FLOWS = 500;
+    private static final long STEP_DURATION = 1L;
+
+    /**
+     * Runs one flow with many branches that arrive first and many single branch flows that arrive after it,
+     * and reports how long the small flows waited with the FIFO queue and with the fair queue
+     */
+    @Test
+    public void fairnessBenchmark() throws InterruptedException {
+        for (BlockingQueue<Runnable> queue : Arrays.<BlockingQueue<Runnable>>asList(new LinkedBlockingQueue<Runnable>(), new FairExecutionQueue())) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, Long.MAX_VALUE, TimeUnit.NANOSECONDS, queue);
+            final CountDownLatch bigFlowLatch = new CountDownLatch(BIG_FLOW_BRANCHES);
+            final CountDownLatch smallFlowsLatch = new CountDownLatch(SMALL_FLOWS);
+            final AtomicLong smallFlowsWaitTime = new AtomicLong();
+            final AtomicLong smallFlowsMaxWaitTime = new AtomicLong();
+
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < BIG_FLOW_BRANCHES; i++) {
+                executor.execute(new FairExecutionQueue.ExecutionTask(1L, new Step(bigFlowLatch, null, null)));
+            }
+            for (int i = 0; i < SMALL_FLOWS; i++) {
+                executor.execute(new FairExecutionQueue.ExecutionTask(100L + i, new Step(smallFlowsLatch, smallFlowsWaitTime, smallFlowsMaxWaitTime)));
+            }
+            smallFlowsLatch.await();
+            long smallFlowsTime = System.currentTimeMillis() - startTime;
+            bigFlowLatch.await();
+            long totalTime = System.currentTimeMillis() - startTime;
+            executor.shutdown();
+
+            logger.info(queue.getClass().getSimpleName() + ": " + SMALL_FLOWS + " small flows done after " + smallFlowsTime +
+                    " ms (avg wait " + smallFlowsWaitTime.get() / SMALL_FLOWS + " ms, max wait " + smallFlowsMaxWaitTime.get() +
+                    " ms), all " + (BIG_FLOW_BRANCHES + SMALL_FLOWS) + " steps done after " + totalTime + " ms");
+        }
+    }
+
+    static class Step implements Runnable {
+        private final long createTime = System.currentTimeMillis();
+        private final CountDownLatch latch;
+        private final AtomicLong waitTime;
+        private final AtomicLong maxWaitTime;
+
+        Step(CountDownLatch latch, AtomicLong waitTime, AtomicLong maxWaitTime) {
+            this.latch = latch;
+            this.waitTime = waitTime;
+            this.maxWaitTime = maxWaitTime;
+        }
+
+        @Override
+        public void run() {
+            long wait = System.currentTimeMillis() - createTime;
+            if (waitTime != null) {
+                waitTime.addAndGet(wait);
+                long max;
+                while ((max = maxWaitTime.get()) < wait && !maxWaitTime.compareAndSet(max, wait)) {
+                    //retry
+                }
+            }
+            try {
+                Thread.sleep(STEP_DURATION);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            latch.countDown();
+        }
+    }
+}
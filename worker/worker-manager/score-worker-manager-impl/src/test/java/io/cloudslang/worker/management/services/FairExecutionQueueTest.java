@@ -0,0 +1,104 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FairExecutionQueueTest {
+
+    @Test
+    public void testExecutionsTakeTurns() {
+        FairExecutionQueue queue = new FairExecutionQueue();
+        List<Runnable> bigFlow = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            bigFlow.add(task(1L));
+            queue.offer(bigFlow.get(i));
+        }
+        Runnable smallFlow1 = task(2L);
+        Runnable smallFlow2 = task(3L);
+        Runnable noExecution = new DummyRunnable();
+        queue.offer(smallFlow1);
+        queue.offer(smallFlow2);
+        queue.offer(noExecution);
+
+        assertEquals(6, queue.size());
+        assertSame(bigFlow.get(0), queue.peek());
+        assertEquals(Arrays.asList(bigFlow.get(0), smallFlow1, smallFlow2, noExecution, bigFlow.get(1), bigFlow.get(2)),
+                Arrays.asList(queue.poll(), queue.poll(), queue.poll(), queue.poll(), queue.poll(), queue.poll()));
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testRemoveAndDrain() throws InterruptedException {
+        FairExecutionQueue queue = new FairExecutionQueue();
+        Runnable first = task(1L);
+        Runnable second = task(1L);
+        Runnable other = task(2L);
+        queue.offer(first);
+        queue.offer(second);
+        queue.offer(other);
+
+        assertTrue(queue.remove(first));
+        assertFalse(queue.remove(first));
+        assertEquals(2, queue.size());
+
+        List<Runnable> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained));
+        assertEquals(Arrays.asList(second, other), drained);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testShutdownNowReturnsWaitingTasks() throws InterruptedException {
+        FairExecutionQueue queue = new FairExecutionQueue();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, Long.MAX_VALUE, TimeUnit.NANOSECONDS, queue);
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new FairExecutionQueue.ExecutionTask(1L, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }));
+        executor.execute(task(1L));
+        executor.execute(task(2L));
+
+        assertEquals(2, executor.shutdownNow().size());
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private FairExecutionQueue.ExecutionTask task(Long executionId) {
+        return new FairExecutionQueue.ExecutionTask(executionId, new DummyRunnable());
+    }
+
+    static class DummyRunnable implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+}
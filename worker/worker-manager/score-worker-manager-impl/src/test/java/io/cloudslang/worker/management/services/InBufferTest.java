@@ -10,7 +10,12 @@
 
 package io.cloudslang.worker.management.services;
 
+import io.cloudslang.engine.queue.entities.ExecutionMessage;
+import io.cloudslang.engine.queue.entities.ExecutionMessageConverter;
+import io.cloudslang.engine.queue.entities.Payload;
 import io.cloudslang.engine.queue.services.QueueDispatcherService;
+import io.cloudslang.score.facade.entities.Execution;
+import io.cloudslang.worker.execution.services.ExecutionPlanCache;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -22,6 +27,15 @@ import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import static org.mockito.Mockito.*;
 
@@ -55,6 +69,12 @@ public class InBufferTest {
     @Mock
     private SynchronizationManager synchronizationManager;
 
+    @Mock
+    private ExecutionPlanCache executionPlanCache;
+
+    @Mock
+    private ExecutionMessageConverter converter;
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -88,4 +108,81 @@ public class InBufferTest {
 	        Thread.sleep(100L);
         }
     }
+
+    @Test(timeout = 5000)
+    public void testEmptyPollsBackOffToCoolDown() throws Exception {
+        ReflectionTestUtils.setField(inBuffer, "capacity", 100);
+        ReflectionTestUtils.setField(inBuffer, "coolDownPollingMillis", 80);
+        ReflectionTestUtils.setField(inBuffer, "minPollDelay", 10L);
+        ReflectionTestUtils.setField(inBuffer, "pollDelay", 10L);
+        when(workerManager.isUp()).thenReturn(true);
+        when(workerManager.getInBufferSize()).thenReturn(0);
+
+        Thread thread = new Thread(inBuffer);
+        thread.start();
+
+        verify(queueDispatcher, timeout(2000).atLeast(5)).poll(anyString(), anyInt());
+        inBuffer.onApplicationEvent(mock(ContextClosedEvent.class));
+        thread.join();
+
+        assertEquals(80L, inBuffer.getPollDelay());
+        assertEquals(inBuffer.getPollCount(), inBuffer.getEmptyPollCount());
+        assertTrue(inBuffer.getAveragePollYield() == 0);
+    }
+
+    @Test(timeout = 5000)
+    public void testEndOfExecutionWakesUpFullBuffer() throws Exception {
+        ReflectionTestUtils.setField(inBuffer, "capacity", 100);
+        ReflectionTestUtils.setField(inBuffer, "coolDownPollingMillis", 60000);
+        when(workerManager.isUp()).thenReturn(true);
+        when(workerManager.getInBufferSize()).thenReturn(100);
+
+        Thread thread = new Thread(inBuffer);
+        thread.start();
+
+        while (!(Boolean) ReflectionTestUtils.getField(inBuffer, "waitingForFreeSlot")) {
+            Thread.sleep(10L);
+        }
+        verifyZeroInteractions(queueDispatcher);
+
+        //the buffer has drained - the thread must poll right away instead of waiting for the cool down
+        when(workerManager.getInBufferSize()).thenReturn(0);
+        inBuffer.onExecutionEnded();
+        verify(queueDispatcher, timeout(1000).atLeastOnce()).poll(anyString(), anyInt());
+
+        inBuffer.onApplicationEvent(mock(ContextClosedEvent.class));
+        thread.join();
+    }
+
+    @Test(timeout = 5000)
+    public void testPolledPlansArePreWarmed() throws Exception {
+        ReflectionTestUtils.setField(inBuffer, "capacity", 100);
+        ReflectionTestUtils.setField(inBuffer, "preWarmEnabled", true);
+        when(workerManager.isUp()).thenReturn(true);
+        when(workerManager.getInBufferSize()).thenReturn(0);
+        when(simpleExecutionRunnableFactory.getObject()).thenReturn(mock(SimpleExecutionRunnable.class));
+
+        Payload payload1 = new Payload(new byte[] {1});
+        Payload payload2 = new Payload(new byte[] {2});
+        Payload payload3 = new Payload(new byte[] {3});
+        Execution execution1 = new Execution(1L, 10L, 0L, Collections.<String, String>emptyMap(), null);
+        when(converter.extractExecution(payload1)).thenReturn(execution1);
+        when(converter.extractExecution(payload2)).thenReturn(new Execution(2L, 10L, 0L, Collections.<String, String>emptyMap(), null));
+        when(converter.extractExecution(payload3)).thenReturn(new Execution(3L, 20L, 0L, Collections.<String, String>emptyMap(), null));
+        ExecutionMessage message1 = new ExecutionMessage("1", payload1);
+        when(queueDispatcher.poll(anyString(), anyInt())).thenReturn(
+                Arrays.asList(message1, new ExecutionMessage("2", payload2), new ExecutionMessage("3", payload3)),
+                Collections.<ExecutionMessage>emptyList());
+
+        Thread thread = new Thread(inBuffer);
+        thread.start();
+
+        verify(executionPlanCache, timeout(1000)).preload(new LinkedHashSet<>(Arrays.asList(10L, 20L)));
+        inBuffer.onApplicationEvent(mock(ContextClosedEvent.class));
+        thread.join();
+
+        //the executions are extracted on the pre-warm thread and are not set on the messages the runnables get
+        assertNull(message1.getExecutionObject());
+        verify(converter, times(3)).extractExecution(any(Payload.class));
+    }
 }
@@ -0,0 +1,176 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management.services;
+
+import io.cloudslang.orchestrator.entities.Message;
+import io.cloudslang.orchestrator.services.OrchestratorDispatcherService;
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Reports the put/drain throughput of the locking and the striped buffers with 8, 64 and 256 producers,
+ * and the bulks that the locking buffer drains while a few producers put messages of different weights for a while
+ */
+public class OutboundBufferBenchmarkTest {
+
+	private static final Logger logger = Logger.getLogger(OutboundBufferBenchmarkTest.class);
+
+	@Test
+	public void throughputBenchmark() throws InterruptedException {
+		long DURATION = 500L;
+		for (int producers : Arrays.asList(8, 64, 256)) {
+			for (AbstractOutboundBuffer outBuffer : Arrays.asList(new OutboundBufferImpl(), new StripedOutboundBufferImpl())) {
+				DrainStatistics statistics = new DrainStatistics();
+				initBuffer(outBuffer, 10000, 1500, statistics);
+				long puts = runProducers(outBuffer, producers, DURATION, 0);
+				Assert.assertEquals(puts, statistics.size);
+				logger.info(outBuffer.getClass().getSimpleName() + " with " + producers + " producers: " + puts * 1000 / DURATION + " puts/sec");
+			}
+		}
+	}
+
+	@Test
+	public void longevityBenchmark() throws InterruptedException {
+		long DURATION = 5 * 1000L;
+		OutboundBufferImpl outBuffer = new OutboundBufferImpl();
+		DrainStatistics statistics = new DrainStatistics();
+		initBuffer(outBuffer, 10, 3, statistics);
+
+		long puts = runProducers(outBuffer, 5, DURATION, 5L);
+
+		Assert.assertEquals(puts, statistics.size);
+		logger.info("Drain statistics: " + statistics.report());
+	}
+
+	//odd producers put messages of weight 1, even producers of weight 2
+	private long runProducers(final OutboundBuffer outBuffer, int producers, long duration, final long pause) throws InterruptedException {
+		final AtomicBoolean run = new AtomicBoolean(true);
+		final AtomicLong puts = new AtomicLong();
+		final CountDownLatch latch = new CountDownLatch(producers);
+		AtomicBoolean draining = new AtomicBoolean(true);
+		Thread drainer = startDrainer(outBuffer, draining);
+		for (int i = 1; i <= producers; i++) {
+			final String lane = "T-" + i;
+			final int weight = i % 2 != 0? 1: 2;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while (run.get()) {
+							outBuffer.put(new WeightedMsg(lane, weight));
+							puts.incrementAndGet();
+							if (pause > 0) {
+								Thread.sleep(pause);
+							}
+						}
+					} catch (InterruptedException ex) {
+						//ignore
+					} finally {
+						latch.countDown();
+					}
+				}
+			}, lane).start();
+		}
+		Thread.sleep(duration);
+		run.set(false);
+		latch.await(); //producers that wait for a full buffer are released by the drainer
+		stopDrainer(outBuffer, drainer, draining);
+		return puts.get();
+	}
+
+	private Thread startDrainer(final OutboundBuffer outBuffer, final AtomicBoolean run) {
+		Thread drainer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (run.get()) {
+					outBuffer.drain();
+				}
+			}
+		}, "T-D");
+		drainer.start();
+		return drainer;
+	}
+
+	private void stopDrainer(OutboundBuffer outBuffer, Thread drainer, AtomicBoolean run) throws InterruptedException {
+		run.set(false);
+		drainer.interrupt();
+		drainer.join();
+		while (outBuffer.getSize() > 0) {
+			outBuffer.drain();
+		}
+	}
+
+	private void initBuffer(AbstractOutboundBuffer outBuffer, int maxBufferWeight, int maxBulkWeight, final DrainStatistics statistics) {
+		ReflectionTestUtils.setField(outBuffer, "retryTemplate", new RetryTemplate());
+		ReflectionTestUtils.setField(outBuffer, "recoveryManager", mock(WorkerRecoveryManager.class));
+		ReflectionTestUtils.setField(outBuffer, "syncManager", new SynchronizationManagerImpl());
+		ReflectionTestUtils.setField(outBuffer, "workerUuid", "1234");
+		ReflectionTestUtils.setField(outBuffer, "maxBufferWeight", maxBufferWeight);
+		ReflectionTestUtils.setField(outBuffer, "maxBulkWeight", maxBulkWeight);
+		ReflectionTestUtils.setField(outBuffer, "dispatcherService", new OrchestratorDispatcherService() {
+			@Override
+			public void dispatch(List<? extends Serializable> messages, String bulkNumber, String wrv, String workerUuid) {
+				int weight = 0;
+				for (Serializable message : messages) weight += ((Message) message).getWeight();
+				statistics.add(messages.size(), weight);
+			}
+		});
+	}
+
+	static class DrainStatistics {
+		private long counter;
+		private long size;
+		private long weight;
+
+		public synchronized void add(int size, int weight) {
+			counter++;
+			this.size += size;
+			this.weight += weight;
+		}
+
+		public synchronized String report() {
+			return "Buffer has sent " + counter + " bulks, avg(size): " + size / counter + ", avg(weight): " + weight / counter + ", total messages: " + size;
+		}
+	}
+
+	static class WeightedMsg implements Message {
+		private final String id;
+		private final int weight;
+
+		WeightedMsg(String id, int weight) {
+			this.id = id;
+			this.weight = weight;
+		}
+
+		public int getWeight() {
+			return weight;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public List<Message> shrink(List<Message> messages) {
+			return messages;
+		}
+	}
+}
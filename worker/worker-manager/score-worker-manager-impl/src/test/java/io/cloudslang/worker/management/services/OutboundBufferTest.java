@@ -10,10 +10,13 @@
 
 package io.cloudslang.worker.management.services;
 
+import io.cloudslang.engine.queue.entities.ExecStatus;
+import io.cloudslang.engine.queue.entities.ExecutionMessage;
+import io.cloudslang.engine.queue.entities.ExecutionMessageConverter;
 import io.cloudslang.orchestrator.entities.Message;
+import io.cloudslang.score.facade.entities.Execution;
 import io.cloudslang.orchestrator.services.OrchestratorDispatcherService;
 import junit.framework.Assert;
-import org.apache.log4j.Logger;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -25,13 +28,14 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import static org.mockito.Matchers.argThat;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
@@ -44,7 +48,6 @@ import static org.mockito.Mockito.verify;
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration
 public class OutboundBufferTest {
-	private final Logger logger = Logger.getLogger(getClass());
 
 	private static final int MAX_BUFFER_WEIGHT = 10;
 	private static final int MAX_BULK_WEIGHT = 3;
@@ -149,93 +152,75 @@ public class OutboundBufferTest {
 
 
 
-	private void waitForThreadStateToBe(Thread thread, Thread.State state) throws InterruptedException {
-		int waitCount = 0;
-		while (!thread.getState().equals(state) && waitCount <= 20) {
-			Thread.sleep(50);
-			waitCount++;
-		}
-	}
-
+	/**
+	 * Checks that deferred payloads are serialized only for the messages that survive the shrink, and that they hold
+	 * the execution as it was when the message was put, for a linear flow running in the InBuffer shortcut
+	 */
 	@Test
-	public void longevityTest() throws InterruptedException {
-		int THREADS_NUM = 5;
-		long CHECK_DURATION = 5*1000L;
-		long INFO_FREQUENCY = 2*1000L;
-
-		final AtomicBoolean run = new AtomicBoolean(true);
-		final CountDownLatch latch = new CountDownLatch(THREADS_NUM+1);
-
-		for (int i=1; i<=THREADS_NUM; i++){
-			final int index = i;
-			new Thread(new Runnable() {
-				private final Class<? extends Message> messageClass = (index%2)!=0? DummyMsg1.class: DummyMsg2.class;
-
-				@Override
-				public void run() {
-					int counter=0;
-					try {
-						logger.debug("started, will generate messages of " + messageClass.getSimpleName());
-
-						while (run.get()){
-							buffer.put(messageClass.newInstance());
-							counter++;
-							Thread.sleep(5L);
-						}
-						logger.debug("thread finished. processed " + counter + " messages");
-					} catch (Exception ex) {
-						logger.error("thread finished", ex);
-					} finally {
-						latch.countDown();
-					}
-				}
-			}, "T-"+i).start();
-		}
+	public void testDeferredPayloads() throws InterruptedException {
+		final int STEPS = 2000;
+		final int STEPS_PER_DRAIN = 4; //4 messages pairs fill 8 of the 10 buffer weight
 
-		final DrainStatistics statistics = new DrainStatistics();
+		final List<Message> dispatched = new ArrayList<>();
 		//noinspection unchecked
 		doAnswer(new Answer<Object>() {
 			@Override
 			public Object answer(InvocationOnMock invocation) throws Throwable {
-				@SuppressWarnings("unchecked") List<Message> messages = (List<Message>) invocation.getArguments()[0];
-				int weight = 0;
-				for (Message message : messages) weight += message.getWeight();
-				statistics.add(messages.size(), weight);
+				//noinspection unchecked
+				dispatched.addAll((List<Message>) invocation.getArguments()[0]);
 				return null;
 			}
 		}).when(dispatcherService).dispatch(anyList(), anyString(), anyString(), anyString());
 
-		new Thread(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					logger.debug("started");
-
-					while (run.get()){
-						buffer.drain();
-						Thread.sleep(30L);
-					}
-
-					while (buffer.getSize() > 0) buffer.drain();
-				} catch (Exception ex) {
-					logger.error("thread finished", ex);
-				} finally {
-					latch.countDown();
+		HashMap<String, Serializable> context = new HashMap<>();
+		for (int i = 0; i < 500; i++) {
+			context.put("var" + i, "value of var " + i);
+		}
+		Execution execution = new Execution(1L, 2L, 0L, context, null);
+		ExecutionMessageConverter converter = new ExecutionMessageConverter();
+
+		ReflectionTestUtils.setField(buffer, "maxBulkWeight", 1500);
+		try {
+			for (int i = 0; i < STEPS; i++) {
+				ExecutionMessage finishedMessage = new ExecutionMessage(i, "worker", "group", "100", ExecStatus.FINISHED, null, 1).setWorkerKey("100");
+				ExecutionMessage inProgressMessage = new ExecutionMessage(i + 1, "worker", "group", "100", ExecStatus.IN_PROGRESS, execution, null, 0)
+						.setWorkerKey("100").setDeferredPayload(converter);
+				buffer.put(finishedMessage, inProgressMessage);
+				//nothing is serialized when the message is put
+				Assert.assertEquals(i / STEPS_PER_DRAIN, converter.getPayloadsCount());
+				//the step that runs after the message was put does not change its payload
+				execution.getSystemContext().put("step", i);
+				if ((i + 1) % STEPS_PER_DRAIN == 0) {
+					buffer.drain();
 				}
 			}
-		}, "T-D").start();
 
-		long t = System.currentTimeMillis();
-		while (System.currentTimeMillis()-t < CHECK_DURATION){
-			Thread.sleep(INFO_FREQUENCY);
-			logger.debug(buffer.getStatus());
+			int inProgressCount = 0;
+			for (Message message : dispatched) {
+				ExecutionMessage executionMessage = (ExecutionMessage) message;
+				if (executionMessage.getStatus() == ExecStatus.IN_PROGRESS) {
+					inProgressCount++;
+					Assert.assertFalse(executionMessage.hasDeferredPayload());
+					Assert.assertNotNull(executionMessage.getPayload());
+					Execution payloadExecution = converter.extractExecution(executionMessage.getPayload());
+					Assert.assertEquals((int) executionMessage.getExecStateId() - 2, payloadExecution.getSystemContext().get("step"));
+				}
+			}
+			//only the in progress messages that survived the shrink were serialized
+			Assert.assertEquals(STEPS / STEPS_PER_DRAIN, inProgressCount);
+			Assert.assertEquals(STEPS / STEPS_PER_DRAIN, converter.getPayloadsCount());
+		} finally {
+			ReflectionTestUtils.setField(buffer, "maxBulkWeight", MAX_BULK_WEIGHT);
 		}
-		run.set(false);
-		latch.await();
-
-		System.out.println("Drain statistics: " + statistics.report());
 	}
 
+	private void waitForThreadStateToBe(Thread thread, Thread.State state) throws InterruptedException {
+		int waitCount = 0;
+		while (!thread.getState().equals(state) && waitCount <= 20) {
+			Thread.sleep(50);
+			waitCount++;
+		}
+	}
 
     /**
      * Makes sure the recovery clears worker state
@@ -273,23 +258,6 @@ public class OutboundBufferTest {
         }
     }
 
-    static class DrainStatistics{
-        private int counter;
-        private int size;
-        private int weight;
-
-        public void add(int size, int weight){
-            counter++;
-            this.size+=size;
-            this.weight+=weight;
-        }
-
-        public String report(){
-            return "Buffer has sent " + counter + " bulks, avg(size): " + size/counter + ", avg(weight): " + weight/counter + ", total messages: " + size;
-        }
-    }
-
-
     static class DummyMsg1 implements Message {
         public int getWeight() {
             return 1;
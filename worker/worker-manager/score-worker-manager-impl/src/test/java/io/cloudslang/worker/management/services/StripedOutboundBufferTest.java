@@ -0,0 +1,356 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management.services;
+
+import io.cloudslang.orchestrator.entities.Message;
+import io.cloudslang.orchestrator.services.OrchestratorDispatcherService;
+import junit.framework.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class StripedOutboundBufferTest {
+
+	private static final int MAX_BUFFER_WEIGHT = 10;
+	private static final int MAX_BULK_WEIGHT = 3;
+
+	@Autowired
+	private WorkerRecoveryManager recoveryManager;
+
+	@Autowired
+	private OutboundBuffer buffer;
+
+	@Autowired
+	private OrchestratorDispatcherService dispatcherService;
+
+	private final List<Message> dispatched = Collections.synchronizedList(new ArrayList<Message>());
+
+	@Before
+	public void setUp() {
+		((WorkerRecoveryListener)buffer).doRecovery();
+		reset(recoveryManager, dispatcherService);
+		dispatched.clear();
+		doAnswer(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				@SuppressWarnings("unchecked") List<Message> messages = (List<Message>) invocation.getArguments()[0];
+				dispatched.addAll(messages);
+				return null;
+			}
+		}).when(dispatcherService).dispatch(anyList(), anyString(), anyString(), anyString());
+	}
+
+	@Test
+	public void testAggregation() throws InterruptedException {
+		buffer.put(new LaneMsg("a", 0));
+		buffer.put(new LaneMsg("b", 0), new LaneMsg("b", 1));
+		Assert.assertEquals(2, buffer.getSize());
+		Assert.assertEquals(3, buffer.getWeight());
+
+		buffer.drain();
+
+		Assert.assertEquals(3, dispatched.size());
+		Assert.assertEquals(0, buffer.getSize());
+		Assert.assertEquals(0, buffer.getWeight());
+	}
+
+	@Test
+	public void testProducerBlocking() throws InterruptedException {
+		while (buffer.getWeight() < MAX_BUFFER_WEIGHT) {
+			buffer.put(new LaneMsg("a", 0));
+		}
+
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					buffer.put(new LaneMsg("a", 1));
+				} catch (InterruptedException e) {
+					//ignore
+				}
+			}
+		});
+		thread.start();
+
+		waitForThreadStateToBe(thread, Thread.State.WAITING);
+		Assert.assertEquals("inserting thread should be in a waiting state when inserting to full buffer", Thread.State.WAITING, thread.getState());
+
+		buffer.drain();
+		waitForThreadStateToBe(thread, Thread.State.TERMINATED);
+		Assert.assertEquals("inserting thread should be in a terminated state after inserting to buffer", Thread.State.TERMINATED, thread.getState());
+		thread.join();
+		Assert.assertEquals(1, buffer.getSize());
+	}
+
+	@Test
+	public void testConsumerBlocking() throws InterruptedException {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				buffer.drain();
+			}
+		});
+		thread.start();
+
+		waitForThreadStateToBe(thread, Thread.State.WAITING);
+		Assert.assertEquals("reading thread should be in a waiting state when the buffer is empty", Thread.State.WAITING, thread.getState());
+
+		buffer.put(new LaneMsg("a", 0), new LaneMsg("a", 1));
+
+		waitForThreadStateToBe(thread, Thread.State.TERMINATED);
+		Assert.assertEquals("reading thread should be in a terminated after a message was inserted to the buffer", Thread.State.TERMINATED, thread.getState());
+		thread.join();
+		Assert.assertEquals(2, dispatched.size());
+	}
+
+	@Test
+	public void testRecovery() throws InterruptedException {
+		buffer.put(new LaneMsg("a", 0));
+		buffer.put(new LaneMsg("a", 1));
+		Assert.assertEquals(2, buffer.getSize());
+		Assert.assertEquals(2, buffer.getWeight());
+
+		((WorkerRecoveryListener)buffer).doRecovery();
+		Assert.assertEquals(0, buffer.getSize());
+		Assert.assertEquals(0, buffer.getWeight());
+	}
+
+	/**
+	 * Every lane hands its next message to another thread only after the previous put returned (like the InBuffer shortcut),
+	 * so the dispatched messages of every lane must keep their order although they are put into different stripes
+	 */
+	@Test
+	public void testLaneOrderIsKept() throws InterruptedException {
+		final int LANES = 20;
+		final int STEPS = 200;
+		final ExecutorService executor = Executors.newFixedThreadPool(16);
+		final CountDownLatch lanesDone = new CountDownLatch(LANES);
+		final AtomicBoolean run = new AtomicBoolean(true);
+
+		Thread drainer = startDrainer(buffer, run);
+		for (int i = 0; i < LANES; i++) {
+			executor.submit(new LaneStep(executor, lanesDone, "lane-" + i, 0, STEPS));
+		}
+		Assert.assertTrue(lanesDone.await(60, TimeUnit.SECONDS));
+		stopDrainer(buffer, drainer, run);
+		executor.shutdownNow();
+
+		Assert.assertEquals(LANES * STEPS, dispatched.size());
+		Map<String, Integer> lastStep = new HashMap<>();
+		for (Message message : dispatched) {
+			LaneMsg laneMsg = (LaneMsg) message;
+			Integer last = lastStep.get(laneMsg.getId());
+			Assert.assertEquals("messages of " + laneMsg.getId() + " were reordered", last == null? 0: last + 1, laneMsg.step);
+			lastStep.put(laneMsg.getId(), laneMsg.step);
+		}
+	}
+
+	/**
+	 * Every message put by concurrent producers into the locking and the striped buffers is dispatched exactly once
+	 */
+	@Test
+	public void testConcurrentPutsAreDrained() throws InterruptedException {
+		final int PRODUCERS = 8;
+		final int PUTS = 1000;
+		for (final AbstractOutboundBuffer outBuffer : Arrays.asList(new OutboundBufferImpl(), new StripedOutboundBufferImpl())) {
+			AtomicLong drained = new AtomicLong();
+			initBuffer(outBuffer, drained);
+			AtomicBoolean draining = new AtomicBoolean(true);
+			Thread drainer = startDrainer(outBuffer, draining);
+			final CountDownLatch latch = new CountDownLatch(PRODUCERS);
+			for (int i = 0; i < PRODUCERS; i++) {
+				final String lane = "T-" + i;
+				new Thread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							for (int step = 0; step < PUTS; step++) {
+								outBuffer.put(new LaneMsg(lane, step));
+							}
+						} catch (InterruptedException ex) {
+							//ignore
+						} finally {
+							latch.countDown();
+						}
+					}
+				}, lane).start();
+			}
+			Assert.assertTrue(latch.await(60, TimeUnit.SECONDS));
+			stopDrainer(outBuffer, drainer, draining);
+
+			Assert.assertEquals(PRODUCERS * PUTS, drained.get());
+		}
+	}
+
+	private Thread startDrainer(final OutboundBuffer outBuffer, final AtomicBoolean run) {
+		Thread drainer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (run.get()) {
+					outBuffer.drain();
+				}
+			}
+		}, "T-D");
+		drainer.start();
+		return drainer;
+	}
+
+	private void stopDrainer(OutboundBuffer outBuffer, Thread drainer, AtomicBoolean run) throws InterruptedException {
+		run.set(false);
+		drainer.interrupt();
+		drainer.join();
+		while (outBuffer.getSize() > 0) {
+			outBuffer.drain();
+		}
+	}
+
+	private void initBuffer(AbstractOutboundBuffer outBuffer, final AtomicLong drained) {
+		ReflectionTestUtils.setField(outBuffer, "retryTemplate", new RetryTemplate());
+		ReflectionTestUtils.setField(outBuffer, "recoveryManager", mock(WorkerRecoveryManager.class));
+		ReflectionTestUtils.setField(outBuffer, "syncManager", new SynchronizationManagerImpl());
+		ReflectionTestUtils.setField(outBuffer, "workerUuid", "1234");
+		ReflectionTestUtils.setField(outBuffer, "maxBufferWeight", 10000);
+		ReflectionTestUtils.setField(outBuffer, "dispatcherService", new OrchestratorDispatcherService() {
+			@Override
+			public void dispatch(List<? extends Serializable> messages, String bulkNumber, String wrv, String workerUuid) {
+				drained.addAndGet(messages.size());
+			}
+		});
+	}
+
+	private void waitForThreadStateToBe(Thread thread, Thread.State state) throws InterruptedException {
+		int waitCount = 0;
+		while (!thread.getState().equals(state) && waitCount <= 20) {
+			Thread.sleep(50);
+			waitCount++;
+		}
+	}
+
+	private class LaneStep implements Runnable {
+		private final ExecutorService executor;
+		private final CountDownLatch lanesDone;
+		private final String lane;
+		private final int step;
+		private final int steps;
+
+		private LaneStep(ExecutorService executor, CountDownLatch lanesDone, String lane, int step, int steps) {
+			this.executor = executor;
+			this.lanesDone = lanesDone;
+			this.lane = lane;
+			this.step = step;
+			this.steps = steps;
+		}
+
+		@Override
+		public void run() {
+			try {
+				buffer.put(new LaneMsg(lane, step));
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (step + 1 < steps) {
+				executor.submit(new LaneStep(executor, lanesDone, lane, step + 1, steps));
+			} else {
+				lanesDone.countDown();
+			}
+		}
+	}
+
+	static class LaneMsg implements Message {
+		private final String lane;
+		private final int step;
+
+		LaneMsg(String lane, int step) {
+			this.lane = lane;
+			this.step = step;
+		}
+
+		public int getWeight() {
+			return 1;
+		}
+
+		public String getId() {
+			return lane;
+		}
+
+		public List<Message> shrink(List<Message> messages) {
+			return messages;
+		}
+	}
+
+	@Configuration
+	static class config {
+		static{
+			System.setProperty("out.buffer.max.buffer.weight", String.valueOf(MAX_BUFFER_WEIGHT));
+			System.setProperty("out.buffer.max.bulk.weight", String.valueOf(MAX_BULK_WEIGHT));
+		}
+
+		@Bean
+		public WorkerRecoveryManager workerRecoveryManager() {
+			return mock(WorkerRecoveryManager.class);
+		}
+
+		@Bean
+		OrchestratorDispatcherService orchestratorDispatcherService(){
+			return mock(OrchestratorDispatcherService.class);
+		}
+
+		@Bean
+		SynchronizationManager synchronizationManager(){
+			return new SynchronizationManagerImpl();
+		}
+
+		@Bean
+		public RetryTemplate retryTemplate() {
+			return new RetryTemplate();
+		}
+
+		@Bean
+		public OutboundBuffer outboundBuffer() {
+			return new StripedOutboundBufferImpl();
+		}
+
+		@Bean
+		String workerUuid() {
+			return "1234";
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package io.cloudslang.worker.management.services;
+
+import org.apache.log4j.Logger;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class WorkerManagerBenchmarkTest {
+
+	private static final Logger logger = Logger.getLogger(WorkerManagerBenchmarkTest.class);
+
+	/**
+	 * Runs I/O bound steps on the fixed thread pool and on the elastic execution threads
+	 * and reports the steps per second and the memory that the threads take
+	 */
+	@Test
+	public void elasticThreadsBenchmark() throws InterruptedException {
+		final int FIXED_POOL_SIZE = 200;
+		final long STEP_IO_MILLIS = 100L;
+		final long ELASTIC_STACK_SIZE = 256 * 1024L;
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+		for (int executions : new int[]{1000, 10000}) {
+			for (boolean elastic : new boolean[]{false, true}) {
+				final WorkerManager manager = new WorkerManager();
+				ReflectionTestUtils.setField(manager, "workerUuid", WorkerManagerTest.CREDENTIAL_UUID);
+				ReflectionTestUtils.setField(manager, "numberOfThreads", FIXED_POOL_SIZE);
+				ReflectionTestUtils.setField(manager, "elasticThreads", elastic);
+				ReflectionTestUtils.setField(manager, "maxConcurrency", elastic? executions: 0);
+				ReflectionTestUtils.setField(manager, "threadStackSize", elastic? ELASTIC_STACK_SIZE: 0L);
+				ReflectionTestUtils.invokeMethod(manager, "init");
+
+				System.gc();
+				long usedMemory = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+				threadMXBean.resetPeakThreadCount();
+				int threadsBefore = threadMXBean.getThreadCount();
+
+				final CountDownLatch latch = new CountDownLatch(executions);
+				final AtomicInteger currentPoolSteps = new AtomicInteger();
+				long t = System.currentTimeMillis();
+				for (long i = 0; i < executions; i++) {
+					final long executionId = i;
+					manager.addExecution(executionId, new Runnable() {
+						@Override
+						public void run() {
+							try {
+								if (manager.isFromCurrentThreadPool(Thread.currentThread().getName())) {
+									currentPoolSteps.incrementAndGet();
+								}
+								Thread.sleep(STEP_IO_MILLIS);
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							} finally {
+								manager.endExecution(executionId);
+								latch.countDown();
+							}
+						}
+					});
+				}
+				latch.await();
+				long time = System.currentTimeMillis() - t;
+				long usedMemoryDelta = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() - usedMemory;
+				int peakThreads = threadMXBean.getPeakThreadCount() - threadsBefore;
+
+				ExecutorService executorService = (ExecutorService) ReflectionTestUtils.getField(manager, "executorService");
+				executorService.shutdownNow();
+				executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+				assertThat(currentPoolSteps.get()).isEqualTo(executions);
+				logger.info((elastic? "Elastic threads (max " + executions + ", stack " + ELASTIC_STACK_SIZE / 1024 + "k)":
+						"Fixed pool (" + FIXED_POOL_SIZE + " threads)") + ": " + executions + " concurrent executions, " +
+						executions * 1000L / Math.max(1, time) + " steps/sec, " + peakThreads + " threads, heap delta " +
+						usedMemoryDelta / (1024 * 1024) + " MB, reserved stacks " +
+						(elastic? peakThreads * ELASTIC_STACK_SIZE / (1024 * 1024) + " MB": "JVM default"));
+			}
+		}
+	}
+}